@@ -0,0 +1,250 @@
+package com.corinto.estoquecerveja.analytics;
+
+import com.corinto.estoquecerveja.dto.CervejaDTO;
+import com.corinto.estoquecerveja.dto.MarcaEstoqueDTO;
+import com.corinto.estoquecerveja.dto.TipoEstoqueDTO;
+import com.corinto.estoquecerveja.enums.Tipo;
+import com.corinto.estoquecerveja.event.CervejaChangedEvent;
+import com.corinto.estoquecerveja.repository.CervejaRepository;
+import com.corinto.estoquecerveja.stock.CervejaStockCounters;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Stock aggregates kept up to date from {@link CervejaChangedEvent}s, so reading them never scans the table.
+ *
+ * <p>Units and SKUs are summed per {@link Tipo} and per marca, and every beer sits in a set ordered by fill ratio
+ * ({@code quantidade / max}). A change costs O(log n); the per-Tipo totals are O(1) to read, and the k lowest-stock
+ * beers are read in O(k).
+ *
+ * <p>A stock change takes the quantidade of the beer's live stock counter rather than the one copied into the event,
+ * since listeners may see two changes of one beer in the opposite order they were made in. A beer with no counter
+ * loaded here takes the quantidade of the event, which its owner's counter set; those changes are relayed from the
+ * owning node one after the other. Either way a change sets the quantidade rather than adding its
+ * {@linkplain CervejaChangedEvent#getDelta() delta}, so applying it twice changes nothing.
+ *
+ * <p>A rebuild reads the catalogue into fresh aggregates without the lock, with the live counters laid over the rows
+ * since a row lacks the stock not yet written back. The changes that arrive meanwhile are applied as usual and
+ * queued. The fresh aggregates are then swapped in and the queue replayed on top of them under a short write lock.
+ * Replaying a change the read already saw is harmless, since no change is applied as a delta.
+ */
+@Slf4j
+@Component
+public class CervejaStockAnalytics {
+
+    private static final Comparator<CervejaDTO> BY_FILL_RATIO = Comparator
+            .comparingDouble(CervejaStockAnalytics::fillRatio)
+            .thenComparing(CervejaDTO::getId);
+
+    private final CervejaRepository cervejaRepository;
+    private final CervejaStockCounters stockCounters;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private Map<Long, CervejaDTO> cervejasById = new HashMap<>();
+    private NavigableSet<CervejaDTO> byFillRatio = new TreeSet<>(BY_FILL_RATIO);
+    private Map<String, Totals> porMarca = new HashMap<>();
+    private Totals[] porTipo = new Totals[Tipo.values().length];
+    private List<CervejaChangedEvent> durante;
+
+    @Autowired
+    public CervejaStockAnalytics(CervejaRepository cervejaRepository, CervejaStockCounters stockCounters) {
+        this.cervejaRepository = cervejaRepository;
+        this.stockCounters = stockCounters;
+        clear();
+    }
+
+    public List<TipoEstoqueDTO> byTipo() {
+        lock.readLock().lock();
+        try {
+            List<TipoEstoqueDTO> tipos = new ArrayList<>(porTipo.length);
+            for (Tipo tipo : Tipo.values()) {
+                Totals totals = porTipo[tipo.ordinal()];
+                tipos.add(new TipoEstoqueDTO(tipo, totals.skus, totals.quantidade, totals.max));
+            }
+            return tipos;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<MarcaEstoqueDTO> byMarca() {
+        lock.readLock().lock();
+        try {
+            List<MarcaEstoqueDTO> marcas = new ArrayList<>(porMarca.size());
+            porMarca.forEach((marca, totals) -> marcas.add(new MarcaEstoqueDTO(marca,
+                    totals.skus,
+                    totals.quantidade,
+                    totals.max,
+                    totals.max == 0 ? 0 : (double) totals.quantidade / totals.max)));
+            marcas.sort(Comparator.comparingDouble(MarcaEstoqueDTO::getOcupacao).thenComparing(MarcaEstoqueDTO::getMarca));
+            return marcas;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns up to {@code limit} beers with the lowest fill ratio, lowest first, stopping at the first beer whose
+     * ratio is not below {@code maxFillRatio}.
+     */
+    public List<CervejaDTO> lowestStock(int limit, double maxFillRatio) {
+        lock.readLock().lock();
+        try {
+            List<CervejaDTO> lowest = new ArrayList<>(Math.min(limit, byFillRatio.size()));
+            for (CervejaDTO cervejaDTO : byFillRatio) {
+                if (lowest.size() >= limit || fillRatio(cervejaDTO) >= maxFillRatio) {
+                    break;
+                }
+                lowest.add(cervejaDTO.toBuilder().build());
+            }
+            return lowest;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        try (Stream<CervejaDTO> cervejas = cervejaRepository.streamAllDTOs()) {
+            rebuild(cervejas);
+        }
+    }
+
+    /**
+     * Replaces the contents with {@code cervejas}. Changes are queued from before the stream is first read, so none
+     * is lost when the stream only reads the database once consumed. If the stream fails, the old contents stay.
+     */
+    public synchronized void rebuild(Stream<CervejaDTO> cervejas) {
+        lock.writeLock().lock();
+        try {
+            durante = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        CervejaStockAnalytics novas = new CervejaStockAnalytics(cervejaRepository, stockCounters);
+        boolean lidas = false;
+        try {
+            cervejas.forEach(cervejaDTO -> novas.put(comEstoqueVivo(cervejaDTO)));
+            lidas = true;
+        } finally {
+            lock.writeLock().lock();
+            try {
+                List<CervejaChangedEvent> queued = durante;
+                durante = null;
+                if (lidas) {
+                    cervejasById = novas.cervejasById;
+                    byFillRatio = novas.byFillRatio;
+                    porMarca = novas.porMarca;
+                    porTipo = novas.porTipo;
+                    queued.forEach(this::apply);
+                    log.info("Stock analytics built with {} beers, {} changes replayed", cervejasById.size(), queued.size());
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCervejaChanged(CervejaChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            apply(event);
+            if (durante != null) {
+                durante.add(event);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void apply(CervejaChangedEvent event) {
+        CervejaDTO cervejaDTO = event.getCerveja();
+        switch (event.getOperacao()) {
+            case CREATED:
+            case UPDATED:
+                put(cervejaDTO);
+                break;
+            case DELETED:
+                remove(cervejaDTO.getId());
+                break;
+            case STOCK_CHANGED:
+                CervejaDTO stored = cervejasById.get(cervejaDTO.getId());
+                if (stored != null) {
+                    int quantidade = stockCounters.quantidade(stored.getId()).orElse(cervejaDTO.getQuantidade());
+                    if (quantidade != stored.getQuantidade()) {
+                        put(stored.toBuilder().quantidade(quantidade).build());
+                    }
+                }
+                break;
+        }
+    }
+
+    private CervejaDTO comEstoqueVivo(CervejaDTO cervejaDTO) {
+        stockCounters.quantidade(cervejaDTO.getId()).ifPresent(cervejaDTO::setQuantidade);
+        return cervejaDTO;
+    }
+
+    private void put(CervejaDTO cervejaDTO) {
+        remove(cervejaDTO.getId());
+        CervejaDTO stored = cervejaDTO.toBuilder().build();
+        cervejasById.put(stored.getId(), stored);
+        byFillRatio.add(stored);
+        porTipo[stored.getTipo().ordinal()].add(stored, 1);
+        porMarca.computeIfAbsent(stored.getMarca(), marca -> new Totals()).add(stored, 1);
+    }
+
+    private void remove(Long id) {
+        CervejaDTO stored = cervejasById.remove(id);
+        if (stored == null) {
+            return;
+        }
+        byFillRatio.remove(stored);
+        porTipo[stored.getTipo().ordinal()].add(stored, -1);
+        Totals marca = porMarca.get(stored.getMarca());
+        marca.add(stored, -1);
+        if (marca.skus == 0) {
+            porMarca.remove(stored.getMarca());
+        }
+    }
+
+    private void clear() {
+        cervejasById.clear();
+        byFillRatio.clear();
+        porMarca.clear();
+        for (int i = 0; i < porTipo.length; i++) {
+            porTipo[i] = new Totals();
+        }
+    }
+
+    private static double fillRatio(CervejaDTO cervejaDTO) {
+        return cervejaDTO.getMax() <= 0 ? 0 : (double) cervejaDTO.getQuantidade() / cervejaDTO.getMax();
+    }
+
+    private static final class Totals {
+
+        private int skus;
+        private long quantidade;
+        private long max;
+
+        private void add(CervejaDTO cervejaDTO, int sign) {
+            skus += sign;
+            quantidade += sign * (long) cervejaDTO.getQuantidade();
+            max += sign * (long) cervejaDTO.getMax();
+        }
+    }
+}
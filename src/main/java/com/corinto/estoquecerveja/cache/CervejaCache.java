@@ -0,0 +1,100 @@
+package com.corinto.estoquecerveja.cache;
+
+import com.corinto.estoquecerveja.dto.CervejaDTO;
+import com.corinto.estoquecerveja.event.CervejaChangeCounter;
+import com.corinto.estoquecerveja.event.CervejaChangedEvent;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Bounded read-through cache of beers by nome. Entries are dropped after every committed change, and hit, miss and eviction counts are published as the {@code cache.*} metrics of {@value #CACHE_NAME}.
+ */
+@Component
+public class CervejaCache {
+
+    static final String CACHE_NAME = "cervejas";
+
+    private final Cache<String, CervejaDTO> cache;
+    private final AtomicLong generation = new AtomicLong();
+
+    @Autowired
+    public CervejaCache(MeterRegistry meterRegistry,
+                        @Value("${estoque.cache.cervejas.maximum-size:10000}") long maximumSize,
+                        @Value("${estoque.cache.cervejas.expire-after-write:10m}") Duration expireAfterWrite) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    /**
+     * Returns a copy of the cached beer, loading it on a miss. Missing beers are not cached.
+     */
+    public Optional<CervejaDTO> get(String nome, Function<String, Optional<CervejaDTO>> loader) {
+        CervejaDTO cached = cache.get(nome, key -> loader.apply(key).orElse(null));
+        return Optional.ofNullable(cached).map(cervejaDTO -> cervejaDTO.toBuilder().build());
+    }
+
+    /**
+     * Counts the committed changes seen so far, for {@link #warm(Stream, long)}.
+     */
+    public long generation() {
+        return generation.get();
+    }
+
+    /**
+     * Puts beers read from the database without replacing fresher entries. If any change committed after
+     * {@code since} was taken, the beers may have been read before it, so every entry is dropped instead.
+     */
+    public void warm(Stream<CervejaDTO> cervejas, long since) {
+        try {
+            cervejas.forEach(cervejaDTO -> cache.asMap().putIfAbsent(cervejaDTO.getNome(), cervejaDTO.toBuilder().build()));
+        } finally {
+            if (generation.get() != since) {
+                cache.invalidateAll();
+            }
+        }
+    }
+
+    /**
+     * Returns the nomes most likely to be kept, hottest first, up to the maximum size.
+     */
+    public List<String> hottest() {
+        return cache.policy().eviction()
+                .map(eviction -> List.copyOf(eviction.hottest((int) eviction.getMaximum()).keySet()))
+                .orElse(List.of());
+    }
+
+    /**
+     * Runs after the change commits. An invalidation also discards a load of the same nome that is still in flight,
+     * so a reader that saw the old row cannot put it back. The generation moves before anything is dropped, so a
+     * warm-up that checks it after putting its entries either sees the change or has its entries dropped by it. An
+     * edit may have renamed the beer, and the event only carries the new nome, so edits drop every entry.
+     */
+    @Order(CervejaChangeCounter.ORDER - 1)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCervejaChanged(CervejaChangedEvent event) {
+        generation.incrementAndGet();
+        if (event.getOperacao() == CervejaChangedEvent.Operacao.UPDATED) {
+            cache.invalidateAll();
+            return;
+        }
+        cache.invalidate(event.getCerveja().getNome());
+    }
+}
@@ -0,0 +1,242 @@
+package com.corinto.estoquecerveja.catalogue;
+
+import com.corinto.estoquecerveja.dto.CervejaDTO;
+import com.corinto.estoquecerveja.enums.Tipo;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Immutable catalogue mapped read-only from a file, so its rows live outside the heap.
+ *
+ * <p>The rows are ordered by id and stored column by column at fixed widths: {@code id} as a long, {@code max} and
+ * {@code quantidade} as ints and {@code tipo} as a byte ordinal. {@code nome} and {@code marca} are UTF-8 in one
+ * byte heap, located through an offset column. An open-addressing table of row numbers, at most half full, indexes
+ * the nome bytes. A lookup allocates the encoded nome and the beer it returns, nothing else.
+ */
+final class CatalogueFile {
+
+    private static final int MAGIC = 0x43455256;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+    private static final Tipo[] TIPOS = Tipo.values();
+
+    private final Path path;
+    private final ByteBuffer buffer;
+    private final int rows;
+    private final int slots;
+    private final int ids;
+    private final int maxes;
+    private final int quantidades;
+    private final int offsets;
+    private final int table;
+    private final int tipos;
+    private final int strings;
+
+    private CatalogueFile(Path path, ByteBuffer buffer) throws IOException {
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("Not a catalogue file of version " + VERSION + ": " + path);
+        }
+        this.path = path;
+        this.buffer = buffer;
+        this.rows = buffer.getInt(8);
+        this.slots = buffer.getInt(12);
+        this.ids = HEADER_BYTES;
+        this.maxes = ids + rows * Long.BYTES;
+        this.quantidades = maxes + rows * Integer.BYTES;
+        this.offsets = quantidades + rows * Integer.BYTES;
+        this.table = offsets + (2 * rows + 1) * Integer.BYTES;
+        this.tipos = table + slots * Integer.BYTES;
+        this.strings = tipos + rows;
+    }
+
+    static CatalogueFile map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new CatalogueFile(path, buffer);
+        }
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    int size() {
+        return rows;
+    }
+
+    long id(int row) {
+        return buffer.getLong(ids + row * Long.BYTES);
+    }
+
+    /**
+     * Returns the row of the beer named {@code nome}, or -1.
+     */
+    int find(String nome) {
+        byte[] chave = nome.getBytes(StandardCharsets.UTF_8);
+        int mascara = slots - 1;
+        for (int slot = hash(chave, 0, chave.length) & mascara; ; slot = (slot + 1) & mascara) {
+            int row = buffer.getInt(table + slot * Integer.BYTES) - 1;
+            if (row < 0) {
+                return -1;
+            }
+            if (nomeEquals(row, chave)) {
+                return row;
+            }
+        }
+    }
+
+    /**
+     * Returns the first row whose id is greater than {@code cursor}, or {@link #size()}.
+     */
+    int firstAfter(long cursor) {
+        int low = 0;
+        int high = rows;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (id(mid) <= cursor) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    CervejaDTO get(int row) {
+        return new CervejaDTO(id(row),
+                string(2 * row),
+                string(2 * row + 1),
+                buffer.getInt(maxes + row * Integer.BYTES),
+                buffer.getInt(quantidades + row * Integer.BYTES),
+                TIPOS[buffer.get(tipos + row)]);
+    }
+
+    private boolean nomeEquals(int row, byte[] chave) {
+        int inicio = offset(2 * row);
+        if (offset(2 * row + 1) - inicio != chave.length) {
+            return false;
+        }
+        for (int i = 0; i < chave.length; i++) {
+            if (buffer.get(strings + inicio + i) != chave[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String string(int indice) {
+        int inicio = offset(indice);
+        byte[] bytes = new byte[offset(indice + 1) - inicio];
+        buffer.get(strings + inicio, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int offset(int indice) {
+        return buffer.getInt(offsets + indice * Integer.BYTES);
+    }
+
+    /**
+     * FNV-1a.
+     */
+    private static int hash(byte[] bytes, int inicio, int fim) {
+        int hash = 0x811c9dc5;
+        for (int i = inicio; i < fim; i++) {
+            hash ^= bytes[i] & 0xff;
+            hash *= 0x01000193;
+        }
+        return hash;
+    }
+
+    /**
+     * Collects beers in id order and writes them as a catalogue file.
+     */
+    static final class Writer {
+
+        private long[] ids = new long[1024];
+        private int[] maxes = new int[1024];
+        private int[] quantidades = new int[1024];
+        private byte[] tipos = new byte[1024];
+        private int[] offsets = new int[2 * 1024 + 1];
+        private final ByteArrayOutputStream strings = new ByteArrayOutputStream();
+        private int rows;
+
+        void add(CervejaDTO cervejaDTO) {
+            if (rows > 0 && cervejaDTO.getId() <= ids[rows - 1]) {
+                throw new IllegalArgumentException("Beers must be added in id order");
+            }
+            if (rows == ids.length) {
+                int capacity = rows * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                maxes = Arrays.copyOf(maxes, capacity);
+                quantidades = Arrays.copyOf(quantidades, capacity);
+                tipos = Arrays.copyOf(tipos, capacity);
+                offsets = Arrays.copyOf(offsets, 2 * capacity + 1);
+            }
+            ids[rows] = cervejaDTO.getId();
+            maxes[rows] = cervejaDTO.getMax();
+            quantidades[rows] = cervejaDTO.getQuantidade();
+            tipos[rows] = (byte) cervejaDTO.getTipo().ordinal();
+            strings.writeBytes(cervejaDTO.getNome().getBytes(StandardCharsets.UTF_8));
+            offsets[2 * rows + 1] = strings.size();
+            strings.writeBytes(cervejaDTO.getMarca().getBytes(StandardCharsets.UTF_8));
+            offsets[2 * rows + 2] = strings.size();
+            rows++;
+        }
+
+        /**
+         * Writes the file and maps it. Fails when the file would not fit in a single mapping of 2 GB.
+         */
+        CatalogueFile write(Path path) throws IOException {
+            int slots = Integer.highestOneBit(Math.max(2 * rows, 1) * 2 - 1);
+            long bytes = HEADER_BYTES + rows * (long) (Long.BYTES + 2 * Integer.BYTES + 1)
+                    + (2L * rows + 1) * Integer.BYTES + (long) slots * Integer.BYTES + strings.size();
+            if (bytes > Integer.MAX_VALUE) {
+                throw new IOException("Catalogue of " + rows + " beers does not fit in a single mapped file");
+            }
+            byte[] heap = strings.toByteArray();
+            int[] tabela = new int[slots];
+            for (int row = 0; row < rows; row++) {
+                int slot = hash(heap, offsets[2 * row], offsets[2 * row + 1]) & (slots - 1);
+                while (tabela[slot] != 0) {
+                    slot = (slot + 1) & (slots - 1);
+                }
+                tabela[slot] = row + 1;
+            }
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), 1 << 16))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(rows);
+                out.writeInt(slots);
+                for (int row = 0; row < rows; row++) {
+                    out.writeLong(ids[row]);
+                }
+                for (int row = 0; row < rows; row++) {
+                    out.writeInt(maxes[row]);
+                }
+                for (int row = 0; row < rows; row++) {
+                    out.writeInt(quantidades[row]);
+                }
+                for (int indice = 0; indice <= 2 * rows; indice++) {
+                    out.writeInt(offsets[indice]);
+                }
+                for (int slot : tabela) {
+                    out.writeInt(slot);
+                }
+                out.write(tipos, 0, rows);
+                out.write(heap);
+            }
+            return map(path);
+        }
+    }
+}
@@ -0,0 +1,337 @@
+package com.corinto.estoquecerveja.catalogue;
+
+import com.corinto.estoquecerveja.dto.CervejaDTO;
+import com.corinto.estoquecerveja.event.CervejaChangeCounter;
+import com.corinto.estoquecerveja.event.CervejaChangedEvent;
+import com.corinto.estoquecerveja.repository.CervejaRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Serves {@code findByNome} and the catalogue listings from a {@link CatalogueFile} instead of the database, when
+ * {@code estoque.catalogue-snapshot.enabled} is set.
+ *
+ * <p>Committed changes are kept on the heap, by beer id, until the next file holds them, and reads check them before
+ * the file, so a read sees every change the other read paths see. Every
+ * {@code estoque.catalogue-snapshot.rebuild-interval-ms} with changes pending, a single background thread writes a new
+ * file from the database into {@code estoque.catalogue-snapshot.directory} and swaps it in together with the changes
+ * that came after it started reading. The heap then only grows with the beers changed since the last rebuild, not with
+ * the catalogue. Until the first file is built, reads go to the database.
+ *
+ * <p>Stock changes only keep the beer's last quantidade, in an overlay of their own, since a beer without a loaded
+ * stock counter gets no live stock from the service. They do not make a rebuild due, or every sale would trigger one,
+ * unless more than {@code MAX_QUANTIDADES} beers are waiting in that overlay.
+ */
+@Slf4j
+@Component
+public class CatalogueSnapshot {
+
+    private static final int PAGE_SIZE = 10_000;
+    private static final int MAX_QUANTIDADES = 10_000;
+
+    private final CervejaRepository cervejaRepository;
+    private final boolean enabled;
+    private final Path directory;
+    private final Executor rebuilder;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final AtomicBoolean rebuildAgendado = new AtomicBoolean();
+    private final AtomicLong sequencia = new AtomicLong();
+    private volatile Estado estado = new Estado(null, new Alteracoes());
+
+    @Autowired
+    public CatalogueSnapshot(CervejaRepository cervejaRepository,
+                             @Value("${estoque.catalogue-snapshot.enabled:false}") boolean enabled,
+                             @Value("${estoque.catalogue-snapshot.directory:${java.io.tmpdir}/estoque-cerveja/catalogue}") Path directory) {
+        this(cervejaRepository, enabled, directory, Executors.newSingleThreadExecutor(daemon("catalogue-snapshot-")));
+    }
+
+    CatalogueSnapshot(CervejaRepository cervejaRepository, boolean enabled, Path directory, Executor rebuilder) {
+        this.cervejaRepository = cervejaRepository;
+        this.enabled = enabled;
+        this.directory = directory;
+        this.rebuilder = rebuilder;
+    }
+
+    /**
+     * Whether reads can be served from the snapshot. Once it is, it stays so.
+     */
+    public boolean isReady() {
+        return estado.arquivo != null;
+    }
+
+    public Optional<CervejaDTO> findByNome(String nome) {
+        Estado atual = estado;
+        Long id = atual.alteracoes.porNome.get(nome);
+        if (id != null) {
+            Alteracao alteracao = atual.alteracoes.porId.get(id);
+            if (alteracao != null && alteracao.cerveja != null && alteracao.cerveja.getNome().equals(nome)) {
+                return Optional.of(atual.alteracoes.comQuantidade(alteracao.cerveja.toBuilder().build(), alteracao.sequencia));
+            }
+        }
+        int row = atual.arquivo.find(nome);
+        if (row < 0 || atual.alteracoes.porId.containsKey(atual.arquivo.id(row))) {
+            return Optional.empty();
+        }
+        return Optional.of(atual.alteracoes.comQuantidade(atual.arquivo.get(row), 0L));
+    }
+
+    /**
+     * Returns up to {@code limit} beers with an id greater than {@code cursor}, ordered by id.
+     */
+    public List<CervejaDTO> listAfter(long cursor, int limit) {
+        Estado atual = estado;
+        CatalogueFile arquivo = atual.arquivo;
+        Iterator<Alteracao> alteracoes = new TreeMap<>(atual.alteracoes.porId).tailMap(cursor, false).values().iterator();
+        List<CervejaDTO> cervejas = new ArrayList<>(Math.min(limit, arquivo.size() + 16));
+        Alteracao alteracao = alteracoes.hasNext() ? alteracoes.next() : null;
+        int row = arquivo.firstAfter(cursor);
+        while (cervejas.size() < limit && (row < arquivo.size() || alteracao != null)) {
+            long idArquivo = row < arquivo.size() ? arquivo.id(row) : Long.MAX_VALUE;
+            if (alteracao != null && alteracao.id <= idArquivo) {
+                if (alteracao.cerveja != null) {
+                    cervejas.add(atual.alteracoes.comQuantidade(alteracao.cerveja.toBuilder().build(), alteracao.sequencia));
+                }
+                if (alteracao.id == idArquivo) {
+                    row++;
+                }
+                alteracao = alteracoes.hasNext() ? alteracoes.next() : null;
+            } else {
+                cervejas.add(atual.alteracoes.comQuantidade(arquivo.get(row++), 0L));
+            }
+        }
+        return cervejas;
+    }
+
+    public List<CervejaDTO> listAll() {
+        return listAfter(0L, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Runs after the change commits. Holding the read lock keeps a swap from copying the pending changes while one is
+     * being added.
+     */
+    @Order(CervejaChangeCounter.ORDER - 1)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCervejaChanged(CervejaChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        CervejaDTO cervejaDTO = event.getCerveja();
+        lock.readLock().lock();
+        try {
+            long numero = sequencia.incrementAndGet();
+            if (event.getOperacao() == CervejaChangedEvent.Operacao.STOCK_CHANGED) {
+                estado.alteracoes.put(new Quantidade(numero, cervejaDTO.getId(), cervejaDTO.getQuantidade()));
+            } else {
+                estado.alteracoes.put(new Alteracao(numero, cervejaDTO.getId(),
+                        event.getOperacao() == CervejaChangedEvent.Operacao.DELETED ? null : cervejaDTO.toBuilder().build()));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (enabled) {
+            scheduleRebuild();
+        }
+    }
+
+    /**
+     * Also retries a first build that failed.
+     */
+    @Scheduled(fixedDelayString = "${estoque.catalogue-snapshot.rebuild-interval-ms:5000}")
+    public void refresh() {
+        Alteracoes alteracoes = estado.alteracoes;
+        if (enabled && (!isReady() || !alteracoes.porId.isEmpty() || alteracoes.quantidades.size() > MAX_QUANTIDADES)) {
+            scheduleRebuild();
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (rebuilder instanceof ExecutorService) {
+            ((ExecutorService) rebuilder).shutdownNow();
+        }
+        if (estado.arquivo != null) {
+            delete(estado.arquivo);
+        }
+    }
+
+    private void scheduleRebuild() {
+        if (rebuildAgendado.compareAndSet(false, true)) {
+            rebuilder.execute(this::rebuild);
+        }
+    }
+
+    /**
+     * Changes numbered up to {@code lidas} committed before the database was read, so the new file holds them.
+     */
+    private void rebuild() {
+        try {
+            long lidas = sequencia.get();
+            long inicio = System.nanoTime();
+            CatalogueFile.Writer writer = new CatalogueFile.Writer();
+            long cursor = 0L;
+            List<CervejaDTO> pagina;
+            do {
+                pagina = cervejaRepository.findDTOsAfter(cursor, PageRequest.of(0, PAGE_SIZE));
+                pagina.forEach(writer::add);
+                cursor = pagina.isEmpty() ? cursor : pagina.get(pagina.size() - 1).getId();
+            } while (pagina.size() == PAGE_SIZE);
+            Files.createDirectories(directory);
+            CatalogueFile arquivo = writer.write(Files.createTempFile(directory, "catalogue-", ".bin"));
+
+            Estado anterior;
+            lock.writeLock().lock();
+            try {
+                anterior = estado;
+                estado = new Estado(arquivo, anterior.alteracoes.after(lidas));
+            } finally {
+                lock.writeLock().unlock();
+            }
+            if (anterior.arquivo != null) {
+                delete(anterior.arquivo);
+            }
+            log.debug("Catalogue snapshot rebuilt with {} beers in {} ms", arquivo.size(), (System.nanoTime() - inicio) / 1_000_000);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not rebuild the catalogue snapshot, will retry: {}", e.getMessage());
+        } finally {
+            rebuildAgendado.set(false);
+        }
+    }
+
+    /**
+     * The mapping stays valid after the file is deleted and is released once the old file is no longer reachable.
+     */
+    private static void delete(CatalogueFile arquivo) {
+        try {
+            Files.deleteIfExists(arquivo.getPath());
+        } catch (IOException e) {
+            log.warn("Could not delete the catalogue snapshot {}: {}", arquivo.getPath(), e.getMessage());
+        }
+    }
+
+    private static CustomizableThreadFactory daemon(String prefixo) {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(prefixo);
+        threadFactory.setDaemon(true);
+        return threadFactory;
+    }
+
+    private static final class Estado {
+
+        private final CatalogueFile arquivo;
+        private final Alteracoes alteracoes;
+
+        private Estado(CatalogueFile arquivo, Alteracoes alteracoes) {
+            this.arquivo = arquivo;
+            this.alteracoes = alteracoes;
+        }
+    }
+
+    /**
+     * The changes not yet in the file. A nome maps to the last beer that had it, which is only valid while that beer
+     * still has it.
+     */
+    private static final class Alteracoes {
+
+        private final Map<Long, Alteracao> porId = new ConcurrentHashMap<>();
+        private final Map<String, Long> porNome = new ConcurrentHashMap<>();
+        private final Map<Long, Quantidade> quantidades = new ConcurrentHashMap<>();
+
+        private void put(Alteracao alteracao) {
+            porId.merge(alteracao.id, alteracao, (atual, nova) -> nova.sequencia > atual.sequencia ? nova : atual);
+            if (alteracao.cerveja != null) {
+                porNome.put(alteracao.cerveja.getNome(), alteracao.id);
+            }
+        }
+
+        private void put(Quantidade quantidade) {
+            quantidades.merge(quantidade.id, quantidade, (atual, nova) -> nova.sequencia > atual.sequencia ? nova : atual);
+        }
+
+        /**
+         * Sets the quantidade of {@code cerveja}, a copy, to that of its last stock change numbered after
+         * {@code desde}, the change the copy was taken from.
+         */
+        private CervejaDTO comQuantidade(CervejaDTO cerveja, long desde) {
+            Quantidade quantidade = quantidades.get(cerveja.getId());
+            if (quantidade != null && quantidade.sequencia > desde) {
+                cerveja.setQuantidade(quantidade.quantidade);
+            }
+            return cerveja;
+        }
+
+        private Alteracoes after(long sequencia) {
+            Alteracoes restantes = new Alteracoes();
+            porId.values().stream()
+                    .filter(alteracao -> alteracao.sequencia > sequencia)
+                    .forEach(restantes::put);
+            quantidades.values().stream()
+                    .filter(quantidade -> quantidade.sequencia > sequencia)
+                    .forEach(restantes::put);
+            return restantes;
+        }
+    }
+
+    /**
+     * The quantidade a committed stock change left a beer with.
+     */
+    private static final class Quantidade {
+
+        private final long sequencia;
+        private final long id;
+        private final int quantidade;
+
+        private Quantidade(long sequencia, long id, int quantidade) {
+            this.sequencia = sequencia;
+            this.id = id;
+            this.quantidade = quantidade;
+        }
+    }
+
+    /**
+     * A committed change to one beer; {@code cerveja} is null when it was deleted.
+     */
+    private static final class Alteracao {
+
+        private final long sequencia;
+        private final long id;
+        private final CervejaDTO cerveja;
+
+        private Alteracao(long sequencia, long id, CervejaDTO cerveja) {
+            this.sequencia = sequencia;
+            this.id = id;
+            this.cerveja = cerveja;
+        }
+    }
+}
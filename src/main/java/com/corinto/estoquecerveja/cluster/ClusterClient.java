@@ -0,0 +1,116 @@
+package com.corinto.estoquecerveja.cluster;
+
+import com.corinto.estoquecerveja.dto.EventoClusterDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * HTTP calls between the nodes of the cluster. Every call carries {@link #FORWARDED_HEADER} with the calling node, so
+ * the receiving node never routes it again.
+ */
+@Component
+@ConditionalOnProperty(name = "estoque.cluster.enabled", havingValue = "true")
+public class ClusterClient {
+
+    public static final String FORWARDED_HEADER = "X-Estoque-Encaminhado";
+    static final String API_PATH = "/api/v1/cluster";
+
+    /**
+     * Headers that describe one connection rather than the request, most of which the JDK client also refuses to set.
+     */
+    private static final Set<String> HOP_BY_HOP = Set.of("connection", "content-length", "expect", "host", "keep-alive",
+            "proxy-connection", "te", "trailer", "transfer-encoding", "upgrade", "http2-settings");
+
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper;
+    private final String no;
+    private final Duration timeout;
+
+    @Autowired
+    public ClusterClient(ObjectMapper objectMapper,
+                         @Value("${estoque.cluster.node}") String no,
+                         @Value("${estoque.cluster.timeout:2s}") Duration timeout) {
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(timeout)
+                .build();
+        this.objectMapper = objectMapper;
+        this.no = ClusterMembership.normalize(no);
+        this.timeout = timeout;
+    }
+
+    /**
+     * Completes with whether {@code peer} answered, never exceptionally.
+     */
+    public CompletableFuture<Boolean> ping(String peer) {
+        return httpClient.sendAsync(request(peer, "/nodes").GET().build(), HttpResponse.BodyHandlers.discarding())
+                .handle((response, e) -> e == null && response.statusCode() == 200);
+    }
+
+    public void join(String peer) throws IOException, InterruptedException {
+        send(request(peer, "/nodes?url=" + URLEncoder.encode(no, StandardCharsets.UTF_8))
+                .PUT(HttpRequest.BodyPublishers.noBody()));
+    }
+
+    public void leave(String peer) throws IOException, InterruptedException {
+        send(request(peer, "/nodes?url=" + URLEncoder.encode(no, StandardCharsets.UTF_8)).DELETE());
+    }
+
+    public void relay(String peer, List<EventoClusterDTO> eventos) throws IOException, InterruptedException {
+        send(request(peer, "/events")
+                .header("Content-Type", MediaType.APPLICATION_JSON_VALUE)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(eventos))));
+    }
+
+    /**
+     * Sends a client request on to {@code owner} as it arrived here and returns the owner's response.
+     */
+    public HttpResponse<byte[]> forward(String owner, String metodo, String pathAndQuery,
+                                        Map<String, List<String>> headers, byte[] corpo) throws IOException, InterruptedException {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(owner + pathAndQuery))
+                .timeout(timeout)
+                .method(metodo, HttpRequest.BodyPublishers.ofByteArray(corpo));
+        headers.forEach((nome, valores) -> {
+            if (isEndToEnd(nome)) {
+                valores.forEach(valor -> builder.header(nome, valor));
+            }
+        });
+        builder.header(FORWARDED_HEADER, no);
+        return httpClient.send(builder.build(), HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    public static boolean isEndToEnd(String header) {
+        return !header.startsWith(":") && !HOP_BY_HOP.contains(header.toLowerCase());
+    }
+
+    private HttpRequest.Builder request(String peer, String path) {
+        return HttpRequest.newBuilder(URI.create(peer + API_PATH + path))
+                .timeout(timeout)
+                .header(FORWARDED_HEADER, no);
+    }
+
+    private void send(HttpRequest.Builder builder) throws IOException, InterruptedException {
+        HttpRequest request = builder.build();
+        HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() >= 300) {
+            throw new IOException("HTTP " + response.statusCode() + " from " + request.uri());
+        }
+    }
+}
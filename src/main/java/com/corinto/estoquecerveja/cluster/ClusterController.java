@@ -0,0 +1,63 @@
+package com.corinto.estoquecerveja.cluster;
+
+import com.corinto.estoquecerveja.dto.ClusterDTO;
+import com.corinto.estoquecerveja.dto.EventoClusterDTO;
+import lombok.AllArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * Node-to-node API of the cluster. It lives outside the {@code controller} package so it stays out of the public API
+ * documentation.
+ */
+@RestController
+@RequestMapping(ClusterClient.API_PATH)
+@ConditionalOnProperty(name = "estoque.cluster.enabled", havingValue = "true")
+@AllArgsConstructor(onConstructor = @__(@Autowired))
+public class ClusterController {
+
+    private final ClusterMembership membership;
+    private final ClusterEventRelay eventRelay;
+
+    /**
+     * Also the heartbeat: answers 503 once this node is leaving.
+     */
+    @GetMapping("/nodes")
+    public ResponseEntity<ClusterDTO> members() {
+        ClusterDTO cluster = new ClusterDTO(membership.getNo(), List.copyOf(membership.getRing().getNos()));
+        return membership.isSaiu()
+                ? ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(cluster)
+                : ResponseEntity.ok(cluster);
+    }
+
+    @PutMapping("/nodes")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void join(@RequestParam String url) {
+        membership.up(url);
+    }
+
+    @DeleteMapping("/nodes")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void leave(@RequestParam String url) {
+        membership.down(url);
+    }
+
+    @PostMapping("/events")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void events(@RequestBody List<EventoClusterDTO> eventos) {
+        eventRelay.receive(eventos);
+    }
+}
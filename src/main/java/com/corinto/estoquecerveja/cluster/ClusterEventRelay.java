@@ -0,0 +1,134 @@
+package com.corinto.estoquecerveja.cluster;
+
+import com.corinto.estoquecerveja.dto.CervejaDTO;
+import com.corinto.estoquecerveja.dto.EventoClusterDTO;
+import com.corinto.estoquecerveja.event.CervejaChangedEvent;
+import com.corinto.estoquecerveja.mapper.CervejaMapper;
+import com.corinto.estoquecerveja.stock.CervejaStockCounters;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Keeps the node-local views of the catalogue in step across the cluster. Every change committed on this node is sent
+ * to the other members in batches, in order, from a single thread; a member that cannot be reached misses them and is
+ * soon taken out of the ring. A change received from another node is mirrored into the stock counter this node holds
+ * for the beer, if any, and published again as a remote {@link CervejaChangedEvent}, so caches, the search index, the
+ * analytics, the entity tag and the streams see it.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "estoque.cluster.enabled", havingValue = "true")
+public class ClusterEventRelay {
+
+    private static final int MAX_BATCH = 1000;
+
+    private final ClusterMembership membership;
+    private final ClusterClient client;
+    private final CervejaStockCounters stockCounters;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CervejaMapper cervejaMapper = CervejaMapper.INSTANCE;
+    private final Queue<EventoClusterDTO> pendentes = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean agendado = new AtomicBoolean();
+    private final ExecutorService sender;
+
+    @Autowired
+    public ClusterEventRelay(ClusterMembership membership,
+                             ClusterClient client,
+                             CervejaStockCounters stockCounters,
+                             ApplicationEventPublisher eventPublisher) {
+        this.membership = membership;
+        this.client = client;
+        this.stockCounters = stockCounters;
+        this.eventPublisher = eventPublisher;
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("cluster-relay-");
+        threadFactory.setDaemon(true);
+        this.sender = Executors.newSingleThreadExecutor(threadFactory);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCervejaChanged(CervejaChangedEvent event) {
+        if (event.isRemoto()) {
+            return;
+        }
+        pendentes.add(new EventoClusterDTO(event.getOperacao(), event.getCerveja(), event.getDelta()));
+        if (agendado.compareAndSet(false, true)) {
+            sender.execute(this::send);
+        }
+    }
+
+    public void receive(List<EventoClusterDTO> eventos) {
+        for (EventoClusterDTO evento : eventos) {
+            CervejaDTO cerveja = evento.getCerveja();
+            switch (evento.getOperacao()) {
+                case STOCK_CHANGED:
+                    stockCounters.applyIncrement(cerveja.getId(), evento.getDelta());
+                    break;
+                case UPDATED:
+                    stockCounters.describe(cervejaMapper.toModel(cerveja));
+                    break;
+                case DELETED:
+                    stockCounters.evict(cerveja.getId());
+                    break;
+                default:
+                    break;
+            }
+            eventPublisher.publishEvent(new CervejaChangedEvent(evento.getOperacao(), cerveja, evento.getDelta(), true));
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        sender.shutdownNow();
+    }
+
+    private void send() {
+        do {
+            try {
+                for (List<EventoClusterDTO> lote = nextBatch(); !lote.isEmpty(); lote = nextBatch()) {
+                    relay(lote);
+                }
+            } finally {
+                agendado.set(false);
+            }
+        } while (!pendentes.isEmpty() && agendado.compareAndSet(false, true));
+    }
+
+    private List<EventoClusterDTO> nextBatch() {
+        List<EventoClusterDTO> lote = new ArrayList<>();
+        for (EventoClusterDTO evento = pendentes.poll(); evento != null; evento = lote.size() < MAX_BATCH ? pendentes.poll() : null) {
+            lote.add(evento);
+        }
+        return lote;
+    }
+
+    private void relay(List<EventoClusterDTO> lote) {
+        for (String peer : membership.getRing().getNos()) {
+            if (peer.equals(membership.getNo())) {
+                continue;
+            }
+            try {
+                client.relay(peer, lote);
+            } catch (IOException e) {
+                log.warn("Could not relay {} changes to {}, they are lost for it: {}", lote.size(), peer, e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.corinto.estoquecerveja.cluster;
+
+import com.corinto.estoquecerveja.stock.CervejaStockCounters;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletException;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UnsupportedEncodingException;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sends each write to one beer on to the node that owns the beer, so its stock counter only ever lives on one node.
+ * A write is any request other than a read to {@code /api/v1/cervejas/{id}/**} or to
+ * {@code /api/v1/cervejas/reservas/{reservaId}/**}, whose id starts with the beer's. Reads, creations, imports and
+ * batch movements are served by the node that receives them.
+ *
+ * <p>If the owner cannot be reached it is taken out of the ring and the request goes to the next owner, which may be
+ * this node.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "estoque.cluster.enabled", havingValue = "true")
+public class ClusterForwardingFilter extends OncePerRequestFilter {
+
+    private static final String CERVEJAS_PATH = "/api/v1/cervejas/";
+    private static final String RESERVAS_SEGMENT = "reservas";
+
+    private final ClusterMembership membership;
+    private final ClusterClient client;
+
+    @Autowired
+    public ClusterForwardingFilter(ClusterMembership membership, ClusterClient client) {
+        this.membership = membership;
+        this.client = client;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return HttpMethod.GET.matches(request.getMethod())
+                || HttpMethod.HEAD.matches(request.getMethod())
+                || HttpMethod.OPTIONS.matches(request.getMethod())
+                || request.getHeader(ClusterClient.FORWARDED_HEADER) != null
+                || cervejaId(path(request)) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long id = cervejaId(path(request));
+        byte[] corpo = null;
+        for (String owner = membership.owner(id); !owner.equals(membership.getNo()); owner = membership.owner(id)) {
+            if (corpo == null) {
+                corpo = request.getInputStream().readAllBytes();
+            }
+            try {
+                copy(client.forward(owner, request.getMethod(), pathAndQuery(request), headers(request), corpo), response);
+                return;
+            } catch (IOException e) {
+                log.warn("Could not forward {} {} to {}, taking it out of the cluster: {}",
+                        request.getMethod(), request.getRequestURI(), owner, e.getMessage());
+                membership.down(owner);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value());
+                return;
+            }
+        }
+        chain.doFilter(corpo == null ? request : new CorpoLido(request, corpo), response);
+    }
+
+    /**
+     * Returns the beer a path belongs to, or {@code null} for paths that are not about one beer.
+     */
+    static Long cervejaId(String path) {
+        if (!path.startsWith(CERVEJAS_PATH)) {
+            return null;
+        }
+        String[] segmentos = path.substring(CERVEJAS_PATH.length()).split("/", 3);
+        String chave = segmentos[0];
+        if (RESERVAS_SEGMENT.equals(chave)) {
+            if (segmentos.length < 2) {
+                return null;
+            }
+            int separador = segmentos[1].indexOf(CervejaStockCounters.RESERVA_ID_SEPARATOR);
+            chave = separador < 0 ? "" : segmentos[1].substring(0, separador);
+        }
+        try {
+            return Long.valueOf(chave);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static String path(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length());
+    }
+
+    private static String pathAndQuery(HttpServletRequest request) {
+        return request.getQueryString() == null
+                ? request.getRequestURI()
+                : request.getRequestURI() + "?" + request.getQueryString();
+    }
+
+    private static Map<String, List<String>> headers(HttpServletRequest request) {
+        Map<String, List<String>> headers = new LinkedHashMap<>();
+        for (String nome : Collections.list(request.getHeaderNames())) {
+            headers.put(nome, Collections.list(request.getHeaders(nome)));
+        }
+        return headers;
+    }
+
+    private static void copy(HttpResponse<byte[]> resposta, HttpServletResponse response) throws IOException {
+        response.setStatus(resposta.statusCode());
+        resposta.headers().map().forEach((nome, valores) -> {
+            if (ClusterClient.isEndToEnd(nome)) {
+                valores.forEach(valor -> response.addHeader(nome, valor));
+            }
+        });
+        response.getOutputStream().write(resposta.body());
+    }
+
+    /**
+     * Hands the body read for a failed forward to the local handler.
+     */
+    private static final class CorpoLido extends HttpServletRequestWrapper {
+
+        private final byte[] corpo;
+
+        private CorpoLido(HttpServletRequest request, byte[] corpo) {
+            super(request);
+            this.corpo = corpo;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream in = new ByteArrayInputStream(corpo);
+            return new ServletInputStream() {
+                @Override
+                public int read() {
+                    return in.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    return in.read(b, off, len);
+                }
+
+                @Override
+                public boolean isFinished() {
+                    return in.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener readListener) {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() throws UnsupportedEncodingException {
+            String encoding = getCharacterEncoding() == null ? StandardCharsets.UTF_8.name() : getCharacterEncoding();
+            return new BufferedReader(new InputStreamReader(getInputStream(), encoding));
+        }
+    }
+}
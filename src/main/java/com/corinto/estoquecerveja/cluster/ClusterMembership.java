@@ -0,0 +1,207 @@
+package com.corinto.estoquecerveja.cluster;
+
+import com.corinto.estoquecerveja.ledger.StockLedger;
+import com.corinto.estoquecerveja.stock.CervejaStockCounters;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Which nodes of the cluster are up, and which of them owns each beer. Enabled with {@code estoque.cluster.enabled}.
+ *
+ * <p>Every node is started with the same {@code estoque.cluster.nodes}, the base URL of each node that may take
+ * part, and its own URL in {@code estoque.cluster.node}. There is no coordinator: each node pings the others every
+ * {@code estoque.cluster.heartbeat-interval-ms}, counts a node in as soon as it answers and out after
+ * {@code estoque.cluster.failure-threshold} missed pings. A starting node announces itself and a stopping one says
+ * goodbye, so the others do not wait for a heartbeat in either case.
+ *
+ * <p>The {@code cluster} profile points every node at the same H2 file with {@code AUTO_SERVER}: the first node to
+ * start opens it and serves it to the others, and when it stops the next node to connect takes over. Several nodes
+ * run on one host with, for each of them:
+ * <pre>
+ * --spring.profiles.active=cluster --server.port=8081
+ * --estoque.cluster.nodes=http://localhost:8081,http://localhost:8082,http://localhost:8083
+ * </pre>
+ *
+ * <p>Whenever the members change, the ring is rebuilt and this node writes back and drops the stock counters of the
+ * beers it no longer owns. The new owner loads them from the shared database on first use.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "estoque.cluster.enabled", havingValue = "true")
+public class ClusterMembership {
+
+    private final ClusterClient client;
+    private final CervejaStockCounters stockCounters;
+    private final StockLedger stockLedger;
+    private final String no;
+    private final Set<String> peers;
+    private final int virtualNodes;
+    private final int failureThreshold;
+    private final Map<String, Integer> falhas = new ConcurrentHashMap<>();
+    private volatile HashRing ring;
+    private volatile boolean saiu;
+
+    @Autowired
+    public ClusterMembership(ClusterClient client,
+                             CervejaStockCounters stockCounters,
+                             StockLedger stockLedger,
+                             @Value("${estoque.cluster.node}") String no,
+                             @Value("${estoque.cluster.nodes:}") List<String> nos,
+                             @Value("${estoque.cluster.virtual-nodes:128}") int virtualNodes,
+                             @Value("${estoque.cluster.failure-threshold:3}") int failureThreshold) {
+        this.client = client;
+        this.stockCounters = stockCounters;
+        this.stockLedger = stockLedger;
+        this.no = normalize(no);
+        this.peers = nos.stream()
+                .filter(peer -> !peer.isBlank())
+                .map(ClusterMembership::normalize)
+                .filter(peer -> !peer.equals(this.no))
+                .collect(Collectors.toUnmodifiableSet());
+        this.virtualNodes = virtualNodes;
+        this.failureThreshold = failureThreshold;
+        this.ring = new HashRing(Set.of(this.no), virtualNodes);
+    }
+
+    public String getNo() {
+        return no;
+    }
+
+    public HashRing getRing() {
+        return ring;
+    }
+
+    /**
+     * Whether this node has said goodbye. It then stops answering pings, so the others do not count it back in while
+     * it shuts down.
+     */
+    public boolean isSaiu() {
+        return saiu;
+    }
+
+    public String owner(long id) {
+        return ring.owner(id);
+    }
+
+    /**
+     * Finds the nodes already up before the first request, then tells them this one has joined.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void join() {
+        pingPeers().join();
+        for (String peer : ring.getNos()) {
+            if (!peer.equals(no)) {
+                try {
+                    client.join(peer);
+                } catch (IOException e) {
+                    log.warn("Could not announce this node to {}, it will find it on its next heartbeat: {}", peer, e.getMessage());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Only sends the pings; their answers are handled as they arrive, so a node that hangs does not hold up the
+     * scheduler shared with the write-behind flushes.
+     */
+    @Scheduled(fixedDelayString = "${estoque.cluster.heartbeat-interval-ms:1000}")
+    public void heartbeat() {
+        pingPeers();
+    }
+
+    public void up(String peer) {
+        String membro = normalize(peer);
+        falhas.remove(membro);
+        if (!ring.contains(membro)) {
+            change(membro, true);
+        }
+    }
+
+    public void down(String peer) {
+        String membro = normalize(peer);
+        if (!membro.equals(no) && ring.contains(membro)) {
+            change(membro, false);
+        }
+    }
+
+    /**
+     * Hands every beer over before saying goodbye, so the next owners load stock that already has this node's sales.
+     */
+    @EventListener(ContextClosedEvent.class)
+    public void leave() {
+        saiu = true;
+        rebalance(id -> false);
+        for (String peer : ring.getNos()) {
+            if (!peer.equals(no)) {
+                try {
+                    client.leave(peer);
+                } catch (IOException e) {
+                    log.warn("Could not tell {} this node is leaving, it will find out on its next heartbeat: {}", peer, e.getMessage());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private CompletableFuture<Void> pingPeers() {
+        return CompletableFuture.allOf(peers.stream()
+                .map(peer -> client.ping(peer).thenAccept(respondeu -> {
+                    if (respondeu) {
+                        up(peer);
+                    } else if (falhas.merge(peer, 1, Integer::sum) >= failureThreshold) {
+                        down(peer);
+                    }
+                }))
+                .toArray(CompletableFuture[]::new));
+    }
+
+    static String normalize(String no) {
+        String url = no.trim();
+        return url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+    }
+
+    private synchronized void change(String membro, boolean entrou) {
+        if (ring.contains(membro) == entrou) {
+            return;
+        }
+        Set<String> membros = new HashSet<>(ring.getNos());
+        if (entrou) {
+            membros.add(membro);
+        } else {
+            membros.remove(membro);
+        }
+        HashRing novo = new HashRing(membros, virtualNodes);
+        ring = novo;
+        log.info("Node {} {} the cluster, members are now {}", membro, entrou ? "joined" : "left", novo);
+        rebalance(id -> novo.owner(id).equals(no));
+    }
+
+    private void rebalance(Predicate<Long> retidos) {
+        if (stockLedger.isEnabled()) {
+            stockLedger.fold();
+        }
+        stockCounters.handOff(retidos);
+    }
+}
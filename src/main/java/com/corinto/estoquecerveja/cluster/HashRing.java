@@ -0,0 +1,74 @@
+package com.corinto.estoquecerveja.cluster;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Immutable consistent-hash ring of the live nodes. Each node is placed at {@code virtualNodes} points and a beer id
+ * belongs to the first node at or after the id's hash, so a node joining or leaving only moves the ids next to its
+ * own points. Hashes only depend on the node and id values, so every node computes the same owner for the same
+ * members.
+ */
+public final class HashRing {
+
+    private final Set<String> nos;
+    private final NavigableMap<Long, String> pontos = new TreeMap<>();
+
+    public HashRing(Collection<String> nos, int virtualNodes) {
+        this.nos = new TreeSet<>(nos);
+        for (String no : this.nos) {
+            for (int v = 0; v < virtualNodes; v++) {
+                pontos.merge(hash(no + "#" + v), no, (atual, novo) -> atual.compareTo(novo) <= 0 ? atual : novo);
+            }
+        }
+    }
+
+    public String owner(long id) {
+        Map.Entry<Long, String> ponto = pontos.ceilingEntry(mix(id));
+        return ponto == null ? pontos.firstEntry().getValue() : ponto.getValue();
+    }
+
+    public Set<String> getNos() {
+        return nos;
+    }
+
+    public boolean contains(String no) {
+        return nos.contains(no);
+    }
+
+    @Override
+    public String toString() {
+        return List.copyOf(nos).toString();
+    }
+
+    /**
+     * FNV-1a over the UTF-8 bytes, finished with {@link #mix(long)} to spread the nearby values it gives for
+     * similar names.
+     */
+    static long hash(String valor) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : valor.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return mix(hash);
+    }
+
+    /**
+     * Finalizer of MurmurHash3, so consecutive ids land far apart on the ring.
+     */
+    static long mix(long valor) {
+        valor ^= valor >>> 33;
+        valor *= 0xff51afd7ed558ccdL;
+        valor ^= valor >>> 33;
+        valor *= 0xc4ceb9fe1a85ec53L;
+        valor ^= valor >>> 33;
+        return valor;
+    }
+}
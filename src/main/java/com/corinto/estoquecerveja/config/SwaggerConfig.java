@@ -1,7 +1,11 @@
 package com.corinto.estoquecerveja.config;
 
+import org.springframework.beans.factory.config.BeanPostProcessor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfoHandlerMapping;
 import springfox.documentation.builders.ApiInfoBuilder;
 import springfox.documentation.builders.PathSelectors;
 import springfox.documentation.builders.RequestHandlerSelectors;
@@ -9,8 +13,12 @@ import springfox.documentation.service.ApiInfo;
 import springfox.documentation.service.Contact;
 import springfox.documentation.spi.DocumentationType;
 import springfox.documentation.spring.web.plugins.Docket;
+import springfox.documentation.spring.web.plugins.WebMvcRequestHandlerProvider;
 import springfox.documentation.swagger2.annotations.EnableSwagger2;
 
+import java.lang.reflect.Field;
+import java.util.List;
+
 import static springfox.documentation.builders.RequestHandlerSelectors.*;
 
 @Configuration
@@ -31,9 +39,32 @@ public class SwaggerConfig {
                 .apis(basePackage(BASE_PACKAGE))
                 .paths(PathSelectors.any())
                 .build()
+                .ignoredParameterTypes(WebRequest.class)
                 .apiInfo(buildApiInfo());
     }
 
+    /**
+     * Springfox 2 only understands Ant-style mappings. The application ones are switched back with
+     * {@code spring.mvc.pathmatch.matching-strategy}, but actuator always maps its endpoints with path patterns,
+     * so those mappings are hidden from the documentation scanner.
+     */
+    @Bean
+    public static BeanPostProcessor springfoxHandlerMappingsFilter() {
+        return new BeanPostProcessor() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof WebMvcRequestHandlerProvider) {
+                    Field field = ReflectionUtils.findField(WebMvcRequestHandlerProvider.class, "handlerMappings");
+                    ReflectionUtils.makeAccessible(field);
+                    List<RequestMappingInfoHandlerMapping> handlerMappings = (List<RequestMappingInfoHandlerMapping>) ReflectionUtils.getField(field, bean);
+                    handlerMappings.removeIf(handlerMapping -> handlerMapping.getPatternParser() != null);
+                }
+                return bean;
+            }
+        };
+    }
+
     private ApiInfo buildApiInfo() {
         return new ApiInfoBuilder()
                 .title(API_TITLE)
@@ -0,0 +1,31 @@
+package com.corinto.estoquecerveja.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.concurrent.Executors;
+
+/**
+ * Runs every request, and the streaming responses handed off by the controller, on its own virtual thread instead
+ * of Tomcat's bounded worker pool. Enabled with {@code estoque.threads.mode=virtual}; a request blocked on JDBC then
+ * only holds a carrier thread while it is inside a {@code synchronized} block of the driver.
+ */
+@Configuration
+@ConditionalOnProperty(name = "estoque.threads.mode", havingValue = "virtual")
+public class VirtualThreadsConfig implements WebMvcConfigurer {
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadsProtocolHandlerCustomizer() {
+        return protocolHandler -> protocolHandler.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(new TaskExecutorAdapter(Executors.newVirtualThreadPerTaskExecutor()));
+    }
+}
@@ -1,58 +1,315 @@
 package com.corinto.estoquecerveja.controller;
 
+import com.corinto.estoquecerveja.dto.CapacidadeDTO;
 import com.corinto.estoquecerveja.dto.CervejaDTO;
+import com.corinto.estoquecerveja.dto.CervejaPageDTO;
+import com.corinto.estoquecerveja.dto.EstoqueLocalDTO;
+import com.corinto.estoquecerveja.dto.EstoqueSnapshotDTO;
+import com.corinto.estoquecerveja.dto.ImportacaoResultadoDTO;
+import com.corinto.estoquecerveja.dto.MarcaEstoqueDTO;
+import com.corinto.estoquecerveja.dto.MovimentacaoDTO;
+import com.corinto.estoquecerveja.dto.MovimentacaoResultadoDTO;
+import com.corinto.estoquecerveja.dto.MovimentoEstoqueDTO;
 import com.corinto.estoquecerveja.dto.QuantidadeDTO;
+import com.corinto.estoquecerveja.dto.ReservaDTO;
+import com.corinto.estoquecerveja.dto.TipoEstoqueDTO;
+import com.corinto.estoquecerveja.enums.FormatoExportacao;
+import com.corinto.estoquecerveja.enums.Tipo;
 import com.corinto.estoquecerveja.exception.CervejaAlreadyRegisteredException;
 import com.corinto.estoquecerveja.exception.CervejaNotFoundException;
 import com.corinto.estoquecerveja.exception.CervejaStockExceededException;
+import com.corinto.estoquecerveja.exception.EstoqueLocalNotFoundException;
+import com.corinto.estoquecerveja.exception.ImportacaoInvalidaException;
+import com.corinto.estoquecerveja.exception.ReservaNotFoundException;
+import com.corinto.estoquecerveja.idempotency.Idempotent;
 import com.corinto.estoquecerveja.service.CervejaService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import lombok.AllArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import javax.servlet.http.HttpServletResponse;
+import javax.validation.ConstraintViolationException;
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 import java.util.List;
+import java.util.Locale;
+import java.util.Set;
 
 @RestController
+@Validated
 @RequestMapping("/api/v1/cervejas")
 @AllArgsConstructor(onConstructor = @__(@Autowired))
 public class CervejaController implements CervejaControllerDocs {
 
+    private static final String NDJSON_VALUE = "application/x-ndjson";
+    private static final String CSV_VALUE = "text/csv";
+
     private final CervejaService cervejaService;
+    private final ObjectMapper objectMapper;
 
+    @Idempotent
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
-    public CervejaDTO createCerveja(@RequestBody @Valid CervejaDTO cervejaDTO) throws CervejaAlreadyRegisteredException {
+    public CervejaDTO createCerveja(@RequestBody CervejaDTO cervejaDTO) throws CervejaAlreadyRegisteredException {
         return cervejaService.createCerveja(cervejaDTO);
     }
 
+    @PostMapping(path = "/import", consumes = CSV_VALUE)
+    public ImportacaoResultadoDTO importCsv(InputStream csv) throws IOException, ImportacaoInvalidaException {
+        return cervejaService.importCsv(new InputStreamReader(csv, StandardCharsets.UTF_8));
+    }
+
+    @PostMapping(path = "/import", consumes = NDJSON_VALUE)
+    public ImportacaoResultadoDTO importNdjson(InputStream ndjson) throws IOException {
+        return cervejaService.importNdjson(new InputStreamReader(ndjson, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * The catalogue reads answer a matching {@code If-None-Match} with 304 before the service reads anything, so
+     * polling an unchanged catalogue costs neither a query nor serialization.
+     */
     @GetMapping("/{nome}")
-    public CervejaDTO findByNome(@PathVariable String nome) throws CervejaNotFoundException {
+    public CervejaDTO findByNome(@PathVariable String nome, WebRequest request) throws CervejaNotFoundException {
+        if (request.checkNotModified(cervejaService.catalogueEtag())) {
+            return null;
+        }
         return cervejaService.findByNome(nome);
     }
 
     @GetMapping
-    public List<CervejaDTO> listCervejas() {
+    public List<CervejaDTO> listCervejas(WebRequest request) {
+        if (request.checkNotModified(cervejaService.catalogueEtag())) {
+            return null;
+        }
         return cervejaService.listAll();
     }
 
+    @GetMapping(params = "size")
+    public CervejaPageDTO listCervejasPage(@RequestParam(required = false) Long cursor, @RequestParam int size, WebRequest request) {
+        if (request.checkNotModified(cervejaService.catalogueEtag())) {
+            return null;
+        }
+        return cervejaService.listPage(cursor, size);
+    }
+
+    @GetMapping("/search")
+    public List<CervejaDTO> search(@RequestParam(name = "q", required = false) String texto,
+                                   @RequestParam(required = false) Tipo tipo,
+                                   @RequestParam(defaultValue = "20") int limit) {
+        return cervejaService.search(texto, tipo, limit);
+    }
+
+    @GetMapping("/analytics/tipos")
+    public List<TipoEstoqueDTO> stockByTipo() {
+        return cervejaService.stockByTipo();
+    }
+
+    @GetMapping("/analytics/marcas")
+    public List<MarcaEstoqueDTO> stockByMarca() {
+        return cervejaService.stockByMarca();
+    }
+
+    @GetMapping("/analytics/low-stock")
+    public List<CervejaDTO> lowestStock(@RequestParam(defaultValue = "10") int limit,
+                                        @RequestParam(name = "below", defaultValue = "1.0") double maxFillRatio) {
+        return cervejaService.lowestStock(limit, maxFillRatio);
+    }
+
+    @GetMapping(produces = NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamCervejas() {
+        StreamingResponseBody body = outputStream -> {
+            ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+            JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)
+                    .setRootValueSeparator(null);
+            cervejaService.streamAll(cervejaDTO -> {
+                try {
+                    writer.writeValue(generator, cervejaDTO);
+                    generator.writeRaw('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            generator.flush();
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(NDJSON_VALUE))
+                .body(body);
+    }
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(@RequestParam(name = "format", defaultValue = "CSV") FormatoExportacao formato,
+                                                        @RequestHeader(name = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        boolean gzip = acceptsGzip(acceptEncoding);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(formato.getMediaType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"cervejas." + formato.getExtensao() + "\"")
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(outputStream -> cervejaService.export(formato, gzip, outputStream));
+    }
+
+    /**
+     * Content codings are matched case-insensitively. A q-value of 0 refuses a coding, and {@code *} only stands for
+     * gzip when gzip is not listed itself.
+     */
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        boolean qualquer = false;
+        for (String codificacao : acceptEncoding.split(",")) {
+            String[] partes = codificacao.split(";");
+            String nome = partes[0].trim().toLowerCase(Locale.ROOT);
+            if (nome.equals("gzip") || nome.equals("x-gzip")) {
+                return qualidade(partes) > 0;
+            }
+            if (nome.equals("*")) {
+                qualquer = qualidade(partes) > 0;
+            }
+        }
+        return qualquer;
+    }
+
+    private static double qualidade(String[] partes) {
+        for (int i = 1; i < partes.length; i++) {
+            String parametro = partes[i].trim();
+            if (parametro.regionMatches(true, 0, "q=", 0, 2)) {
+                try {
+                    return Double.parseDouble(parametro.substring(2).trim());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+    @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamChanges(@RequestParam(name = "tipo", required = false) Set<Tipo> tipos,
+                                    @RequestParam(name = "id", required = false) Set<Long> ids) {
+        return cervejaService.subscribe(tipos, ids);
+    }
+
+    @PutMapping("/{id}")
+    public CervejaDTO updateCerveja(@PathVariable Long id, @RequestBody CervejaDTO cervejaDTO) throws CervejaNotFoundException, CervejaAlreadyRegisteredException, CervejaStockExceededException {
+        return cervejaService.updateCerveja(id, cervejaDTO);
+    }
+
     @DeleteMapping("/{id}")
     @ResponseStatus(HttpStatus.NO_CONTENT)
     public void deleteById(@PathVariable Long id) throws CervejaNotFoundException {
         cervejaService.deleteById(id);
     }
 
+    @Idempotent
     @PatchMapping("/{id}/increment")
     public CervejaDTO increment(@PathVariable Long id, @RequestBody @Valid QuantidadeDTO quantidadeDTO) throws CervejaNotFoundException, CervejaStockExceededException {
         return cervejaService.increment(id, quantidadeDTO.getQuantidade());
     }
+
+    @Idempotent
+    @PostMapping("/movements")
+    public List<MovimentacaoResultadoDTO> applyMovements(@RequestBody List<MovimentacaoDTO> movimentacoes) {
+        return cervejaService.applyMovements(movimentacoes);
+    }
+
+    @GetMapping("/{id}/movements")
+    public List<MovimentoEstoqueDTO> movements(@PathVariable Long id,
+                                               @RequestParam(name = "from") Instant de,
+                                               @RequestParam(name = "to", required = false) Instant ate,
+                                               @RequestParam(defaultValue = "100") int limit) throws CervejaNotFoundException {
+        return cervejaService.movements(id, de, ate == null ? Instant.now() : ate, limit);
+    }
+
+    @GetMapping("/{id}/stock")
+    public EstoqueSnapshotDTO stockAt(@PathVariable Long id,
+                                      @RequestParam(name = "at", required = false) Instant instante) throws CervejaNotFoundException {
+        return cervejaService.stockAt(id, instante == null ? Instant.now() : instante);
+    }
+
+    @Idempotent
+    @PatchMapping("/{id}/decrement")
+    public CervejaDTO decrement(@PathVariable Long id, @RequestBody QuantidadeDTO quantidadeDTO) throws CervejaNotFoundException, CervejaStockExceededException {
+        return cervejaService.decrement(id, quantidadeDTO.getQuantidade());
+    }
+
+    @GetMapping("/{id}/locais")
+    public List<EstoqueLocalDTO> listLocations(@PathVariable Long id) throws CervejaNotFoundException {
+        return cervejaService.listLocations(id);
+    }
+
+    @PutMapping("/{id}/locais/{local}")
+    public EstoqueLocalDTO setLocationCapacity(@PathVariable Long id, @PathVariable String local, @RequestBody CapacidadeDTO capacidadeDTO)
+            throws CervejaNotFoundException, EstoqueLocalNotFoundException, CervejaStockExceededException {
+        return cervejaService.setLocationCapacity(id, local, capacidadeDTO.getMax());
+    }
+
+    @Idempotent
+    @PatchMapping("/{id}/locais/{local}/increment")
+    public EstoqueLocalDTO incrementAt(@PathVariable Long id, @PathVariable String local, @RequestBody QuantidadeDTO quantidadeDTO)
+            throws CervejaNotFoundException, EstoqueLocalNotFoundException, CervejaStockExceededException {
+        return cervejaService.incrementAt(id, local, quantidadeDTO.getQuantidade());
+    }
+
+    @Idempotent
+    @PatchMapping("/{id}/locais/{local}/decrement")
+    public EstoqueLocalDTO decrementAt(@PathVariable Long id, @PathVariable String local, @RequestBody QuantidadeDTO quantidadeDTO)
+            throws CervejaNotFoundException, EstoqueLocalNotFoundException, CervejaStockExceededException {
+        return cervejaService.decrementAt(id, local, quantidadeDTO.getQuantidade());
+    }
+
+    @Idempotent
+    @PostMapping("/{id}/reservas")
+    @ResponseStatus(HttpStatus.CREATED)
+    public ReservaDTO reserve(@PathVariable Long id, @RequestBody QuantidadeDTO quantidadeDTO) throws CervejaNotFoundException, CervejaStockExceededException {
+        return cervejaService.reserve(id, quantidadeDTO.getQuantidade());
+    }
+
+    @Idempotent
+    @PostMapping("/reservas/{reservaId}/commit")
+    public CervejaDTO commitReserva(@PathVariable String reservaId) throws ReservaNotFoundException {
+        return cervejaService.commitReserva(reservaId);
+    }
+
+    @DeleteMapping("/reservas/{reservaId}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void releaseReserva(@PathVariable String reservaId) throws ReservaNotFoundException {
+        cervejaService.releaseReserva(reservaId);
+    }
+
+    @ExceptionHandler(ConstraintViolationException.class)
+    public void handleConstraintViolation(ConstraintViolationException e, HttpServletResponse response) throws IOException {
+        response.sendError(HttpStatus.BAD_REQUEST.value(), e.getMessage());
+    }
 }
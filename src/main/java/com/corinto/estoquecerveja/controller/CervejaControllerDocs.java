@@ -1,44 +1,248 @@
 package com.corinto.estoquecerveja.controller;
 
+import com.corinto.estoquecerveja.dto.CapacidadeDTO;
 import com.corinto.estoquecerveja.dto.CervejaDTO;
+import com.corinto.estoquecerveja.dto.CervejaPageDTO;
+import com.corinto.estoquecerveja.dto.EstoqueLocalDTO;
+import com.corinto.estoquecerveja.dto.EstoqueSnapshotDTO;
+import com.corinto.estoquecerveja.dto.ImportacaoResultadoDTO;
+import com.corinto.estoquecerveja.dto.MarcaEstoqueDTO;
+import com.corinto.estoquecerveja.dto.MovimentacaoDTO;
+import com.corinto.estoquecerveja.dto.MovimentacaoResultadoDTO;
+import com.corinto.estoquecerveja.dto.MovimentoEstoqueDTO;
+import com.corinto.estoquecerveja.dto.QuantidadeDTO;
+import com.corinto.estoquecerveja.dto.ReservaDTO;
+import com.corinto.estoquecerveja.dto.TipoEstoqueDTO;
+import com.corinto.estoquecerveja.enums.FormatoExportacao;
+import com.corinto.estoquecerveja.enums.Tipo;
 import com.corinto.estoquecerveja.exception.CervejaAlreadyRegisteredException;
 import com.corinto.estoquecerveja.exception.CervejaNotFoundException;
+import com.corinto.estoquecerveja.exception.CervejaStockExceededException;
+import com.corinto.estoquecerveja.exception.EstoqueLocalNotFoundException;
+import com.corinto.estoquecerveja.exception.ImportacaoInvalidaException;
+import com.corinto.estoquecerveja.exception.ReservaNotFoundException;
+import com.corinto.estoquecerveja.idempotency.IdempotencyAspect;
 import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiImplicitParam;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiResponse;
 import io.swagger.annotations.ApiResponses;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.validation.Valid;
+import javax.validation.constraints.Size;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
 import java.util.List;
+import java.util.Set;
 
+/**
+ * Parameter constraints are declared here rather than on the controller: it is validated as a whole, and an
+ * overriding method may not add constraints of its own.
+ */
 @Api("Manages beer stock")
 public interface CervejaControllerDocs {
 
+    String IDEMPOTENCY_KEY_DESCRIPTION = "Optional client-chosen key; a retry with the same key and body gets the first response back";
+    int MAX_MOVIMENTACOES = 1000;
+
     @ApiOperation(value = "Beer creation operation")
+    @ApiImplicitParam(name = IdempotencyAspect.IDEMPOTENCY_KEY_HEADER, paramType = "header", value = IDEMPOTENCY_KEY_DESCRIPTION)
     @ApiResponses(value = {
             @ApiResponse(code = 201, message = "Success beer creation"),
             @ApiResponse(code = 400, message = "Missing required fields or wrong field range value.")
     })
-    CervejaDTO createCerveja(CervejaDTO cervejaDTO) throws CervejaAlreadyRegisteredException;
+    CervejaDTO createCerveja(@Valid CervejaDTO cervejaDTO) throws CervejaAlreadyRegisteredException;
+
+    @ApiOperation(value = "Imports beers from a CSV file with a nome, marca, max, quantidade and tipo header, reporting rejected lines")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Number of lines read, imported and rejected, with the first rejected lines"),
+            @ApiResponse(code = 400, message = "Missing CSV header or header columns.")
+    })
+    ImportacaoResultadoDTO importCsv(InputStream csv) throws IOException, ImportacaoInvalidaException;
+
+    @ApiOperation(value = "Imports beers from newline delimited JSON, one beer per line, reporting rejected lines")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Number of lines read, imported and rejected, with the first rejected lines"),
+    })
+    ImportacaoResultadoDTO importNdjson(InputStream ndjson) throws IOException;
 
     @ApiOperation(value = "Returns beer found by a given name")
     @ApiResponses(value = {
             @ApiResponse(code = 200, message = "Success beer found in the system"),
+            @ApiResponse(code = 304, message = "Catalogue unchanged since the ETag sent in If-None-Match"),
             @ApiResponse(code = 404, message = "Beer with given name not found.")
     })
-    CervejaDTO findByNome(@PathVariable String nome) throws CervejaNotFoundException;
+    CervejaDTO findByNome(@PathVariable String nome, WebRequest request) throws CervejaNotFoundException;
 
     @ApiOperation(value = "Returns a list of all beers registered in the system")
     @ApiResponses(value = {
             @ApiResponse(code = 200, message = "List of all beers registered in the system"),
+            @ApiResponse(code = 304, message = "Catalogue unchanged since the ETag sent in If-None-Match"),
+    })
+    List<CervejaDTO> listCervejas(WebRequest request);
+
+    @ApiOperation(value = "Returns one page of beers ordered by id, starting after the given cursor")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Page of beers and the cursor of the next page"),
+            @ApiResponse(code = 304, message = "Catalogue unchanged since the ETag sent in If-None-Match"),
+    })
+    CervejaPageDTO listCervejasPage(Long cursor, int size, WebRequest request);
+
+    @ApiOperation(value = "Streams every beer registered in the system as newline delimited JSON")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "One beer per line, written while the catalogue is read"),
+    })
+    ResponseEntity<StreamingResponseBody> streamCervejas();
+
+    @ApiOperation(value = "Downloads the whole catalogue as CSV, NDJSON or binary, gzipped when the client accepts it")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Every beer, served from the last export while the catalogue is unchanged"),
+            @ApiResponse(code = 400, message = "Unknown export format.")
+    })
+    ResponseEntity<StreamingResponseBody> export(FormatoExportacao formato, String acceptEncoding);
+
+    @ApiOperation(value = "Streams changes to the beers of the given types or ids as Server-Sent Events, or to every beer without filters")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Events named after the change, each with the latest state of the beer; slow clients are disconnected"),
     })
-    List<CervejaDTO> listCervejas();
+    SseEmitter streamChanges(Set<Tipo> tipos, Set<Long> ids);
+
+    @ApiOperation(value = "Edits the nome, marca, max and tipo of a beer; its stock is left as it is")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Success beer edited"),
+            @ApiResponse(code = 400, message = "Missing required fields, a nome taken by another beer or a max below the current stock."),
+            @ApiResponse(code = 404, message = "Beer with given id not found."),
+            @ApiResponse(code = 409, message = "The beer kept changing concurrently until the retries ran out.")
+    })
+    CervejaDTO updateCerveja(@PathVariable Long id, @Valid CervejaDTO cervejaDTO) throws CervejaNotFoundException, CervejaAlreadyRegisteredException, CervejaStockExceededException;
 
     @ApiOperation(value = "Delete a beer found by a given valid Id")
     @ApiResponses(value = {
             @ApiResponse(code = 204, message = "Success beer deleted in the system"),
-            @ApiResponse(code = 404, message = "Beer with given id not found.")
+            @ApiResponse(code = 404, message = "Beer with given id not found."),
+            @ApiResponse(code = 409, message = "The beer kept changing concurrently until the retries ran out.")
     })
     void deleteById(@PathVariable Long id) throws CervejaNotFoundException;
+
+    @ApiOperation(value = "Applies a burst of stock increments in one batch, reporting the outcome of each entry")
+    @ApiImplicitParam(name = IdempotencyAspect.IDEMPOTENCY_KEY_HEADER, paramType = "header", value = IDEMPOTENCY_KEY_DESCRIPTION)
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Per entry result of the stock movements"),
+            @ApiResponse(code = 400, message = "An entry without id or positive delta, or more than " + MAX_MOVIMENTACOES + " entries.")
+    })
+    List<MovimentacaoResultadoDTO> applyMovements(@Valid @Size(max = MAX_MOVIMENTACOES) List<MovimentacaoDTO> movimentacoes);
+
+    @ApiOperation(value = "Searches beers whose name or brand contains the given text, optionally filtered by type")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "List of matching beers, up to the given limit"),
+            @ApiResponse(code = 400, message = "Unknown beer type.")
+    })
+    List<CervejaDTO> search(String texto, Tipo tipo, int limit);
+
+    @ApiOperation(value = "Returns the number of beers and the stocked and maximum units per type")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Stock totals of every type")
+    })
+    List<TipoEstoqueDTO> stockByTipo();
+
+    @ApiOperation(value = "Returns the stocked and maximum units and the fill ratio per brand, lowest fill ratio first")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Stock totals of every brand")
+    })
+    List<MarcaEstoqueDTO> stockByMarca();
+
+    @ApiOperation(value = "Returns the beers with the lowest fill ratio, optionally only those below a given ratio")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Lowest stocked beers, lowest fill ratio first")
+    })
+    List<CervejaDTO> lowestStock(int limit, double maxFillRatio);
+
+    @ApiOperation(value = "Returns the stock movements of a beer from a given instant up to another, oldest first")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Movements still retained in the history"),
+            @ApiResponse(code = 404, message = "Beer with given id not found.")
+    })
+    List<MovimentoEstoqueDTO> movements(@PathVariable Long id, Instant de, Instant ate, int limit) throws CervejaNotFoundException;
+
+    @ApiOperation(value = "Returns the stock of a beer as of a given instant")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Stock of the beer at the given instant"),
+            @ApiResponse(code = 404, message = "Beer with given id not found.")
+    })
+    EstoqueSnapshotDTO stockAt(@PathVariable Long id, Instant instante) throws CervejaNotFoundException;
+
+    @ApiOperation(value = "Sells a given quantity of a beer from the stock")
+    @ApiImplicitParam(name = IdempotencyAspect.IDEMPOTENCY_KEY_HEADER, paramType = "header", value = IDEMPOTENCY_KEY_DESCRIPTION)
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Success beer stock decremented"),
+            @ApiResponse(code = 400, message = "Quantity greater than the available stock."),
+            @ApiResponse(code = 404, message = "Beer with given id not found.")
+    })
+    CervejaDTO decrement(@PathVariable Long id, @Valid QuantidadeDTO quantidadeDTO) throws CervejaNotFoundException, CervejaStockExceededException;
+
+    @ApiOperation(value = "Returns the stock of a beer at each of its locations")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Stock and capacity of every location of the beer"),
+            @ApiResponse(code = 404, message = "Beer with given id not found.")
+    })
+    List<EstoqueLocalDTO> listLocations(@PathVariable Long id) throws CervejaNotFoundException;
+
+    @ApiOperation(value = "Opens a location for a beer or changes its capacity")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Location with its new capacity"),
+            @ApiResponse(code = 400, message = "Capacity below the stock the location holds, or invalid capacity."),
+            @ApiResponse(code = 404, message = "Beer with given id not found.")
+    })
+    EstoqueLocalDTO setLocationCapacity(@PathVariable Long id, @PathVariable String local, @Valid CapacidadeDTO capacidadeDTO)
+            throws CervejaNotFoundException, EstoqueLocalNotFoundException, CervejaStockExceededException;
+
+    @ApiOperation(value = "Receives a given quantity of a beer at one location")
+    @ApiImplicitParam(name = IdempotencyAspect.IDEMPOTENCY_KEY_HEADER, paramType = "header", value = IDEMPOTENCY_KEY_DESCRIPTION)
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Success location stock incremented"),
+            @ApiResponse(code = 400, message = "Quantity above the capacity of the location, or of the beer when capacity is global."),
+            @ApiResponse(code = 404, message = "Beer or location not found.")
+    })
+    EstoqueLocalDTO incrementAt(@PathVariable Long id, @PathVariable String local, @Valid QuantidadeDTO quantidadeDTO)
+            throws CervejaNotFoundException, EstoqueLocalNotFoundException, CervejaStockExceededException;
+
+    @ApiOperation(value = "Sells a given quantity of a beer from one location")
+    @ApiImplicitParam(name = IdempotencyAspect.IDEMPOTENCY_KEY_HEADER, paramType = "header", value = IDEMPOTENCY_KEY_DESCRIPTION)
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Success location stock decremented"),
+            @ApiResponse(code = 400, message = "Quantity greater than the stock of the location."),
+            @ApiResponse(code = 404, message = "Beer or location not found.")
+    })
+    EstoqueLocalDTO decrementAt(@PathVariable Long id, @PathVariable String local, @Valid QuantidadeDTO quantidadeDTO)
+            throws CervejaNotFoundException, EstoqueLocalNotFoundException, CervejaStockExceededException;
+
+    @ApiOperation(value = "Reserves a given quantity of a beer until the reservation is committed or released")
+    @ApiImplicitParam(name = IdempotencyAspect.IDEMPOTENCY_KEY_HEADER, paramType = "header", value = IDEMPOTENCY_KEY_DESCRIPTION)
+    @ApiResponses(value = {
+            @ApiResponse(code = 201, message = "Success reservation created"),
+            @ApiResponse(code = 400, message = "Quantity greater than the available stock."),
+            @ApiResponse(code = 404, message = "Beer with given id not found.")
+    })
+    ReservaDTO reserve(@PathVariable Long id, @Valid QuantidadeDTO quantidadeDTO) throws CervejaNotFoundException, CervejaStockExceededException;
+
+    @ApiOperation(value = "Commits a reservation, selling the reserved quantity")
+    @ApiImplicitParam(name = IdempotencyAspect.IDEMPOTENCY_KEY_HEADER, paramType = "header", value = IDEMPOTENCY_KEY_DESCRIPTION)
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Success reservation committed"),
+            @ApiResponse(code = 404, message = "Reservation with given id not found.")
+    })
+    CervejaDTO commitReserva(@PathVariable String reservaId) throws ReservaNotFoundException;
+
+    @ApiOperation(value = "Releases a reservation, returning the reserved quantity to the stock")
+    @ApiResponses(value = {
+            @ApiResponse(code = 204, message = "Success reservation released"),
+            @ApiResponse(code = 404, message = "Reservation with given id not found.")
+    })
+    void releaseReserva(@PathVariable String reservaId) throws ReservaNotFoundException;
 }
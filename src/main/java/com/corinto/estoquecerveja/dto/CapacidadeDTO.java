@@ -0,0 +1,22 @@
+package com.corinto.estoquecerveja.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CapacidadeDTO {
+
+    @NotNull
+    @Min(0)
+    @Max(500)
+    private Integer max;
+}
@@ -0,0 +1,19 @@
+package com.corinto.estoquecerveja.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CervejaPageDTO {
+
+    private List<CervejaDTO> cervejas;
+
+    private Long nextCursor;
+}
@@ -0,0 +1,21 @@
+package com.corinto.estoquecerveja.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class EstoqueLocalDTO {
+
+    private Long cervejaId;
+
+    private String local;
+
+    private int max;
+
+    private int quantidade;
+}
@@ -0,0 +1,21 @@
+package com.corinto.estoquecerveja.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class EstoqueSnapshotDTO {
+
+    private Long cervejaId;
+
+    private Instant instante;
+
+    private int quantidade;
+}
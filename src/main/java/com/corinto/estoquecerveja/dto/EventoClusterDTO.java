@@ -0,0 +1,20 @@
+package com.corinto.estoquecerveja.dto;
+
+import com.corinto.estoquecerveja.event.CervejaChangedEvent;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class EventoClusterDTO {
+
+    private CervejaChangedEvent.Operacao operacao;
+
+    private CervejaDTO cerveja;
+
+    private int delta;
+}
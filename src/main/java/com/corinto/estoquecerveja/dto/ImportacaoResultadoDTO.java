@@ -0,0 +1,25 @@
+package com.corinto.estoquecerveja.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportacaoResultadoDTO {
+
+    private long linhas;
+
+    private long importadas;
+
+    private long rejeitadas;
+
+    @Builder.Default
+    private List<ImportacaoErroDTO> erros = new ArrayList<>();
+}
@@ -0,0 +1,23 @@
+package com.corinto.estoquecerveja.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MarcaEstoqueDTO {
+
+    private String marca;
+
+    private int skus;
+
+    private long quantidade;
+
+    private long max;
+
+    private double ocupacao;
+}
@@ -0,0 +1,23 @@
+package com.corinto.estoquecerveja.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MovimentacaoDTO {
+
+    @NotNull
+    private Long id;
+
+    @NotNull
+    @Min(1)
+    private Integer delta;
+}
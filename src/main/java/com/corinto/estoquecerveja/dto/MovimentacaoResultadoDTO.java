@@ -0,0 +1,23 @@
+package com.corinto.estoquecerveja.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MovimentacaoResultadoDTO {
+
+    private Long id;
+
+    private Integer delta;
+
+    private boolean sucesso;
+
+    private Integer quantidade;
+
+    private String erro;
+}
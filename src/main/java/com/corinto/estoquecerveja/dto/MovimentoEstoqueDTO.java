@@ -0,0 +1,23 @@
+package com.corinto.estoquecerveja.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MovimentoEstoqueDTO {
+
+    private Long cervejaId;
+
+    private int delta;
+
+    private int quantidade;
+
+    private Instant instante;
+}
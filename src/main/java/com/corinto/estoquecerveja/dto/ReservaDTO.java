@@ -0,0 +1,19 @@
+package com.corinto.estoquecerveja.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReservaDTO {
+
+    private String id;
+
+    private Long cervejaId;
+
+    private Integer quantidade;
+}
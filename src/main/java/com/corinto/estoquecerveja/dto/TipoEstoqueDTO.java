@@ -0,0 +1,22 @@
+package com.corinto.estoquecerveja.dto;
+
+import com.corinto.estoquecerveja.enums.Tipo;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TipoEstoqueDTO {
+
+    private Tipo tipo;
+
+    private int skus;
+
+    private long quantidade;
+
+    private long max;
+}
@@ -12,6 +12,8 @@ import javax.persistence.Enumerated;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Version;
 
 @Data
 @Entity
@@ -19,8 +21,16 @@ import javax.persistence.Id;
 @AllArgsConstructor
 public class Cerveja {
 
+    /**
+     * Ids come from a pooled sequence, so Hibernate can batch inserts and bulk imports can reserve id blocks over
+     * plain JDBC. Each sequence value is the last id of a block of {@link #ID_ALLOCATION_SIZE} ids.
+     */
+    public static final String ID_SEQUENCE = "cerveja_seq";
+    public static final int ID_ALLOCATION_SIZE = 50;
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = ID_SEQUENCE)
+    @SequenceGenerator(name = ID_SEQUENCE, sequenceName = ID_SEQUENCE, allocationSize = ID_ALLOCATION_SIZE)
     private Long id;
 
     @Column(nullable = false, unique = true)
@@ -39,5 +49,12 @@ public class Cerveja {
     @Column(nullable = false)
     private Tipo tipo;
 
+    /**
+     * Bumped by every write to the row, including the stock statements in {@code CervejaRepository}, so an edit
+     * saved from a stale copy fails instead of overwriting the change it never saw.
+     */
+    @Version
+    @Column(nullable = false)
+    private Long versao;
 
 }
@@ -0,0 +1,44 @@
+package com.corinto.estoquecerveja.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+
+/**
+ * Stock of a beer held at one location, with the location's own capacity. Movements at a location only update its
+ * row; the beer's {@code quantidade} is the rollup of all of them and is brought up to date in the background.
+ */
+@Data
+@Entity
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "estoque_local",
+        uniqueConstraints = @UniqueConstraint(name = "uk_estoque_local_cerveja_local", columnNames = {"cerveja_id", "local"}))
+public class EstoqueLocal {
+
+    public static final int MAX_LOCAL_LENGTH = 64;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "cerveja_id", nullable = false)
+    private Long cervejaId;
+
+    @Column(nullable = false, length = MAX_LOCAL_LENGTH)
+    private String local;
+
+    @Column(nullable = false)
+    private int max;
+
+    @Column(nullable = false)
+    private int quantidade;
+}
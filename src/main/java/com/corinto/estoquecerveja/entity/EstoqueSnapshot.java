@@ -0,0 +1,39 @@
+package com.corinto.estoquecerveja.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import java.time.Instant;
+
+/**
+ * Stock of a beer at the end of a compacted time bucket in which it had movements.
+ */
+@Data
+@Entity
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "estoque_snapshot",
+        indexes = @Index(name = "idx_snapshot_cerveja_instante", columnList = "cerveja_id, instante"))
+public class EstoqueSnapshot {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "cerveja_id", nullable = false)
+    private Long cervejaId;
+
+    @Column(nullable = false)
+    private Instant instante;
+
+    @Column(nullable = false)
+    private int quantidade;
+}
@@ -0,0 +1,48 @@
+package com.corinto.estoquecerveja.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import java.time.Instant;
+
+/**
+ * Immutable stock movement of a beer. {@code bucket} is the time bucket of {@code instante}; rows are only ever
+ * appended, and whole buckets are deleted once they are rolled into {@link EstoqueSnapshot}s.
+ */
+@Data
+@Entity
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(indexes = {
+        @Index(name = "idx_movimento_cerveja_instante", columnList = "cerveja_id, instante"),
+        @Index(name = "idx_movimento_bucket", columnList = "bucket")
+})
+public class Movimento {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private long bucket;
+
+    @Column(name = "cerveja_id", nullable = false)
+    private Long cervejaId;
+
+    @Column(nullable = false)
+    private int delta;
+
+    @Column(nullable = false)
+    private int quantidade;
+
+    @Column(nullable = false)
+    private Instant instante;
+}
@@ -0,0 +1,43 @@
+package com.corinto.estoquecerveja.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Lob;
+import javax.persistence.Table;
+import java.time.Instant;
+
+/**
+ * Response of a completed request, kept under its {@code Idempotency-Key} so a retry of the request replays it.
+ * {@code fingerprint} identifies the operation and arguments it was made with, and {@code corpo} is the response as
+ * JSON.
+ */
+@Data
+@Entity
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "resposta_idempotente",
+        indexes = @Index(name = "idx_resposta_idempotente_criada_em", columnList = "criada_em"))
+public class RespostaIdempotente {
+
+    public static final int MAX_CHAVE_LENGTH = 255;
+
+    @Id
+    @Column(length = MAX_CHAVE_LENGTH)
+    private String chave;
+
+    @Column(nullable = false)
+    private String fingerprint;
+
+    @Lob
+    @Column(nullable = false)
+    private String corpo;
+
+    @Column(name = "criada_em", nullable = false)
+    private Instant criadaEm;
+}
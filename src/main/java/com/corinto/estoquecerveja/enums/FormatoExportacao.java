@@ -0,0 +1,16 @@
+package com.corinto.estoquecerveja.enums;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public enum FormatoExportacao {
+
+    CSV("text/csv", "csv"),
+    NDJSON("application/x-ndjson", "ndjson"),
+    BINARY("application/octet-stream", "bin");
+
+    private final String mediaType;
+    private final String extensao;
+}
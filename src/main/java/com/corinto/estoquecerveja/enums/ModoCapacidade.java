@@ -0,0 +1,11 @@
+package com.corinto.estoquecerveja.enums;
+
+/**
+ * What bounds an increment at a location: the location's own {@code max}, or the beer's {@code max} against its
+ * stock at every location together.
+ */
+public enum ModoCapacidade {
+
+    LOCAL,
+    GLOBAL
+}
@@ -0,0 +1,43 @@
+package com.corinto.estoquecerveja.event;
+
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts committed changes to the catalogue. Anything derived from the whole catalogue can be stamped with
+ * {@link #current()} and reused for as long as the counter has not moved.
+ *
+ * <p>The counter restarts at zero with the application, so {@link #etag()} also carries a random epoch drawn at
+ * startup. A tag handed out before a restart, or by another instance, never matches.
+ *
+ * <p>The counter moves last: the listeners that serve catalogue reads are ordered before {@link #ORDER}, so once the
+ * counter has moved the cache, the snapshot and the search index already serve the change. A reader that races the
+ * change may still pair the old data with the old tag, never the old data with the new one.
+ */
+@Component
+public class CervejaChangeCounter {
+
+    public static final int ORDER = Ordered.LOWEST_PRECEDENCE;
+
+    private final AtomicLong versao = new AtomicLong();
+    private final String epoch = Long.toHexString(ThreadLocalRandom.current().nextLong());
+
+    @Order(ORDER)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCervejaChanged(CervejaChangedEvent event) {
+        versao.incrementAndGet();
+    }
+
+    public long current() {
+        return versao.get();
+    }
+
+    public String etag() {
+        return epoch + "-" + versao.get();
+    }
+}
@@ -0,0 +1,41 @@
+package com.corinto.estoquecerveja.event;
+
+import com.corinto.estoquecerveja.dto.CervejaDTO;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Published by {@code CervejaService} and the bulk {@code CervejaImporter} whenever a beer is created, edited, deleted
+ * or has its stock changed.
+ * {@code delta} is the stock movement behind the change: the initial quantity on creation, zero on edits and deletion.
+ * In cluster mode a change made on another node is published again on this one with {@code remoto} set.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class CervejaChangedEvent {
+
+    public enum Operacao {
+        CREATED,
+        UPDATED,
+        DELETED,
+        STOCK_CHANGED
+    }
+
+    private final Operacao operacao;
+
+    private final CervejaDTO cerveja;
+
+    private final int delta;
+
+    private final boolean remoto;
+
+    public CervejaChangedEvent(Operacao operacao, CervejaDTO cerveja, int delta) {
+        this(operacao, cerveja, delta, false);
+    }
+
+    public CervejaChangedEvent(Operacao operacao, CervejaDTO cerveja) {
+        this(operacao, cerveja, 0);
+    }
+}
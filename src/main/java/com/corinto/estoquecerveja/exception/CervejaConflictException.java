@@ -0,0 +1,15 @@
+package com.corinto.estoquecerveja.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Unchecked, because it is thrown by {@code OptimisticRetryAspect} around service methods that do not declare it.
+ */
+@ResponseStatus(HttpStatus.CONFLICT)
+public class CervejaConflictException extends RuntimeException {
+
+    public CervejaConflictException(String operacao, int tentativas, Throwable cause) {
+        super(String.format("Operação %s não foi concluída após %s tentativas: a cerveja foi alterada concorrentemente.", operacao, tentativas), cause);
+    }
+}
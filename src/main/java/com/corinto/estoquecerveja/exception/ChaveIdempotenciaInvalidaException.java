@@ -0,0 +1,19 @@
+package com.corinto.estoquecerveja.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Unchecked, because it is thrown by {@code IdempotencyAspect} around controller methods that do not declare it.
+ */
+@ResponseStatus(HttpStatus.UNPROCESSABLE_ENTITY)
+public class ChaveIdempotenciaInvalidaException extends RuntimeException {
+
+    public ChaveIdempotenciaInvalidaException(String chave) {
+        super(String.format("Chave de idempotência %s já foi usada em outra requisição.", chave));
+    }
+
+    public ChaveIdempotenciaInvalidaException(int tamanho, int tamanhoMaximo) {
+        super(String.format("Chave de idempotência com %s caracteres excede o máximo de %s.", tamanho, tamanhoMaximo));
+    }
+}
@@ -0,0 +1,12 @@
+package com.corinto.estoquecerveja.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.NOT_FOUND)
+public class EstoqueLocalNotFoundException extends Exception {
+
+    public EstoqueLocalNotFoundException(Long cervejaId, String local) {
+        super(String.format("Cerveja com id %s não tem estoque no local %s.", cervejaId, local));
+    }
+}
@@ -0,0 +1,12 @@
+package com.corinto.estoquecerveja.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class ImportacaoInvalidaException extends Exception {
+
+    public ImportacaoInvalidaException(String motivo) {
+        super(String.format("Arquivo de importação inválido: %s", motivo));
+    }
+}
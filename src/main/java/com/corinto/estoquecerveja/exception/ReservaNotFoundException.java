@@ -0,0 +1,12 @@
+package com.corinto.estoquecerveja.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.NOT_FOUND)
+public class ReservaNotFoundException extends Exception {
+
+    public ReservaNotFoundException(String reservaId) {
+        super(String.format("Reserva com id %s não foi encontrada no sistema.", reservaId));
+    }
+}
@@ -0,0 +1,304 @@
+package com.corinto.estoquecerveja.export;
+
+import com.corinto.estoquecerveja.enums.FormatoExportacao;
+import com.corinto.estoquecerveja.enums.Tipo;
+import com.corinto.estoquecerveja.event.CervejaChangeCounter;
+import com.corinto.estoquecerveja.repository.CervejaRepository;
+import com.corinto.estoquecerveja.stock.CervejaStockCounters;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes the whole catalogue as CSV, NDJSON or {@link #BINARY_MAGIC binary} straight from a forward-only JDBC cursor,
+ * optionally gzipped. Each rendering is also written to a snapshot file stamped with the {@link CervejaChangeCounter}
+ * value read before the cursor was opened. Until the counter moves, the next export of the same format and encoding
+ * is served from that file with {@link FileChannel#transferTo}, without touching the database.
+ *
+ * <p>Stock is taken from the live counters where one is loaded, like every other read path.
+ */
+@Slf4j
+@Component
+public class CervejaExporter {
+
+    /**
+     * The binary format is {@code CERV}, a format version short, then per beer a {@code 1} byte followed by
+     * {@code id} long, {@code nome} and {@code marca} in modified UTF-8, {@code max} and {@code quantidade} ints and the
+     * {@code tipo} ordinal byte. A {@code 0} byte ends the file.
+     */
+    public static final byte[] BINARY_MAGIC = {'C', 'E', 'R', 'V'};
+    public static final short BINARY_VERSION = 1;
+    static final String CSV_HEADER = "id,nome,marca,max,quantidade,tipo\n";
+    private static final int BUFFER_BYTES = 64 * 1024;
+    private static final String SNAPSHOT_PREFIX = "cervejas-";
+
+    private final CervejaRepository cervejaRepository;
+    private final CervejaStockCounters stockCounters;
+    private final CervejaChangeCounter changeCounter;
+    private final ObjectMapper objectMapper;
+    private final Path directory;
+    private final Map<String, Snapshot> snapshots = new ConcurrentHashMap<>();
+
+    @Autowired
+    public CervejaExporter(CervejaRepository cervejaRepository,
+                           CervejaStockCounters stockCounters,
+                           CervejaChangeCounter changeCounter,
+                           ObjectMapper objectMapper,
+                           @Value("${estoque.export.directory:${java.io.tmpdir}/estoque-cerveja/export}") Path directory) {
+        this.cervejaRepository = cervejaRepository;
+        this.stockCounters = stockCounters;
+        this.changeCounter = changeCounter;
+        this.objectMapper = objectMapper;
+        this.directory = directory;
+    }
+
+    /**
+     * Snapshots are only valid for the change counter of this run, so any left over from a previous run are removed.
+     */
+    @PostConstruct
+    public void start() throws IOException {
+        Files.createDirectories(directory);
+        try (DirectoryStream<Path> leftovers = Files.newDirectoryStream(directory, SNAPSHOT_PREFIX + "*")) {
+            for (Path leftover : leftovers) {
+                Files.deleteIfExists(leftover);
+            }
+        }
+    }
+
+    public void export(FormatoExportacao formato, boolean gzip, OutputStream out) throws IOException {
+        String key = formato.getExtensao() + (gzip ? ".gz" : "");
+        long versao = changeCounter.current();
+        Snapshot snapshot = snapshots.get(key);
+        if (snapshot != null && snapshot.versao == versao && transfer(snapshot.path, out)) {
+            return;
+        }
+        Path rendering = Files.createTempFile(directory, SNAPSHOT_PREFIX, ".tmp");
+        try {
+            try (OutputStream file = new BufferedOutputStream(Files.newOutputStream(rendering), BUFFER_BYTES)) {
+                OutputStream both = new TeeOutputStream(out, file);
+                if (gzip) {
+                    GZIPOutputStream compressed = new GZIPOutputStream(both, BUFFER_BYTES);
+                    render(formato, compressed);
+                    compressed.finish();
+                } else {
+                    render(formato, both);
+                }
+                both.flush();
+            }
+            keep(key, versao, rendering);
+        } finally {
+            Files.deleteIfExists(rendering);
+        }
+    }
+
+    private void render(FormatoExportacao formato, OutputStream out) throws IOException {
+        switch (formato) {
+            case CSV:
+                renderCsv(out);
+                break;
+            case NDJSON:
+                renderNdjson(out);
+                break;
+            case BINARY:
+                renderBinary(out);
+                break;
+            default:
+                throw new IllegalArgumentException("Formato de exportação desconhecido: " + formato);
+        }
+    }
+
+    private void renderCsv(OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_BYTES);
+        writer.write(CSV_HEADER);
+        exportRows(rs -> {
+            long id = rs.getLong(1);
+            writer.write(Long.toString(id));
+            writer.write(',');
+            writeCsvField(writer, rs.getString(2));
+            writer.write(',');
+            writeCsvField(writer, rs.getString(3));
+            writer.write(',');
+            writer.write(Integer.toString(rs.getInt(4)));
+            writer.write(',');
+            writer.write(Integer.toString(quantidade(id, rs)));
+            writer.write(',');
+            writer.write(rs.getString(6));
+            writer.write('\n');
+        });
+        writer.flush();
+    }
+
+    private void renderNdjson(OutputStream out) throws IOException {
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(out)
+                .setRootValueSeparator(null);
+        exportRows(rs -> {
+            long id = rs.getLong(1);
+            generator.writeStartObject();
+            generator.writeNumberField("id", id);
+            generator.writeStringField("nome", rs.getString(2));
+            generator.writeStringField("marca", rs.getString(3));
+            generator.writeNumberField("max", rs.getInt(4));
+            generator.writeNumberField("quantidade", quantidade(id, rs));
+            generator.writeStringField("tipo", rs.getString(6));
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        });
+        generator.flush();
+    }
+
+    private void renderBinary(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out, BUFFER_BYTES));
+        data.write(BINARY_MAGIC);
+        data.writeShort(BINARY_VERSION);
+        exportRows(rs -> {
+            long id = rs.getLong(1);
+            data.writeByte(1);
+            data.writeLong(id);
+            data.writeUTF(rs.getString(2));
+            data.writeUTF(rs.getString(3));
+            data.writeInt(rs.getInt(4));
+            data.writeInt(quantidade(id, rs));
+            data.writeByte(Tipo.valueOf(rs.getString(6)).ordinal());
+        });
+        data.writeByte(0);
+        data.flush();
+    }
+
+    private void exportRows(RowWriter rowWriter) throws IOException {
+        try {
+            cervejaRepository.exportAll(rs -> {
+                try {
+                    rowWriter.write(rs);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private int quantidade(long id, ResultSet rs) throws SQLException {
+        return stockCounters.quantidade(id).orElse(rs.getInt(5));
+    }
+
+    private static void writeCsvField(Writer writer, String value) throws IOException {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    /**
+     * Returns false when the snapshot file is gone, so the caller renders a new one.
+     */
+    private boolean transfer(Path path, OutputStream out) throws IOException {
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+        try (channel) {
+            WritableByteChannel target = Channels.newChannel(out);
+            long size = channel.size();
+            for (long position = 0; position < size; ) {
+                position += channel.transferTo(position, size - position, target);
+            }
+        }
+        out.flush();
+        return true;
+    }
+
+    private void keep(String key, long versao, Path rendering) throws IOException {
+        Path path = directory.resolve(SNAPSHOT_PREFIX + versao + "." + key);
+        Files.move(rendering, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        Snapshot previous = snapshots.put(key, new Snapshot(versao, path));
+        if (previous != null && !previous.path.equals(path)) {
+            try {
+                Files.deleteIfExists(previous.path);
+            } catch (IOException e) {
+                log.warn("Could not delete export snapshot {}: {}", previous.path, e.getMessage());
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface RowWriter {
+        void write(ResultSet rs) throws SQLException, IOException;
+    }
+
+    private static final class Snapshot {
+
+        private final long versao;
+        private final Path path;
+
+        private Snapshot(long versao, Path path) {
+            this.versao = versao;
+            this.path = path;
+        }
+    }
+
+    /**
+     * Sends every byte to the response and to the snapshot being written.
+     */
+    private static final class TeeOutputStream extends OutputStream {
+
+        private final OutputStream first;
+        private final OutputStream second;
+
+        private TeeOutputStream(OutputStream first, OutputStream second) {
+            this.first = first;
+            this.second = second;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            first.write(b);
+            second.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            first.write(b, off, len);
+            second.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            first.flush();
+            second.flush();
+        }
+    }
+}
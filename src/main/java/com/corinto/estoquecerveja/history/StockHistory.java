@@ -0,0 +1,130 @@
+package com.corinto.estoquecerveja.history;
+
+import com.corinto.estoquecerveja.dto.CervejaDTO;
+import com.corinto.estoquecerveja.dto.EstoqueSnapshotDTO;
+import com.corinto.estoquecerveja.dto.MovimentoEstoqueDTO;
+import com.corinto.estoquecerveja.entity.EstoqueSnapshot;
+import com.corinto.estoquecerveja.entity.Movimento;
+import com.corinto.estoquecerveja.event.CervejaChangedEvent;
+import com.corinto.estoquecerveja.repository.EstoqueSnapshotRepository;
+import com.corinto.estoquecerveja.repository.MovimentoRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.annotation.PreDestroy;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Append-only history of stock movements. Every committed change is queued with its timestamp and written in
+ * batches to {@link Movimento}, bucketed by {@code estoque.historico.bucket}. Compaction rolls every closed bucket
+ * into one {@link EstoqueSnapshot} per beer and drops movements older than {@code estoque.historico.retention},
+ * so the stock at a point in time is the last snapshot before it plus at most one bucket of movements.
+ */
+@Slf4j
+@Component
+public class StockHistory {
+
+    private final MovimentoRepository movimentoRepository;
+    private final EstoqueSnapshotRepository snapshotRepository;
+    private final long bucketMillis;
+    private final Duration retention;
+    private final Clock clock;
+    private final Queue<Movimento> pendentes = new ConcurrentLinkedQueue<>();
+
+    @Autowired
+    public StockHistory(MovimentoRepository movimentoRepository,
+                        EstoqueSnapshotRepository snapshotRepository,
+                        @Value("${estoque.historico.bucket:1h}") Duration bucket,
+                        @Value("${estoque.historico.retention:30d}") Duration retention) {
+        this(movimentoRepository, snapshotRepository, bucket, retention, Clock.systemUTC());
+    }
+
+    StockHistory(MovimentoRepository movimentoRepository,
+                 EstoqueSnapshotRepository snapshotRepository,
+                 Duration bucket,
+                 Duration retention,
+                 Clock clock) {
+        this.movimentoRepository = movimentoRepository;
+        this.snapshotRepository = snapshotRepository;
+        this.bucketMillis = bucket.toMillis();
+        this.retention = retention;
+        this.clock = clock;
+    }
+
+    /**
+     * Runs after the change commits, so rolled-back movements never reach the history. A change relayed from another
+     * node of the cluster was already recorded by that node.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCervejaChanged(CervejaChangedEvent event) {
+        if (event.getDelta() == 0 || event.isRemoto()) {
+            return;
+        }
+        CervejaDTO cervejaDTO = event.getCerveja();
+        Instant instante = clock.instant();
+        pendentes.add(new Movimento(null, bucket(instante), cervejaDTO.getId(), event.getDelta(), cervejaDTO.getQuantidade(), instante));
+    }
+
+    public List<MovimentoEstoqueDTO> movements(Long cervejaId, Instant de, Instant ate, int limit) {
+        flush();
+        return movimentoRepository.findDTOsBetween(cervejaId, de, ate, PageRequest.of(0, limit));
+    }
+
+    public EstoqueSnapshotDTO stockAt(Long cervejaId, Instant instante) {
+        flush();
+        Optional<EstoqueSnapshot> snapshot = snapshotRepository.findFirstByCervejaIdAndInstanteLessThanEqualOrderByInstanteDesc(cervejaId, instante);
+        Instant de = snapshot.map(EstoqueSnapshot::getInstante).orElse(Instant.EPOCH);
+        long quantidade = snapshot.map(EstoqueSnapshot::getQuantidade).orElse(0)
+                + movimentoRepository.sumDeltaBetween(cervejaId, de, instante);
+        return new EstoqueSnapshotDTO(cervejaId, instante, (int) quantidade);
+    }
+
+    @PreDestroy
+    @Scheduled(fixedDelayString = "${estoque.historico.flush-interval-ms:200}")
+    public void flush() {
+        List<Movimento> movimentos = new ArrayList<>();
+        for (Movimento movimento = pendentes.poll(); movimento != null; movimento = pendentes.poll()) {
+            movimentos.add(movimento);
+        }
+        if (movimentos.isEmpty()) {
+            return;
+        }
+        try {
+            movimentoRepository.batchInsert(movimentos);
+        } catch (RuntimeException e) {
+            log.warn("Could not write {} stock movements, will retry: {}", movimentos.size(), e.getMessage());
+            pendentes.addAll(movimentos);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${estoque.historico.compaction-interval-ms:60000}",
+            initialDelayString = "${estoque.historico.compaction-interval-ms:60000}")
+    public void compact() {
+        long bucketAtual = bucket(clock.instant());
+        flush();
+        Movimento pendente = pendentes.peek();
+        if (pendente != null && pendente.getBucket() < bucketAtual) {
+            return;
+        }
+        long deBucket = snapshotRepository.findLastInstante().map(this::bucket).orElse(0L);
+        long apagarAntesDe = bucket(clock.instant().minus(retention));
+        int snapshots = movimentoRepository.compact(deBucket, bucketAtual, bucketMillis, apagarAntesDe);
+        log.debug("Compacted stock history buckets [{}, {}) into {} snapshots", deBucket, bucketAtual, snapshots);
+    }
+
+    private long bucket(Instant instante) {
+        return Math.floorDiv(instante.toEpochMilli(), bucketMillis);
+    }
+}
@@ -0,0 +1,60 @@
+package com.corinto.estoquecerveja.idempotency;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.servlet.http.HttpServletResponse;
+import java.lang.reflect.Method;
+
+/**
+ * Runs {@link Idempotent} controller methods through the {@link IdempotencyStore} when the request carries an
+ * {@value #IDEMPOTENCY_KEY_HEADER} header. The key is bound to the method and the MD5 of its arguments as JSON, so
+ * reusing it for a different request is rejected. A replayed response carries {@value #REPLAYED_HEADER}.
+ */
+@Aspect
+@Component
+public class IdempotencyAspect {
+
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private final IdempotencyStore idempotencyStore;
+    private final ObjectMapper objectMapper;
+
+    @Autowired
+    public IdempotencyAspect(IdempotencyStore idempotencyStore, ObjectMapper objectMapper) {
+        this.idempotencyStore = idempotencyStore;
+        this.objectMapper = objectMapper;
+    }
+
+    @Around("@annotation(com.corinto.estoquecerveja.idempotency.Idempotent)")
+    public Object deduplicate(ProceedingJoinPoint joinPoint) throws Throwable {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (!(attributes instanceof ServletRequestAttributes)) {
+            return joinPoint.proceed();
+        }
+        ServletRequestAttributes request = (ServletRequestAttributes) attributes;
+        String chave = request.getRequest().getHeader(IDEMPOTENCY_KEY_HEADER);
+        if (chave == null || chave.isBlank()) {
+            return joinPoint.proceed();
+        }
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        String fingerprint = method.getName() + ":" + DigestUtils.md5DigestAsHex(objectMapper.writeValueAsBytes(joinPoint.getArgs()));
+        IdempotencyStore.Resposta resposta = idempotencyStore.execute(chave, fingerprint,
+                objectMapper.constructType(method.getGenericReturnType()), joinPoint::proceed);
+        HttpServletResponse response = request.getResponse();
+        if (resposta.isReplay() && response != null) {
+            response.setHeader(REPLAYED_HEADER, "true");
+        }
+        return resposta.getCorpo();
+    }
+}
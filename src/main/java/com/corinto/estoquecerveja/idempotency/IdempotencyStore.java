@@ -0,0 +1,215 @@
+package com.corinto.estoquecerveja.idempotency;
+
+import com.corinto.estoquecerveja.entity.RespostaIdempotente;
+import com.corinto.estoquecerveja.exception.ChaveIdempotenciaInvalidaException;
+import com.corinto.estoquecerveja.repository.RespostaIdempotenteRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Completed responses by {@code Idempotency-Key}, bounded by {@code estoque.idempotency.maximum-size} and dropped
+ * {@code estoque.idempotency.ttl} after they were stored. A request that arrives while the first one with its key is
+ * still running waits for it instead of running again. Failed requests are not kept, so they can be retried.
+ *
+ * <p>With {@code estoque.idempotency.persistent}, responses are also queued as JSON and written in batches to
+ * {@link RespostaIdempotente}, and a key missing from memory is looked up there, so retries are still recognised
+ * after a restart or an eviction. Only keys whose write was flushed are seen by other instances.
+ */
+@Slf4j
+@Component
+public class IdempotencyStore {
+
+    static final String CACHE_NAME = "idempotency";
+    static final String REPLAY_COUNTER = "cervejas.idempotency.replays";
+
+    private final RespostaIdempotenteRepository repository;
+    private final ObjectMapper objectMapper;
+    private final boolean persistent;
+    private final Duration ttl;
+    private final Clock clock;
+    private final Cache<String, Resposta> completed;
+    private final Map<String, CompletableFuture<Resposta>> inFlight = new ConcurrentHashMap<>();
+    private final Queue<RespostaIdempotente> pendentes = new ConcurrentLinkedQueue<>();
+    private final Counter replays;
+
+    @Autowired
+    public IdempotencyStore(RespostaIdempotenteRepository repository,
+                            ObjectMapper objectMapper,
+                            MeterRegistry meterRegistry,
+                            @Value("${estoque.idempotency.persistent:false}") boolean persistent,
+                            @Value("${estoque.idempotency.maximum-size:100000}") long maximumSize,
+                            @Value("${estoque.idempotency.ttl:24h}") Duration ttl) {
+        this(repository, objectMapper, meterRegistry, persistent, maximumSize, ttl, Clock.systemUTC());
+    }
+
+    IdempotencyStore(RespostaIdempotenteRepository repository,
+                     ObjectMapper objectMapper,
+                     MeterRegistry meterRegistry,
+                     boolean persistent,
+                     long maximumSize,
+                     Duration ttl,
+                     Clock clock) {
+        this.repository = repository;
+        this.objectMapper = objectMapper;
+        this.persistent = persistent;
+        this.ttl = ttl;
+        this.clock = clock;
+        this.completed = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, completed, CACHE_NAME);
+        this.replays = Counter.builder(REPLAY_COUNTER).register(meterRegistry);
+    }
+
+    /**
+     * Returns the response kept under {@code chave}, or runs {@code execucao} and keeps its response.
+     * {@code tipo} is the response type, used to read it back from the table.
+     *
+     * @throws ChaveIdempotenciaInvalidaException when {@code chave} was used with a different {@code fingerprint}
+     */
+    public Resposta execute(String chave, String fingerprint, JavaType tipo, Execucao execucao) throws Throwable {
+        if (chave.length() > RespostaIdempotente.MAX_CHAVE_LENGTH) {
+            throw new ChaveIdempotenciaInvalidaException(chave.length(), RespostaIdempotente.MAX_CHAVE_LENGTH);
+        }
+        while (true) {
+            Optional<Resposta> kept = find(chave, tipo);
+            if (kept.isPresent()) {
+                return replay(chave, fingerprint, kept.get());
+            }
+            CompletableFuture<Resposta> mine = new CompletableFuture<>();
+            CompletableFuture<Resposta> running = inFlight.putIfAbsent(chave, mine);
+            if (running != null) {
+                try {
+                    return replay(chave, fingerprint, running.join());
+                } catch (CompletionException e) {
+                    continue;
+                }
+            }
+            try {
+                Resposta resposta = completed.getIfPresent(chave);
+                if (resposta != null) {
+                    mine.complete(resposta);
+                    return replay(chave, fingerprint, resposta);
+                }
+                resposta = new Resposta(fingerprint, execucao.run(), false);
+                keep(chave, resposta);
+                mine.complete(resposta);
+                return resposta;
+            } catch (Throwable e) {
+                mine.completeExceptionally(e);
+                throw e;
+            } finally {
+                inFlight.remove(chave, mine);
+            }
+        }
+    }
+
+    @PreDestroy
+    @Scheduled(fixedDelayString = "${estoque.idempotency.flush-interval-ms:200}")
+    public void flush() {
+        List<RespostaIdempotente> respostas = new ArrayList<>();
+        for (RespostaIdempotente resposta = pendentes.poll(); resposta != null; resposta = pendentes.poll()) {
+            respostas.add(resposta);
+        }
+        if (respostas.isEmpty()) {
+            return;
+        }
+        try {
+            repository.saveAll(respostas);
+        } catch (RuntimeException e) {
+            log.warn("Could not write {} idempotent responses, will retry: {}", respostas.size(), e.getMessage());
+            pendentes.addAll(respostas);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${estoque.idempotency.purge-interval-ms:600000}",
+            initialDelayString = "${estoque.idempotency.purge-interval-ms:600000}")
+    public void purge() {
+        if (persistent) {
+            int purged = repository.deleteCriadasAntesDe(clock.instant().minus(ttl));
+            log.debug("Purged {} expired idempotent responses", purged);
+        }
+    }
+
+    private Optional<Resposta> find(String chave, JavaType tipo) throws JsonProcessingException {
+        Resposta resposta = completed.getIfPresent(chave);
+        if (resposta != null || !persistent) {
+            return Optional.ofNullable(resposta);
+        }
+        Optional<RespostaIdempotente> stored = repository.findById(chave)
+                .filter(row -> row.getCriadaEm().isAfter(clock.instant().minus(ttl)));
+        if (stored.isEmpty()) {
+            return Optional.empty();
+        }
+        resposta = new Resposta(stored.get().getFingerprint(), objectMapper.readValue(stored.get().getCorpo(), tipo), false);
+        completed.put(chave, resposta);
+        return Optional.of(resposta);
+    }
+
+    private void keep(String chave, Resposta resposta) {
+        completed.put(chave, resposta);
+        if (!persistent) {
+            return;
+        }
+        try {
+            pendentes.add(new RespostaIdempotente(chave, resposta.getFingerprint(),
+                    objectMapper.writeValueAsString(resposta.getCorpo()), clock.instant()));
+        } catch (JsonProcessingException e) {
+            log.warn("Could not store the response under idempotency key {}, it is only kept in memory: {}", chave, e.getMessage());
+        }
+    }
+
+    private Resposta replay(String chave, String fingerprint, Resposta resposta) {
+        if (!resposta.getFingerprint().equals(fingerprint)) {
+            throw new ChaveIdempotenciaInvalidaException(chave);
+        }
+        replays.increment();
+        return new Resposta(fingerprint, resposta.getCorpo(), true);
+    }
+
+    @FunctionalInterface
+    public interface Execucao {
+        Object run() throws Throwable;
+    }
+
+    @Getter
+    public static final class Resposta {
+
+        private final String fingerprint;
+        private final Object corpo;
+        private final boolean replay;
+
+        private Resposta(String fingerprint, Object corpo, boolean replay) {
+            this.fingerprint = fingerprint;
+            this.corpo = corpo;
+            this.replay = replay;
+        }
+    }
+}
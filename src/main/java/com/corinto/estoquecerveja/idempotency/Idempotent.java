@@ -0,0 +1,17 @@
+package com.corinto.estoquecerveja.idempotency;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a controller method whose response is kept under the request's {@code Idempotency-Key} header, so
+ * {@link IdempotencyAspect} answers a retry of the same request with it instead of running the method again.
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Idempotent {
+}
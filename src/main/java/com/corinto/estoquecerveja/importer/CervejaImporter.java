@@ -0,0 +1,298 @@
+package com.corinto.estoquecerveja.importer;
+
+import com.corinto.estoquecerveja.dto.CervejaDTO;
+import com.corinto.estoquecerveja.dto.ImportacaoErroDTO;
+import com.corinto.estoquecerveja.dto.ImportacaoResultadoDTO;
+import com.corinto.estoquecerveja.entity.Cerveja;
+import com.corinto.estoquecerveja.enums.Tipo;
+import com.corinto.estoquecerveja.event.CervejaChangedEvent;
+import com.corinto.estoquecerveja.exception.CervejaAlreadyRegisteredException;
+import com.corinto.estoquecerveja.exception.ImportacaoInvalidaException;
+import com.corinto.estoquecerveja.mapper.CervejaMapper;
+import com.corinto.estoquecerveja.repository.CervejaRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Component;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk import of beers from CSV or newline delimited JSON. The file is read one line at a time and inserted in JDBC
+ * batches of {@code estoque.import.batch-size} rows, each batch in its own transaction, so memory stays flat whatever
+ * the size of the file. Names already in the catalogue are loaded once, up front. A name repeated across batches
+ * is caught by the unique constraint, and only that batch is retried row by row to find it.
+ *
+ * <p>Rejected rows are reported with their line number, up to {@link #MAX_REPORTED_ERRORS}. The counters always
+ * cover the whole file.
+ */
+@Component
+public class CervejaImporter {
+
+    public static final int MAX_REPORTED_ERRORS = 1000;
+    static final List<String> CSV_COLUMNS = List.of("nome", "marca", "max", "quantidade", "tipo");
+
+    private final CervejaRepository cervejaRepository;
+    private final ObjectReader ndjsonReader;
+    private final Validator validator;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int batchSize;
+    private final CervejaMapper cervejaMapper = CervejaMapper.INSTANCE;
+
+    @Autowired
+    public CervejaImporter(CervejaRepository cervejaRepository,
+                           ObjectMapper objectMapper,
+                           Validator validator,
+                           ApplicationEventPublisher eventPublisher,
+                           @Value("${estoque.import.batch-size:1000}") int batchSize) {
+        this.cervejaRepository = cervejaRepository;
+        this.ndjsonReader = objectMapper.readerFor(CervejaDTO.class);
+        this.validator = validator;
+        this.eventPublisher = eventPublisher;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Expects a header line naming the columns {@code nome, marca, max, quantidade, tipo} in any order. Fields may be
+     * quoted with {@code "} to hold commas, but not line breaks.
+     */
+    public ImportacaoResultadoDTO importCsv(Reader csv) throws IOException, ImportacaoInvalidaException {
+        BufferedReader lines = new BufferedReader(csv, 64 * 1024);
+        String header = lines.readLine();
+        if (header == null) {
+            throw new ImportacaoInvalidaException("cabeçalho CSV ausente");
+        }
+        Map<String, Integer> colunas = csvColumns(header);
+        Importacao importacao = new Importacao(1);
+        for (String line = lines.readLine(); line != null; line = lines.readLine()) {
+            importacao.linha++;
+            if (line.isBlank()) {
+                continue;
+            }
+            List<String> campos = splitCsv(line);
+            String nome = campo(campos, colunas, "nome");
+            try {
+                importacao.add(CervejaDTO.builder()
+                        .nome(nome)
+                        .marca(campo(campos, colunas, "marca"))
+                        .max(inteiro(campo(campos, colunas, "max"), "max"))
+                        .quantidade(inteiro(campo(campos, colunas, "quantidade"), "quantidade"))
+                        .tipo(tipo(campo(campos, colunas, "tipo")))
+                        .build());
+            } catch (IllegalArgumentException e) {
+                importacao.reject(nome, e.getMessage());
+            }
+        }
+        return importacao.finish();
+    }
+
+    /**
+     * Expects one {@link CervejaDTO} object per line. Any {@code id} in the file is ignored.
+     */
+    public ImportacaoResultadoDTO importNdjson(Reader ndjson) throws IOException {
+        BufferedReader lines = new BufferedReader(ndjson, 64 * 1024);
+        Importacao importacao = new Importacao(0);
+        for (String line = lines.readLine(); line != null; line = lines.readLine()) {
+            importacao.linha++;
+            if (line.isBlank()) {
+                continue;
+            }
+            CervejaDTO cervejaDTO;
+            try {
+                cervejaDTO = ndjsonReader.readValue(line);
+            } catch (JsonProcessingException e) {
+                importacao.reject(null, "JSON inválido: " + e.getOriginalMessage());
+                continue;
+            }
+            cervejaDTO.setId(null);
+            importacao.add(cervejaDTO);
+        }
+        return importacao.finish();
+    }
+
+    private static Map<String, Integer> csvColumns(String header) throws ImportacaoInvalidaException {
+        List<String> nomes = splitCsv(header.startsWith("\uFEFF") ? header.substring(1) : header);
+        Map<String, Integer> colunas = new HashMap<>();
+        for (int i = 0; i < nomes.size(); i++) {
+            if (nomes.get(i) != null) {
+                colunas.put(nomes.get(i).toLowerCase(Locale.ROOT), i);
+            }
+        }
+        List<String> ausentes = CSV_COLUMNS.stream()
+                .filter(coluna -> !colunas.containsKey(coluna))
+                .collect(Collectors.toList());
+        if (!ausentes.isEmpty()) {
+            throw new ImportacaoInvalidaException("colunas ausentes no cabeçalho CSV: " + String.join(", ", ausentes));
+        }
+        return colunas;
+    }
+
+    /**
+     * Splits one CSV line, trimming unquoted fields. Empty fields come back as {@code null} so validation reports them.
+     */
+    static List<String> splitCsv(String line) {
+        List<String> campos = new ArrayList<>();
+        StringBuilder campo = new StringBuilder();
+        boolean quoted = false;
+        boolean wasQuoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    campo.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    campo.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+                wasQuoted = true;
+            } else if (c == ',') {
+                campos.add(value(campo, wasQuoted));
+                campo.setLength(0);
+                wasQuoted = false;
+            } else {
+                campo.append(c);
+            }
+        }
+        campos.add(value(campo, wasQuoted));
+        return campos;
+    }
+
+    private static String value(StringBuilder campo, boolean wasQuoted) {
+        String value = wasQuoted ? campo.toString() : campo.toString().trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private static String campo(List<String> campos, Map<String, Integer> colunas, String coluna) {
+        int index = colunas.get(coluna);
+        return index < campos.size() ? campos.get(index) : null;
+    }
+
+    private static Integer inteiro(String value, String coluna) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Integer.valueOf(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(String.format("%s: valor inválido '%s'", coluna, value));
+        }
+    }
+
+    private static Tipo tipo(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Tipo.valueOf(value.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(String.format("tipo: valor inválido '%s'", value));
+        }
+    }
+
+    /**
+     * State of one import: the current line, the pending batch and the report.
+     */
+    private class Importacao {
+
+        private final Set<String> registrados = new HashSet<>(cervejaRepository.findAllNomes());
+        private final Set<String> nomesDoLote = new HashSet<>();
+        private final List<Cerveja> lote = new ArrayList<>(batchSize);
+        private final List<Long> linhasDoLote = new ArrayList<>(batchSize);
+        private final ImportacaoResultadoDTO resultado = new ImportacaoResultadoDTO();
+        private long linha;
+
+        Importacao(long cabecalho) {
+            this.linha = cabecalho;
+        }
+
+        void add(CervejaDTO cervejaDTO) {
+            Set<ConstraintViolation<CervejaDTO>> violations = validator.validate(cervejaDTO);
+            if (!violations.isEmpty()) {
+                reject(cervejaDTO.getNome(), violations.stream()
+                        .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                        .sorted()
+                        .collect(Collectors.joining("; ")));
+                return;
+            }
+            if (registrados.contains(cervejaDTO.getNome()) || !nomesDoLote.add(cervejaDTO.getNome())) {
+                reject(cervejaDTO.getNome(), new CervejaAlreadyRegisteredException(cervejaDTO.getNome()).getMessage());
+                return;
+            }
+            lote.add(cervejaMapper.toModel(cervejaDTO));
+            linhasDoLote.add(linha);
+            if (lote.size() >= batchSize) {
+                insert();
+            }
+        }
+
+        void reject(String nome, String erro) {
+            reject(linha, nome, erro);
+        }
+
+        private void reject(long linhaRejeitada, String nome, String erro) {
+            resultado.setRejeitadas(resultado.getRejeitadas() + 1);
+            if (resultado.getErros().size() < MAX_REPORTED_ERRORS) {
+                resultado.getErros().add(new ImportacaoErroDTO(linhaRejeitada, nome, erro));
+            }
+        }
+
+        ImportacaoResultadoDTO finish() {
+            insert();
+            resultado.setLinhas(linha);
+            resultado.getErros().sort((a, b) -> Long.compare(a.getLinha(), b.getLinha()));
+            return resultado;
+        }
+
+        private void insert() {
+            if (lote.isEmpty()) {
+                return;
+            }
+            try {
+                cervejaRepository.batchInsert(lote);
+                lote.forEach(this::imported);
+            } catch (DuplicateKeyException e) {
+                for (int i = 0; i < lote.size(); i++) {
+                    insertOne(lote.get(i), linhasDoLote.get(i));
+                }
+            }
+            lote.clear();
+            linhasDoLote.clear();
+            nomesDoLote.clear();
+        }
+
+        private void insertOne(Cerveja cerveja, long linhaDaCerveja) {
+            try {
+                cervejaRepository.batchInsert(List.of(cerveja));
+                imported(cerveja);
+            } catch (DuplicateKeyException e) {
+                reject(linhaDaCerveja, cerveja.getNome(), new CervejaAlreadyRegisteredException(cerveja.getNome()).getMessage());
+            }
+        }
+
+        private void imported(Cerveja cerveja) {
+            resultado.setImportadas(resultado.getImportadas() + 1);
+            eventPublisher.publishEvent(new CervejaChangedEvent(CervejaChangedEvent.Operacao.CREATED,
+                    cervejaMapper.toDTO(cerveja), cerveja.getQuantidade()));
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.corinto.estoquecerveja.ledger;
+
+import com.corinto.estoquecerveja.repository.CervejaRepository;
+import lombok.AllArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stores the sequence of the last ledger movement folded into the {@code cerveja} rows, in the same transaction
+ * as the fold itself, so a replay after a crash never applies a movement twice.
+ */
+@Repository
+@AllArgsConstructor(onConstructor = @__(@Autowired))
+public class LedgerCheckpointRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CervejaRepository cervejaRepository;
+
+    public void createIfMissing() {
+        jdbcTemplate.execute("create table if not exists stock_ledger_checkpoint (id int primary key, sequencia bigint not null)");
+        Integer rows = jdbcTemplate.queryForObject("select count(*) from stock_ledger_checkpoint where id = 1", Integer.class);
+        if (rows == null || rows == 0) {
+            jdbcTemplate.update("insert into stock_ledger_checkpoint (id, sequencia) values (1, 0)");
+        }
+    }
+
+    public long findSequencia() {
+        List<Long> sequencias = jdbcTemplate.queryForList("select sequencia from stock_ledger_checkpoint where id = 1", Long.class);
+        return sequencias.isEmpty() ? 0 : sequencias.get(0);
+    }
+
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void fold(Map<Long, Integer> deltasById, long sequencia) {
+        cervejaRepository.batchAdjustQuantidade(deltasById);
+        jdbcTemplate.update("update stock_ledger_checkpoint set sequencia = ? where id = 1 and sequencia < ?", sequencia, sequencia);
+    }
+}
@@ -0,0 +1,148 @@
+package com.corinto.estoquecerveja.ledger;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded ring of pending movements. Producers block while it is full; the single writer drains everything that
+ * arrived within one batch window into a reusable {@link Batch}.
+ */
+final class LedgerRingBuffer {
+
+    private final long[] ids;
+    private final int[] deltas;
+    private final CompletableFuture<?>[] acks;
+    private final int mask;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private long head;
+    private long tail;
+    private boolean closed;
+
+    LedgerRingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1;
+        this.ids = new long[size];
+        this.deltas = new int[size];
+        this.acks = new CompletableFuture<?>[size];
+        this.mask = size - 1;
+    }
+
+    /**
+     * Throws {@link IllegalStateException} once the buffer is closed, since the writer may already have stopped.
+     */
+    void put(long id, int delta, CompletableFuture<?> ack) throws InterruptedException {
+        lock.lock();
+        try {
+            while (!closed && tail - head == ids.length) {
+                notFull.await();
+            }
+            if (closed) {
+                throw new IllegalStateException("O registro de movimentações de estoque está encerrado.");
+            }
+            int slot = (int) (tail & mask);
+            ids[slot] = id;
+            deltas[slot] = delta;
+            acks[slot] = ack;
+            tail++;
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits up to {@code pollNanos} for a first movement, then up to {@code windowNanos} more for others to join it,
+     * and moves all of them into {@code batch}. Returns the number of movements drained.
+     */
+    int drainTo(Batch batch, long pollNanos, long windowNanos) throws InterruptedException {
+        lock.lock();
+        try {
+            long remaining = pollNanos;
+            while (tail == head) {
+                if (remaining <= 0 || closed) {
+                    return 0;
+                }
+                remaining = notEmpty.awaitNanos(remaining);
+            }
+            long window = windowNanos;
+            while (window > 0 && !closed && tail - head < ids.length / 2) {
+                window = notEmpty.awaitNanos(window);
+            }
+            int count = (int) Math.min(tail - head, batch.capacity());
+            for (int i = 0; i < count; i++) {
+                int slot = (int) ((head + i) & mask);
+                batch.ids[i] = ids[slot];
+                batch.deltas[i] = deltas[slot];
+                batch.acks[i] = acks[slot];
+                acks[slot] = null;
+            }
+            batch.size = count;
+            head += count;
+            notFull.signalAll();
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Wakes the writer so it can drain what is left and stop without waiting for its poll timeout.
+     */
+    void close() {
+        lock.lock();
+        try {
+            closed = true;
+            notEmpty.signalAll();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Completes the acks of every movement still queued with {@code causa} and drops the movements, for when the
+     * writer has stopped and will never drain them.
+     */
+    void failPending(Throwable causa) {
+        lock.lock();
+        try {
+            for (; head < tail; head++) {
+                int slot = (int) (head & mask);
+                acks[slot].completeExceptionally(causa);
+                acks[slot] = null;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    boolean isEmpty() {
+        lock.lock();
+        try {
+            return tail == head;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    static final class Batch {
+
+        final long[] ids;
+        final int[] deltas;
+        final CompletableFuture<?>[] acks;
+        int size;
+
+        Batch(int capacity) {
+            this.ids = new long[capacity];
+            this.deltas = new int[capacity];
+            this.acks = new CompletableFuture<?>[capacity];
+        }
+
+        int capacity() {
+            return ids.length;
+        }
+    }
+}
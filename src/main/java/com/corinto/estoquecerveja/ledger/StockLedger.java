@@ -0,0 +1,277 @@
+package com.corinto.estoquecerveja.ledger;
+
+import com.corinto.estoquecerveja.exception.CervejaNotFoundException;
+import com.corinto.estoquecerveja.exception.CervejaStockExceededException;
+import com.corinto.estoquecerveja.stock.CervejaStockCounter;
+import com.corinto.estoquecerveja.stock.CervejaStockCounters;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.zip.CRC32;
+
+/**
+ * Write-behind path for stock increments, switched on with {@code estoque.ledger.enabled}.
+ *
+ * <p>An increment is checked against the in-memory counter, queued in a {@link LedgerRingBuffer} and acknowledged
+ * once the writer thread has appended it to the log file and forced the file to disk. Every movement that arrived
+ * during one batch window shares a single {@code force}. At every fold interval the writer sums the durable
+ * movements per beer and writes them to the {@code cerveja} rows in one JDBC batch. The same transaction moves the
+ * checkpoint. At startup, movements in the log past the checkpoint are folded before the first request, so an
+ * acknowledged increment survives a crash. Once the ledger stops, new increments are refused and any still queued
+ * are failed, so no caller waits on a writer that is gone.
+ *
+ * <p>Each log record is {@code sequencia, id, delta, crc32} in 24 bytes. A torn record at the tail was never
+ * acknowledged and is discarded on replay.
+ */
+@Slf4j
+@Component
+public class StockLedger {
+
+    static final int RECORD_BYTES = 24;
+    private static final int PAYLOAD_BYTES = RECORD_BYTES - Integer.BYTES;
+    private static final long ROTATE_BYTES = 64L * 1024 * 1024;
+
+    private final LedgerCheckpointRepository checkpoints;
+    private final CervejaStockCounters stockCounters;
+    private final boolean enabled;
+    private final Path path;
+    private final long windowNanos;
+    private final long foldIntervalNanos;
+    private final LedgerRingBuffer ringBuffer;
+    private final LedgerRingBuffer.Batch batch;
+    private final ByteBuffer buffer;
+    private final CRC32 crc = new CRC32();
+    private final Map<Long, Integer> pendingFold = new HashMap<>();
+
+    private FileChannel channel;
+    private Thread writer;
+    private volatile boolean running;
+    private long sequencia;
+    private long durableSequencia;
+    private long foldedSequencia;
+
+    @Autowired
+    public StockLedger(LedgerCheckpointRepository checkpoints,
+                       CervejaStockCounters stockCounters,
+                       @Value("${estoque.ledger.enabled:false}") boolean enabled,
+                       @Value("${estoque.ledger.path:${java.io.tmpdir}/estoque-cerveja/stock-ledger.log}") Path path,
+                       @Value("${estoque.ledger.capacity:65536}") int capacity,
+                       @Value("${estoque.ledger.batch-window:1ms}") Duration batchWindow,
+                       @Value("${estoque.ledger.fold-interval:200ms}") Duration foldInterval) {
+        this.checkpoints = checkpoints;
+        this.stockCounters = stockCounters;
+        this.enabled = enabled;
+        this.path = path;
+        this.windowNanos = batchWindow.toNanos();
+        this.foldIntervalNanos = foldInterval.toNanos();
+        this.ringBuffer = new LedgerRingBuffer(enabled ? capacity : 1);
+        this.batch = new LedgerRingBuffer.Batch(enabled ? capacity : 1);
+        this.buffer = ByteBuffer.allocate(batch.capacity() * RECORD_BYTES);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Holds room for {@code quantidade} on the live counter and returns once the movement is durable in the log. The
+     * units only become available for sale after the acknowledgement, so a failed write never takes back sold stock.
+     */
+    public CervejaStockCounter increment(Long id, int quantidade) throws CervejaNotFoundException, CervejaStockExceededException {
+        CervejaStockCounter counter = stockCounters.increment(id, quantidade);
+        CompletableFuture<Void> ack = new CompletableFuture<>();
+        try {
+            ringBuffer.put(id, quantidade, ack);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            counter.revertIncrement(quantidade);
+            throw new IllegalStateException("Interrompido antes de registrar a movimentação de estoque.", e);
+        } catch (IllegalStateException e) {
+            counter.revertIncrement(quantidade);
+            throw e;
+        }
+        try {
+            ack.join();
+        } catch (CompletionException e) {
+            counter.revertIncrement(quantidade);
+            if (e.getCause() instanceof IOException) {
+                throw new UncheckedIOException("Não foi possível registrar a movimentação de estoque.", (IOException) e.getCause());
+            }
+            throw new IllegalStateException("Não foi possível registrar a movimentação de estoque.", e.getCause());
+        }
+        counter.confirmIncrement(quantidade);
+        return counter;
+    }
+
+    /**
+     * Writes every acknowledged movement to the {@code cerveja} rows now, for callers that read stock from the database.
+     */
+    public synchronized void fold() {
+        if (pendingFold.isEmpty()) {
+            return;
+        }
+        try {
+            checkpoints.fold(new HashMap<>(pendingFold), durableSequencia);
+            pendingFold.clear();
+            foldedSequencia = durableSequencia;
+        } catch (RuntimeException e) {
+            log.warn("Could not fold stock ledger up to {}, will retry: {}", durableSequencia, e.getMessage());
+        }
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        checkpoints.createIfMissing();
+        long checkpoint = checkpoints.findSequencia();
+        Files.createDirectories(path.toAbsolutePath().getParent());
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        sequencia = replay(checkpoint);
+        durableSequencia = sequencia;
+        foldedSequencia = sequencia;
+        running = true;
+        writer = new Thread(this::write, "stock-ledger-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException, IOException {
+        if (!enabled || writer == null) {
+            return;
+        }
+        running = false;
+        ringBuffer.close();
+        writer.join();
+        ringBuffer.failPending(new IllegalStateException("O registro de movimentações de estoque foi encerrado."));
+        fold();
+        channel.close();
+    }
+
+    private long replay(long checkpoint) throws IOException {
+        Map<Long, Integer> deltasById = new HashMap<>();
+        ByteBuffer record = ByteBuffer.allocate(RECORD_BYTES);
+        long last = checkpoint;
+        long replayed = 0;
+        for (long position = 0; channel.read(record.clear(), position) == RECORD_BYTES; position += RECORD_BYTES) {
+            crc.reset();
+            crc.update(record.array(), 0, PAYLOAD_BYTES);
+            if ((int) crc.getValue() != record.getInt(PAYLOAD_BYTES)) {
+                break;
+            }
+            long recordSequencia = record.getLong(0);
+            if (recordSequencia > checkpoint) {
+                deltasById.merge(record.getLong(Long.BYTES), record.getInt(2 * Long.BYTES), Integer::sum);
+                last = Math.max(last, recordSequencia);
+                replayed++;
+            }
+        }
+        if (!deltasById.isEmpty()) {
+            checkpoints.fold(deltasById, last);
+            log.info("Replayed {} stock movements from {} up to sequence {}", replayed, path, last);
+        }
+        channel.truncate(0);
+        channel.force(true);
+        return last;
+    }
+
+    private void write() {
+        long nextFold = System.nanoTime() + foldIntervalNanos;
+        while (running || !ringBuffer.isEmpty()) {
+            try {
+                if (ringBuffer.drainTo(batch, foldIntervalNanos, windowNanos) > 0) {
+                    commit();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (System.nanoTime() - nextFold >= 0) {
+                fold();
+                rotate();
+                nextFold = System.nanoTime() + foldIntervalNanos;
+            }
+        }
+    }
+
+    private void commit() {
+        long firstSequencia = sequencia + 1;
+        buffer.clear();
+        for (int i = 0; i < batch.size; i++) {
+            int offset = buffer.position();
+            buffer.putLong(++sequencia).putLong(batch.ids[i]).putInt(batch.deltas[i]);
+            crc.reset();
+            crc.update(buffer.array(), offset, PAYLOAD_BYTES);
+            buffer.putInt((int) crc.getValue());
+        }
+        buffer.flip();
+        long start = -1;
+        try {
+            start = channel.size();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, start + buffer.position());
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            log.error("Could not append {} stock movements to {}", batch.size, path, e);
+            sequencia = firstSequencia - 1;
+            discardFrom(start);
+            for (int i = 0; i < batch.size; i++) {
+                batch.acks[i].completeExceptionally(e);
+            }
+            return;
+        }
+        synchronized (this) {
+            for (int i = 0; i < batch.size; i++) {
+                pendingFold.merge(batch.ids[i], batch.deltas[i], Integer::sum);
+            }
+            durableSequencia = sequencia;
+        }
+        for (int i = 0; i < batch.size; i++) {
+            batch.acks[i].complete(null);
+            batch.acks[i] = null;
+        }
+    }
+
+    private void discardFrom(long position) {
+        if (position < 0) {
+            return;
+        }
+        try {
+            channel.truncate(position);
+        } catch (IOException e) {
+            log.error("Could not discard the failed stock ledger batch from {}", path, e);
+        }
+    }
+
+    private void rotate() {
+        try {
+            synchronized (this) {
+                if (foldedSequencia == sequencia && channel.size() > ROTATE_BYTES) {
+                    channel.truncate(0);
+                    channel.force(true);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Could not rotate stock ledger {}: {}", path, e.getMessage());
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.corinto.estoquecerveja.mapper;
 import com.corinto.estoquecerveja.dto.CervejaDTO;
 import com.corinto.estoquecerveja.entity.Cerveja;
 import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
 import org.mapstruct.factory.Mappers;
 
 @Mapper
@@ -10,6 +11,7 @@ public interface CervejaMapper {
 
     CervejaMapper INSTANCE = Mappers.getMapper(CervejaMapper.class);
 
+    @Mapping(target = "versao", ignore = true)
     Cerveja toModel(CervejaDTO cervejaDTO);
 
     CervejaDTO toDTO(Cerveja cerveja);
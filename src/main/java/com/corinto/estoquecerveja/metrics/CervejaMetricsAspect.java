@@ -0,0 +1,94 @@
+package com.corinto.estoquecerveja.metrics;
+
+import com.corinto.estoquecerveja.exception.CervejaAlreadyRegisteredException;
+import com.corinto.estoquecerveja.exception.CervejaNotFoundException;
+import com.corinto.estoquecerveja.exception.CervejaStockExceededException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times every public {@code CervejaService} method and every {@code CervejaRepository} call as
+ * {@value #SERVICE_TIMER} and {@value #REPOSITORY_TIMER}, tagged by method and exception, and counts the domain
+ * exceptions as {@value #EXCEPTION_COUNTER}. Meters are looked up once per method, so a call only pays for two clock
+ * reads and a histogram update; percentile histograms are switched on in {@code application.properties}.
+ */
+@Aspect
+@Component
+public class CervejaMetricsAspect {
+
+    static final String SERVICE_TIMER = "cervejas.service";
+    static final String REPOSITORY_TIMER = "cervejas.repository";
+    static final String EXCEPTION_COUNTER = "cervejas.exceptions";
+
+    private static final String NONE = "none";
+    private static final List<Class<? extends Exception>> COUNTED_EXCEPTIONS = List.of(
+            CervejaNotFoundException.class,
+            CervejaAlreadyRegisteredException.class,
+            CervejaStockExceededException.class);
+
+    private final MeterRegistry meterRegistry;
+    private final Map<Method, Timer> serviceTimers = new ConcurrentHashMap<>();
+    private final Map<Method, Timer> repositoryTimers = new ConcurrentHashMap<>();
+
+    @Autowired
+    public CervejaMetricsAspect(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        for (Class<? extends Exception> exception : COUNTED_EXCEPTIONS) {
+            exceptionCounter(exception.getSimpleName());
+        }
+    }
+
+    @Around("execution(public * com.corinto.estoquecerveja.service.CervejaService.*(..))")
+    public Object timeService(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time(SERVICE_TIMER, serviceTimers, joinPoint);
+    }
+
+    @Around("this(com.corinto.estoquecerveja.repository.CervejaRepository)")
+    public Object timeRepository(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time(REPOSITORY_TIMER, repositoryTimers, joinPoint);
+    }
+
+    private Object time(String name, Map<Method, Timer> timers, ProceedingJoinPoint joinPoint) throws Throwable {
+        long start = System.nanoTime();
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        try {
+            Object result = joinPoint.proceed();
+            timers.computeIfAbsent(method, key -> timer(name, key.getName(), NONE))
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return result;
+        } catch (Throwable e) {
+            String exception = e.getClass().getSimpleName();
+            timer(name, method.getName(), exception).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            if (SERVICE_TIMER.equals(name) && COUNTED_EXCEPTIONS.contains(e.getClass())) {
+                exceptionCounter(exception).increment();
+            }
+            throw e;
+        }
+    }
+
+    private Timer timer(String name, String method, String exception) {
+        return Timer.builder(name)
+                .tag("method", method)
+                .tag("exception", exception)
+                .register(meterRegistry);
+    }
+
+    private Counter exceptionCounter(String exception) {
+        return Counter.builder(EXCEPTION_COUNTER)
+                .tag("exception", exception)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,33 @@
+package com.corinto.estoquecerveja.reactive;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Non-blocking variant of the API on WebFlux and R2DBC, started on its own with the {@code reactive} profile.
+ * Its beans only exist in a reactive web application, so the servlet application skips this package when scanning.
+ * It is a plain {@code @Configuration} so that tests looking up the {@code @SpringBootConfiguration} still find
+ * the servlet application only.
+ */
+@Configuration(proxyBeanMethods = false)
+@EnableAutoConfiguration
+@ComponentScan(basePackageClasses = EstoqueCervejaReactiveApplication.class)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class EstoqueCervejaReactiveApplication {
+
+    public static final String PROFILE = "reactive";
+
+    public static void main(String[] args) {
+        builder().run(args);
+    }
+
+    public static SpringApplicationBuilder builder() {
+        return new SpringApplicationBuilder(EstoqueCervejaReactiveApplication.class)
+                .web(WebApplicationType.REACTIVE)
+                .profiles(PROFILE);
+    }
+}
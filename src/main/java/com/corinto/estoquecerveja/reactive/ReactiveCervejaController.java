@@ -0,0 +1,67 @@
+package com.corinto.estoquecerveja.reactive;
+
+import com.corinto.estoquecerveja.dto.CervejaDTO;
+import com.corinto.estoquecerveja.dto.QuantidadeDTO;
+import lombok.AllArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import javax.validation.Valid;
+
+/**
+ * Same contract as {@code CervejaController} for create, lookup, listing, delete and increment.
+ * The NDJSON listing is written as rows arrive and only pulls more rows as the client reads them.
+ */
+@RestController
+@RequestMapping("/api/v1/cervejas")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@AllArgsConstructor(onConstructor = @__(@Autowired))
+public class ReactiveCervejaController {
+
+    private final ReactiveCervejaService cervejaService;
+
+    @PostMapping
+    @ResponseStatus(HttpStatus.CREATED)
+    public Mono<CervejaDTO> createCerveja(@RequestBody @Valid CervejaDTO cervejaDTO) {
+        return cervejaService.createCerveja(cervejaDTO);
+    }
+
+    @GetMapping("/{nome}")
+    public Mono<CervejaDTO> findByNome(@PathVariable String nome) {
+        return cervejaService.findByNome(nome);
+    }
+
+    @GetMapping
+    public Flux<CervejaDTO> listCervejas() {
+        return cervejaService.listAll();
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<CervejaDTO> streamCervejas() {
+        return cervejaService.listAll();
+    }
+
+    @DeleteMapping("/{id}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public Mono<Void> deleteById(@PathVariable Long id) {
+        return cervejaService.deleteById(id);
+    }
+
+    @PatchMapping("/{id}/increment")
+    public Mono<CervejaDTO> increment(@PathVariable Long id, @RequestBody @Valid QuantidadeDTO quantidadeDTO) {
+        return cervejaService.increment(id, quantidadeDTO.getQuantidade());
+    }
+}
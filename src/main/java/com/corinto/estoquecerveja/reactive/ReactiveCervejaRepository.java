@@ -0,0 +1,89 @@
+package com.corinto.estoquecerveja.reactive;
+
+import com.corinto.estoquecerveja.dto.CervejaDTO;
+import com.corinto.estoquecerveja.enums.Tipo;
+import io.r2dbc.spi.Row;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking access to the {@code cerveja} table, reading straight into {@link CervejaDTO}s.
+ */
+@Repository
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveCervejaRepository {
+
+    private static final String SELECT_DTO = "select id, nome, marca, max, quantidade, tipo from cerveja ";
+
+    private final DatabaseClient databaseClient;
+
+    @Autowired
+    public ReactiveCervejaRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    public Mono<CervejaDTO> findDTOById(Long id) {
+        return databaseClient.sql(SELECT_DTO + "where id = :id")
+                .bind("id", id)
+                .map(ReactiveCervejaRepository::toDTO)
+                .one();
+    }
+
+    public Mono<CervejaDTO> findDTOByNome(String nome) {
+        return databaseClient.sql(SELECT_DTO + "where nome = :nome")
+                .bind("nome", nome)
+                .map(ReactiveCervejaRepository::toDTO)
+                .one();
+    }
+
+    public Flux<CervejaDTO> findAllDTOs() {
+        return databaseClient.sql(SELECT_DTO + "order by id")
+                .map(ReactiveCervejaRepository::toDTO)
+                .all();
+    }
+
+    public Mono<CervejaDTO> save(CervejaDTO cervejaDTO) {
+        return databaseClient.sql("insert into cerveja (nome, marca, max, quantidade, tipo) values (:nome, :marca, :max, :quantidade, :tipo)")
+                .filter(statement -> statement.returnGeneratedValues("id"))
+                .bind("nome", cervejaDTO.getNome())
+                .bind("marca", cervejaDTO.getMarca())
+                .bind("max", cervejaDTO.getMax())
+                .bind("quantidade", cervejaDTO.getQuantidade())
+                .bind("tipo", cervejaDTO.getTipo().name())
+                .map(row -> row.get("id", Long.class))
+                .one()
+                .map(id -> cervejaDTO.toBuilder().id(id).build());
+    }
+
+    public Mono<Integer> deleteById(Long id) {
+        return databaseClient.sql("delete from cerveja where id = :id")
+                .bind("id", id)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    /**
+     * Adds {@code quantidade} in a single conditional update and returns the number of updated rows,
+     * 0 when the beer does not exist or the increment would exceed its max.
+     */
+    public Mono<Integer> incrementQuantidade(Long id, int quantidade) {
+        return databaseClient.sql("update cerveja set quantidade = quantidade + :quantidade where id = :id and quantidade + :quantidade <= max")
+                .bind("quantidade", quantidade)
+                .bind("id", id)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    private static CervejaDTO toDTO(Row row) {
+        return new CervejaDTO(row.get("id", Long.class),
+                row.get("nome", String.class),
+                row.get("marca", String.class),
+                row.get("max", Integer.class),
+                row.get("quantidade", Integer.class),
+                Tipo.valueOf(row.get("tipo", String.class)));
+    }
+}
@@ -0,0 +1,57 @@
+package com.corinto.estoquecerveja.reactive;
+
+import com.corinto.estoquecerveja.dto.CervejaDTO;
+import com.corinto.estoquecerveja.exception.CervejaAlreadyRegisteredException;
+import com.corinto.estoquecerveja.exception.CervejaNotFoundException;
+import com.corinto.estoquecerveja.exception.CervejaStockExceededException;
+import lombok.AllArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@AllArgsConstructor(onConstructor = @__(@Autowired))
+public class ReactiveCervejaService {
+
+    private final ReactiveCervejaRepository cervejaRepository;
+
+    @Transactional
+    public Mono<CervejaDTO> createCerveja(CervejaDTO cervejaDTO) {
+        return cervejaRepository.findDTOByNome(cervejaDTO.getNome())
+                .flatMap(savedCerveja -> Mono.<CervejaDTO>error(new CervejaAlreadyRegisteredException(cervejaDTO.getNome())))
+                .switchIfEmpty(Mono.defer(() -> cervejaRepository.save(cervejaDTO)));
+    }
+
+    @Transactional(readOnly = true)
+    public Mono<CervejaDTO> findByNome(String nome) {
+        return cervejaRepository.findDTOByNome(nome)
+                .switchIfEmpty(Mono.error(() -> new CervejaNotFoundException(nome)));
+    }
+
+    @Transactional(readOnly = true)
+    public Flux<CervejaDTO> listAll() {
+        return cervejaRepository.findAllDTOs();
+    }
+
+    @Transactional
+    public Mono<Void> deleteById(Long id) {
+        return cervejaRepository.deleteById(id)
+                .filter(deletedRows -> deletedRows > 0)
+                .switchIfEmpty(Mono.error(() -> new CervejaNotFoundException(id)))
+                .then();
+    }
+
+    @Transactional
+    public Mono<CervejaDTO> increment(Long id, int quantityToIncrement) {
+        return cervejaRepository.incrementQuantidade(id, quantityToIncrement)
+                .flatMap(updatedRows -> cervejaRepository.findDTOById(id)
+                        .switchIfEmpty(Mono.error(() -> new CervejaNotFoundException(id)))
+                        .flatMap(cervejaDTO -> updatedRows == 0
+                                ? Mono.error(new CervejaStockExceededException(id, quantityToIncrement))
+                                : Mono.just(cervejaDTO)));
+    }
+}
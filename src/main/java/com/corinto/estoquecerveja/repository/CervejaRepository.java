@@ -1,11 +1,67 @@
 package com.corinto.estoquecerveja.repository;
 
+import com.corinto.estoquecerveja.dto.CervejaDTO;
 import com.corinto.estoquecerveja.entity.Cerveja;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.QueryHint;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
-public interface CervejaRepository extends JpaRepository<Cerveja, Long> {
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+
+public interface CervejaRepository extends JpaRepository<Cerveja, Long>, CervejaRepositoryCustom {
+
+    /**
+     * Read paths select straight into the DTO, so no managed entity or mapper copy is created per row.
+     */
+    String SELECT_DTO = "select new com.corinto.estoquecerveja.dto.CervejaDTO(c.id, c.nome, c.marca, c.max, c.quantidade, c.tipo) " +
+            "from Cerveja c ";
 
     Optional<Cerveja> findByNome(String nome);
+
+    @Query(SELECT_DTO + "where c.nome = :nome")
+    Optional<CervejaDTO> findDTOByNome(@Param("nome") String nome);
+
+    @Query(SELECT_DTO + "order by c.id")
+    List<CervejaDTO> findAllDTOs();
+
+    @Query("select c.nome from Cerveja c")
+    List<String> findAllNomes();
+
+    @Query(SELECT_DTO + "where c.id > :cursor order by c.id")
+    List<CervejaDTO> findDTOsAfter(@Param("cursor") Long cursor, Pageable limit);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query(SELECT_DTO + "order by c.id")
+    Stream<CervejaDTO> streamAllDTOs();
+
+    @Query("select max(c.id) from Cerveja c")
+    Optional<Long> findMaxId();
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query(SELECT_DTO + "where c.id > :after and c.id <= :last order by c.id")
+    List<CervejaDTO> findDTOsBetween(@Param("after") Long after, @Param("last") Long last);
+
+    /**
+     * Adds to the stock inside the database, only when the result stays within max.
+     * Returns 0 when the beer does not exist or the increment would exceed the stock.
+     */
+    @Transactional
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query("update Cerveja c set c.quantidade = c.quantidade + :quantidade, c.versao = c.versao + 1 " +
+            "where c.id = :id and c.quantidade + :quantidade <= c.max")
+    int incrementQuantidade(@Param("id") Long id, @Param("quantidade") int quantidade);
+
+    @Transactional
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query("update Cerveja c set c.quantidade = c.quantidade + :delta, c.versao = c.versao + 1 where c.id = :id")
+    int adjustQuantidade(@Param("id") Long id, @Param("delta") int delta);
 }
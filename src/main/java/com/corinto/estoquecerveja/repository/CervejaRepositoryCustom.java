@@ -0,0 +1,34 @@
+package com.corinto.estoquecerveja.repository;
+
+import com.corinto.estoquecerveja.entity.Cerveja;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public interface CervejaRepositoryCustom {
+
+    /**
+     * Applies every increment through a single JDBC batch, each one guarded by the max of its row.
+     * Returns the ids whose conditional update did not match any row.
+     */
+    Set<Long> batchIncrementQuantidade(Map<Long, Integer> incrementsById);
+
+    /**
+     * Adds every delta through a single JDBC batch without checking max, for deltas that were already validated.
+     */
+    void batchAdjustQuantidade(Map<Long, Integer> deltasById);
+
+    /**
+     * Inserts every beer through JDBC batches in one transaction. Beers without an id get one from a block of the
+     * {@code cerveja} sequence reserved the same way Hibernate's pooled optimizer does, so both can insert at once.
+     */
+    void batchInsert(List<Cerveja> cervejas);
+
+    /**
+     * Reads every beer ordered by id through a forward-only, read-only cursor, handing each row of
+     * {@code id, nome, marca, max, quantidade, tipo} to the handler without mapping it.
+     */
+    void exportAll(RowCallbackHandler handler);
+}
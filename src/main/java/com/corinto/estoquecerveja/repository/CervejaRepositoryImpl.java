@@ -0,0 +1,112 @@
+package com.corinto.estoquecerveja.repository;
+
+import com.corinto.estoquecerveja.entity.Cerveja;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class CervejaRepositoryImpl implements CervejaRepositoryCustom {
+
+    private static final String INCREMENT_SQL =
+            "update cerveja set quantidade = quantidade + ?, versao = versao + 1 where id = ? and quantidade + ? <= max";
+    private static final String ADJUST_SQL =
+            "update cerveja set quantidade = quantidade + ?, versao = versao + 1 where id = ?";
+    private static final String INSERT_SQL =
+            "insert into cerveja (id, nome, marca, max, quantidade, tipo, versao) values (?, ?, ?, ?, ?, ?, 0)";
+    private static final String NEXT_ID_BLOCK_SQL =
+            "select next value for " + Cerveja.ID_SEQUENCE;
+    private static final String EXPORT_SQL =
+            "select id, nome, marca, max, quantidade, tipo from cerveja order by id";
+    private static final int EXPORT_FETCH_SIZE = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+
+    @Autowired
+    public CervejaRepositoryImpl(JdbcTemplate jdbcTemplate,
+                                 @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public Set<Long> batchIncrementQuantidade(Map<Long, Integer> incrementsById) {
+        List<Map.Entry<Long, Integer>> increments = new ArrayList<>(incrementsById.entrySet());
+        int[][] updatedRows = jdbcTemplate.batchUpdate(INCREMENT_SQL, increments, batchSize, (ps, increment) -> {
+            ps.setInt(1, increment.getValue());
+            ps.setLong(2, increment.getKey());
+            ps.setInt(3, increment.getValue());
+        });
+        Set<Long> rejectedIds = new HashSet<>();
+        int index = 0;
+        for (int[] batch : updatedRows) {
+            for (int rows : batch) {
+                if (rows == 0) {
+                    rejectedIds.add(increments.get(index).getKey());
+                }
+                index++;
+            }
+        }
+        return rejectedIds;
+    }
+
+    @Override
+    public void batchAdjustQuantidade(Map<Long, Integer> deltasById) {
+        jdbcTemplate.batchUpdate(ADJUST_SQL, new ArrayList<>(deltasById.entrySet()), batchSize, (ps, delta) -> {
+            ps.setInt(1, delta.getValue());
+            ps.setLong(2, delta.getKey());
+        });
+    }
+
+    @Override
+    @Transactional
+    public void batchInsert(List<Cerveja> cervejas) {
+        assignIds(cervejas);
+        jdbcTemplate.batchUpdate(INSERT_SQL, cervejas, batchSize, (ps, cerveja) -> {
+            ps.setLong(1, cerveja.getId());
+            ps.setString(2, cerveja.getNome());
+            ps.setString(3, cerveja.getMarca());
+            ps.setInt(4, cerveja.getMax());
+            ps.setInt(5, cerveja.getQuantidade());
+            ps.setString(6, cerveja.getTipo().name());
+        });
+    }
+
+    /**
+     * A sequence value {@code v} owns the ids {@code v - ID_ALLOCATION_SIZE + 1} to {@code v}, which is the block
+     * Hibernate would take from it, so ids reserved here never collide with entities saved through JPA.
+     */
+    private void assignIds(List<Cerveja> cervejas) {
+        long next = 1;
+        long last = 0;
+        for (Cerveja cerveja : cervejas) {
+            if (cerveja.getId() != null) {
+                continue;
+            }
+            if (next > last) {
+                last = jdbcTemplate.queryForObject(NEXT_ID_BLOCK_SQL, Long.class);
+                next = Math.max(1, last - Cerveja.ID_ALLOCATION_SIZE + 1);
+            }
+            cerveja.setId(next++);
+        }
+    }
+
+    @Override
+    public void exportAll(RowCallbackHandler handler) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(EXPORT_SQL, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(EXPORT_FETCH_SIZE);
+            return ps;
+        }, handler);
+    }
+}
@@ -0,0 +1,67 @@
+package com.corinto.estoquecerveja.repository;
+
+import com.corinto.estoquecerveja.dto.EstoqueLocalDTO;
+import com.corinto.estoquecerveja.entity.EstoqueLocal;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The stock statements only ever touch the row of one location, so movements at different locations never wait on
+ * each other. Each returns 0 when the location does not exist or the condition does not hold.
+ */
+public interface EstoqueLocalRepository extends JpaRepository<EstoqueLocal, Long> {
+
+    String SELECT_DTO = "select new com.corinto.estoquecerveja.dto.EstoqueLocalDTO(e.cervejaId, e.local, e.max, e.quantidade) " +
+            "from EstoqueLocal e ";
+
+    Optional<EstoqueLocal> findByCervejaIdAndLocal(Long cervejaId, String local);
+
+    @Query(SELECT_DTO + "where e.cervejaId = :cervejaId and e.local = :local")
+    Optional<EstoqueLocalDTO> findDTO(@Param("cervejaId") Long cervejaId, @Param("local") String local);
+
+    @Query(SELECT_DTO + "where e.cervejaId = :cervejaId order by e.local")
+    List<EstoqueLocalDTO> findDTOsByCervejaId(@Param("cervejaId") Long cervejaId);
+
+    @Query("select coalesce(sum(e.quantidade), 0) from EstoqueLocal e where e.cervejaId = :cervejaId")
+    long sumQuantidade(@Param("cervejaId") Long cervejaId);
+
+    @Transactional
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query("update EstoqueLocal e set e.quantidade = e.quantidade + :quantidade " +
+            "where e.cervejaId = :cervejaId and e.local = :local and e.quantidade + :quantidade <= e.max")
+    int incrementWithinMax(@Param("cervejaId") Long cervejaId, @Param("local") String local, @Param("quantidade") int quantidade);
+
+    @Transactional
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query("update EstoqueLocal e set e.quantidade = e.quantidade + :quantidade " +
+            "where e.cervejaId = :cervejaId and e.local = :local")
+    int increment(@Param("cervejaId") Long cervejaId, @Param("local") String local, @Param("quantidade") int quantidade);
+
+    @Transactional
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query("update EstoqueLocal e set e.quantidade = e.quantidade - :quantidade " +
+            "where e.cervejaId = :cervejaId and e.local = :local and e.quantidade >= :quantidade")
+    int decrement(@Param("cervejaId") Long cervejaId, @Param("local") String local, @Param("quantidade") int quantidade);
+
+    @Transactional
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query("update EstoqueLocal e set e.max = :max " +
+            "where e.cervejaId = :cervejaId and e.local = :local and e.quantidade <= :max")
+    int updateMax(@Param("cervejaId") Long cervejaId, @Param("local") String local, @Param("max") int max);
+
+    @Transactional
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query("update EstoqueLocal e set e.max = :max where e.cervejaId = :cervejaId and e.local = :local")
+    int setMax(@Param("cervejaId") Long cervejaId, @Param("local") String local, @Param("max") int max);
+
+    @Transactional
+    @Modifying
+    @Query("delete from EstoqueLocal e where e.cervejaId = :cervejaId")
+    int deleteByCervejaId(@Param("cervejaId") Long cervejaId);
+}
@@ -0,0 +1,16 @@
+package com.corinto.estoquecerveja.repository;
+
+import com.corinto.estoquecerveja.entity.EstoqueSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.Instant;
+import java.util.Optional;
+
+public interface EstoqueSnapshotRepository extends JpaRepository<EstoqueSnapshot, Long> {
+
+    Optional<EstoqueSnapshot> findFirstByCervejaIdAndInstanteLessThanEqualOrderByInstanteDesc(Long cervejaId, Instant instante);
+
+    @Query("select max(s.instante) from EstoqueSnapshot s")
+    Optional<Instant> findLastInstante();
+}
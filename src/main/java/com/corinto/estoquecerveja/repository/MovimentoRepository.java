@@ -0,0 +1,26 @@
+package com.corinto.estoquecerveja.repository;
+
+import com.corinto.estoquecerveja.dto.MovimentoEstoqueDTO;
+import com.corinto.estoquecerveja.entity.Movimento;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface MovimentoRepository extends JpaRepository<Movimento, Long>, MovimentoRepositoryCustom {
+
+    @Query("select new com.corinto.estoquecerveja.dto.MovimentoEstoqueDTO(m.cervejaId, m.delta, m.quantidade, m.instante) " +
+            "from Movimento m where m.cervejaId = :cervejaId and m.instante >= :de and m.instante < :ate " +
+            "order by m.instante, m.id")
+    List<MovimentoEstoqueDTO> findDTOsBetween(@Param("cervejaId") Long cervejaId,
+                                               @Param("de") Instant de,
+                                               @Param("ate") Instant ate,
+                                               Pageable limit);
+
+    @Query("select coalesce(sum(m.delta), 0) from Movimento m " +
+            "where m.cervejaId = :cervejaId and m.instante >= :de and m.instante <= :ate")
+    long sumDeltaBetween(@Param("cervejaId") Long cervejaId, @Param("de") Instant de, @Param("ate") Instant ate);
+}
@@ -0,0 +1,19 @@
+package com.corinto.estoquecerveja.repository;
+
+import com.corinto.estoquecerveja.entity.Movimento;
+
+import java.util.List;
+
+public interface MovimentoRepositoryCustom {
+
+    /**
+     * Appends every movement through a single JDBC batch; identity keys would otherwise make Hibernate insert one by one.
+     */
+    void batchInsert(List<Movimento> movimentos);
+
+    /**
+     * Rolls the movements of buckets {@code [fromBucket, toBucket)} into one snapshot per beer and bucket, then deletes
+     * the movements of buckets before {@code deleteBeforeBucket}. Returns the number of snapshots written.
+     */
+    int compact(long fromBucket, long toBucket, long bucketMillis, long deleteBeforeBucket);
+}
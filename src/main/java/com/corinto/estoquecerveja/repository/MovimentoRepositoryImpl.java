@@ -0,0 +1,69 @@
+package com.corinto.estoquecerveja.repository;
+
+import com.corinto.estoquecerveja.entity.Movimento;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class MovimentoRepositoryImpl implements MovimentoRepositoryCustom {
+
+    private static final String INSERT_SQL =
+            "insert into movimento (bucket, cerveja_id, delta, quantidade, instante) values (?, ?, ?, ?, ?)";
+    private static final String LATEST_SNAPSHOTS_SQL =
+            "select s.cerveja_id, s.quantidade from estoque_snapshot s " +
+                    "where s.instante = (select max(l.instante) from estoque_snapshot l where l.cerveja_id = s.cerveja_id)";
+    private static final String BUCKET_DELTAS_SQL =
+            "select bucket, cerveja_id, sum(delta) from movimento where bucket >= ? and bucket < ? " +
+                    "group by bucket, cerveja_id order by bucket";
+    private static final String INSERT_SNAPSHOT_SQL =
+            "insert into estoque_snapshot (cerveja_id, instante, quantidade) values (?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+
+    @Autowired
+    public MovimentoRepositoryImpl(JdbcTemplate jdbcTemplate,
+                                   @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    @Transactional
+    public void batchInsert(List<Movimento> movimentos) {
+        jdbcTemplate.batchUpdate(INSERT_SQL, movimentos, batchSize, (ps, movimento) -> {
+            ps.setLong(1, movimento.getBucket());
+            ps.setLong(2, movimento.getCervejaId());
+            ps.setInt(3, movimento.getDelta());
+            ps.setInt(4, movimento.getQuantidade());
+            ps.setTimestamp(5, Timestamp.from(movimento.getInstante()));
+        });
+    }
+
+    @Override
+    @Transactional
+    public int compact(long fromBucket, long toBucket, long bucketMillis, long deleteBeforeBucket) {
+        Map<Long, Integer> quantidadesById = new HashMap<>();
+        jdbcTemplate.query(LATEST_SNAPSHOTS_SQL, rs -> {
+            quantidadesById.put(rs.getLong(1), rs.getInt(2));
+        });
+        List<Object[]> snapshots = new ArrayList<>();
+        jdbcTemplate.query(BUCKET_DELTAS_SQL, rs -> {
+            long cervejaId = rs.getLong(2);
+            int quantidade = quantidadesById.merge(cervejaId, rs.getInt(3), Integer::sum);
+            Instant fimDoBucket = Instant.ofEpochMilli((rs.getLong(1) + 1) * bucketMillis);
+            snapshots.add(new Object[]{cervejaId, Timestamp.from(fimDoBucket), quantidade});
+        }, fromBucket, toBucket);
+        jdbcTemplate.batchUpdate(INSERT_SNAPSHOT_SQL, snapshots);
+        jdbcTemplate.update("delete from movimento where bucket < ?", Math.min(deleteBeforeBucket, toBucket));
+        return snapshots.size();
+    }
+}
@@ -0,0 +1,110 @@
+package com.corinto.estoquecerveja.retry;
+
+import com.corinto.estoquecerveja.exception.CervejaConflictException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs {@link RetryOnConflict} methods again when they fail with an {@link OptimisticLockingFailureException}, up to
+ * {@code estoque.retry.max-attempts} attempts in all. Before each retry it sleeps a random time between zero and a
+ * ceiling that doubles from {@code initial-backoff} up to {@code max-backoff}, so writers that collided do not collide
+ * again in lockstep. When the attempts run out the caller gets a {@link CervejaConflictException}.
+ *
+ * <p>Every conflict, retry and exhausted call is counted as {@value #CONFLICT_COUNTER}, {@value #RETRY_COUNTER} and
+ * {@value #EXHAUSTED_COUNTER}, tagged by method. The aspect has the highest precedence, so it wraps the transaction
+ * and every attempt reads the row again in a transaction of its own.
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class OptimisticRetryAspect {
+
+    static final String CONFLICT_COUNTER = "cervejas.optimistic.conflicts";
+    static final String RETRY_COUNTER = "cervejas.optimistic.retries";
+    static final String EXHAUSTED_COUNTER = "cervejas.optimistic.exhausted";
+
+    private final MeterRegistry meterRegistry;
+    private final int maxAttempts;
+    private final long initialBackoffNanos;
+    private final long maxBackoffNanos;
+    private final Map<Method, Counters> counters = new ConcurrentHashMap<>();
+
+    @Autowired
+    public OptimisticRetryAspect(MeterRegistry meterRegistry,
+                                 @Value("${estoque.retry.max-attempts:5}") int maxAttempts,
+                                 @Value("${estoque.retry.initial-backoff:2ms}") Duration initialBackoff,
+                                 @Value("${estoque.retry.max-backoff:50ms}") Duration maxBackoff) {
+        this.meterRegistry = meterRegistry;
+        this.maxAttempts = Math.max(maxAttempts, 1);
+        this.initialBackoffNanos = initialBackoff.toNanos();
+        this.maxBackoffNanos = maxBackoff.toNanos();
+    }
+
+    @Around("@annotation(com.corinto.estoquecerveja.retry.RetryOnConflict)")
+    public Object retry(ProceedingJoinPoint joinPoint) throws Throwable {
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        Counters methodCounters = counters.computeIfAbsent(method, key -> new Counters(key.getName()));
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return joinPoint.proceed();
+            } catch (OptimisticLockingFailureException e) {
+                methodCounters.conflicts.increment();
+                if (attempt >= maxAttempts) {
+                    methodCounters.exhausted.increment();
+                    throw new CervejaConflictException(method.getName(), attempt, e);
+                }
+                methodCounters.retries.increment();
+                backoff(method, attempt, e);
+            }
+        }
+    }
+
+    private void backoff(Method method, int attempt, OptimisticLockingFailureException conflict) {
+        long ceiling = Math.min(maxBackoffNanos, initialBackoffNanos << Math.min(attempt - 1, 20));
+        if (ceiling <= 0) {
+            return;
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(ThreadLocalRandom.current().nextLong(ceiling + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CervejaConflictException(method.getName(), attempt, conflict);
+        }
+    }
+
+    private final class Counters {
+
+        private final Counter conflicts;
+        private final Counter retries;
+        private final Counter exhausted;
+
+        private Counters(String method) {
+            this.conflicts = counter(CONFLICT_COUNTER, method);
+            this.retries = counter(RETRY_COUNTER, method);
+            this.exhausted = counter(EXHAUSTED_COUNTER, method);
+        }
+
+        private Counter counter(String name, String method) {
+            return Counter.builder(name)
+                    .tag("method", method)
+                    .register(meterRegistry);
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.corinto.estoquecerveja.retry;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a service method that reads a beer and writes it back, so {@link OptimisticRetryAspect} runs it again when
+ * the write loses a race with another change to the same row. The method must be safe to re-run from the start.
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RetryOnConflict {
+}
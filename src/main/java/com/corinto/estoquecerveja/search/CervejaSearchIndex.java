@@ -0,0 +1,311 @@
+package com.corinto.estoquecerveja.search;
+
+import com.corinto.estoquecerveja.dto.CervejaDTO;
+import com.corinto.estoquecerveja.enums.Tipo;
+import com.corinto.estoquecerveja.event.CervejaChangeCounter;
+import com.corinto.estoquecerveja.event.CervejaChangedEvent;
+import com.corinto.estoquecerveja.repository.CervejaRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * In-memory type-ahead index over nome and marca.
+ *
+ * <p>Every beer gets a dense document id. Each field is split into trigrams, plus one- and two-letter word prefixes
+ * (marked with {@code ^}) so short queries still hit the index; every gram maps to an ascending posting list.
+ * A query intersects the posting lists of its grams, starting with the shortest, and filters by a per-{@link Tipo}
+ * bitset. Deleted documents are only cleared from the live bitset and are dropped by the next compaction.
+ *
+ * <p>Stock changes are not indexed: the quantidade of a result is stale until the caller overlays the live stock
+ * counter, so a sale or receipt never takes the write lock away from searches.
+ *
+ * <p>A rebuild indexes the catalogue into a fresh index without the lock, while the changes that arrive meanwhile
+ * are applied as usual and queued. The fresh index is then swapped in and the queue replayed on top of it under a
+ * short write lock; every indexed change can be applied twice without harm.
+ */
+@Slf4j
+@Component
+public class CervejaSearchIndex {
+
+    private static final int GRAM = 3;
+    private static final String PREFIX_MARK = "^";
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern WORD_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private final CervejaRepository cervejaRepository;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private Map<Long, Integer> docIdsByCervejaId = new HashMap<>();
+    private Map<String, IntPostings> postings = new HashMap<>();
+    private BitSet live = new BitSet();
+    private BitSet[] porTipo = new BitSet[Tipo.values().length];
+    private CervejaDTO[] docs = new CervejaDTO[1024];
+    private String[] nomes = new String[1024];
+    private String[] marcas = new String[1024];
+    private int nextDocId;
+    private List<CervejaChangedEvent> durante;
+
+    @Autowired
+    public CervejaSearchIndex(CervejaRepository cervejaRepository) {
+        this.cervejaRepository = cervejaRepository;
+        clear();
+    }
+
+    /**
+     * Returns up to {@code limit} beers whose nome or marca contains {@code texto}, optionally of one {@link Tipo}.
+     */
+    public List<CervejaDTO> search(String texto, Tipo tipo, int limit) {
+        String query = normalize(texto == null ? "" : texto.trim());
+        List<CervejaDTO> found = new ArrayList<>(Math.min(limit, 64));
+        lock.readLock().lock();
+        try {
+            BitSet candidates = tipo == null ? live : porTipo[tipo.ordinal()];
+            if (query.isEmpty()) {
+                for (int docId = candidates.nextSetBit(0); docId >= 0 && found.size() < limit; docId = candidates.nextSetBit(docId + 1)) {
+                    found.add(copy(docId));
+                }
+                return found;
+            }
+            IntPostings[] lists = postingsOf(query);
+            if (lists == null) {
+                return found;
+            }
+            IntPostings shortest = lists[0];
+            for (int i = 0; i < shortest.size() && found.size() < limit; i++) {
+                int docId = shortest.get(i);
+                if (candidates.get(docId) && inAll(lists, docId) && matches(docId, query)) {
+                    found.add(copy(docId));
+                }
+            }
+            return found;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        try (Stream<CervejaDTO> cervejas = cervejaRepository.streamAllDTOs()) {
+            rebuild(cervejas);
+        }
+    }
+
+    /**
+     * Replaces the contents with {@code cervejas}. Changes are queued from before the stream is first read, so none
+     * is lost when the stream only reads the database once consumed. If the stream fails, the old contents stay.
+     */
+    public synchronized void rebuild(Stream<CervejaDTO> cervejas) {
+        lock.writeLock().lock();
+        try {
+            durante = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        CervejaSearchIndex novo = new CervejaSearchIndex(cervejaRepository);
+        boolean lido = false;
+        try {
+            cervejas.forEach(novo::add);
+            lido = true;
+        } finally {
+            lock.writeLock().lock();
+            try {
+                List<CervejaChangedEvent> queued = durante;
+                durante = null;
+                if (lido) {
+                    docIdsByCervejaId = novo.docIdsByCervejaId;
+                    postings = novo.postings;
+                    live = novo.live;
+                    porTipo = novo.porTipo;
+                    docs = novo.docs;
+                    nomes = novo.nomes;
+                    marcas = novo.marcas;
+                    nextDocId = novo.nextDocId;
+                    queued.forEach(this::apply);
+                    log.info("Search index built with {} beers, {} changes replayed", docIdsByCervejaId.size(), queued.size());
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    @Order(CervejaChangeCounter.ORDER - 1)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCervejaChanged(CervejaChangedEvent event) {
+        if (event.getOperacao() == CervejaChangedEvent.Operacao.STOCK_CHANGED) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            apply(event);
+            if (durante != null) {
+                durante.add(event);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return docIdsByCervejaId.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void apply(CervejaChangedEvent event) {
+        switch (event.getOperacao()) {
+            case CREATED:
+            case UPDATED:
+                add(event.getCerveja());
+                break;
+            case DELETED:
+                remove(event.getCerveja().getId());
+                break;
+        }
+    }
+
+    void add(CervejaDTO cervejaDTO) {
+        remove(cervejaDTO.getId());
+        int docId = nextDocId++;
+        ensureCapacity(docId);
+        docs[docId] = cervejaDTO.toBuilder().build();
+        nomes[docId] = normalize(cervejaDTO.getNome());
+        marcas[docId] = normalize(cervejaDTO.getMarca());
+        docIdsByCervejaId.put(cervejaDTO.getId(), docId);
+        live.set(docId);
+        porTipo[cervejaDTO.getTipo().ordinal()].set(docId);
+        Set<String> grams = new HashSet<>();
+        addGrams(nomes[docId], grams);
+        addGrams(marcas[docId], grams);
+        for (String gram : grams) {
+            postings.computeIfAbsent(gram, key -> new IntPostings()).add(docId);
+        }
+    }
+
+    private void remove(Long cervejaId) {
+        Integer docId = docIdsByCervejaId.remove(cervejaId);
+        if (docId == null) {
+            return;
+        }
+        live.clear(docId);
+        porTipo[docs[docId].getTipo().ordinal()].clear(docId);
+        docs[docId] = null;
+        nomes[docId] = null;
+        marcas[docId] = null;
+        if (nextDocId > 1024 && nextDocId - docIdsByCervejaId.size() > docIdsByCervejaId.size()) {
+            compact();
+        }
+    }
+
+    private void compact() {
+        List<CervejaDTO> remaining = new ArrayList<>(docIdsByCervejaId.size());
+        for (int docId = live.nextSetBit(0); docId >= 0; docId = live.nextSetBit(docId + 1)) {
+            remaining.add(docs[docId]);
+        }
+        clear();
+        remaining.forEach(this::add);
+    }
+
+    private void clear() {
+        docIdsByCervejaId.clear();
+        postings.clear();
+        live.clear();
+        for (int i = 0; i < porTipo.length; i++) {
+            porTipo[i] = new BitSet();
+        }
+        Arrays.fill(docs, null);
+        Arrays.fill(nomes, null);
+        Arrays.fill(marcas, null);
+        nextDocId = 0;
+    }
+
+    private IntPostings[] postingsOf(String query) {
+        Set<String> grams = new HashSet<>();
+        if (query.length() < GRAM) {
+            grams.add(PREFIX_MARK + query);
+        } else {
+            for (int i = 0; i + GRAM <= query.length(); i++) {
+                grams.add(query.substring(i, i + GRAM));
+            }
+        }
+        IntPostings[] lists = new IntPostings[grams.size()];
+        int i = 0;
+        for (String gram : grams) {
+            IntPostings list = postings.get(gram);
+            if (list == null) {
+                return null;
+            }
+            lists[i++] = list;
+        }
+        Arrays.sort(lists, Comparator.comparingInt(IntPostings::size));
+        return lists;
+    }
+
+    private static boolean inAll(IntPostings[] lists, int docId) {
+        for (int i = 1; i < lists.length; i++) {
+            if (!lists[i].contains(docId)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean matches(int docId, String query) {
+        return query.length() < GRAM || nomes[docId].contains(query) || marcas[docId].contains(query);
+    }
+
+    private CervejaDTO copy(int docId) {
+        return docs[docId].toBuilder().build();
+    }
+
+    private void ensureCapacity(int docId) {
+        if (docId >= docs.length) {
+            int capacity = Math.max(docs.length * 2, docId + 1);
+            docs = Arrays.copyOf(docs, capacity);
+            nomes = Arrays.copyOf(nomes, capacity);
+            marcas = Arrays.copyOf(marcas, capacity);
+        }
+    }
+
+    private static void addGrams(String text, Set<String> grams) {
+        for (int i = 0; i + GRAM <= text.length(); i++) {
+            grams.add(text.substring(i, i + GRAM));
+        }
+        for (String word : WORD_SEPARATOR.split(text)) {
+            if (!word.isEmpty()) {
+                grams.add(PREFIX_MARK + word.charAt(0));
+            }
+            if (word.length() >= 2) {
+                grams.add(PREFIX_MARK + word.substring(0, 2));
+            }
+        }
+    }
+
+    static String normalize(String text) {
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        return DIACRITICS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,34 @@
+package com.corinto.estoquecerveja.search;
+
+import java.util.Arrays;
+
+/**
+ * Growable, ascending list of document ids that contain one gram.
+ */
+class IntPostings {
+
+    private int[] docIds = new int[4];
+    private int size;
+
+    void add(int docId) {
+        if (size > 0 && docIds[size - 1] == docId) {
+            return;
+        }
+        if (size == docIds.length) {
+            docIds = Arrays.copyOf(docIds, size * 2);
+        }
+        docIds[size++] = docId;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int get(int index) {
+        return docIds[index];
+    }
+
+    boolean contains(int docId) {
+        return Arrays.binarySearch(docIds, 0, size, docId) >= 0;
+    }
+}
@@ -1,25 +1,92 @@
 package com.corinto.estoquecerveja.service;
 
 import lombok.AllArgsConstructor;
+import com.corinto.estoquecerveja.analytics.CervejaStockAnalytics;
+import com.corinto.estoquecerveja.cache.CervejaCache;
+import com.corinto.estoquecerveja.catalogue.CatalogueSnapshot;
 import com.corinto.estoquecerveja.dto.CervejaDTO;
+import com.corinto.estoquecerveja.dto.CervejaPageDTO;
+import com.corinto.estoquecerveja.dto.EstoqueLocalDTO;
+import com.corinto.estoquecerveja.dto.EstoqueSnapshotDTO;
+import com.corinto.estoquecerveja.dto.ImportacaoResultadoDTO;
+import com.corinto.estoquecerveja.dto.MarcaEstoqueDTO;
+import com.corinto.estoquecerveja.dto.MovimentacaoDTO;
+import com.corinto.estoquecerveja.dto.MovimentacaoResultadoDTO;
+import com.corinto.estoquecerveja.dto.MovimentoEstoqueDTO;
+import com.corinto.estoquecerveja.dto.ReservaDTO;
+import com.corinto.estoquecerveja.dto.TipoEstoqueDTO;
 import com.corinto.estoquecerveja.entity.Cerveja;
+import com.corinto.estoquecerveja.enums.FormatoExportacao;
+import com.corinto.estoquecerveja.enums.Tipo;
+import com.corinto.estoquecerveja.event.CervejaChangeCounter;
+import com.corinto.estoquecerveja.event.CervejaChangedEvent;
 import com.corinto.estoquecerveja.exception.CervejaAlreadyRegisteredException;
 import com.corinto.estoquecerveja.exception.CervejaNotFoundException;
 import com.corinto.estoquecerveja.exception.CervejaStockExceededException;
+import com.corinto.estoquecerveja.exception.EstoqueLocalNotFoundException;
+import com.corinto.estoquecerveja.exception.ImportacaoInvalidaException;
+import com.corinto.estoquecerveja.exception.ReservaNotFoundException;
+import com.corinto.estoquecerveja.export.CervejaExporter;
+import com.corinto.estoquecerveja.history.StockHistory;
+import com.corinto.estoquecerveja.importer.CervejaImporter;
+import com.corinto.estoquecerveja.ledger.StockLedger;
 import com.corinto.estoquecerveja.mapper.CervejaMapper;
 import com.corinto.estoquecerveja.repository.CervejaRepository;
+import com.corinto.estoquecerveja.retry.RetryOnConflict;
+import com.corinto.estoquecerveja.search.CervejaSearchIndex;
+import com.corinto.estoquecerveja.stock.CervejaStockCounter;
+import com.corinto.estoquecerveja.stock.CervejaStockCounters;
+import com.corinto.estoquecerveja.stock.CervejaStockShards;
+import com.corinto.estoquecerveja.stream.StockChangeBroadcaster;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @AllArgsConstructor(onConstructor = @__(@Autowired))
 public class CervejaService {
 
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int MAX_SEARCH_RESULTS = 100;
+    private static final int MAX_LOW_STOCK_RESULTS = 1000;
+    private static final int MAX_MOVEMENT_RESULTS = 1000;
+
     private final CervejaRepository cervejaRepository;
+    private final CervejaStockCounters stockCounters;
+    private final CervejaStockShards stockShards;
+    private final CervejaCache cervejaCache;
+    private final CatalogueSnapshot catalogueSnapshot;
+    private final CervejaSearchIndex searchIndex;
+    private final CervejaStockAnalytics stockAnalytics;
+    private final StockLedger stockLedger;
+    private final StockHistory stockHistory;
+    private final CervejaImporter cervejaImporter;
+    private final CervejaExporter cervejaExporter;
+    private final StockChangeBroadcaster stockChangeBroadcaster;
+    private final CervejaChangeCounter changeCounter;
+    private final ApplicationEventPublisher eventPublisher;
     private final CervejaMapper cervejaMapper = CervejaMapper
             .INSTANCE;
 
@@ -27,25 +94,122 @@ public class CervejaService {
         verifyIfIsAlreadyRegistered(cervejaDTO.getNome());
         Cerveja cerveja = cervejaMapper.toModel(cervejaDTO);
         Cerveja savedCerveja = cervejaRepository.save(cerveja);
-        return cervejaMapper.toDTO(savedCerveja);
+        return publish(CervejaChangedEvent.Operacao.CREATED, cervejaMapper.toDTO(savedCerveja), savedCerveja.getQuantidade());
+    }
+
+    public ImportacaoResultadoDTO importCsv(Reader csv) throws IOException, ImportacaoInvalidaException {
+        return cervejaImporter.importCsv(csv);
+    }
+
+    public ImportacaoResultadoDTO importNdjson(Reader ndjson) throws IOException {
+        return cervejaImporter.importNdjson(ndjson);
     }
 
+    /**
+     * Not transactional: the snapshot path needs no connection, and the cache loader runs in its own.
+     */
     public CervejaDTO findByNome(String nome) throws CervejaNotFoundException {
-        Cerveja foundCerveja = cervejaRepository.findByNome(nome)
+        CervejaDTO foundCerveja = (catalogueSnapshot.isReady()
+                ? catalogueSnapshot.findByNome(nome)
+                : cervejaCache.get(nome, cervejaRepository::findDTOByNome))
                 .orElseThrow(() -> new CervejaNotFoundException(nome));
-        return cervejaMapper.toDTO(foundCerveja);
+        return withLiveStock(foundCerveja);
+    }
+
+    /**
+     * Strong entity tag of every catalogue read. It moves with each committed create, edit, delete or stock change,
+     * so a client holding the current tag already has the current data.
+     */
+    public String catalogueEtag() {
+        return changeCounter.etag();
     }
 
     public List<CervejaDTO> listAll() {
-        return cervejaRepository.findAll()
+        return (catalogueSnapshot.isReady() ? catalogueSnapshot.listAll() : cervejaRepository.findAllDTOs())
+                .stream()
+                .map(this::withLiveStock)
+                .collect(Collectors.toList());
+    }
+
+    public CervejaPageDTO listPage(Long cursor, int size) {
+        int pageSize = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        long after = cursor == null ? 0L : cursor;
+        List<CervejaDTO> cervejas = (catalogueSnapshot.isReady()
+                ? catalogueSnapshot.listAfter(after, pageSize)
+                : cervejaRepository.findDTOsAfter(after, PageRequest.of(0, pageSize)))
+                .stream()
+                .map(this::withLiveStock)
+                .collect(Collectors.toList());
+        Long nextCursor = cervejas.size() < pageSize ? null : cervejas.get(cervejas.size() - 1).getId();
+        return new CervejaPageDTO(cervejas, nextCursor);
+    }
+
+    @Transactional(readOnly = true)
+    public void streamAll(Consumer<CervejaDTO> consumer) {
+        try (Stream<CervejaDTO> cervejas = cervejaRepository.streamAllDTOs()) {
+            cervejas.map(this::withLiveStock).forEach(consumer);
+        }
+    }
+
+    public void export(FormatoExportacao formato, boolean gzip, OutputStream out) throws IOException {
+        cervejaExporter.export(formato, gzip, out);
+    }
+
+    public SseEmitter subscribe(Set<Tipo> tipos, Set<Long> ids) {
+        return stockChangeBroadcaster.subscribe(tipos, ids);
+    }
+
+    public List<CervejaDTO> search(String texto, Tipo tipo, int limit) {
+        return searchIndex.search(texto, tipo, Math.min(Math.max(limit, 1), MAX_SEARCH_RESULTS))
                 .stream()
-                .map(cervejaMapper::toDTO)
+                .map(this::withLiveStock)
                 .collect(Collectors.toList());
     }
 
+    public List<TipoEstoqueDTO> stockByTipo() {
+        return stockAnalytics.byTipo();
+    }
+
+    public List<MarcaEstoqueDTO> stockByMarca() {
+        return stockAnalytics.byMarca();
+    }
+
+    public List<CervejaDTO> lowestStock(int limit, double maxFillRatio) {
+        return stockAnalytics.lowestStock(Math.min(Math.max(limit, 1), MAX_LOW_STOCK_RESULTS), maxFillRatio);
+    }
+
+    /**
+     * Replaces nome, marca, max and tipo; stock only moves through the stock operations, so {@code quantidade} in the
+     * body is ignored. The row is saved against the version it was read at, and a stock write that lands in between
+     * makes the save fail and the whole edit run again.
+     */
+    @RetryOnConflict
+    public CervejaDTO updateCerveja(Long id, CervejaDTO cervejaDTO) throws CervejaNotFoundException, CervejaAlreadyRegisteredException, CervejaStockExceededException {
+        stockCounters.flush(id);
+        Cerveja cerveja = verifyIfExists(id);
+        if (!cerveja.getNome().equals(cervejaDTO.getNome())) {
+            verifyIfIsAlreadyRegistered(cervejaDTO.getNome());
+        }
+        int quantidade = stockCounters.quantidade(id).orElse(cerveja.getQuantidade());
+        if (cervejaDTO.getMax() < quantidade) {
+            throw new CervejaStockExceededException(id, quantidade - cervejaDTO.getMax());
+        }
+        cerveja.setNome(cervejaDTO.getNome());
+        cerveja.setMarca(cervejaDTO.getMarca());
+        cerveja.setMax(cervejaDTO.getMax());
+        cerveja.setTipo(cervejaDTO.getTipo());
+        Cerveja savedCerveja = cervejaRepository.save(cerveja);
+        stockCounters.describe(savedCerveja);
+        return publish(CervejaChangedEvent.Operacao.UPDATED, withLiveStock(cervejaMapper.toDTO(savedCerveja)));
+    }
+
+    @RetryOnConflict
     public void deleteById(Long id) throws CervejaNotFoundException {
-        verifyIfExists(id);
+        Cerveja beerToDelete = verifyIfExists(id);
         cervejaRepository.deleteById(id);
+        stockShards.deleteAll(id);
+        stockCounters.evict(id);
+        publish(CervejaChangedEvent.Operacao.DELETED, cervejaMapper.toDTO(beerToDelete));
     }
 
     private void verifyIfIsAlreadyRegistered(String nome) throws CervejaAlreadyRegisteredException {
@@ -60,14 +224,171 @@ public class CervejaService {
                 .orElseThrow(() -> new CervejaNotFoundException(id));
     }
 
+    /**
+     * Checked against {@code max} on the in-memory counter and then by a conditional update of the row, see
+     * {@link CervejaStockCounters#receive}, or appended to the ledger when it is enabled.
+     */
     public CervejaDTO increment(Long id, int quantityToIncrement) throws CervejaNotFoundException, CervejaStockExceededException {
-        Cerveja beerToIncrementStock = verifyIfExists(id);
-        int quantityAfterIncrement = quantityToIncrement + beerToIncrementStock.getQuantidade();
-        if (quantityAfterIncrement <= beerToIncrementStock.getMax()) {
-            beerToIncrementStock.setQuantidade(beerToIncrementStock.getQuantidade() + quantityToIncrement);
-            Cerveja incrementedBeerStock = cervejaRepository.save(beerToIncrementStock);
-            return cervejaMapper.toDTO(incrementedBeerStock);
+        CervejaStockCounter counter = stockLedger.isEnabled()
+                ? stockLedger.increment(id, quantityToIncrement)
+                : stockCounters.receive(id, quantityToIncrement);
+        return publish(CervejaChangedEvent.Operacao.STOCK_CHANGED, counter.toDTO(), quantityToIncrement);
+    }
+
+    @Transactional
+    public List<MovimentacaoResultadoDTO> applyMovements(List<MovimentacaoDTO> movimentacoes) {
+        if (stockLedger.isEnabled()) {
+            stockLedger.fold();
+        }
+        Set<Long> ids = movimentacoes.stream()
+                .map(MovimentacaoDTO::getId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        ids.forEach(stockCounters::flush);
+        Map<Long, Cerveja> cervejasById = cervejaRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Cerveja::getId, Function.identity()));
+
+        Map<Long, Integer> projectedQuantities = new HashMap<>();
+        Map<Long, Integer> acceptedIncrements = new LinkedHashMap<>();
+        List<MovimentacaoResultadoDTO> resultados = new ArrayList<>(movimentacoes.size());
+        for (MovimentacaoDTO movimentacao : movimentacoes) {
+            resultados.add(validateMovement(movimentacao, cervejasById, projectedQuantities, acceptedIncrements));
         }
-        throw new CervejaStockExceededException(id, quantityToIncrement);
+
+        Set<Long> rejectedIds = new HashSet<>();
+        Map<Long, CervejaStockCounter> counters = reserveIncrements(acceptedIncrements, rejectedIds);
+        if (!counters.isEmpty()) {
+            Map<Long, Integer> increments = new LinkedHashMap<>();
+            counters.keySet().forEach(id -> increments.put(id, acceptedIncrements.get(id)));
+            rejectedIds.addAll(cervejaRepository.batchIncrementQuantidade(increments));
+        }
+        counters.forEach((id, counter) -> {
+            int delta = acceptedIncrements.get(id);
+            if (rejectedIds.contains(id)) {
+                counter.revertIncrement(delta);
+            } else {
+                counter.confirmIncrement(delta);
+                publish(CervejaChangedEvent.Operacao.STOCK_CHANGED, counter.toDTO(), delta);
+            }
+        });
+        resultados.stream()
+                .filter(resultado -> resultado.isSucesso() && rejectedIds.contains(resultado.getId()))
+                .forEach(resultado -> {
+                    resultado.setSucesso(false);
+                    resultado.setQuantidade(null);
+                    resultado.setErro(new CervejaStockExceededException(resultado.getId(), resultado.getDelta()).getMessage());
+                });
+        return resultados;
+    }
+
+    /**
+     * Holds room for each increment on its beer's counter before the batch runs, so a receipt or a location movement
+     * landing meanwhile is checked against these units as well, while the batch checks the row. Returns the counters
+     * that had room; the other beers are added to {@code rejectedIds}.
+     */
+    private Map<Long, CervejaStockCounter> reserveIncrements(Map<Long, Integer> acceptedIncrements, Set<Long> rejectedIds) {
+        Map<Long, CervejaStockCounter> counters = new LinkedHashMap<>();
+        acceptedIncrements.forEach((id, delta) -> {
+            try {
+                counters.put(id, stockCounters.increment(id, delta));
+            } catch (CervejaNotFoundException | CervejaStockExceededException e) {
+                rejectedIds.add(id);
+            }
+        });
+        return counters;
+    }
+
+    private MovimentacaoResultadoDTO validateMovement(MovimentacaoDTO movimentacao,
+                                                      Map<Long, Cerveja> cervejasById,
+                                                      Map<Long, Integer> projectedQuantities,
+                                                      Map<Long, Integer> acceptedIncrements) {
+        Long id = movimentacao.getId();
+        Integer delta = movimentacao.getDelta();
+        MovimentacaoResultadoDTO resultado = new MovimentacaoResultadoDTO(id, delta, false, null, null);
+        Cerveja cerveja = id == null ? null : cervejasById.get(id);
+        if (cerveja == null) {
+            resultado.setErro(new CervejaNotFoundException(id).getMessage());
+            return resultado;
+        }
+        int projectedQuantity = projectedQuantities.getOrDefault(id, cerveja.getQuantidade());
+        if (projectedQuantity + delta > cerveja.getMax()) {
+            resultado.setErro(new CervejaStockExceededException(id, delta).getMessage());
+            return resultado;
+        }
+        projectedQuantities.put(id, projectedQuantity + delta);
+        acceptedIncrements.merge(id, delta, Integer::sum);
+        resultado.setSucesso(true);
+        resultado.setQuantidade(projectedQuantity + delta);
+        return resultado;
+    }
+
+    public CervejaDTO decrement(Long id, int quantityToDecrement) throws CervejaNotFoundException, CervejaStockExceededException {
+        return publish(CervejaChangedEvent.Operacao.STOCK_CHANGED, stockCounters.decrement(id, quantityToDecrement).toDTO(), -quantityToDecrement);
+    }
+
+    public List<EstoqueLocalDTO> listLocations(Long id) throws CervejaNotFoundException {
+        verifyIfExists(id);
+        return stockShards.findAll(id);
+    }
+
+    public EstoqueLocalDTO setLocationCapacity(Long id, String local, int max)
+            throws CervejaNotFoundException, EstoqueLocalNotFoundException, CervejaStockExceededException {
+        verifyIfExists(id);
+        return stockShards.setCapacity(id, local, max);
+    }
+
+    /**
+     * Moves stock at one location only. The beer's {@code quantidade} follows through its stock counter, and stock
+     * received at a location can only leave through that location.
+     */
+    public EstoqueLocalDTO incrementAt(Long id, String local, int quantityToIncrement)
+            throws CervejaNotFoundException, EstoqueLocalNotFoundException, CervejaStockExceededException {
+        CervejaStockCounter counter = stockShards.increment(id, local, quantityToIncrement);
+        publish(CervejaChangedEvent.Operacao.STOCK_CHANGED, counter.toDTO(), quantityToIncrement);
+        return stockShards.find(id, local);
+    }
+
+    public EstoqueLocalDTO decrementAt(Long id, String local, int quantityToDecrement)
+            throws CervejaNotFoundException, EstoqueLocalNotFoundException, CervejaStockExceededException {
+        CervejaStockCounter counter = stockShards.decrement(id, local, quantityToDecrement);
+        publish(CervejaChangedEvent.Operacao.STOCK_CHANGED, counter.toDTO(), -quantityToDecrement);
+        return stockShards.find(id, local);
+    }
+
+    public ReservaDTO reserve(Long id, int quantityToReserve) throws CervejaNotFoundException, CervejaStockExceededException {
+        return stockCounters.reserve(id, quantityToReserve);
+    }
+
+    public CervejaDTO commitReserva(String reservaId) throws ReservaNotFoundException {
+        int quantidade = stockCounters.findReserva(reservaId).getQuantidade();
+        return publish(CervejaChangedEvent.Operacao.STOCK_CHANGED, stockCounters.commit(reservaId).toDTO(), -quantidade);
+    }
+
+    public void releaseReserva(String reservaId) throws ReservaNotFoundException {
+        stockCounters.release(reservaId);
+    }
+
+    public List<MovimentoEstoqueDTO> movements(Long id, Instant de, Instant ate, int limit) throws CervejaNotFoundException {
+        verifyIfExists(id);
+        return stockHistory.movements(id, de, ate, Math.min(Math.max(limit, 1), MAX_MOVEMENT_RESULTS));
+    }
+
+    public EstoqueSnapshotDTO stockAt(Long id, Instant instante) throws CervejaNotFoundException {
+        verifyIfExists(id);
+        return stockHistory.stockAt(id, instante);
+    }
+
+    private CervejaDTO publish(CervejaChangedEvent.Operacao operacao, CervejaDTO cervejaDTO) {
+        return publish(operacao, cervejaDTO, 0);
+    }
+
+    private CervejaDTO publish(CervejaChangedEvent.Operacao operacao, CervejaDTO cervejaDTO, int delta) {
+        eventPublisher.publishEvent(new CervejaChangedEvent(operacao, cervejaDTO, delta));
+        return cervejaDTO;
+    }
+
+    private CervejaDTO withLiveStock(CervejaDTO cervejaDTO) {
+        stockCounters.quantidade(cervejaDTO.getId()).ifPresent(cervejaDTO::setQuantidade);
+        return cervejaDTO;
     }
 }
@@ -0,0 +1,224 @@
+package com.corinto.estoquecerveja.stock;
+
+import com.corinto.estoquecerveja.dto.CervejaDTO;
+import com.corinto.estoquecerveja.entity.Cerveja;
+import com.corinto.estoquecerveja.enums.Tipo;
+import lombok.Getter;
+
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * Lock-free stock counters of a single beer.
+ *
+ * <p>{@code disponivel} is what can still be sold, {@code reservado} is held by open reservations,
+ * so the physical stock is their sum. {@code estoque} tracks that sum on its own, so checking an increment
+ * against {@code max} never sees a reservation half-moved between the two; it also holds increments still being
+ * persisted, which are not in {@code disponivel} yet. {@code pendente} is the delta not yet
+ * written to the database. The descriptive fields are replaced in place when the beer is edited, so an edit never
+ * drops a loaded counter or its pending delta.
+ *
+ * <p>{@code alocado} is the part of {@code disponivel} held at locations. Sales and reservations without a location
+ * leave it alone, so they can never take units a location holds. Movements at a location raise {@code alocado}
+ * before {@code disponivel} and lower it after, so a sale that reads {@code disponivel} and then {@code alocado}
+ * never sees located units as free.
+ *
+ * <p>The counters are plain {@code volatile int} fields updated through field updaters, so a loaded beer is a
+ * single object on the heap.
+ */
+public class CervejaStockCounter {
+
+    private static final AtomicIntegerFieldUpdater<CervejaStockCounter> DISPONIVEL = updater("disponivel");
+    private static final AtomicIntegerFieldUpdater<CervejaStockCounter> ESTOQUE = updater("estoque");
+    private static final AtomicIntegerFieldUpdater<CervejaStockCounter> RESERVADO = updater("reservado");
+    private static final AtomicIntegerFieldUpdater<CervejaStockCounter> ALOCADO = updater("alocado");
+    private static final AtomicIntegerFieldUpdater<CervejaStockCounter> PENDENTE = updater("pendente");
+
+    @Getter
+    private final long id;
+    private volatile String nome;
+    private volatile String marca;
+    private volatile int max;
+    private volatile Tipo tipo;
+
+    private volatile int disponivel;
+    private volatile int estoque;
+    private volatile int reservado;
+    private volatile int alocado;
+    private volatile int pendente;
+
+    public CervejaStockCounter(Cerveja cerveja) {
+        this(cerveja, 0);
+    }
+
+    public CervejaStockCounter(Cerveja cerveja, int alocado) {
+        this.id = cerveja.getId();
+        this.nome = cerveja.getNome();
+        this.marca = cerveja.getMarca();
+        this.max = cerveja.getMax();
+        this.tipo = cerveja.getTipo();
+        this.disponivel = cerveja.getQuantidade();
+        this.estoque = cerveja.getQuantidade();
+        this.alocado = alocado;
+    }
+
+    public void describe(Cerveja cerveja) {
+        this.nome = cerveja.getNome();
+        this.marca = cerveja.getMarca();
+        this.max = cerveja.getMax();
+        this.tipo = cerveja.getTipo();
+    }
+
+    public boolean tryDecrement(int quantidade) {
+        if (!takeDisponivel(quantidade)) {
+            return false;
+        }
+        ESTOQUE.addAndGet(this, -quantidade);
+        PENDENTE.addAndGet(this, -quantidade);
+        return true;
+    }
+
+    public boolean tryReserve(int quantidade) {
+        if (!takeDisponivel(quantidade)) {
+            return false;
+        }
+        RESERVADO.addAndGet(this, quantidade);
+        return true;
+    }
+
+    public void commitReserva(int quantidade) {
+        RESERVADO.addAndGet(this, -quantidade);
+        ESTOQUE.addAndGet(this, -quantidade);
+        PENDENTE.addAndGet(this, -quantidade);
+    }
+
+    public void releaseReserva(int quantidade) {
+        RESERVADO.addAndGet(this, -quantidade);
+        DISPONIVEL.addAndGet(this, quantidade);
+    }
+
+    /**
+     * Mirrors an increment that was already applied to the database row.
+     */
+    public void applyIncrement(int quantidade) {
+        ESTOQUE.addAndGet(this, quantidade);
+        DISPONIVEL.addAndGet(this, quantidade);
+    }
+
+    /**
+     * Holds room for {@code quantidade} within {@code max}, counted in {@code estoque} only, so the units cannot be
+     * sold before the caller has persisted them. Nothing is queued for the database; the caller persists the
+     * increment and then calls {@link #confirmIncrement} or {@link #revertIncrement}.
+     */
+    public boolean tryIncrement(int quantidade) {
+        return addEstoque(quantidade);
+    }
+
+    /**
+     * Makes the units of a persisted {@link #tryIncrement} available for sale.
+     */
+    public void confirmIncrement(int quantidade) {
+        DISPONIVEL.addAndGet(this, quantidade);
+    }
+
+    /**
+     * Mirrors a movement already applied to a location's row and queues it for the beer's row. {@code delta} is
+     * positive for stock that arrived at the location and negative for stock that left it.
+     */
+    public void applyLocal(int delta) {
+        if (delta > 0) {
+            ESTOQUE.addAndGet(this, delta);
+            ALOCADO.addAndGet(this, delta);
+            DISPONIVEL.addAndGet(this, delta);
+        } else {
+            DISPONIVEL.addAndGet(this, delta);
+            ALOCADO.addAndGet(this, delta);
+            ESTOQUE.addAndGet(this, delta);
+        }
+        PENDENTE.addAndGet(this, delta);
+    }
+
+    /**
+     * Adds {@code quantidade} at a location only if the beer's stock at every location stays within {@code max},
+     * and queues it for the beer's row. The caller applies it to the location's row, or undoes it with
+     * {@code applyLocal(-quantidade)} when that fails.
+     */
+    public boolean tryIncrementLocal(int quantidade) {
+        if (!addEstoque(quantidade)) {
+            return false;
+        }
+        ALOCADO.addAndGet(this, quantidade);
+        DISPONIVEL.addAndGet(this, quantidade);
+        PENDENTE.addAndGet(this, quantidade);
+        return true;
+    }
+
+    /**
+     * Gives back the room of a {@link #tryIncrement} that could not be persisted. Its units were never available,
+     * so no sale can have taken them.
+     */
+    public void revertIncrement(int quantidade) {
+        ESTOQUE.addAndGet(this, -quantidade);
+    }
+
+    public int drainPendente() {
+        return PENDENTE.getAndSet(this, 0);
+    }
+
+    public void restorePendente(int delta) {
+        PENDENTE.addAndGet(this, delta);
+    }
+
+    public boolean hasPendente() {
+        return pendente != 0;
+    }
+
+    public int getDisponivel() {
+        return disponivel;
+    }
+
+    public int getReservado() {
+        return reservado;
+    }
+
+    public int getAlocado() {
+        return alocado;
+    }
+
+    /**
+     * Reads {@code estoque} rather than adding {@code disponivel} and {@code reservado}, which a reservation moving
+     * between the two reads could show counted twice or not at all.
+     */
+    public int getQuantidade() {
+        return estoque;
+    }
+
+    public CervejaDTO toDTO() {
+        return new CervejaDTO(id, nome, marca, max, getQuantidade(), tipo);
+    }
+
+    private boolean takeDisponivel(int quantidade) {
+        int current;
+        do {
+            current = disponivel;
+            if (quantidade <= 0 || current - alocado < quantidade) {
+                return false;
+            }
+        } while (!DISPONIVEL.compareAndSet(this, current, current - quantidade));
+        return true;
+    }
+
+    private boolean addEstoque(int quantidade) {
+        int current;
+        do {
+            current = estoque;
+            if (quantidade <= 0 || current + quantidade > max) {
+                return false;
+            }
+        } while (!ESTOQUE.compareAndSet(this, current, current + quantidade));
+        return true;
+    }
+
+    private static AtomicIntegerFieldUpdater<CervejaStockCounter> updater(String campo) {
+        return AtomicIntegerFieldUpdater.newUpdater(CervejaStockCounter.class, campo);
+    }
+}
@@ -0,0 +1,271 @@
+package com.corinto.estoquecerveja.stock;
+
+import com.corinto.estoquecerveja.dto.ReservaDTO;
+import com.corinto.estoquecerveja.entity.Cerveja;
+import com.corinto.estoquecerveja.exception.CervejaNotFoundException;
+import com.corinto.estoquecerveja.exception.CervejaStockExceededException;
+import com.corinto.estoquecerveja.exception.ReservaNotFoundException;
+import com.corinto.estoquecerveja.repository.CervejaRepository;
+import com.corinto.estoquecerveja.repository.EstoqueLocalRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.UUID;
+import java.util.function.Predicate;
+
+/**
+ * In-memory stock. Counters are held in {@link CervejaStockTable}s striped by {@code Cerveja.id}, loaded on first use
+ * and written back to {@link CervejaRepository} asynchronously, so checkouts and receipts never wait on row locks.
+ * Movements at a location reach the beer's row the same way, which keeps its {@code quantidade} as the rollup of
+ * every location without a write to that row per movement.
+ *
+ * <p>A reservation neither committed nor released within {@code estoque.reservas.expire-after} of being made is
+ * released on the next flush, so an abandoned checkout cannot hold stock, or memory, until a restart.
+ *
+ * <p>Receipts are the exception: they are applied to the row at once by a conditional update, so the row's
+ * {@code max} guards them whichever node or batch wrote to it last, and an acknowledged receipt survives a crash.
+ */
+@Slf4j
+@Component
+public class CervejaStockCounters {
+
+    /**
+     * Reservation ids start with the beer id and this separator, so a reservation can be routed by its beer.
+     */
+    public static final String RESERVA_ID_SEPARATOR = "-";
+
+    private static final int STRIPES = 64;
+
+    private final CervejaRepository cervejaRepository;
+    private final EstoqueLocalRepository estoqueLocalRepository;
+    private final CervejaStockTable[] stripes;
+    private final Cache<String, ReservaDTO> reservasCache;
+    private final Map<String, ReservaDTO> reservas;
+
+    @Autowired
+    public CervejaStockCounters(CervejaRepository cervejaRepository,
+                                EstoqueLocalRepository estoqueLocalRepository,
+                                @Value("${estoque.reservas.expire-after:15m}") Duration reservaExpireAfter) {
+        this(cervejaRepository, estoqueLocalRepository, reservaExpireAfter, Ticker.systemTicker());
+    }
+
+    /**
+     * The eviction listener runs as part of the removal, so a reservation is either committed, released or expired,
+     * never two of them.
+     */
+    CervejaStockCounters(CervejaRepository cervejaRepository, EstoqueLocalRepository estoqueLocalRepository,
+                         Duration reservaExpireAfter, Ticker ticker) {
+        this.cervejaRepository = cervejaRepository;
+        this.estoqueLocalRepository = estoqueLocalRepository;
+        this.stripes = new CervejaStockTable[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new CervejaStockTable();
+        }
+        this.reservasCache = Caffeine.newBuilder()
+                .expireAfterWrite(reservaExpireAfter)
+                .ticker(ticker)
+                .<String, ReservaDTO>evictionListener((reservaId, reserva, cause) -> expire(reserva))
+                .build();
+        this.reservas = reservasCache.asMap();
+    }
+
+    public CervejaStockCounter decrement(Long id, int quantidade) throws CervejaNotFoundException, CervejaStockExceededException {
+        CervejaStockCounter counter = counter(id);
+        if (!counter.tryDecrement(quantidade)) {
+            throw new CervejaStockExceededException(id, quantidade);
+        }
+        return counter;
+    }
+
+    public ReservaDTO reserve(Long id, int quantidade) throws CervejaNotFoundException, CervejaStockExceededException {
+        CervejaStockCounter counter = counter(id);
+        if (!counter.tryReserve(quantidade)) {
+            throw new CervejaStockExceededException(id, quantidade);
+        }
+        ReservaDTO reserva = new ReservaDTO(id + RESERVA_ID_SEPARATOR + UUID.randomUUID(), id, quantidade);
+        reservas.put(reserva.getId(), reserva);
+        return reserva;
+    }
+
+    public CervejaStockCounter commit(String reservaId) throws ReservaNotFoundException {
+        ReservaDTO reserva = removeReserva(reservaId);
+        CervejaStockCounter counter = stripe(reserva.getCervejaId()).get(reserva.getCervejaId());
+        if (counter == null) {
+            throw new ReservaNotFoundException(reservaId);
+        }
+        counter.commitReserva(reserva.getQuantidade());
+        return counter;
+    }
+
+    public ReservaDTO findReserva(String reservaId) throws ReservaNotFoundException {
+        ReservaDTO reserva = reservas.get(reservaId);
+        if (reserva == null) {
+            throw new ReservaNotFoundException(reservaId);
+        }
+        return reserva;
+    }
+
+    public void release(String reservaId) throws ReservaNotFoundException {
+        ReservaDTO reserva = removeReserva(reservaId);
+        CervejaStockCounter counter = stripe(reserva.getCervejaId()).get(reserva.getCervejaId());
+        if (counter != null) {
+            counter.releaseReserva(reserva.getQuantidade());
+        }
+    }
+
+    /**
+     * Holds room for {@code quantidade} within {@code max} without queueing it for the database; the caller persists
+     * it and then confirms or reverts it on the returned counter, see {@link CervejaStockCounter#tryIncrement}.
+     */
+    public CervejaStockCounter increment(Long id, int quantidade) throws CervejaNotFoundException, CervejaStockExceededException {
+        CervejaStockCounter counter = counter(id);
+        if (!counter.tryIncrement(quantidade)) {
+            throw new CervejaStockExceededException(id, quantidade);
+        }
+        return counter;
+    }
+
+    /**
+     * Adds {@code quantidade} within {@code max} on the counter, writes the pending sales and then applies the receipt
+     * to the row by a conditional update, so neither the counter nor the row ever goes over {@code max}.
+     */
+    public CervejaStockCounter receive(Long id, int quantidade) throws CervejaNotFoundException, CervejaStockExceededException {
+        CervejaStockCounter counter = increment(id, quantidade);
+        flush(counter);
+        if (cervejaRepository.incrementQuantidade(id, quantidade) == 0) {
+            counter.revertIncrement(quantidade);
+            throw new CervejaStockExceededException(id, quantidade);
+        }
+        counter.confirmIncrement(quantidade);
+        return counter;
+    }
+
+    public void applyIncrement(Long id, int quantidade) {
+        CervejaStockCounter counter = stripe(id).get(id);
+        if (counter != null) {
+            counter.applyIncrement(quantidade);
+        }
+    }
+
+    public OptionalInt quantidade(long id) {
+        CervejaStockCounter counter = stripe(id).get(id);
+        return counter == null ? OptionalInt.empty() : OptionalInt.of(counter.getQuantidade());
+    }
+
+    public void evict(Long id) {
+        stripe(id).remove(id);
+        reservas.values().removeIf(reserva -> reserva.getCervejaId().equals(id));
+    }
+
+    /**
+     * Writes back and drops the counters of the beers {@code retidos} rejects, with their reservations, so the node
+     * that takes them over loads their current stock.
+     */
+    public void handOff(Predicate<Long> retidos) {
+        List<CervejaStockCounter> entregues = new ArrayList<>();
+        for (CervejaStockTable stripe : stripes) {
+            stripe.removeIf(counter -> !retidos.test(counter.getId()), entregues);
+        }
+        entregues.forEach(this::flush);
+        reservas.values().removeIf(reserva -> !retidos.test(reserva.getCervejaId()));
+    }
+
+    /**
+     * Copies an edited beer's nome, marca, max and tipo into its loaded counter, keeping the stock it holds.
+     */
+    public void describe(Cerveja cerveja) {
+        CervejaStockCounter counter = stripe(cerveja.getId()).get(cerveja.getId());
+        if (counter != null) {
+            counter.describe(cerveja);
+        }
+    }
+
+    /**
+     * Writes the pending delta of one beer now, so a database-side check sees the sold units.
+     */
+    public void flush(Long id) {
+        CervejaStockCounter counter = stripe(id).get(id);
+        if (counter != null) {
+            flush(counter);
+        }
+    }
+
+    /**
+     * Also releases the reservations that expired since the last run.
+     */
+    @PreDestroy
+    @Scheduled(fixedDelayString = "${estoque.stock-counters.flush-interval-ms:200}")
+    public void flushAll() {
+        reservasCache.cleanUp();
+        List<CervejaStockCounter> pendentes = new ArrayList<>();
+        for (CervejaStockTable stripe : stripes) {
+            stripe.collect(CervejaStockCounter::hasPendente, pendentes);
+            pendentes.forEach(this::flush);
+            pendentes.clear();
+        }
+    }
+
+    /**
+     * Returns the counter of a beer, loading it with the stock its locations hold on first use. Loads run outside the
+     * stripe's lock and the first one in wins; a load that overlapped an eviction is read again, so it can never bring
+     * back a beer that was deleted meanwhile.
+     */
+    public CervejaStockCounter counter(Long id) throws CervejaNotFoundException {
+        CervejaStockTable stripe = stripe(id);
+        CervejaStockCounter counter = stripe.get(id);
+        while (counter == null) {
+            long remocoes = stripe.remocoes();
+            CervejaStockCounter carregado = cervejaRepository.findById(id)
+                    .map(cerveja -> new CervejaStockCounter(cerveja, (int) estoqueLocalRepository.sumQuantidade(id)))
+                    .orElseThrow(() -> new CervejaNotFoundException(id));
+            counter = stripe.putIfAbsent(carregado, remocoes);
+        }
+        return counter;
+    }
+
+    private void flush(CervejaStockCounter counter) {
+        int delta = counter.drainPendente();
+        if (delta == 0) {
+            return;
+        }
+        try {
+            cervejaRepository.adjustQuantidade(counter.getId(), delta);
+        } catch (RuntimeException e) {
+            log.warn("Could not flush stock of beer {}, will retry: {}", counter.getId(), e.getMessage());
+            counter.restorePendente(delta);
+        }
+    }
+
+    private void expire(ReservaDTO reserva) {
+        CervejaStockCounter counter = stripe(reserva.getCervejaId()).get(reserva.getCervejaId());
+        if (counter != null) {
+            counter.releaseReserva(reserva.getQuantidade());
+        }
+        log.debug("Reservation {} expired, released {} of beer {}", reserva.getId(), reserva.getQuantidade(), reserva.getCervejaId());
+    }
+
+    private ReservaDTO removeReserva(String reservaId) throws ReservaNotFoundException {
+        ReservaDTO reserva = reservas.remove(reservaId);
+        if (reserva == null) {
+            throw new ReservaNotFoundException(reservaId);
+        }
+        return reserva;
+    }
+
+    private CervejaStockTable stripe(long id) {
+        int hash = Long.hashCode(id);
+        return stripes[(hash ^ (hash >>> 16)) & (STRIPES - 1)];
+    }
+}
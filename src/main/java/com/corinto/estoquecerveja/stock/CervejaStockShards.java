@@ -0,0 +1,110 @@
+package com.corinto.estoquecerveja.stock;
+
+import com.corinto.estoquecerveja.dto.EstoqueLocalDTO;
+import com.corinto.estoquecerveja.entity.EstoqueLocal;
+import com.corinto.estoquecerveja.enums.ModoCapacidade;
+import com.corinto.estoquecerveja.exception.CervejaNotFoundException;
+import com.corinto.estoquecerveja.exception.CervejaStockExceededException;
+import com.corinto.estoquecerveja.exception.EstoqueLocalNotFoundException;
+import com.corinto.estoquecerveja.repository.EstoqueLocalRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Stock of each beer split by location. A movement at a location is one conditional update of that location's
+ * row, mirrored into the beer's {@link CervejaStockCounter}, which rolls it into the beer's row in the background.
+ *
+ * <p>With {@code estoque.locais.capacidade=LOCAL} an increment is bounded by the location's own {@code max}, checked
+ * by the update itself. With {@code GLOBAL} it is bounded by the beer's {@code max} against its stock at every
+ * location, checked on the in-memory counter first, and the locations' {@code max} is not enforced.
+ */
+@Component
+public class CervejaStockShards {
+
+    private final EstoqueLocalRepository repository;
+    private final CervejaStockCounters stockCounters;
+    private final ModoCapacidade modoCapacidade;
+
+    @Autowired
+    public CervejaStockShards(EstoqueLocalRepository repository,
+                              CervejaStockCounters stockCounters,
+                              @Value("${estoque.locais.capacidade:LOCAL}") ModoCapacidade modoCapacidade) {
+        this.repository = repository;
+        this.stockCounters = stockCounters;
+        this.modoCapacidade = modoCapacidade;
+    }
+
+    public List<EstoqueLocalDTO> findAll(Long cervejaId) {
+        return repository.findDTOsByCervejaId(cervejaId);
+    }
+
+    public EstoqueLocalDTO find(Long cervejaId, String local) throws EstoqueLocalNotFoundException {
+        return repository.findDTO(cervejaId, local)
+                .orElseThrow(() -> new EstoqueLocalNotFoundException(cervejaId, local));
+    }
+
+    /**
+     * Opens the location with an empty stock, or changes its capacity. Under {@code LOCAL} capacity the new
+     * {@code max} cannot be below what the location holds.
+     */
+    public EstoqueLocalDTO setCapacity(Long cervejaId, String local, int max)
+            throws EstoqueLocalNotFoundException, CervejaStockExceededException {
+        Optional<EstoqueLocal> estoqueLocal = repository.findByCervejaIdAndLocal(cervejaId, local);
+        if (estoqueLocal.isEmpty()) {
+            repository.save(new EstoqueLocal(null, cervejaId, local, max, 0));
+        } else if (modoCapacidade == ModoCapacidade.GLOBAL) {
+            repository.setMax(cervejaId, local, max);
+        } else if (repository.updateMax(cervejaId, local, max) == 0) {
+            throw new CervejaStockExceededException(cervejaId, estoqueLocal.get().getQuantidade() - max);
+        }
+        return find(cervejaId, local);
+    }
+
+    public CervejaStockCounter increment(Long cervejaId, String local, int quantidade)
+            throws CervejaNotFoundException, EstoqueLocalNotFoundException, CervejaStockExceededException {
+        CervejaStockCounter counter = stockCounters.counter(cervejaId);
+        if (modoCapacidade == ModoCapacidade.GLOBAL) {
+            if (!counter.tryIncrementLocal(quantidade)) {
+                throw new CervejaStockExceededException(cervejaId, quantidade);
+            }
+            if (repository.increment(cervejaId, local, quantidade) == 0) {
+                counter.applyLocal(-quantidade);
+                throw new EstoqueLocalNotFoundException(cervejaId, local);
+            }
+            return counter;
+        }
+        if (quantidade <= 0 || repository.incrementWithinMax(cervejaId, local, quantidade) == 0) {
+            throw exceeded(cervejaId, local, quantidade);
+        }
+        counter.applyLocal(quantidade);
+        return counter;
+    }
+
+    public CervejaStockCounter decrement(Long cervejaId, String local, int quantidade)
+            throws CervejaNotFoundException, EstoqueLocalNotFoundException, CervejaStockExceededException {
+        CervejaStockCounter counter = stockCounters.counter(cervejaId);
+        if (quantidade <= 0 || repository.decrement(cervejaId, local, quantidade) == 0) {
+            throw exceeded(cervejaId, local, quantidade);
+        }
+        counter.applyLocal(-quantidade);
+        return counter;
+    }
+
+    public void deleteAll(Long cervejaId) {
+        repository.deleteByCervejaId(cervejaId);
+    }
+
+    /**
+     * Tells a missing location apart from a condition that did not hold, once the update has touched no row.
+     */
+    private CervejaStockExceededException exceeded(Long cervejaId, String local, int quantidade) throws EstoqueLocalNotFoundException {
+        if (repository.findByCervejaIdAndLocal(cervejaId, local).isEmpty()) {
+            throw new EstoqueLocalNotFoundException(cervejaId, local);
+        }
+        return new CervejaStockExceededException(cervejaId, quantidade);
+    }
+}
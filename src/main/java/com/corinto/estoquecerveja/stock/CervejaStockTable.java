@@ -0,0 +1,217 @@
+package com.corinto.estoquecerveja.stock;
+
+import java.util.Collection;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Predicate;
+
+/**
+ * Open-addressing table from a beer id to its {@link CervejaStockCounter}, keyed by primitive longs in a parallel
+ * array, so a lookup neither boxes the id nor walks map nodes, and a loaded beer costs two array slots besides its
+ * counter. Linear probing keeps a lookup within a cache line or two; the table is kept at most half full and removals
+ * shift the following entries back instead of leaving tombstones.
+ *
+ * <p>Lookups are optimistic and take no lock unless a write overlapped them. Writes take the write lock, and a
+ * resize builds new arrays, so a lookup that raced one only ever reads a consistent pair of arrays before it is
+ * retried.
+ */
+final class CervejaStockTable {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final StampedLock lock = new StampedLock();
+    private Slots slots = new Slots(INITIAL_CAPACITY);
+    private int size;
+    private volatile long remocoes;
+
+    CervejaStockCounter get(long id) {
+        long stamp = lock.tryOptimisticRead();
+        CervejaStockCounter counter = slots.find(id);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                counter = slots.find(id);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return counter;
+    }
+
+    /**
+     * How many removals ran so far. A counter loaded before a removal may describe a beer that is gone, so
+     * {@link #putIfAbsent} only takes it if this has not moved since the load started.
+     */
+    long remocoes() {
+        return remocoes;
+    }
+
+    /**
+     * Adds {@code counter} unless its beer already has one, and returns the counter the table holds for it; or null,
+     * adding nothing, when a removal ran since {@code remocoesAntes} was read.
+     */
+    CervejaStockCounter putIfAbsent(CervejaStockCounter counter, long remocoesAntes) {
+        long stamp = lock.writeLock();
+        try {
+            CervejaStockCounter atual = slots.find(counter.getId());
+            if (atual != null) {
+                return atual;
+            }
+            if (remocoes != remocoesAntes) {
+                return null;
+            }
+            if (2 * (size + 1) > slots.ids.length) {
+                slots = slots.resize(2 * slots.ids.length);
+            }
+            slots.insert(counter);
+            size++;
+            return counter;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Counts as a removal even when the beer has no counter yet, since its counter may be loading.
+     */
+    CervejaStockCounter remove(long id) {
+        long stamp = lock.writeLock();
+        try {
+            remocoes++;
+            int slot = slots.indexOf(id);
+            if (slot < 0) {
+                return null;
+            }
+            CervejaStockCounter counter = slots.counters[slot];
+            slots.delete(slot);
+            size--;
+            return counter;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Adds the counters {@code filtro} accepts to {@code destino}.
+     */
+    void collect(Predicate<CervejaStockCounter> filtro, Collection<? super CervejaStockCounter> destino) {
+        long stamp = lock.readLock();
+        try {
+            for (CervejaStockCounter counter : slots.counters) {
+                if (counter != null && filtro.test(counter)) {
+                    destino.add(counter);
+                }
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Removes the counters {@code filtro} accepts and adds them to {@code removidos}.
+     */
+    void removeIf(Predicate<CervejaStockCounter> filtro, Collection<? super CervejaStockCounter> removidos) {
+        long stamp = lock.writeLock();
+        try {
+            for (int slot = 0; slot < slots.counters.length; ) {
+                CervejaStockCounter counter = slots.counters[slot];
+                if (counter != null && filtro.test(counter)) {
+                    removidos.add(counter);
+                    slots.delete(slot);
+                    size--;
+                    remocoes++;
+                } else {
+                    slot++;
+                }
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * A power-of-two pair of arrays; a slot is free when its counter is null.
+     */
+    private static final class Slots {
+
+        private final long[] ids;
+        private final CervejaStockCounter[] counters;
+        private final int mascara;
+
+        private Slots(int capacity) {
+            this.ids = new long[capacity];
+            this.counters = new CervejaStockCounter[capacity];
+            this.mascara = capacity - 1;
+        }
+
+        /**
+         * Bounded by the capacity, so a lookup reading arrays a writer is changing still ends.
+         */
+        private CervejaStockCounter find(long id) {
+            int slot = home(id);
+            for (int i = 0; i <= mascara; i++) {
+                CervejaStockCounter counter = counters[slot];
+                if (counter == null) {
+                    return null;
+                }
+                if (ids[slot] == id) {
+                    return counter;
+                }
+                slot = (slot + 1) & mascara;
+            }
+            return null;
+        }
+
+        private int indexOf(long id) {
+            for (int slot = home(id); counters[slot] != null; slot = (slot + 1) & mascara) {
+                if (ids[slot] == id) {
+                    return slot;
+                }
+            }
+            return -1;
+        }
+
+        private void insert(CervejaStockCounter counter) {
+            int slot = home(counter.getId());
+            while (counters[slot] != null) {
+                slot = (slot + 1) & mascara;
+            }
+            ids[slot] = counter.getId();
+            counters[slot] = counter;
+        }
+
+        /**
+         * Frees {@code slot} and moves back every following entry of the run that probing would no longer reach.
+         */
+        private void delete(int slot) {
+            int livre = slot;
+            for (int atual = (livre + 1) & mascara; counters[atual] != null; atual = (atual + 1) & mascara) {
+                int origem = home(ids[atual]);
+                if (((atual - origem) & mascara) >= ((atual - livre) & mascara)) {
+                    ids[livre] = ids[atual];
+                    counters[livre] = counters[atual];
+                    livre = atual;
+                }
+            }
+            counters[livre] = null;
+            ids[livre] = 0L;
+        }
+
+        private Slots resize(int capacity) {
+            Slots maior = new Slots(capacity);
+            for (CervejaStockCounter counter : counters) {
+                if (counter != null) {
+                    maior.insert(counter);
+                }
+            }
+            return maior;
+        }
+
+        /**
+         * Ids are mostly sequential, so they are mixed before masking to spread runs of them over the table.
+         */
+        private int home(long id) {
+            long hash = id * 0x9E3779B97F4A7C15L;
+            return (int) (hash ^ (hash >>> 32)) & mascara;
+        }
+    }
+}
@@ -0,0 +1,356 @@
+package com.corinto.estoquecerveja.stream;
+
+import com.corinto.estoquecerveja.dto.CervejaDTO;
+import com.corinto.estoquecerveja.enums.Tipo;
+import com.corinto.estoquecerveja.event.CervejaChangedEvent;
+import com.corinto.estoquecerveja.stock.CervejaStockCounters;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Pushes committed beer changes to Server-Sent Events subscribers.
+ *
+ * <p>The listener only records the change by beer id and wakes a single fan-out thread, so the write path never
+ * waits on subscribers. The fan-out thread serializes each change once and offers it to every subscriber whose filter
+ * matches. The quantidade sent is read from the beer's live stock counter at that point rather than taken from the
+ * event, since two changes to one beer can reach the listener in the opposite order they were made in; only a beer
+ * with no counter loaded here falls back to the quantidade of its latest event. A subscriber holds at most
+ * {@code estoque.stream.buffer-size} pending changes, also keyed by beer id: a newer change to a beer replaces the
+ * pending one, so clients only ever receive the latest state of a beer. A pending deletion is never replaced: a
+ * change to the beer that reaches the listener after it was still made before the beer was deleted. A subscriber that
+ * falls further behind is disconnected and has to reload the catalogue. Sends run on
+ * {@code estoque.stream.dispatch-threads} threads, one batch per subscriber at a time. A client that stops reading
+ * holds one of them until the container's write timeout, so the pool is sized for stalled clients, not for CPUs.
+ */
+@Slf4j
+@Component
+public class StockChangeBroadcaster {
+
+    static final String SUBSCRIBERS_GAUGE = "cervejas.stream.subscribers";
+    static final String COALESCED_COUNTER = "cervejas.stream.coalesced";
+    static final String DROPPED_COUNTER = "cervejas.stream.dropped";
+
+    private final ObjectMapper objectMapper;
+    private final CervejaStockCounters stockCounters;
+    private final int bufferSize;
+    private final Supplier<SseEmitter> emitters;
+    private final Executor fanOut;
+    private final Executor dispatcher;
+    private final Set<Assinante> assinantes = ConcurrentHashMap.newKeySet();
+    private final Map<Long, CervejaChangedEvent> pendentes = new ConcurrentHashMap<>();
+    private final AtomicBoolean fanOutAgendado = new AtomicBoolean();
+    private final Counter coalesced;
+    private final Counter dropped;
+
+    @Autowired
+    public StockChangeBroadcaster(ObjectMapper objectMapper,
+                                  CervejaStockCounters stockCounters,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${estoque.stream.buffer-size:256}") int bufferSize,
+                                  @Value("${estoque.stream.dispatch-threads:16}") int dispatchThreads,
+                                  @Value("${estoque.stream.timeout:30m}") Duration timeout) {
+        this(objectMapper, stockCounters, meterRegistry, bufferSize, () -> new SseEmitter(timeout.toMillis()),
+                Executors.newSingleThreadExecutor(daemon("stock-stream-fan-out-")),
+                Executors.newFixedThreadPool(dispatchThreads, daemon("stock-stream-dispatch-")));
+    }
+
+    StockChangeBroadcaster(ObjectMapper objectMapper,
+                           CervejaStockCounters stockCounters,
+                           MeterRegistry meterRegistry,
+                           int bufferSize,
+                           Supplier<SseEmitter> emitters,
+                           Executor fanOut,
+                           Executor dispatcher) {
+        this.objectMapper = objectMapper;
+        this.stockCounters = stockCounters;
+        this.bufferSize = bufferSize;
+        this.emitters = emitters;
+        this.fanOut = fanOut;
+        this.dispatcher = dispatcher;
+        Gauge.builder(SUBSCRIBERS_GAUGE, assinantes, Set::size).register(meterRegistry);
+        this.coalesced = Counter.builder(COALESCED_COUNTER).register(meterRegistry);
+        this.dropped = Counter.builder(DROPPED_COUNTER).register(meterRegistry);
+    }
+
+    /**
+     * Opens a stream of changes to the beers of one of {@code tipos} or one of {@code ids}. With neither, every change
+     * is sent. Each event is named after its {@link CervejaChangedEvent.Operacao} and carries the beer as JSON.
+     */
+    public SseEmitter subscribe(Set<Tipo> tipos, Set<Long> ids) {
+        SseEmitter emitter = emitters.get();
+        Assinante assinante = new Assinante(emitter,
+                tipos == null ? Set.of() : Set.copyOf(tipos),
+                ids == null ? Set.of() : Set.copyOf(ids));
+        emitter.onCompletion(assinante::fechar);
+        emitter.onTimeout(assinante::fechar);
+        emitter.onError(e -> assinante.fechar());
+        assinantes.add(assinante);
+        return emitter;
+    }
+
+    /**
+     * Runs after the change commits, so rolled-back changes are never pushed.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCervejaChanged(CervejaChangedEvent event) {
+        if (assinantes.isEmpty()) {
+            return;
+        }
+        pendentes.compute(event.getCerveja().getId(), (id, pendente) -> {
+            if (pendente == null) {
+                return event;
+            }
+            coalesced.increment();
+            return pendente.getOperacao() == CervejaChangedEvent.Operacao.DELETED ? pendente : event;
+        });
+        if (fanOutAgendado.compareAndSet(false, true)) {
+            fanOut.execute(this::fanOut);
+        }
+    }
+
+    /**
+     * Keeps idle connections open through proxies and finds the clients that went away without closing them.
+     */
+    @Scheduled(fixedDelayString = "${estoque.stream.heartbeat-interval-ms:15000}")
+    public void heartbeat() {
+        assinantes.forEach(Assinante::ping);
+    }
+
+    /**
+     * Ends every stream while the server is still up, before shutdown stops it under the open connections.
+     */
+    @EventListener(ContextClosedEvent.class)
+    public void closeSubscribers() {
+        assinantes.forEach(Assinante::encerrar);
+    }
+
+    @PreDestroy
+    public void stop() {
+        for (Executor executor : List.of(fanOut, dispatcher)) {
+            if (executor instanceof ExecutorService) {
+                ((ExecutorService) executor).shutdownNow();
+            }
+        }
+    }
+
+    private void fanOut() {
+        do {
+            try {
+                for (Long id : pendentes.keySet()) {
+                    CervejaChangedEvent event = pendentes.remove(id);
+                    if (event != null) {
+                        publish(event);
+                    }
+                }
+            } finally {
+                fanOutAgendado.set(false);
+            }
+        } while (!pendentes.isEmpty() && fanOutAgendado.compareAndSet(false, true));
+    }
+
+    private void publish(CervejaChangedEvent event) {
+        CervejaDTO cerveja = event.getCerveja().toBuilder().build();
+        if (event.getOperacao() != CervejaChangedEvent.Operacao.DELETED) {
+            stockCounters.quantidade(cerveja.getId()).ifPresent(cerveja::setQuantidade);
+        }
+        Mensagem mensagem;
+        try {
+            mensagem = new Mensagem(event, objectMapper.writeValueAsString(cerveja));
+        } catch (JsonProcessingException e) {
+            log.warn("Could not serialize the change to beer {}, it is not pushed: {}", event.getCerveja().getId(), e.getMessage());
+            return;
+        }
+        for (Assinante assinante : assinantes) {
+            if (assinante.aceita(mensagem)) {
+                assinante.offer(mensagem);
+            }
+        }
+    }
+
+    private static CustomizableThreadFactory daemon(String prefixo) {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(prefixo);
+        threadFactory.setDaemon(true);
+        return threadFactory;
+    }
+
+    private static final class Mensagem {
+
+        private final Long id;
+        private final Tipo tipo;
+        private final String operacao;
+        private final String json;
+        private final boolean excluida;
+
+        private Mensagem(CervejaChangedEvent event, String json) {
+            this.id = event.getCerveja().getId();
+            this.tipo = event.getCerveja().getTipo();
+            this.operacao = event.getOperacao().name();
+            this.excluida = event.getOperacao() == CervejaChangedEvent.Operacao.DELETED;
+            this.json = json;
+        }
+    }
+
+    /**
+     * The pending messages and flags are guarded by the subscriber's monitor. The emitter is never called while
+     * holding it, since a send holds the emitter's own monitor for as long as the client takes to read. Handing a
+     * drain to the dispatcher under it is fine: the dispatcher only queues it.
+     */
+    private final class Assinante {
+
+        private final SseEmitter emitter;
+        private final Set<Tipo> tipos;
+        private final Set<Long> ids;
+        private final Map<Long, Mensagem> pendentes = new LinkedHashMap<>();
+        private boolean agendado;
+        private boolean heartbeat;
+        private boolean fechado;
+
+        private Assinante(SseEmitter emitter, Set<Tipo> tipos, Set<Long> ids) {
+            this.emitter = emitter;
+            this.tipos = tipos;
+            this.ids = ids;
+        }
+
+        private boolean aceita(Mensagem mensagem) {
+            return tipos.isEmpty() && ids.isEmpty() || tipos.contains(mensagem.tipo) || ids.contains(mensagem.id);
+        }
+
+        private void offer(Mensagem mensagem) {
+            synchronized (this) {
+                if (fechado) {
+                    return;
+                }
+                Mensagem pendente = pendentes.get(mensagem.id);
+                if (pendente != null) {
+                    coalesced.increment();
+                }
+                if (pendente == null || !pendente.excluida) {
+                    pendentes.put(mensagem.id, mensagem);
+                }
+                if (pendentes.size() <= bufferSize) {
+                    if (schedule()) {
+                        dispatcher.execute(this::drain);
+                    }
+                    return;
+                }
+            }
+            if (encerrar()) {
+                dropped.increment();
+            }
+        }
+
+        /**
+         * Only completes the emitter here when no send is queued or running. Otherwise the send may be blocked on a
+         * client that stopped reading, and completing would block the caller behind it; the drain completes it
+         * instead once the send returns.
+         */
+        private boolean encerrar() {
+            boolean completar;
+            synchronized (this) {
+                if (fechado) {
+                    return false;
+                }
+                fechado = true;
+                pendentes.clear();
+                completar = !agendado;
+            }
+            assinantes.remove(this);
+            if (completar) {
+                emitter.complete();
+            }
+            return true;
+        }
+
+        private void ping() {
+            synchronized (this) {
+                if (fechado) {
+                    return;
+                }
+                heartbeat = true;
+                if (schedule()) {
+                    dispatcher.execute(this::drain);
+                }
+            }
+        }
+
+        private boolean schedule() {
+            if (agendado) {
+                return false;
+            }
+            agendado = true;
+            return true;
+        }
+
+        private void drain() {
+            List<Mensagem> lote;
+            boolean ping;
+            synchronized (this) {
+                lote = new ArrayList<>(pendentes.values());
+                pendentes.clear();
+                ping = heartbeat;
+                heartbeat = false;
+            }
+            try {
+                if (ping) {
+                    emitter.send(SseEmitter.event().comment("heartbeat"));
+                }
+                for (Mensagem mensagem : lote) {
+                    emitter.send(SseEmitter.event().name(mensagem.operacao).data(mensagem.json));
+                }
+            } catch (IOException | IllegalStateException e) {
+                log.debug("Stock change subscriber went away: {}", e.getMessage());
+                fechar();
+                return;
+            }
+            boolean completar;
+            synchronized (this) {
+                completar = fechado;
+                agendado = !fechado && (!pendentes.isEmpty() || heartbeat);
+                if (!agendado && !completar) {
+                    return;
+                }
+            }
+            if (completar) {
+                emitter.complete();
+                return;
+            }
+            dispatcher.execute(this::drain);
+        }
+
+        private void fechar() {
+            synchronized (this) {
+                fechado = true;
+                pendentes.clear();
+            }
+            assinantes.remove(this);
+        }
+    }
+}
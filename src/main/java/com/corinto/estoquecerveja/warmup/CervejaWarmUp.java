@@ -0,0 +1,250 @@
+package com.corinto.estoquecerveja.warmup;
+
+import com.corinto.estoquecerveja.analytics.CervejaStockAnalytics;
+import com.corinto.estoquecerveja.cache.CervejaCache;
+import com.corinto.estoquecerveja.dto.CervejaDTO;
+import com.corinto.estoquecerveja.repository.CervejaRepository;
+import com.corinto.estoquecerveja.search.CervejaSearchIndex;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Loads the catalogue into the in-memory read paths once the application is ready: the search index, the stock
+ * analytics and, when the previous run left its hottest nomes in {@code estoque.warm-up.cache-keys}, the nome cache.
+ *
+ * <p>The id range is split into slices of {@code estoque.warm-up.slice-size} ids, read on
+ * {@code estoque.warm-up.threads} threads and at most two slices per thread ahead of the slowest consumer. Each
+ * consumer takes the slices in id order on its own thread, so the three are filled from a single scan while it runs.
+ * The first slice is only read once the index and the analytics queue the changes that arrive, so a change committed
+ * during the warm-up is replayed on top of what they read instead of being overwritten. Neither holds its lock while
+ * it reads, so both keep serving the contents they had until they swap. The cache checks its generation instead.
+ */
+@Slf4j
+@Component
+public class CervejaWarmUp {
+
+    private final CervejaRepository cervejaRepository;
+    private final CervejaSearchIndex searchIndex;
+    private final CervejaStockAnalytics stockAnalytics;
+    private final CervejaCache cervejaCache;
+    private final int threads;
+    private final int sliceSize;
+    private final Path cacheKeys;
+
+    @Autowired
+    public CervejaWarmUp(CervejaRepository cervejaRepository,
+                         CervejaSearchIndex searchIndex,
+                         CervejaStockAnalytics stockAnalytics,
+                         CervejaCache cervejaCache,
+                         @Value("${estoque.warm-up.threads:4}") int threads,
+                         @Value("${estoque.warm-up.slice-size:20000}") int sliceSize,
+                         @Value("${estoque.warm-up.cache-keys:}") String cacheKeys) {
+        this.cervejaRepository = cervejaRepository;
+        this.searchIndex = searchIndex;
+        this.stockAnalytics = stockAnalytics;
+        this.cervejaCache = cervejaCache;
+        this.threads = threads;
+        this.sliceSize = sliceSize;
+        this.cacheKeys = cacheKeys.isBlank() ? null : Path.of(cacheKeys);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        long inicio = System.nanoTime();
+        long generation = cervejaCache.generation();
+        Set<String> nomes = loadCacheKeys();
+        long maxId = cervejaRepository.findMaxId().orElse(0L);
+        Leitura leitura = new Leitura((int) ((maxId + sliceSize - 1) / sliceSize), nomes.isEmpty() ? 2 : 3);
+
+        List<Consumidor> consumidores = new ArrayList<>(List.of(
+                new Consumidor(leitura, true, searchIndex::rebuild),
+                new Consumidor(leitura, true, stockAnalytics::rebuild)));
+        if (!nomes.isEmpty()) {
+            consumidores.add(new Consumidor(leitura, false,
+                    cervejas -> cervejaCache.warm(cervejas.filter(cervejaDTO -> nomes.contains(cervejaDTO.getNome())), generation)));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(consumidores.size(), daemon("warm-up-"));
+        try {
+            CompletableFuture.allOf(consumidores.stream()
+                    .map(consumidor -> CompletableFuture.runAsync(consumidor, executor))
+                    .toArray(CompletableFuture[]::new)).join();
+            log.info("Warmed up the read paths from {} slices in {} ms", leitura.fatias, (System.nanoTime() - inicio) / 1_000_000);
+        } finally {
+            executor.shutdownNow();
+            leitura.leitores.shutdownNow();
+        }
+    }
+
+    /**
+     * Saves the nomes the cache would keep longest, for the next start to warm it with. Runs before the cache stops
+     * being used, while the context is closing.
+     */
+    @EventListener(ContextClosedEvent.class)
+    public void saveCacheKeys() {
+        if (cacheKeys == null) {
+            return;
+        }
+        try {
+            Files.createDirectories(cacheKeys.toAbsolutePath().getParent());
+            Path temporario = cacheKeys.resolveSibling(cacheKeys.getFileName() + ".tmp");
+            Files.write(temporario, cervejaCache.hottest(), StandardCharsets.UTF_8);
+            Files.move(temporario, cacheKeys, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Could not save the cached nomes to {}: {}", cacheKeys, e.getMessage());
+        }
+    }
+
+    private Set<String> loadCacheKeys() {
+        if (cacheKeys == null || !Files.exists(cacheKeys)) {
+            return Set.of();
+        }
+        try {
+            return new HashSet<>(Files.readAllLines(cacheKeys, StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            log.warn("Could not read the cached nomes from {}, the cache starts cold: {}", cacheKeys, e.getMessage());
+            return Set.of();
+        }
+    }
+
+    private static CustomizableThreadFactory daemon(String prefixo) {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(prefixo);
+        threadFactory.setDaemon(true);
+        return threadFactory;
+    }
+
+    /**
+     * The slices of one warm-up. A slice is dropped once every consumer is past it, and that lets the next slice
+     * past the window be read.
+     */
+    private final class Leitura {
+
+        private final int fatias;
+        private final int janela;
+        private final AtomicReferenceArray<CompletableFuture<List<CervejaDTO>>> lidas;
+        private final AtomicIntegerArray pendentes;
+        private final AtomicInteger aguardando = new AtomicInteger(2);
+        private final ExecutorService leitores = Executors.newFixedThreadPool(threads, daemon("warm-up-reader-"));
+
+        private Leitura(int fatias, int consumidores) {
+            this.fatias = fatias;
+            this.janela = Math.max(1, threads * 2);
+            this.lidas = new AtomicReferenceArray<>(fatias);
+            this.pendentes = new AtomicIntegerArray(fatias);
+            for (int fatia = 0; fatia < fatias; fatia++) {
+                lidas.set(fatia, new CompletableFuture<>());
+                pendentes.set(fatia, consumidores);
+            }
+        }
+
+        /**
+         * Called once by each consumer whose read path queues changes while it rebuilds; the last one starts the reads.
+         */
+        private void travado() {
+            if (aguardando.decrementAndGet() == 0) {
+                for (int fatia = 0; fatia < Math.min(janela, fatias); fatia++) {
+                    ler(fatia);
+                }
+            }
+        }
+
+        private List<CervejaDTO> get(int fatia) {
+            return lidas.get(fatia).join();
+        }
+
+        /**
+         * Slices are consumed in order by every consumer, so they are released in order too.
+         */
+        private void consumida(int fatia) {
+            if (pendentes.decrementAndGet(fatia) == 0) {
+                lidas.set(fatia, null);
+                if (fatia + janela < fatias) {
+                    ler(fatia + janela);
+                }
+            }
+        }
+
+        private void ler(int fatia) {
+            CompletableFuture<List<CervejaDTO>> lida = lidas.get(fatia);
+            leitores.execute(() -> {
+                try {
+                    lida.complete(cervejaRepository.findDTOsBetween((long) fatia * sliceSize, (long) (fatia + 1) * sliceSize));
+                } catch (RuntimeException e) {
+                    lida.completeExceptionally(e);
+                }
+            });
+        }
+    }
+
+    /**
+     * Hands the slices to one read path as a single stream. Whatever happens to the stream, every slice is released
+     * and a queuing consumer signals once, so the other consumers never wait on it.
+     */
+    private static final class Consumidor implements Runnable {
+
+        private final Leitura leitura;
+        private final boolean trava;
+        private final Consumer<Stream<CervejaDTO>> destino;
+        private boolean sinalizado;
+        private int liberadas;
+
+        private Consumidor(Leitura leitura, boolean trava, Consumer<Stream<CervejaDTO>> destino) {
+            this.leitura = leitura;
+            this.trava = trava;
+            this.destino = destino;
+        }
+
+        @Override
+        public void run() {
+            try {
+                destino.accept(IntStream.range(0, leitura.fatias).mapToObj(this::fatia).flatMap(List::stream));
+            } finally {
+                sinalizar();
+                liberarAte(leitura.fatias);
+            }
+        }
+
+        private List<CervejaDTO> fatia(int fatia) {
+            sinalizar();
+            liberarAte(fatia);
+            return leitura.get(fatia);
+        }
+
+        private void sinalizar() {
+            if (trava && !sinalizado) {
+                sinalizado = true;
+                leitura.travado();
+            }
+        }
+
+        private void liberarAte(int fatia) {
+            while (liberadas < fatia) {
+                leitura.consumida(liberadas++);
+            }
+        }
+    }
+}
@@ -0,0 +1,8 @@
+create table if not exists cerveja (
+    id bigint generated by default as identity primary key,
+    nome varchar(255) not null unique,
+    marca varchar(255) not null,
+    max integer not null,
+    quantidade integer not null,
+    tipo varchar(255) not null
+);
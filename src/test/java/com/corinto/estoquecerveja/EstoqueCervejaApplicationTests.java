@@ -1,13 +1,179 @@
 package com.corinto.estoquecerveja;
 
+import com.corinto.estoquecerveja.builder.CervejaDTOBuilder;
+import com.corinto.estoquecerveja.dto.CervejaDTO;
+import com.corinto.estoquecerveja.dto.EstoqueLocalDTO;
+import com.corinto.estoquecerveja.dto.ImportacaoResultadoDTO;
+import com.corinto.estoquecerveja.entity.Cerveja;
+import com.corinto.estoquecerveja.entity.Movimento;
+import com.corinto.estoquecerveja.event.CervejaChangeCounter;
+import com.corinto.estoquecerveja.event.CervejaChangedEvent;
+import com.corinto.estoquecerveja.exception.CervejaNotFoundException;
+import com.corinto.estoquecerveja.history.StockHistory;
+import com.corinto.estoquecerveja.repository.CervejaRepository;
+import com.corinto.estoquecerveja.repository.EstoqueSnapshotRepository;
+import com.corinto.estoquecerveja.repository.MovimentoRepository;
+import com.corinto.estoquecerveja.exception.CervejaStockExceededException;
+import com.corinto.estoquecerveja.service.CervejaService;
+import com.corinto.estoquecerveja.stock.CervejaStockCounters;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+
+import java.io.StringReader;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doAnswer;
 
 @SpringBootTest
 class EstoqueCervejaApplicationTests {
 
+	@Autowired
+	private CervejaRepository cervejaRepository;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Autowired
+	private MovimentoRepository movimentoRepository;
+
+	@Autowired
+	private EstoqueSnapshotRepository snapshotRepository;
+
+	@Autowired
+	private StockHistory stockHistory;
+
+	@Autowired
+	private CervejaService cervejaService;
+
+	@Autowired
+	private CervejaStockCounters stockCounters;
+
+	@SpyBean
+	private CervejaChangeCounter changeCounter;
+
 	@Test
 	void contextLoads() {
 	}
 
+	@Test
+	void repositoryCallsArePublishedAsMetrics() {
+		cervejaRepository.count();
+
+		assertNotNull(meterRegistry.find("cervejas.repository").tag("method", "count").timer());
+		assertNotNull(meterRegistry.find("hikaricp.connections").gauge());
+		assertNotNull(meterRegistry.find("hibernate.sessions.open").functionCounter());
+	}
+
+	@Test
+	void closedBucketsAreCompactedIntoSnapshots() {
+		long hora = 3_600_000L;
+		Long cervejaId = 999_999L;
+		movimentoRepository.batchInsert(List.of(
+				new Movimento(null, 0, cervejaId, 10, 10, Instant.parse("1970-01-01T00:10:00Z")),
+				new Movimento(null, 0, cervejaId, -3, 7, Instant.parse("1970-01-01T00:50:00Z")),
+				new Movimento(null, 1, cervejaId, 5, 12, Instant.parse("1970-01-01T01:20:00Z"))));
+		try {
+			assertEquals(2, movimentoRepository.compact(0, 2, hora, 1));
+
+			assertEquals(1, movimentoRepository.count());
+			assertEquals(7, stockHistory.stockAt(cervejaId, Instant.parse("1970-01-01T01:10:00Z")).getQuantidade());
+			assertEquals(12, stockHistory.stockAt(cervejaId, Instant.parse("1970-01-01T01:30:00Z")).getQuantidade());
+			assertEquals(12, stockHistory.stockAt(cervejaId, Instant.parse("1970-01-01T05:00:00Z")).getQuantidade());
+		} finally {
+			movimentoRepository.deleteAll();
+			snapshotRepository.deleteAll();
+		}
+	}
+
+	@Test
+	void importedBeersTakeIdsFromTheSameSequenceAsJpaInserts() throws Exception {
+		StringBuilder csv = new StringBuilder("nome,marca,max,quantidade,tipo\n");
+		for (int i = 0; i < 120; i++) {
+			csv.append("Importada ").append(i).append(",Ambev,50,10,LAGER\n");
+		}
+		csv.append("Antes,Ambev,50,10,LAGER\n");
+		try {
+			cervejaService.createCerveja(CervejaDTOBuilder.builder().id(null).nome("Antes").build().toCervejaDTO());
+
+			ImportacaoResultadoDTO resultado = cervejaService.importCsv(new StringReader(csv.toString()));
+			cervejaService.createCerveja(CervejaDTOBuilder.builder().id(null).nome("Depois").build().toCervejaDTO());
+
+			assertEquals(120, resultado.getImportadas());
+			assertEquals(1, resultado.getRejeitadas());
+			assertEquals(122, cervejaRepository.findAll().stream().map(Cerveja::getId).collect(Collectors.toSet()).size());
+			CervejaDTO importada = cervejaService.findByNome("Importada 7");
+			assertEquals(10, importada.getQuantidade());
+		} finally {
+			for (Cerveja cerveja : cervejaRepository.findAll()) {
+				cervejaService.deleteById(cerveja.getId());
+			}
+			stockHistory.flush();
+			movimentoRepository.deleteAll();
+		}
+	}
+
+	@Test
+	void locationMovementsRollUpIntoTheBeerStock() throws Exception {
+		CervejaDTO cerveja = cervejaService.createCerveja(CervejaDTOBuilder.builder().id(null).nome("Multi Deposito").build().toCervejaDTO());
+		try {
+			cervejaService.setLocationCapacity(cerveja.getId(), "deposito-sul", 30);
+			cervejaService.setLocationCapacity(cerveja.getId(), "loja-centro", 5);
+
+			cervejaService.incrementAt(cerveja.getId(), "deposito-sul", 20);
+			cervejaService.incrementAt(cerveja.getId(), "loja-centro", 5);
+			assertThrows(CervejaStockExceededException.class, () -> cervejaService.incrementAt(cerveja.getId(), "loja-centro", 1));
+			EstoqueLocalDTO deposito = cervejaService.decrementAt(cerveja.getId(), "deposito-sul", 8);
+			stockCounters.flushAll();
+
+			assertEquals(12, deposito.getQuantidade());
+			assertEquals(List.of("deposito-sul", "loja-centro"), cervejaService.listLocations(cerveja.getId()).stream()
+					.map(EstoqueLocalDTO::getLocal).collect(Collectors.toList()));
+			assertEquals(27, cervejaService.findByNome("Multi Deposito").getQuantidade());
+			assertEquals(27, cervejaRepository.findById(cerveja.getId()).orElseThrow().getQuantidade());
+			assertThrows(CervejaStockExceededException.class, () -> cervejaService.decrement(cerveja.getId(), 11));
+		} finally {
+			cervejaService.deleteById(cerveja.getId());
+			stockHistory.flush();
+			movimentoRepository.deleteAll();
+		}
+	}
+
+	@Test
+	void theCatalogueEtagMovesOnlyOnceARenameCanBeRead() throws Exception {
+		CervejaDTO cerveja = cervejaService.createCerveja(CervejaDTOBuilder.builder().id(null).nome("Nome Antigo").build().toCervejaDTO());
+		try {
+			cervejaService.findByNome("Nome Antigo");
+			List<String> vistoPeloCounter = new ArrayList<>();
+			doAnswer(invocation -> {
+				try {
+					vistoPeloCounter.add(cervejaService.findByNome("Nome Antigo").getNome());
+				} catch (CervejaNotFoundException e) {
+					vistoPeloCounter.add(cervejaService.findByNome("Nome Novo").getNome());
+				}
+				cervejaService.search("novo", null, 1).forEach(encontrada -> vistoPeloCounter.add(encontrada.getNome()));
+				return invocation.callRealMethod();
+			}).when(changeCounter).onCervejaChanged(argThat(event -> event.getOperacao() == CervejaChangedEvent.Operacao.UPDATED));
+			String etag = cervejaService.catalogueEtag();
+
+			cervejaService.updateCerveja(cerveja.getId(), cerveja.toBuilder().nome("Nome Novo").build());
+
+			assertEquals(List.of("Nome Novo", "Nome Novo"), vistoPeloCounter);
+			assertNotEquals(etag, cervejaService.catalogueEtag());
+		} finally {
+			cervejaService.deleteById(cerveja.getId());
+			stockHistory.flush();
+			movimentoRepository.deleteAll();
+		}
+	}
 }
@@ -0,0 +1,176 @@
+package com.corinto.estoquecerveja.analytics;
+
+import com.corinto.estoquecerveja.builder.CervejaDTOBuilder;
+import com.corinto.estoquecerveja.dto.CervejaDTO;
+import com.corinto.estoquecerveja.dto.MarcaEstoqueDTO;
+import com.corinto.estoquecerveja.dto.TipoEstoqueDTO;
+import com.corinto.estoquecerveja.enums.Tipo;
+import com.corinto.estoquecerveja.event.CervejaChangedEvent;
+import com.corinto.estoquecerveja.repository.CervejaRepository;
+import com.corinto.estoquecerveja.stock.CervejaStockCounters;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalInt;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class CervejaStockAnalyticsTest {
+
+    @Mock
+    private CervejaRepository cervejaRepository;
+
+    @Mock
+    private CervejaStockCounters stockCounters;
+
+    @InjectMocks
+    private CervejaStockAnalytics stockAnalytics;
+
+    private final CervejaDTO brahma = CervejaDTOBuilder.builder().id(1L).nome("Brahma").marca("Ambev").max(50).quantidade(10).tipo(Tipo.LAGER).build().toCervejaDTO();
+    private final CervejaDTO skol = CervejaDTOBuilder.builder().id(2L).nome("Skol").marca("Ambev").max(50).quantidade(40).tipo(Tipo.LAGER).build().toCervejaDTO();
+    private final CervejaDTO guinness = CervejaDTOBuilder.builder().id(3L).nome("Guinness").marca("Diageo").max(20).quantidade(1).tipo(Tipo.STOUT).build().toCervejaDTO();
+
+    @BeforeEach
+    void setUp() {
+        when(cervejaRepository.streamAllDTOs()).thenReturn(Stream.of(brahma, skol, guinness));
+        stockAnalytics.rebuild();
+    }
+
+    @Test
+    void whenAnalyticsAreBuiltThenTotalsPerTipoAreReturned() {
+        TipoEstoqueDTO lager = tipo(Tipo.LAGER);
+
+        assertThat(lager.getSkus(), is(equalTo(2)));
+        assertThat(lager.getQuantidade(), is(equalTo(50L)));
+        assertThat(lager.getMax(), is(equalTo(100L)));
+        assertThat(tipo(Tipo.IPA).getSkus(), is(equalTo(0)));
+    }
+
+    @Test
+    void whenAnalyticsAreBuiltThenMarcasAreSortedByFillRatio() {
+        List<MarcaEstoqueDTO> marcas = stockAnalytics.byMarca();
+
+        assertThat(marcas.stream().map(MarcaEstoqueDTO::getMarca).collect(Collectors.toList()), contains("Diageo", "Ambev"));
+        assertThat(marcas.get(1).getOcupacao(), is(closeTo(0.5, 0.0001)));
+    }
+
+    @Test
+    void whenLowestStockIsRequestedThenBeersBelowTheRatioAreReturnedLowestFirst() {
+        assertThat(ids(stockAnalytics.lowestStock(10, 1.0)), contains(3L, 1L, 2L));
+        assertThat(ids(stockAnalytics.lowestStock(1, 1.0)), contains(3L));
+        assertThat(ids(stockAnalytics.lowestStock(10, 0.5)), contains(3L, 1L));
+    }
+
+    @Test
+    void whenStockChangesThenAggregatesAreUpdated() {
+        CervejaDTO restockedGuinness = guinness.toBuilder().quantidade(20).build();
+
+        stockAnalytics.onCervejaChanged(new CervejaChangedEvent(CervejaChangedEvent.Operacao.STOCK_CHANGED, restockedGuinness, 19));
+
+        assertThat(tipo(Tipo.STOUT).getQuantidade(), is(equalTo(20L)));
+        assertThat(ids(stockAnalytics.lowestStock(10, 1.0)), contains(1L, 2L));
+    }
+
+    @Test
+    void whenABeerHasNoLiveStockCounterThenTheQuantidadeOfItsChangeIsTakenEvenTwice() {
+        CervejaDTO afterRestock = brahma.toBuilder().quantidade(12).build();
+
+        stockAnalytics.onCervejaChanged(new CervejaChangedEvent(CervejaChangedEvent.Operacao.STOCK_CHANGED, afterRestock, 2));
+        stockAnalytics.onCervejaChanged(new CervejaChangedEvent(CervejaChangedEvent.Operacao.STOCK_CHANGED, afterRestock, 2));
+
+        assertThat(tipo(Tipo.LAGER).getQuantidade(), is(equalTo(52L)));
+        assertThat(stockAnalytics.lowestStock(10, 1.0).get(1).getQuantidade(), is(equalTo(12)));
+    }
+
+    @Test
+    void whenABeerHasALiveStockCounterThenItsQuantidadeIsTakenFromIt() {
+        when(stockCounters.quantidade(1L)).thenReturn(OptionalInt.of(15));
+
+        stockAnalytics.onCervejaChanged(new CervejaChangedEvent(CervejaChangedEvent.Operacao.STOCK_CHANGED, brahma, 3));
+        stockAnalytics.onCervejaChanged(new CervejaChangedEvent(CervejaChangedEvent.Operacao.STOCK_CHANGED, brahma, 2));
+
+        assertThat(tipo(Tipo.LAGER).getQuantidade(), is(equalTo(55L)));
+    }
+
+    @Test
+    void whenTheAnalyticsAreRebuiltThenTheyAreServedMeanwhileAndChangesMadeMeanwhileAreKept() {
+        when(stockCounters.quantidade(1L)).thenReturn(OptionalInt.of(15));
+        List<Integer> durante = new ArrayList<>();
+
+        stockAnalytics.rebuild(Stream.of(brahma, skol, guinness).peek(cervejaDTO -> {
+            if (cervejaDTO == skol) {
+                durante.add(CompletableFuture.supplyAsync(() -> tipo(Tipo.STOUT).getSkus())
+                        .orTimeout(5, TimeUnit.SECONDS)
+                        .join());
+                stockAnalytics.onCervejaChanged(new CervejaChangedEvent(CervejaChangedEvent.Operacao.STOCK_CHANGED, brahma, 5));
+                stockAnalytics.onCervejaChanged(new CervejaChangedEvent(CervejaChangedEvent.Operacao.DELETED, guinness));
+            }
+        }));
+
+        assertThat(durante, contains(1));
+        assertThat(tipo(Tipo.LAGER).getQuantidade(), is(equalTo(55L)));
+        assertThat(tipo(Tipo.STOUT).getSkus(), is(equalTo(0)));
+    }
+
+    @Test
+    void whenTheReadAlreadyHoldsAChangeThenReplayingItDoesNotCountItTwice() {
+        CervejaDTO afterRestock = brahma.toBuilder().quantidade(12).build();
+
+        stockAnalytics.rebuild(Stream.of(brahma, skol, guinness).map(cervejaDTO -> {
+            if (cervejaDTO == brahma) {
+                stockAnalytics.onCervejaChanged(new CervejaChangedEvent(CervejaChangedEvent.Operacao.STOCK_CHANGED, afterRestock, 2));
+                return afterRestock;
+            }
+            return cervejaDTO;
+        }));
+
+        assertThat(tipo(Tipo.LAGER).getQuantidade(), is(equalTo(52L)));
+    }
+
+    @Test
+    void whenTheAnalyticsAreRebuiltThenLiveCountersAreLaidOverTheRows() {
+        lenient().when(stockCounters.quantidade(2L)).thenReturn(OptionalInt.of(30));
+
+        stockAnalytics.rebuild(Stream.of(brahma, skol, guinness).map(cervejaDTO -> cervejaDTO.toBuilder().build()));
+
+        assertThat(tipo(Tipo.LAGER).getQuantidade(), is(equalTo(40L)));
+    }
+
+    @Test
+    void whenBeersAreCreatedOrDeletedThenAggregatesAreUpdated() {
+        CervejaDTO heineken = CervejaDTOBuilder.builder().id(4L).nome("Heineken").marca("Heineken").max(10).quantidade(0).build().toCervejaDTO();
+
+        stockAnalytics.onCervejaChanged(new CervejaChangedEvent(CervejaChangedEvent.Operacao.CREATED, heineken));
+        stockAnalytics.onCervejaChanged(new CervejaChangedEvent(CervejaChangedEvent.Operacao.DELETED, guinness));
+
+        assertThat(tipo(Tipo.LAGER).getSkus(), is(equalTo(3)));
+        assertThat(tipo(Tipo.STOUT).getSkus(), is(equalTo(0)));
+        assertThat(stockAnalytics.byMarca().stream().map(MarcaEstoqueDTO::getMarca).collect(Collectors.toList()), contains("Heineken", "Ambev"));
+        assertThat(ids(stockAnalytics.lowestStock(1, 1.0)), contains(4L));
+    }
+
+    private TipoEstoqueDTO tipo(Tipo tipo) {
+        return stockAnalytics.byTipo().get(tipo.ordinal());
+    }
+
+    private static List<Long> ids(List<CervejaDTO> cervejas) {
+        return cervejas.stream().map(CervejaDTO::getId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,71 @@
+package com.corinto.estoquecerveja.benchmark;
+
+import com.corinto.estoquecerveja.EstoqueCervejaApplication;
+import com.corinto.estoquecerveja.dto.CervejaDTO;
+import com.corinto.estoquecerveja.entity.Cerveja;
+import com.corinto.estoquecerveja.enums.Tipo;
+import com.corinto.estoquecerveja.reactive.EstoqueCervejaReactiveApplication;
+import com.corinto.estoquecerveja.reactive.ReactiveCervejaRepository;
+import com.corinto.estoquecerveja.repository.CervejaRepository;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Boots the application against its embedded H2 and seeds a catalogue for the benchmarks.
+ */
+final class BenchmarkContext {
+
+    static final int MAX = 1_000_000_000;
+
+    private BenchmarkContext() {
+    }
+
+    /**
+     * The properties are passed as command-line arguments, so they win over {@code application.properties} and the
+     * profile files.
+     */
+    static ConfigurableApplicationContext start(WebApplicationType webApplicationType, String... properties) {
+        return new SpringApplicationBuilder(EstoqueCervejaApplication.class)
+                .web(webApplicationType)
+                .properties("server.port=0", "logging.level.root=WARN")
+                .run(Arrays.stream(properties).map(property -> "--" + property).toArray(String[]::new));
+    }
+
+    static ConfigurableApplicationContext startReactive() {
+        return EstoqueCervejaReactiveApplication.builder()
+                .properties("server.port=0", "logging.level.root=WARN")
+                .run();
+    }
+
+    static List<Cerveja> seed(ConfigurableApplicationContext context, int beers) {
+        List<Cerveja> cervejas = new ArrayList<>(beers);
+        for (int i = 0; i < beers; i++) {
+            cervejas.add(new Cerveja(null, nome(i), "Ambev", MAX, 10, Tipo.values()[i % Tipo.values().length], null));
+        }
+        return context.getBean(CervejaRepository.class).saveAll(cervejas);
+    }
+
+    static List<Long> seedReactive(ConfigurableApplicationContext context, int beers) {
+        ReactiveCervejaRepository cervejaRepository = context.getBean(ReactiveCervejaRepository.class);
+        List<Long> ids = new ArrayList<>(beers);
+        for (int i = 0; i < beers; i++) {
+            CervejaDTO cervejaDTO = new CervejaDTO(null, nome(i), "Ambev", MAX, 10, Tipo.values()[i % Tipo.values().length]);
+            ids.add(cervejaRepository.save(cervejaDTO).block().getId());
+        }
+        return ids;
+    }
+
+    static String nome(int i) {
+        return "Cerveja " + i;
+    }
+
+    static String randomNome(int beers) {
+        return nome(ThreadLocalRandom.current().nextInt(beers));
+    }
+}
@@ -0,0 +1,30 @@
+package com.corinto.estoquecerveja.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+
+/**
+ * Runs the JMH benchmarks of this package, e.g. {@code mvn -Pbenchmark verify -Djmh.include=.*ReadPathBenchmark.*}.
+ * Results, including the GC profiler's {@code gc.alloc.rate.norm}, are written as JSON to the file given as second
+ * argument, so runs of different releases can be compared.
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException {
+        String include = args.length > 0 ? args[0] : BenchmarkRunner.class.getPackageName() + ".*";
+        String result = args.length > 1 ? args[1] : "target/jmh/jmh-result.json";
+        new File(result).getAbsoluteFile().getParentFile().mkdirs();
+        new Runner(new OptionsBuilder()
+                .include(include)
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result(result)
+                .build())
+                .run();
+    }
+}
@@ -0,0 +1,79 @@
+package com.corinto.estoquecerveja.benchmark;
+
+import com.corinto.estoquecerveja.catalogue.CatalogueSnapshot;
+import com.corinto.estoquecerveja.entity.Cerveja;
+import com.corinto.estoquecerveja.enums.Tipo;
+import com.corinto.estoquecerveja.repository.CervejaRepository;
+import com.corinto.estoquecerveja.service.CervejaService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Seeds a million beers into the file database of the {@code durable} profile, then starts the application on it twice
+ * and looks up random nomes through {@link CervejaService#findByNome}: once through the cache and the database, once
+ * from the catalogue snapshot. Prints the throughput, the bytes allocated per lookup and the heap used.
+ */
+@Tag("benchmark")
+public class CatalogueSnapshotBenchmarkTest {
+
+    private static final int BEERS = 1_000_000;
+    private static final int SEED_BATCH = 10_000;
+    private static final int WARM_UP = 100_000;
+    private static final int LOOKUPS = 500_000;
+
+    @Test
+    void findByNomeOnAMillionBeers() throws Exception {
+        Path dataDir = Files.createTempDirectory("estoque-catalogue");
+        String[] durable = {"spring.profiles.active=durable", "estoque.storage.data-dir=" + dataDir,
+                "estoque.catalogue-snapshot.directory=" + dataDir.resolve("catalogue")};
+        try (ConfigurableApplicationContext context = BenchmarkContext.start(WebApplicationType.NONE, durable)) {
+            CervejaRepository cervejaRepository = context.getBean(CervejaRepository.class);
+            for (int offset = 0; offset < BEERS; offset += SEED_BATCH) {
+                List<Cerveja> cervejas = new ArrayList<>(SEED_BATCH);
+                for (int i = offset; i < offset + SEED_BATCH; i++) {
+                    cervejas.add(new Cerveja(null, BenchmarkContext.nome(i), "Marca " + i % 500, BenchmarkContext.MAX, 10, Tipo.values()[i % Tipo.values().length], null));
+                }
+                cervejaRepository.batchInsert(cervejas);
+            }
+        }
+        run(durable, false);
+        run(durable, true);
+    }
+
+    private static void run(String[] durable, boolean snapshot) throws Exception {
+        try (ConfigurableApplicationContext context = BenchmarkContext.start(WebApplicationType.NONE,
+                durable[0], durable[1], durable[2], "estoque.catalogue-snapshot.enabled=" + snapshot)) {
+            CatalogueSnapshot catalogueSnapshot = context.getBean(CatalogueSnapshot.class);
+            while (snapshot && !catalogueSnapshot.isReady()) {
+                Thread.sleep(50);
+            }
+
+            CervejaService cervejaService = context.getBean(CervejaService.class);
+            for (int i = 0; i < WARM_UP; i++) {
+                cervejaService.findByNome(BenchmarkContext.randomNome(BEERS));
+            }
+            com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+            long allocated = threads.getCurrentThreadAllocatedBytes();
+            long start = System.nanoTime();
+            for (int i = 0; i < LOOKUPS; i++) {
+                cervejaService.findByNome(BenchmarkContext.randomNome(BEERS));
+            }
+            long elapsed = System.nanoTime() - start;
+            allocated = threads.getCurrentThreadAllocatedBytes() - allocated;
+
+            System.gc();
+            long heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+            System.out.printf("%-8s findByNome: %9.0f ops/s, %6d bytes/op, %5.1f us/op, heap used %5d MB%n",
+                    snapshot ? "snapshot" : "database", LOOKUPS / (elapsed / 1e9), allocated / LOOKUPS,
+                    elapsed / 1e3 / LOOKUPS, heap >> 20);
+        }
+    }
+}
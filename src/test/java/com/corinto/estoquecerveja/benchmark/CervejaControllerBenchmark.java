@@ -0,0 +1,145 @@
+package com.corinto.estoquecerveja.benchmark;
+
+import com.corinto.estoquecerveja.dto.CervejaDTO;
+import com.corinto.estoquecerveja.dto.MovimentacaoDTO;
+import com.corinto.estoquecerveja.dto.QuantidadeDTO;
+import com.corinto.estoquecerveja.entity.Cerveja;
+import com.corinto.estoquecerveja.enums.Tipo;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+/**
+ * Full MockMvc round trip of each {@code CervejaController} endpoint: request parsing, validation,
+ * service, H2 and response serialization.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CervejaControllerBenchmark {
+
+    private static final String BEER_API_URL_PATH = "/api/v1/cervejas";
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    private static final int BEERS = 1000;
+    private static final int MOVEMENTS = 100;
+
+    private final AtomicLong sequence = new AtomicLong();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private ConfigurableApplicationContext context;
+    private MockMvc mockMvc;
+    private List<Cerveja> cervejas;
+    private String quantidadeDeUm;
+
+    @Setup
+    public void setUp() throws Exception {
+        context = BenchmarkContext.start(WebApplicationType.SERVLET);
+        mockMvc = MockMvcBuilders.webAppContextSetup((WebApplicationContext) context).build();
+        cervejas = BenchmarkContext.seed(context, BEERS);
+        quantidadeDeUm = objectMapper.writeValueAsString(new QuantidadeDTO(1));
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public String findByNome() throws Exception {
+        return body(mockMvc.perform(get(BEER_API_URL_PATH + "/" + BenchmarkContext.randomNome(BEERS))).andReturn());
+    }
+
+    @Benchmark
+    public String listCervejas() throws Exception {
+        return body(mockMvc.perform(get(BEER_API_URL_PATH)).andReturn());
+    }
+
+    @Benchmark
+    public String listCervejasPage() throws Exception {
+        return body(mockMvc.perform(get(BEER_API_URL_PATH).param("size", "100")).andReturn());
+    }
+
+    @Benchmark
+    public String streamCervejas() throws Exception {
+        MvcResult result = mockMvc.perform(get(BEER_API_URL_PATH).accept(NDJSON)).andReturn();
+        return body(mockMvc.perform(asyncDispatch(result)).andReturn());
+    }
+
+    @Benchmark
+    public String createAndDelete() throws Exception {
+        CervejaDTO cervejaDTO = new CervejaDTO(null, "Nova " + sequence.incrementAndGet(), "Ambev", 500, 10, Tipo.IPA);
+        String created = body(mockMvc.perform(post(BEER_API_URL_PATH)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(cervejaDTO))).andReturn());
+        JsonNode id = objectMapper.readTree(created).get("id");
+        mockMvc.perform(delete(BEER_API_URL_PATH + "/" + id.asLong()));
+        return created;
+    }
+
+    @Benchmark
+    public String incrementAndDecrement() throws Exception {
+        String path = BEER_API_URL_PATH + "/" + randomId();
+        mockMvc.perform(patch(path + "/increment").contentType(MediaType.APPLICATION_JSON).content(quantidadeDeUm));
+        return body(mockMvc.perform(patch(path + "/decrement").contentType(MediaType.APPLICATION_JSON).content(quantidadeDeUm)).andReturn());
+    }
+
+    @Benchmark
+    public String reserveAndRelease() throws Exception {
+        String reserva = body(mockMvc.perform(post(BEER_API_URL_PATH + "/" + randomId() + "/reservas")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(quantidadeDeUm)).andReturn());
+        mockMvc.perform(delete(BEER_API_URL_PATH + "/reservas/" + objectMapper.readTree(reserva).get("id").asText()));
+        return reserva;
+    }
+
+    @Benchmark
+    public String applyMovements() throws Exception {
+        List<MovimentacaoDTO> movimentacoes = new ArrayList<>(MOVEMENTS);
+        for (int i = 0; i < MOVEMENTS; i++) {
+            movimentacoes.add(new MovimentacaoDTO(randomId(), 1));
+        }
+        return body(mockMvc.perform(post(BEER_API_URL_PATH + "/movements")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(movimentacoes))).andReturn());
+    }
+
+    private Long randomId() {
+        return cervejas.get(ThreadLocalRandom.current().nextInt(BEERS)).getId();
+    }
+
+    private static String body(MvcResult result) throws Exception {
+        return result.getResponse().getContentAsString();
+    }
+}
@@ -0,0 +1,63 @@
+package com.corinto.estoquecerveja.benchmark;
+
+import com.corinto.estoquecerveja.dto.CervejaDTO;
+import com.corinto.estoquecerveja.enums.FormatoExportacao;
+import com.corinto.estoquecerveja.enums.Tipo;
+import com.corinto.estoquecerveja.service.CervejaService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Seeds a catalogue and writes it to a discarding stream through the list endpoint's path (the full list through
+ * Jackson), through a fresh export and through an export replayed from its snapshot. Prints the time each took and
+ * the bytes it allocated on the calling thread.
+ */
+@Tag("benchmark")
+public class CervejaExportBenchmarkTest {
+
+    private static final int BEERS = 200_000;
+    private static final int ROUNDS = 3;
+
+    private final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    @Test
+    void listAllAgainstStreamingExportAndSnapshot() throws Exception {
+        try (ConfigurableApplicationContext context = BenchmarkContext.start(WebApplicationType.NONE)) {
+            BenchmarkContext.seed(context, BEERS);
+            CervejaService cervejaService = context.getBean(CervejaService.class);
+            ObjectMapper objectMapper = context.getBean(ObjectMapper.class);
+
+            for (int round = 0; round < ROUNDS; round++) {
+                measure("listAll + Jackson", () -> objectMapper.writeValue(OutputStream.nullOutputStream(), cervejaService.listAll()));
+                for (FormatoExportacao formato : FormatoExportacao.values()) {
+                    for (boolean gzip : new boolean[]{false, true}) {
+                        String nome = "export " + formato + (gzip ? " gzip" : "");
+                        cervejaService.createCerveja(new CervejaDTO(null, "Alterada " + round + " " + nome, "Ambev", 50, 10, Tipo.LAGER));
+                        measure(nome + " render", () -> cervejaService.export(formato, gzip, OutputStream.nullOutputStream()));
+                        measure(nome + " snapshot", () -> cervejaService.export(formato, gzip, OutputStream.nullOutputStream()));
+                    }
+                }
+            }
+        }
+    }
+
+    private void measure(String nome, Action action) throws Exception {
+        long allocated = threads.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        action.run();
+        double millis = (System.nanoTime() - start) / 1e6;
+        System.out.printf("%-28s %8.1f ms | %8.1f MB allocated%n", nome, millis,
+                (threads.getCurrentThreadAllocatedBytes() - allocated) / 1048576.0);
+    }
+
+    @FunctionalInterface
+    private interface Action {
+        void run() throws Exception;
+    }
+}
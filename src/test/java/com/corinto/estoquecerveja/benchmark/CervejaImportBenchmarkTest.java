@@ -0,0 +1,115 @@
+package com.corinto.estoquecerveja.benchmark;
+
+import com.corinto.estoquecerveja.dto.CervejaDTO;
+import com.corinto.estoquecerveja.dto.ImportacaoResultadoDTO;
+import com.corinto.estoquecerveja.enums.Tipo;
+import com.corinto.estoquecerveja.service.CervejaService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.Reader;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+/**
+ * Loads a catalogue once through one {@code createCerveja} call per beer and once through the streaming CSV import,
+ * and prints the throughput of each. The file is generated while it is read, so the heap growth printed is what the
+ * application keeps per imported beer: its rows in the in-memory database and its entries in the catalogue indexes.
+ * The importer itself only holds one batch.
+ */
+@Tag("benchmark")
+public class CervejaImportBenchmarkTest {
+
+    private static final int CREATE_ROWS = 20_000;
+    private static final int IMPORT_ROWS = 1_000_000;
+
+    @Test
+    void createOneByOneAgainstStreamingImport() throws Exception {
+        try (ConfigurableApplicationContext context = BenchmarkContext.start(WebApplicationType.NONE)) {
+            CervejaService cervejaService = context.getBean(CervejaService.class);
+
+            long start = System.nanoTime();
+            for (int i = 0; i < CREATE_ROWS; i++) {
+                cervejaService.createCerveja(new CervejaDTO(null, "Unitaria " + i, "Ambev", 500, 10, Tipo.values()[i % Tipo.values().length]));
+            }
+            System.out.printf("createCerveja %8d rows: %8.0f rows/s%n", CREATE_ROWS, CREATE_ROWS / ((System.nanoTime() - start) / 1e9));
+
+            MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+            System.gc();
+            long heapBefore = memory.getHeapMemoryUsage().getUsed();
+            AtomicLong peak = new AtomicLong(heapBefore);
+            AtomicBoolean importing = new AtomicBoolean(true);
+            Thread sampler = new Thread(() -> {
+                while (importing.get()) {
+                    peak.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max);
+                    try {
+                        Thread.sleep(20);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            });
+            sampler.start();
+
+            start = System.nanoTime();
+            ImportacaoResultadoDTO resultado = cervejaService.importCsv(new GeneratedCsv(IMPORT_ROWS));
+            double seconds = (System.nanoTime() - start) / 1e9;
+            importing.set(false);
+            sampler.join();
+            System.gc();
+            long heapAfter = memory.getHeapMemoryUsage().getUsed();
+            System.out.printf("importCsv     %8d rows: %8.0f rows/s | heap before %5d MB, peak %5d MB, after %5d MB, %5d bytes kept per beer%n",
+                    IMPORT_ROWS, IMPORT_ROWS / seconds,
+                    heapBefore >> 20, peak.get() >> 20, heapAfter >> 20, (heapAfter - heapBefore) / IMPORT_ROWS);
+
+            assertThat(resultado.getImportadas(), is(equalTo((long) IMPORT_ROWS)));
+        }
+    }
+
+    /**
+     * A CSV file of {@code rows} distinct beers, produced line by line as it is read.
+     */
+    private static final class GeneratedCsv extends Reader {
+
+        private final int rows;
+        private int row = -1;
+        private String line = "nome,marca,max,quantidade,tipo\n";
+        private int position;
+
+        GeneratedCsv(int rows) {
+            this.rows = rows;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) {
+            int read = 0;
+            while (read < length) {
+                if (position == line.length()) {
+                    if (row + 1 >= rows) {
+                        break;
+                    }
+                    row++;
+                    line = "Importada " + row + ",Ambev,500,10," + Tipo.values()[row % Tipo.values().length] + "\n";
+                    position = 0;
+                }
+                int chunk = Math.min(length - read, line.length() - position);
+                line.getChars(position, position + chunk, buffer, offset + read);
+                position += chunk;
+                read += chunk;
+            }
+            return read == 0 ? -1 : read;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
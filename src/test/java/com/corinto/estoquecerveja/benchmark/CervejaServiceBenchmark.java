@@ -0,0 +1,118 @@
+package com.corinto.estoquecerveja.benchmark;
+
+import com.corinto.estoquecerveja.dto.CervejaDTO;
+import com.corinto.estoquecerveja.dto.CervejaPageDTO;
+import com.corinto.estoquecerveja.dto.MovimentacaoDTO;
+import com.corinto.estoquecerveja.dto.MovimentacaoResultadoDTO;
+import com.corinto.estoquecerveja.entity.Cerveja;
+import com.corinto.estoquecerveja.enums.Tipo;
+import com.corinto.estoquecerveja.service.CervejaService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link CervejaService} operations against the embedded H2, without the web layer.
+ * Mutating benchmarks undo their own change so the catalogue stays the same size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CervejaServiceBenchmark {
+
+    private static final int BEERS = 1000;
+    private static final int MOVEMENTS = 100;
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private ConfigurableApplicationContext context;
+    private CervejaService cervejaService;
+    private List<Cerveja> cervejas;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkContext.start(WebApplicationType.NONE);
+        cervejaService = context.getBean(CervejaService.class);
+        cervejas = BenchmarkContext.seed(context, BEERS);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public CervejaDTO findByNome() throws Exception {
+        return cervejaService.findByNome(BenchmarkContext.randomNome(BEERS));
+    }
+
+    @Benchmark
+    public List<CervejaDTO> listAll() {
+        return cervejaService.listAll();
+    }
+
+    @Benchmark
+    public CervejaPageDTO listPage() {
+        return cervejaService.listPage(null, 100);
+    }
+
+    @Benchmark
+    public void streamAll(Blackhole blackhole) {
+        cervejaService.streamAll(blackhole::consume);
+    }
+
+    @Benchmark
+    public CervejaDTO createAndDelete() throws Exception {
+        CervejaDTO created = cervejaService.createCerveja(
+                new CervejaDTO(null, "Nova " + sequence.incrementAndGet(), "Ambev", 500, 10, Tipo.IPA));
+        cervejaService.deleteById(created.getId());
+        return created;
+    }
+
+    @Benchmark
+    public CervejaDTO incrementAndDecrement() throws Exception {
+        Long id = randomId();
+        cervejaService.increment(id, 1);
+        return cervejaService.decrement(id, 1);
+    }
+
+    @Benchmark
+    public CervejaDTO reserveAndCommit() throws Exception {
+        Long id = randomId();
+        cervejaService.increment(id, 1);
+        return cervejaService.commitReserva(cervejaService.reserve(id, 1).getId());
+    }
+
+    @Benchmark
+    public List<MovimentacaoResultadoDTO> applyMovements() {
+        List<MovimentacaoDTO> movimentacoes = new ArrayList<>(MOVEMENTS);
+        for (int i = 0; i < MOVEMENTS; i++) {
+            movimentacoes.add(new MovimentacaoDTO(randomId(), 1));
+        }
+        return cervejaService.applyMovements(movimentacoes);
+    }
+
+    private Long randomId() {
+        return cervejas.get(ThreadLocalRandom.current().nextInt(BEERS)).getId();
+    }
+}
@@ -0,0 +1,104 @@
+package com.corinto.estoquecerveja.benchmark;
+
+import com.corinto.estoquecerveja.entity.Cerveja;
+import com.corinto.estoquecerveja.enums.Tipo;
+import com.corinto.estoquecerveja.repository.CervejaRepository;
+import com.corinto.estoquecerveja.service.CervejaService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Seeds a million beers into the file database of the {@code durable} profile, then restarts the application on it
+ * and prints how long it takes until a lookup by nome and a search first find their beer, and until startup, which
+ * includes the warm-up, completes. The first restart reads the catalogue on one thread with a cold cache; it then
+ * serves lookups so the next restarts also warm the cache with the nomes saved on shutdown.
+ */
+@Tag("benchmark")
+public class DurableStartupBenchmarkTest {
+
+    private static final int BEERS = 1_000_000;
+    private static final int SEED_BATCH = 10_000;
+    private static final int LOOKUPS = 10_000;
+
+    @Test
+    void restartOnAMillionBeers() throws Exception {
+        Path dataDir = Files.createTempDirectory("estoque-durable");
+        String[] durable = {"spring.profiles.active=durable", "estoque.storage.data-dir=" + dataDir};
+
+        long start = System.nanoTime();
+        try (ConfigurableApplicationContext context = BenchmarkContext.start(WebApplicationType.NONE, durable)) {
+            CervejaRepository cervejaRepository = context.getBean(CervejaRepository.class);
+            for (int offset = 0; offset < BEERS; offset += SEED_BATCH) {
+                List<Cerveja> cervejas = new ArrayList<>(SEED_BATCH);
+                for (int i = offset; i < offset + SEED_BATCH; i++) {
+                    cervejas.add(new Cerveja(null, BenchmarkContext.nome(i), "Marca " + i % 500, BenchmarkContext.MAX, 10, Tipo.values()[i % Tipo.values().length], null));
+                }
+                cervejaRepository.batchInsert(cervejas);
+            }
+        }
+        System.out.printf("seeded %d beers in %.1f s%n", BEERS, (System.nanoTime() - start) / 1e9);
+
+        restart(dataDir, durable, 1, true);
+        restart(dataDir, durable, 1, false);
+        restart(dataDir, durable, 4, false);
+    }
+
+    private static void restart(Path dataDir, String[] durable, int threads, boolean lookups) throws Exception {
+        int port = freePort();
+        HttpClient httpClient = HttpClient.newHttpClient();
+        Path cacheKeys = dataDir.resolve("cache-keys.txt");
+        boolean warmCache = Files.exists(cacheKeys) && Files.size(cacheKeys) > 0;
+        long start = System.nanoTime();
+        CompletableFuture<ConfigurableApplicationContext> started = CompletableFuture.supplyAsync(() -> BenchmarkContext.start(WebApplicationType.SERVLET,
+                durable[0], durable[1], "server.port=" + port, "estoque.warm-up.threads=" + threads,
+                "logging.level.com.corinto.estoquecerveja.warmup=INFO"));
+        long lookup = firstOk(httpClient, port, "/" + BenchmarkContext.nome(BEERS / 2).replace(" ", "%20"), start);
+        long search = firstOk(httpClient, port, "/search?q=" + BenchmarkContext.nome(BEERS / 3).replace(" ", "%20"), start);
+        try (ConfigurableApplicationContext context = started.join()) {
+            long ready = System.nanoTime() - start;
+            System.out.printf("%d warm-up thread(s), %s cache: first lookup %6.2f s, first search %6.2f s, startup %6.2f s%n",
+                    threads, warmCache ? "saved" : "cold", lookup / 1e9, search / 1e9, ready / 1e9);
+            if (lookups) {
+                CervejaService cervejaService = context.getBean(CervejaService.class);
+                for (int i = 0; i < LOOKUPS; i++) {
+                    cervejaService.findByNome(BenchmarkContext.randomNome(BEERS));
+                }
+            }
+        }
+    }
+
+    private static long firstOk(HttpClient httpClient, int port, String path, long start) throws InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/v1/cervejas" + path)).build();
+        while (true) {
+            try {
+                HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+                if (response.statusCode() == 200 && !response.body().equals("[]")) {
+                    return System.nanoTime() - start;
+                }
+            } catch (IOException e) {
+                // not listening yet
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
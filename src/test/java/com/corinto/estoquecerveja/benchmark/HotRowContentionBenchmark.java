@@ -0,0 +1,127 @@
+package com.corinto.estoquecerveja.benchmark;
+
+import com.corinto.estoquecerveja.dto.CervejaDTO;
+import com.corinto.estoquecerveja.entity.Cerveja;
+import com.corinto.estoquecerveja.exception.CervejaConflictException;
+import com.corinto.estoquecerveja.repository.CervejaRepository;
+import com.corinto.estoquecerveja.service.CervejaService;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hammers a single beer from many threads, with edits, which read the row and save it against its version under the
+ * optimistic retry policy, and with stock increments, which never conflict. Edits that give up after the last retry
+ * are reported as {@code givenUp}. The thread count is JMH's {@code -t}.
+ *
+ * <p>{@code conditionalIncrement} and {@code readModifyWriteIncrement} compare the database side of an increment
+ * alone: the single conditional {@code update} the service issues against reading the row and saving it back at its
+ * version, where the saves that lose the race are reported as {@code conflicts}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(16)
+@Fork(1)
+public class HotRowContentionBenchmark {
+
+    private ConfigurableApplicationContext context;
+    private CervejaService cervejaService;
+    private CervejaRepository cervejaRepository;
+    private TransactionTemplate transactionTemplate;
+    private Cerveja hot;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkContext.start(WebApplicationType.NONE,
+                "logging.level.org.hibernate.engine.jdbc.batch.internal.BatchingBatch=OFF");
+        cervejaService = context.getBean(CervejaService.class);
+        cervejaRepository = context.getBean(CervejaRepository.class);
+        transactionTemplate = context.getBean(TransactionTemplate.class);
+        hot = BenchmarkContext.seed(context, 1).get(0);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public CervejaDTO edit(ThreadParams thread, Desistencias desistencias) throws Exception {
+        CervejaDTO cervejaDTO = new CervejaDTO(hot.getId(), hot.getNome(), "Marca " + thread.getThreadIndex(), hot.getMax(), hot.getQuantidade(), hot.getTipo());
+        try {
+            return cervejaService.updateCerveja(hot.getId(), cervejaDTO);
+        } catch (CervejaConflictException e) {
+            desistencias.givenUp++;
+            return null;
+        }
+    }
+
+    @Benchmark
+    public CervejaDTO increment() throws Exception {
+        return cervejaService.increment(hot.getId(), 1);
+    }
+
+    @Benchmark
+    public int conditionalIncrement() {
+        return cervejaRepository.incrementQuantidade(hot.getId(), 1);
+    }
+
+    @Benchmark
+    public Cerveja readModifyWriteIncrement(Conflitos conflitos) {
+        try {
+            return transactionTemplate.execute(status -> {
+                Cerveja cerveja = cervejaRepository.findById(hot.getId()).orElseThrow();
+                cerveja.setQuantidade(cerveja.getQuantidade() + 1);
+                return cervejaRepository.save(cerveja);
+            });
+        } catch (OptimisticLockingFailureException e) {
+            conflitos.conflicts++;
+            return null;
+        }
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Conflitos {
+
+        public long conflicts;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            conflicts = 0;
+        }
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Desistencias {
+
+        public long givenUp;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            givenUp = 0;
+        }
+    }
+}
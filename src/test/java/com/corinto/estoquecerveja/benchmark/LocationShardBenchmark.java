@@ -0,0 +1,76 @@
+package com.corinto.estoquecerveja.benchmark;
+
+import com.corinto.estoquecerveja.dto.CervejaDTO;
+import com.corinto.estoquecerveja.dto.EstoqueLocalDTO;
+import com.corinto.estoquecerveja.entity.Cerveja;
+import com.corinto.estoquecerveja.enums.ModoCapacidade;
+import com.corinto.estoquecerveja.service.CervejaService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.ThreadParams;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Receives stock for a single beer from many threads, through the beer's own row and with each thread at its own
+ * location, under both capacity modes. The thread count is JMH's {@code -t}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(16)
+@Fork(1)
+public class LocationShardBenchmark {
+
+    @Param
+    private ModoCapacidade capacidade;
+
+    private ConfigurableApplicationContext context;
+    private CervejaService cervejaService;
+    private Cerveja hot;
+
+    @Setup
+    public void setUp(BenchmarkParams params) throws Exception {
+        context = BenchmarkContext.start(WebApplicationType.NONE, "estoque.locais.capacidade=" + capacidade);
+        cervejaService = context.getBean(CervejaService.class);
+        hot = BenchmarkContext.seed(context, 1).get(0);
+        for (int t = 0; t < params.getThreads(); t++) {
+            cervejaService.setLocationCapacity(hot.getId(), local(t), BenchmarkContext.MAX);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public CervejaDTO beerRow() throws Exception {
+        return cervejaService.increment(hot.getId(), 1);
+    }
+
+    @Benchmark
+    public EstoqueLocalDTO oneLocationPerThread(ThreadParams thread) throws Exception {
+        return cervejaService.incrementAt(hot.getId(), local(thread.getThreadIndex()), 1);
+    }
+
+    private static String local(int thread) {
+        return "local-" + thread;
+    }
+}
@@ -0,0 +1,40 @@
+package com.corinto.estoquecerveja.benchmark;
+
+import com.corinto.estoquecerveja.dto.CervejaDTO;
+import com.corinto.estoquecerveja.entity.Cerveja;
+import com.corinto.estoquecerveja.enums.Tipo;
+import com.corinto.estoquecerveja.mapper.CervejaMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapperBenchmark {
+
+    private final CervejaMapper cervejaMapper = CervejaMapper.INSTANCE;
+    private final CervejaDTO cervejaDTO = new CervejaDTO(1L, "Brahma", "Ambev", 50, 10, Tipo.LAGER);
+    private final Cerveja cerveja = new Cerveja(1L, "Brahma", "Ambev", 50, 10, Tipo.LAGER, null);
+
+    @Benchmark
+    public Cerveja toModel() {
+        return cervejaMapper.toModel(cervejaDTO);
+    }
+
+    @Benchmark
+    public CervejaDTO toDTO() {
+        return cervejaMapper.toDTO(cerveja);
+    }
+}
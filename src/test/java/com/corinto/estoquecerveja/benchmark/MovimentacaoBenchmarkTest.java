@@ -0,0 +1,96 @@
+package com.corinto.estoquecerveja.benchmark;
+
+import com.corinto.estoquecerveja.dto.MovimentacaoDTO;
+import com.corinto.estoquecerveja.dto.QuantidadeDTO;
+import com.corinto.estoquecerveja.entity.Cerveja;
+import com.corinto.estoquecerveja.enums.Tipo;
+import com.corinto.estoquecerveja.repository.CervejaRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static com.corinto.estoquecerveja.utils.JsonConvertionUtils.asJsonString;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@Tag("benchmark")
+@SpringBootTest
+@AutoConfigureMockMvc
+public class MovimentacaoBenchmarkTest {
+
+    private static final int BEERS = 100;
+    private static final int MOVEMENTS = 10_000;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private CervejaRepository cervejaRepository;
+
+    private List<Cerveja> cervejas;
+
+    @BeforeEach
+    void setUp() {
+        cervejas = new ArrayList<>();
+        for (int i = 0; i < BEERS; i++) {
+            cervejas.add(new Cerveja(null, "Benchmark " + i, "Ambev", 2 * MOVEMENTS, 0, Tipo.LAGER, null));
+        }
+        cervejas = cervejaRepository.saveAll(cervejas);
+    }
+
+    @AfterEach
+    void tearDown() {
+        cervejaRepository.deleteAll(cervejas);
+    }
+
+    @Test
+    void singleIncrementCallsAgainstOneBatchedMovementCall() throws Exception {
+        String incrementOfOne = asJsonString(new QuantidadeDTO(1));
+        long singleStart = System.nanoTime();
+        for (int i = 0; i < MOVEMENTS; i++) {
+            mockMvc.perform(patch("/api/v1/cervejas/" + beerId(i) + "/increment")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(incrementOfOne))
+                    .andExpect(status().isOk());
+        }
+        long singleNanos = System.nanoTime() - singleStart;
+
+        List<MovimentacaoDTO> movimentacoes = new ArrayList<>(MOVEMENTS);
+        for (int i = 0; i < MOVEMENTS; i++) {
+            movimentacoes.add(new MovimentacaoDTO(beerId(i), 1));
+        }
+        String batch = asJsonString(movimentacoes);
+        long batchStart = System.nanoTime();
+        mockMvc.perform(post("/api/v1/cervejas/movements")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(batch))
+                .andExpect(status().isOk());
+        long batchNanos = System.nanoTime() - batchStart;
+
+        int totalStock = cervejaRepository.findAllById(cervejas.stream().map(Cerveja::getId).collect(Collectors.toList()))
+                .stream()
+                .mapToInt(Cerveja::getQuantidade)
+                .sum();
+        assertThat(totalStock, is(equalTo(2 * MOVEMENTS)));
+        System.out.printf("%d single increment calls: %d ms | one batched movements call: %d ms%n",
+                MOVEMENTS, singleNanos / 1_000_000, batchNanos / 1_000_000);
+    }
+
+    private Long beerId(int movement) {
+        return cervejas.get(movement % BEERS).getId();
+    }
+}
@@ -0,0 +1,96 @@
+package com.corinto.estoquecerveja.benchmark;
+
+import com.corinto.estoquecerveja.dto.CervejaDTO;
+import com.corinto.estoquecerveja.entity.Cerveja;
+import com.corinto.estoquecerveja.mapper.CervejaMapper;
+import com.corinto.estoquecerveja.repository.CervejaRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Compares the entity + mapper read path with the DTO projection queries, per request.
+ * Run with the GC profiler to compare {@code gc.alloc.rate.norm} between the two.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReadPathBenchmark {
+
+    private static final int BEERS = 1000;
+    private static final int PAGE_SIZE = 100;
+
+    private ConfigurableApplicationContext context;
+    private CervejaRepository cervejaRepository;
+    private EntityManager entityManager;
+    private TransactionTemplate readOnlyTransaction;
+    private final CervejaMapper cervejaMapper = CervejaMapper.INSTANCE;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkContext.start(WebApplicationType.NONE);
+        cervejaRepository = context.getBean(CervejaRepository.class);
+        entityManager = SharedEntityManagerCreator.createSharedEntityManager(context.getBean(EntityManagerFactory.class));
+        readOnlyTransaction = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        readOnlyTransaction.setReadOnly(true);
+        BenchmarkContext.seed(context, BEERS);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public CervejaDTO findByNomeEntityAndMapper() {
+        String nome = BenchmarkContext.randomNome(BEERS);
+        return readOnlyTransaction.execute(status -> cervejaRepository.findByNome(nome)
+                .map(cervejaMapper::toDTO)
+                .orElseThrow());
+    }
+
+    @Benchmark
+    public CervejaDTO findByNomeProjection() {
+        String nome = BenchmarkContext.randomNome(BEERS);
+        return readOnlyTransaction.execute(status -> cervejaRepository.findDTOByNome(nome).orElseThrow());
+    }
+
+    @Benchmark
+    public List<CervejaDTO> listPageEntityAndMapper() {
+        return readOnlyTransaction.execute(status -> entityManager
+                .createQuery("select c from Cerveja c where c.id > :cursor order by c.id", Cerveja.class)
+                .setParameter("cursor", 0L)
+                .setMaxResults(PAGE_SIZE)
+                .getResultStream()
+                .map(cervejaMapper::toDTO)
+                .collect(Collectors.toList()));
+    }
+
+    @Benchmark
+    public List<CervejaDTO> listPageProjection() {
+        return readOnlyTransaction.execute(status -> cervejaRepository.findDTOsAfter(0L, PageRequest.of(0, PAGE_SIZE)));
+    }
+}
@@ -0,0 +1,82 @@
+package com.corinto.estoquecerveja.benchmark;
+
+import com.corinto.estoquecerveja.dto.CervejaDTO;
+import com.corinto.estoquecerveja.enums.Tipo;
+import com.corinto.estoquecerveja.event.CervejaChangedEvent;
+import com.corinto.estoquecerveja.search.CervejaSearchIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Queries against a synthetic catalogue held directly in {@link CervejaSearchIndex}, without a database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class SearchIndexBenchmark {
+
+    private static final String[] ESTILOS = {"Pilsen", "Lager", "Weiss", "Stout", "Porter", "Session", "Imperial", "Red",
+            "Amber", "Golden", "Dubbel", "Tripel", "Saison", "Bock", "Helles", "Dunkel"};
+    private static final String[] MARCAS = {"Ambev", "Heineken", "Colorado", "Baden Baden", "Eisenbahn", "Wäls",
+            "Bodebrown", "Way Beer", "Dádiva", "Tupiniquim", "Seasons", "Invicta", "Morada", "Votus", "Japas", "Blumenau"};
+
+    @Param("1000000")
+    private int skus;
+
+    private CervejaSearchIndex searchIndex;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        searchIndex = new CervejaSearchIndex(null);
+        Random random = new Random(42);
+        Tipo[] tipos = Tipo.values();
+        for (long id = 1; id <= skus; id++) {
+            String nome = ESTILOS[random.nextInt(ESTILOS.length)] + " " + ESTILOS[random.nextInt(ESTILOS.length)] + " " + id;
+            String marca = MARCAS[random.nextInt(MARCAS.length)];
+            CervejaDTO cervejaDTO = new CervejaDTO(id, nome, marca, 100, 10, tipos[random.nextInt(tipos.length)]);
+            searchIndex.onCervejaChanged(new CervejaChangedEvent(CervejaChangedEvent.Operacao.CREATED, cervejaDTO));
+        }
+    }
+
+    @Benchmark
+    public List<CervejaDTO> shortPrefix() {
+        return searchIndex.search("du", null, 20);
+    }
+
+    @Benchmark
+    public List<CervejaDTO> wordAndTipo() {
+        return searchIndex.search("tripel", Tipo.IPA, 20);
+    }
+
+    @Benchmark
+    public List<CervejaDTO> multiWord() {
+        return searchIndex.search("saison 73", null, 20);
+    }
+
+    @Benchmark
+    public List<CervejaDTO> selectiveSuffix() {
+        return searchIndex.search("987654", null, 20);
+    }
+
+    @Benchmark
+    public List<CervejaDTO> noMatch() {
+        return searchIndex.search("xyz", null, 20);
+    }
+}
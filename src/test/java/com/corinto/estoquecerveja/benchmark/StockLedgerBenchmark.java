@@ -0,0 +1,93 @@
+package com.corinto.estoquecerveja.benchmark;
+
+import com.corinto.estoquecerveja.dto.CervejaDTO;
+import com.corinto.estoquecerveja.entity.Cerveja;
+import com.corinto.estoquecerveja.ledger.StockLedger;
+import com.corinto.estoquecerveja.repository.CervejaRepository;
+import com.corinto.estoquecerveja.service.CervejaService;
+import com.corinto.estoquecerveja.stock.CervejaStockCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Concurrent {@code increment} calls through the service, with a JPA transaction per call and through the
+ * write-behind stock ledger. The trial fails if the stock written back does not add up to every increment made.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 5)
+@Threads(16)
+@Fork(1)
+public class StockLedgerBenchmark {
+
+    private static final int BEERS = 1000;
+
+    @Param({"false", "true"})
+    private boolean ledger;
+
+    private final AtomicLong increments = new AtomicLong();
+
+    private Path directory;
+    private ConfigurableApplicationContext context;
+    private CervejaService cervejaService;
+    private List<Long> ids;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("stock-ledger");
+        context = BenchmarkContext.start(WebApplicationType.NONE,
+                "estoque.ledger.enabled=" + ledger,
+                "estoque.ledger.path=" + directory.resolve("stock-ledger.log"));
+        cervejaService = context.getBean(CervejaService.class);
+        ids = BenchmarkContext.seed(context, BEERS).stream().map(Cerveja::getId).collect(Collectors.toList());
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try {
+            context.getBean(CervejaStockCounters.class).flushAll();
+            context.getBean(StockLedger.class).fold();
+            long totalStock = context.getBean(CervejaRepository.class).findAll().stream()
+                    .mapToLong(Cerveja::getQuantidade)
+                    .sum();
+            if (totalStock != 10L * BEERS + increments.get()) {
+                throw new IllegalStateException("Stock adds up to " + totalStock + " after " + increments.get() + " increments");
+            }
+        } finally {
+            context.close();
+            FileSystemUtils.deleteRecursively(directory);
+        }
+    }
+
+    @Benchmark
+    public CervejaDTO increment() throws Exception {
+        CervejaDTO cervejaDTO = cervejaService.increment(ids.get(ThreadLocalRandom.current().nextInt(BEERS)), 1);
+        increments.incrementAndGet();
+        return cervejaDTO;
+    }
+}
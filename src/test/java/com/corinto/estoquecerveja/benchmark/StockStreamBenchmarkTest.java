@@ -0,0 +1,185 @@
+package com.corinto.estoquecerveja.benchmark;
+
+import com.corinto.estoquecerveja.entity.Cerveja;
+import com.corinto.estoquecerveja.enums.Tipo;
+import com.corinto.estoquecerveja.service.CervejaService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Opens a growing number of Server-Sent Events subscribers against a real server, a third of them unfiltered, a third
+ * filtered by type and a third by one beer, plus a few clients that never read. Drives increments from a few threads
+ * and prints the write path's throughput and latency next to the events the subscribers received and the clients
+ * that were disconnected for falling behind.
+ *
+ * <p>Every subscriber holds two sockets on this host, so the default top of the range stays under the usual open
+ * files limit; raise it with {@code -Dstream.subscribers=10000} where the limit allows.
+ */
+@Tag("benchmark")
+public class StockStreamBenchmarkTest {
+
+    private static final int BEERS = 1000;
+    private static final int WRITERS = 4;
+    private static final int STALLED = 32;
+    private static final long DURATION_NANOS = 5_000_000_000L;
+
+    @Test
+    void incrementsWhileChangesAreStreamedToSubscribers() throws Exception {
+        int maxSubscribers = Integer.getInteger("stream.subscribers", 5000);
+        try (ConfigurableApplicationContext context = BenchmarkContext.start(WebApplicationType.SERVLET,
+                "estoque.stream.buffer-size=64")) {
+            List<Cerveja> cervejas = BenchmarkContext.seed(context, BEERS);
+            CervejaService cervejaService = context.getBean(CervejaService.class);
+            MeterRegistry meterRegistry = context.getBean(MeterRegistry.class);
+            int port = Integer.parseInt(context.getEnvironment().getProperty("local.server.port"));
+
+            increment(cervejaService, cervejas, DURATION_NANOS);
+            for (int subscribers : new int[]{0, maxSubscribers / 10, maxSubscribers}) {
+                ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor();
+                HttpClient httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).executor(clients).build();
+                LongAdder recebidos = new LongAdder();
+                List<Socket> stalled = new ArrayList<>();
+                for (int s = 0; s < subscribers; s++) {
+                    httpClient.sendAsync(HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/v1/cervejas/stream" + filtro(s, cervejas))).build(),
+                            HttpResponse.BodyHandlers.fromLineSubscriber(new EventCounter(recebidos)));
+                }
+                for (int s = 0; subscribers > 0 && s < STALLED; s++) {
+                    stalled.add(stall(port));
+                }
+                awaitSubscribers(meterRegistry, subscribers + (subscribers > 0 ? STALLED : 0));
+                double dropped = count(meterRegistry, "cervejas.stream.dropped");
+
+                long[] latencies = increment(cervejaService, cervejas, DURATION_NANOS);
+                long sent = recebidos.sum();
+                Thread.sleep(1000);
+                System.out.printf("%5d subscribers: increments %8.0f ops/s, p50 %6.3f ms, p99 %6.3f ms | %9.0f events/s received, %6d after the writers stopped, %4.0f dropped%n",
+                        subscribers, latencies.length / (DURATION_NANOS / 1e9), percentile(latencies, 0.50), percentile(latencies, 0.99),
+                        sent / (DURATION_NANOS / 1e9), recebidos.sum() - sent, count(meterRegistry, "cervejas.stream.dropped") - dropped);
+
+                for (Socket socket : stalled) {
+                    socket.close();
+                }
+                httpClient.shutdownNow();
+                clients.shutdownNow();
+                awaitSubscribers(meterRegistry, 0);
+            }
+        }
+    }
+
+    private static String filtro(int subscriber, List<Cerveja> cervejas) {
+        switch (subscriber % 3) {
+            case 0:
+                return "";
+            case 1:
+                return "?tipo=" + Tipo.values()[subscriber % Tipo.values().length];
+            default:
+                return "?id=" + cervejas.get(subscriber % cervejas.size()).getId();
+        }
+    }
+
+    private static Socket stall(int port) throws Exception {
+        Socket socket = new Socket();
+        socket.setReceiveBufferSize(1024);
+        socket.connect(new InetSocketAddress("localhost", port));
+        OutputStream out = socket.getOutputStream();
+        out.write("GET /api/v1/cervejas/stream HTTP/1.1\r\nHost: localhost\r\nAccept: text/event-stream\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+        return socket;
+    }
+
+    private static long[] increment(CervejaService cervejaService, List<Cerveja> cervejas, long durationNanos) throws Exception {
+        ExecutorService writers = Executors.newFixedThreadPool(WRITERS);
+        long deadline = System.nanoTime() + durationNanos;
+        List<Future<long[]>> futures = new ArrayList<>(WRITERS);
+        for (int w = 0; w < WRITERS; w++) {
+            futures.add(writers.submit(() -> {
+                long[] latencies = new long[1024];
+                int count = 0;
+                while (System.nanoTime() < deadline) {
+                    long start = System.nanoTime();
+                    cervejaService.increment(cervejas.get(ThreadLocalRandom.current().nextInt(BEERS)).getId(), 1);
+                    if (count == latencies.length) {
+                        latencies = Arrays.copyOf(latencies, count * 2);
+                    }
+                    latencies[count++] = System.nanoTime() - start;
+                }
+                return Arrays.copyOf(latencies, count);
+            }));
+        }
+        long[] all = new long[0];
+        for (Future<long[]> future : futures) {
+            long[] latencies = future.get();
+            int offset = all.length;
+            all = Arrays.copyOf(all, offset + latencies.length);
+            System.arraycopy(latencies, 0, all, offset, latencies.length);
+        }
+        writers.shutdown();
+        Arrays.sort(all);
+        return all;
+    }
+
+    private static void awaitSubscribers(MeterRegistry meterRegistry, int subscribers) throws InterruptedException {
+        long deadline = System.nanoTime() + 60_000_000_000L;
+        while (meterRegistry.get("cervejas.stream.subscribers").gauge().value() != subscribers && System.nanoTime() < deadline) {
+            Thread.sleep(50);
+        }
+    }
+
+    private static double count(MeterRegistry meterRegistry, String name) {
+        return meterRegistry.get(name).counter().count();
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        return sorted[(int) Math.min(sorted.length - 1, Math.round(percentile * sorted.length))] / 1e6;
+    }
+
+    private static final class EventCounter implements Flow.Subscriber<String> {
+
+        private final LongAdder recebidos;
+
+        private EventCounter(LongAdder recebidos) {
+            this.recebidos = recebidos;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(String line) {
+            if (line.startsWith("event:")) {
+                recebidos.increment();
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+        }
+
+        @Override
+        public void onComplete() {
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.corinto.estoquecerveja.benchmark;
+
+import com.corinto.estoquecerveja.dto.CervejaDTO;
+import com.corinto.estoquecerveja.entity.Cerveja;
+import com.corinto.estoquecerveja.enums.Tipo;
+import com.corinto.estoquecerveja.repository.CervejaRepository;
+import com.corinto.estoquecerveja.service.CervejaService;
+import com.corinto.estoquecerveja.stock.CervejaStockCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stock checks and single-unit receipts and sales of random beers out of a million loaded stock counters. The
+ * allocation per operation is the GC profiler's {@code gc.alloc.rate.norm}. The trial fails if any loaded beer does
+ * not hold the 10 units it was seeded with after every receipt was sold again.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class StockTableBenchmark {
+
+    private static final int BEERS = 1_000_000;
+    private static final int SEED_BATCH = 10_000;
+
+    private ConfigurableApplicationContext context;
+    private CervejaStockCounters stockCounters;
+    private CervejaService cervejaService;
+    private long[] ids;
+
+    @Setup
+    public void setUp() throws Exception {
+        context = BenchmarkContext.start(WebApplicationType.NONE);
+        CervejaRepository cervejaRepository = context.getBean(CervejaRepository.class);
+        ids = new long[BEERS];
+        for (int offset = 0; offset < BEERS; offset += SEED_BATCH) {
+            List<Cerveja> cervejas = new ArrayList<>(SEED_BATCH);
+            for (int i = offset; i < offset + SEED_BATCH; i++) {
+                cervejas.add(new Cerveja(null, BenchmarkContext.nome(i), "Ambev", BenchmarkContext.MAX, 10, Tipo.values()[i % Tipo.values().length], null));
+            }
+            cervejaRepository.batchInsert(cervejas);
+            for (int i = 0; i < SEED_BATCH; i++) {
+                ids[offset + i] = cervejas.get(i).getId();
+            }
+        }
+        stockCounters = context.getBean(CervejaStockCounters.class);
+        for (long id : ids) {
+            stockCounters.counter(id);
+        }
+        cervejaService = context.getBean(CervejaService.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        try {
+            for (long id : ids) {
+                int quantidade = stockCounters.quantidade(id).orElse(-1);
+                if (quantidade != 10) {
+                    throw new IllegalStateException("Beer " + id + " holds " + quantidade + " units instead of 10");
+                }
+            }
+        } finally {
+            context.close();
+        }
+    }
+
+    @Benchmark
+    public int check() {
+        return stockCounters.quantidade(randomId()).orElse(0);
+    }
+
+    @Benchmark
+    public CervejaDTO incrementAndDecrement() throws Exception {
+        long id = randomId();
+        cervejaService.increment(id, 1);
+        return cervejaService.decrement(id, 1);
+    }
+
+    private long randomId() {
+        return ids[ThreadLocalRandom.current().nextInt(BEERS)];
+    }
+}
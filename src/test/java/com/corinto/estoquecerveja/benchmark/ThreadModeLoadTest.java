@@ -0,0 +1,125 @@
+package com.corinto.estoquecerveja.benchmark;
+
+import com.corinto.estoquecerveja.entity.Cerveja;
+import com.corinto.estoquecerveja.reactive.EstoqueCervejaReactiveApplication;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+/**
+ * Holds a fixed number of concurrent keep-alive connections open against a real server for a few seconds per
+ * endpoint, with Tomcat's platform worker pool, with virtual threads and with the WebFlux/R2DBC variant on Netty,
+ * and prints throughput and latency.
+ */
+@Tag("benchmark")
+public class ThreadModeLoadTest {
+
+    private static final int BEERS = 1000;
+    private static final int[] CONNECTIONS = {50, 400, 2000};
+    private static final int WARMUP_CONNECTIONS = 50;
+    private static final long WARMUP_NANOS = 3_000_000_000L;
+    private static final long DURATION_NANOS = 5_000_000_000L;
+
+    @ParameterizedTest
+    @ValueSource(strings = {"platform", "virtual", EstoqueCervejaReactiveApplication.PROFILE})
+    void findByNomeAndIncrementUnderConcurrentConnections(String mode) throws Exception {
+        boolean reactive = EstoqueCervejaReactiveApplication.PROFILE.equals(mode);
+        try (ConfigurableApplicationContext context = reactive
+                ? BenchmarkContext.startReactive()
+                : BenchmarkContext.start(WebApplicationType.SERVLET, "estoque.threads.mode=" + mode)) {
+            List<Long> ids = reactive
+                    ? BenchmarkContext.seedReactive(context, BEERS)
+                    : BenchmarkContext.seed(context, BEERS).stream().map(Cerveja::getId).collect(Collectors.toList());
+            String baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port") + "/api/v1/cervejas/";
+            HttpRequest.BodyPublisher incrementOfOne = HttpRequest.BodyPublishers.ofString("{\"quantidade\":1}");
+
+            IntFunction<HttpRequest> findByNome = i -> HttpRequest.newBuilder(URI.create(baseUrl + BenchmarkContext.randomNome(BEERS).replace(" ", "%20")))
+                    .GET()
+                    .build();
+            IntFunction<HttpRequest> increment = i -> HttpRequest.newBuilder(URI.create(baseUrl + ids.get(i % BEERS) + "/increment"))
+                    .header("Content-Type", "application/json")
+                    .method("PATCH", incrementOfOne)
+                    .build();
+
+            run(WARMUP_CONNECTIONS, WARMUP_NANOS, findByNome);
+            run(WARMUP_CONNECTIONS, WARMUP_NANOS, increment);
+            for (int connections : CONNECTIONS) {
+                print(mode, "findByNome", connections, run(connections, DURATION_NANOS, findByNome));
+                print(mode, "increment", connections, run(connections, DURATION_NANOS, increment));
+            }
+        }
+    }
+
+    private long[] run(int connections, long durationNanos, IntFunction<HttpRequest> requests) throws Exception {
+        ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor();
+        HttpClient httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(clients)
+                .build();
+        AtomicInteger errors = new AtomicInteger();
+        List<Future<long[]>> futures = new ArrayList<>(connections);
+        long deadline = System.nanoTime() + durationNanos;
+        for (int c = 0; c < connections; c++) {
+            futures.add(clients.submit(() -> {
+                long[] latencies = new long[1024];
+                int count = 0;
+                while (System.nanoTime() < deadline) {
+                    long start = System.nanoTime();
+                    HttpResponse<Void> response = httpClient.send(requests.apply(ThreadLocalRandom.current().nextInt(BEERS)), HttpResponse.BodyHandlers.discarding());
+                    if (response.statusCode() != 200) {
+                        errors.incrementAndGet();
+                    }
+                    if (count == latencies.length) {
+                        latencies = Arrays.copyOf(latencies, count * 2);
+                    }
+                    latencies[count++] = System.nanoTime() - start;
+                }
+                return Arrays.copyOf(latencies, count);
+            }));
+        }
+        long[] all = new long[0];
+        for (Future<long[]> future : futures) {
+            long[] latencies = future.get();
+            int offset = all.length;
+            all = Arrays.copyOf(all, offset + latencies.length);
+            System.arraycopy(latencies, 0, all, offset, latencies.length);
+        }
+        clients.shutdown();
+        Arrays.sort(all);
+
+        assertThat(errors.get(), is(equalTo(0)));
+        return all;
+    }
+
+    private static void print(String mode, String operation, int connections, long[] all) {
+        System.out.printf("%-8s %-10s %5d connections: %8.0f req/s | p50 %7.2f ms | p99 %7.2f ms | max %8.2f ms%n",
+                mode, operation, connections,
+                all.length / (DURATION_NANOS / 1e9),
+                percentile(all, 0.50), percentile(all, 0.99), all[all.length - 1] / 1e6);
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        return sorted[(int) Math.min(sorted.length - 1, Math.round(percentile * sorted.length))] / 1e6;
+    }
+}
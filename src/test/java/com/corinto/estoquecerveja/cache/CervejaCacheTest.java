@@ -0,0 +1,94 @@
+package com.corinto.estoquecerveja.cache;
+
+import com.corinto.estoquecerveja.builder.CervejaDTOBuilder;
+import com.corinto.estoquecerveja.dto.CervejaDTO;
+import com.corinto.estoquecerveja.event.CervejaChangedEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class CervejaCacheTest {
+
+    private MeterRegistry meterRegistry;
+
+    private CervejaCache cervejaCache;
+
+    private CervejaDTO cervejaDTO;
+
+    private AtomicInteger loads;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cervejaCache = new CervejaCache(meterRegistry, 1, Duration.ofMinutes(1));
+        cervejaDTO = CervejaDTOBuilder.builder().build().toCervejaDTO();
+        loads = new AtomicInteger();
+    }
+
+    @Test
+    void whenSameNomeIsReadTwiceThenItIsLoadedOnceAndHitsAreCounted() {
+        CervejaDTO first = cervejaCache.get(cervejaDTO.getNome(), this::load).orElseThrow();
+        CervejaDTO second = cervejaCache.get(cervejaDTO.getNome(), this::load).orElseThrow();
+
+        assertThat(loads.get(), is(equalTo(1)));
+        assertThat(second, is(equalTo(first)));
+        assertThat(second, is(not(sameInstance(first))));
+        assertThat(gets("hit"), is(equalTo(1.0)));
+        assertThat(gets("miss"), is(equalTo(1.0)));
+    }
+
+    @Test
+    void whenCervejaChangesThenItIsLoadedAgain() {
+        cervejaCache.get(cervejaDTO.getNome(), this::load);
+
+        cervejaCache.onCervejaChanged(new CervejaChangedEvent(CervejaChangedEvent.Operacao.STOCK_CHANGED, cervejaDTO));
+        cervejaCache.get(cervejaDTO.getNome(), this::load);
+
+        assertThat(loads.get(), is(equalTo(2)));
+    }
+
+    @Test
+    void whenAChangeCommitsWhileWarmingThenTheWarmedEntriesAreDropped() {
+        long generation = cervejaCache.generation();
+        cervejaCache.warm(Stream.of(cervejaDTO), generation);
+        cervejaCache.get(cervejaDTO.getNome(), this::load);
+
+        cervejaCache.onCervejaChanged(new CervejaChangedEvent(CervejaChangedEvent.Operacao.STOCK_CHANGED, cervejaDTO));
+        cervejaCache.warm(Stream.of(cervejaDTO), generation);
+        cervejaCache.get(cervejaDTO.getNome(), this::load);
+
+        assertThat(loads.get(), is(equalTo(1)));
+        assertThat(cervejaCache.hottest(), contains(cervejaDTO.getNome()));
+    }
+
+    @Test
+    void whenCervejaIsNotFoundThenNothingIsCached() {
+        Optional<CervejaDTO> missing = cervejaCache.get("Desconhecida", nome -> Optional.empty());
+
+        assertThat(missing.isPresent(), is(false));
+        assertThat(meterRegistry.get("cache.size").tag("cache", CervejaCache.CACHE_NAME).gauge().value(), is(equalTo(0.0)));
+    }
+
+    private Optional<CervejaDTO> load(String nome) {
+        loads.incrementAndGet();
+        return Optional.of(cervejaDTO);
+    }
+
+    private double gets(String result) {
+        return meterRegistry.get("cache.gets").tag("cache", CervejaCache.CACHE_NAME).tag("result", result)
+                .functionCounter().count();
+    }
+}
@@ -0,0 +1,162 @@
+package com.corinto.estoquecerveja.catalogue;
+
+import com.corinto.estoquecerveja.builder.CervejaDTOBuilder;
+import com.corinto.estoquecerveja.dto.CervejaDTO;
+import com.corinto.estoquecerveja.enums.Tipo;
+import com.corinto.estoquecerveja.event.CervejaChangedEvent;
+import com.corinto.estoquecerveja.repository.CervejaRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class CatalogueSnapshotTest {
+
+    private static final int BEERS = 300;
+
+    @Mock
+    private CervejaRepository cervejaRepository;
+
+    @TempDir
+    Path directory;
+
+    private CatalogueSnapshot catalogueSnapshot;
+
+    @BeforeEach
+    void setUp() {
+        catalogueSnapshot = new CatalogueSnapshot(cervejaRepository, true, directory, Runnable::run);
+    }
+
+    @Test
+    void whenTheSnapshotIsBuiltThenEveryBeerIsFoundByNomeAndListedInIdOrder() {
+        List<CervejaDTO> cervejas = LongStream.rangeClosed(1, BEERS).mapToObj(CatalogueSnapshotTest::cerveja).collect(Collectors.toList());
+        when(cervejaRepository.findDTOsAfter(eq(0L), any(Pageable.class))).thenReturn(cervejas);
+
+        catalogueSnapshot.start();
+
+        assertThat(catalogueSnapshot.isReady(), is(true));
+        for (CervejaDTO cervejaDTO : cervejas) {
+            assertThat(catalogueSnapshot.findByNome(cervejaDTO.getNome()), is(equalTo(Optional.of(cervejaDTO))));
+        }
+        assertThat(catalogueSnapshot.findByNome("Cerveja 0"), is(equalTo(Optional.empty())));
+        assertThat(ids(catalogueSnapshot.listAfter(BEERS - 3, 10)), contains(BEERS - 2L, BEERS - 1L, (long) BEERS));
+        assertThat(catalogueSnapshot.listAll(), is(equalTo(cervejas)));
+    }
+
+    @Test
+    void whenBeersChangeAfterTheBuildThenReadsSeeTheChangesBeforeTheNextOne() {
+        when(cervejaRepository.findDTOsAfter(eq(0L), any(Pageable.class))).thenReturn(List.of(cerveja(1), cerveja(2), cerveja(3)));
+        catalogueSnapshot.start();
+
+        CervejaDTO renomeada = cerveja(2).toBuilder().nome("Açaí Sour").build();
+        changed(CervejaChangedEvent.Operacao.UPDATED, renomeada);
+        changed(CervejaChangedEvent.Operacao.DELETED, cerveja(3));
+        changed(CervejaChangedEvent.Operacao.CREATED, cerveja(4));
+
+        assertThat(catalogueSnapshot.findByNome("Cerveja 2"), is(equalTo(Optional.empty())));
+        assertThat(catalogueSnapshot.findByNome("Açaí Sour"), is(equalTo(Optional.of(renomeada))));
+        assertThat(catalogueSnapshot.findByNome("Cerveja 3"), is(equalTo(Optional.empty())));
+        assertThat(ids(catalogueSnapshot.listAll()), contains(1L, 2L, 4L));
+    }
+
+    @Test
+    void whenOnlyStockChangesThenNoRebuildIsDueAndReadsSeeTheLastQuantidade() {
+        when(cervejaRepository.findDTOsAfter(eq(0L), any(Pageable.class))).thenReturn(List.of(cerveja(1), cerveja(2)));
+        catalogueSnapshot.start();
+
+        changed(CervejaChangedEvent.Operacao.STOCK_CHANGED, cerveja(1).toBuilder().quantidade(9).build());
+        changed(CervejaChangedEvent.Operacao.STOCK_CHANGED, cerveja(1).toBuilder().quantidade(7).build());
+        catalogueSnapshot.refresh();
+
+        verify(cervejaRepository, times(1)).findDTOsAfter(eq(0L), any(Pageable.class));
+        assertThat(catalogueSnapshot.findByNome("Cerveja 1"), is(equalTo(Optional.of(cerveja(1).toBuilder().quantidade(7).build()))));
+        assertThat(catalogueSnapshot.listAll(), contains(cerveja(1).toBuilder().quantidade(7).build(), cerveja(2)));
+    }
+
+    @Test
+    void whenABeerIsEditedAfterAStockChangeThenTheStockChangeStillApplies() {
+        when(cervejaRepository.findDTOsAfter(eq(0L), any(Pageable.class))).thenReturn(List.of(cerveja(1)));
+        catalogueSnapshot.start();
+
+        changed(CervejaChangedEvent.Operacao.UPDATED, cerveja(1).toBuilder().marca("Heineken").build());
+        changed(CervejaChangedEvent.Operacao.STOCK_CHANGED, cerveja(1).toBuilder().quantidade(9).build());
+
+        assertThat(catalogueSnapshot.findByNome("Cerveja 1"),
+                is(equalTo(Optional.of(cerveja(1).toBuilder().marca("Heineken").quantidade(9).build()))));
+    }
+
+    @Test
+    void whenTheSnapshotIsRebuiltThenStockChangesItReadAreDropped() {
+        when(cervejaRepository.findDTOsAfter(eq(0L), any(Pageable.class))).thenReturn(List.of(cerveja(1)));
+        catalogueSnapshot.start();
+        changed(CervejaChangedEvent.Operacao.STOCK_CHANGED, cerveja(1).toBuilder().quantidade(9).build());
+        changed(CervejaChangedEvent.Operacao.CREATED, cerveja(2));
+
+        when(cervejaRepository.findDTOsAfter(eq(0L), any(Pageable.class))).thenReturn(List.of(cerveja(1).toBuilder().quantidade(5).build(), cerveja(2)));
+        catalogueSnapshot.refresh();
+
+        assertThat(catalogueSnapshot.findByNome("Cerveja 1").orElseThrow().getQuantidade(), is(equalTo(5)));
+    }
+
+    @Test
+    void whenABeerChangesWhileTheSnapshotIsRebuiltThenTheChangeIsKeptAfterTheSwap() {
+        when(cervejaRepository.findDTOsAfter(eq(0L), any(Pageable.class))).thenReturn(List.of(cerveja(1)));
+        catalogueSnapshot.start();
+        changed(CervejaChangedEvent.Operacao.UPDATED, cerveja(1).toBuilder().marca("Heineken").build());
+
+        when(cervejaRepository.findDTOsAfter(eq(0L), any(Pageable.class))).thenAnswer(invocation -> {
+            changed(CervejaChangedEvent.Operacao.CREATED, cerveja(2));
+            return List.of(cerveja(1).toBuilder().marca("Heineken").build());
+        });
+        catalogueSnapshot.refresh();
+
+        assertThat(catalogueSnapshot.findByNome("Cerveja 1").orElseThrow().getMarca(), is(equalTo("Heineken")));
+        assertThat(ids(catalogueSnapshot.listAll()), contains(1L, 2L));
+    }
+
+    @Test
+    void whenTheSnapshotIsDisabledThenReadsStayOnTheDatabase() {
+        catalogueSnapshot = new CatalogueSnapshot(cervejaRepository, false, directory, Runnable::run);
+
+        catalogueSnapshot.start();
+        catalogueSnapshot.refresh();
+        changed(CervejaChangedEvent.Operacao.CREATED, cerveja(1));
+
+        assertThat(catalogueSnapshot.isReady(), is(false));
+        verifyNoInteractions(cervejaRepository);
+    }
+
+    private void changed(CervejaChangedEvent.Operacao operacao, CervejaDTO cervejaDTO) {
+        catalogueSnapshot.onCervejaChanged(new CervejaChangedEvent(operacao, cervejaDTO));
+    }
+
+    private static List<Long> ids(List<CervejaDTO> cervejas) {
+        return cervejas.stream().map(CervejaDTO::getId).collect(Collectors.toList());
+    }
+
+    private static CervejaDTO cerveja(long id) {
+        return CervejaDTOBuilder.builder().id(id).nome("Cerveja " + id).marca("Marca " + id % 7).max(100).quantidade((int) id % 100)
+                .tipo(Tipo.values()[(int) id % Tipo.values().length]).build().toCervejaDTO();
+    }
+}
@@ -0,0 +1,104 @@
+package com.corinto.estoquecerveja.cluster;
+
+import com.corinto.estoquecerveja.builder.CervejaDTOBuilder;
+import com.corinto.estoquecerveja.dto.CervejaDTO;
+import com.corinto.estoquecerveja.dto.EventoClusterDTO;
+import com.corinto.estoquecerveja.entity.Cerveja;
+import com.corinto.estoquecerveja.event.CervejaChangedEvent;
+import com.corinto.estoquecerveja.stock.CervejaStockCounters;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class ClusterEventRelayTest {
+
+    private static final String NO = "http://localhost:8081";
+    private static final String PEER = "http://localhost:8082";
+
+    @Mock
+    private ClusterMembership membership;
+
+    @Mock
+    private ClusterClient client;
+
+    @Mock
+    private CervejaStockCounters stockCounters;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private ClusterEventRelay relay;
+
+    private final CervejaDTO cervejaDTO = CervejaDTOBuilder.builder().build().toCervejaDTO();
+
+    @BeforeEach
+    void setUp() {
+        relay = new ClusterEventRelay(membership, client, stockCounters, eventPublisher);
+    }
+
+    @AfterEach
+    void tearDown() {
+        relay.stop();
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    void whenABeerChangesHereThenTheChangeIsSentToTheOtherMembers() throws Exception {
+        when(membership.getNo()).thenReturn(NO);
+        when(membership.getRing()).thenReturn(new HashRing(Set.of(NO, PEER), 16));
+
+        relay.onCervejaChanged(new CervejaChangedEvent(CervejaChangedEvent.Operacao.STOCK_CHANGED, cervejaDTO, 5));
+
+        ArgumentCaptor<List<EventoClusterDTO>> lote = ArgumentCaptor.forClass(List.class);
+        verify(client, timeout(5000)).relay(eq(PEER), lote.capture());
+        assertThat(lote.getValue(), contains(new EventoClusterDTO(CervejaChangedEvent.Operacao.STOCK_CHANGED, cervejaDTO, 5)));
+        verify(client, never()).relay(eq(NO), anyList());
+    }
+
+    @Test
+    void whenAChangeCameFromAnotherNodeThenItIsNotSentBack() throws Exception {
+        relay.onCervejaChanged(new CervejaChangedEvent(CervejaChangedEvent.Operacao.STOCK_CHANGED, cervejaDTO, 5, true));
+
+        Thread.sleep(100);
+        verify(client, never()).relay(anyString(), anyList());
+    }
+
+    @Test
+    void whenChangesAreReceivedThenTheyAreMirroredAndPublishedAsRemote() {
+        relay.receive(List.of(
+                new EventoClusterDTO(CervejaChangedEvent.Operacao.STOCK_CHANGED, cervejaDTO, -3),
+                new EventoClusterDTO(CervejaChangedEvent.Operacao.UPDATED, cervejaDTO, 0),
+                new EventoClusterDTO(CervejaChangedEvent.Operacao.DELETED, cervejaDTO, 0)));
+
+        verify(stockCounters).applyIncrement(cervejaDTO.getId(), -3);
+        verify(stockCounters).describe(any(Cerveja.class));
+        verify(stockCounters).evict(cervejaDTO.getId());
+        ArgumentCaptor<CervejaChangedEvent> event = ArgumentCaptor.forClass(CervejaChangedEvent.class);
+        verify(eventPublisher, times(3)).publishEvent(event.capture());
+        assertThat(event.getAllValues().stream().allMatch(CervejaChangedEvent::isRemoto), is(true));
+        assertThat(event.getAllValues().get(0).getDelta(), is(equalTo(-3)));
+    }
+}
@@ -0,0 +1,118 @@
+package com.corinto.estoquecerveja.cluster;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class ClusterForwardingFilterTest {
+
+    private static final String NO = "http://localhost:8081";
+    private static final String OWNER = "http://localhost:8082";
+
+    @Mock
+    private ClusterMembership membership;
+
+    @Mock
+    private ClusterClient client;
+
+    @Test
+    void whenAPathIsAboutOneBeerThenItsIdIsFound() {
+        assertThat(ClusterForwardingFilter.cervejaId("/api/v1/cervejas/42"), is(equalTo(42L)));
+        assertThat(ClusterForwardingFilter.cervejaId("/api/v1/cervejas/42/locais/loja/increment"), is(equalTo(42L)));
+        assertThat(ClusterForwardingFilter.cervejaId("/api/v1/cervejas/reservas/42-0b8e/commit"), is(equalTo(42L)));
+        assertThat(ClusterForwardingFilter.cervejaId("/api/v1/cervejas/reservas/0b8e-42"), is(nullValue()));
+        assertThat(ClusterForwardingFilter.cervejaId("/api/v1/cervejas/movements"), is(nullValue()));
+        assertThat(ClusterForwardingFilter.cervejaId("/api/v1/cervejas"), is(nullValue()));
+    }
+
+    @Test
+    void whenAnotherNodeOwnsTheBeerThenTheRequestAndItsResponseAreRelayed() throws Exception {
+        MockHttpServletRequest request = patch("/api/v1/cervejas/42/increment");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+        when(membership.getNo()).thenReturn(NO);
+        when(membership.owner(42L)).thenReturn(OWNER);
+        HttpResponse<byte[]> resposta = resposta(200, "{\"quantidade\":15}");
+        when(client.forward(eq(OWNER), eq("PATCH"), eq("/api/v1/cervejas/42/increment"), anyMap(), any())).thenReturn(resposta);
+
+        filter().doFilter(request, response, chain);
+
+        assertThat(chain.getRequest(), is(nullValue()));
+        assertThat(response.getStatus(), is(equalTo(200)));
+        assertThat(response.getContentAsString(), is(equalTo("{\"quantidade\":15}")));
+        assertThat(response.getHeader("Content-Type"), is(equalTo("application/json")));
+    }
+
+    @Test
+    void whenTheOwnerCannotBeReachedThenItIsTakenOutAndTheNextOwnerHandlesIt() throws Exception {
+        MockHttpServletRequest request = patch("/api/v1/cervejas/42/increment");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+        when(membership.getNo()).thenReturn(NO);
+        when(membership.owner(42L)).thenReturn(OWNER, NO);
+        when(client.forward(eq(OWNER), anyString(), anyString(), anyMap(), any())).thenThrow(new IOException("Connection refused"));
+
+        filter().doFilter(request, response, chain);
+
+        verify(membership).down(OWNER);
+        assertThat(new String(chain.getRequest().getInputStream().readAllBytes(), StandardCharsets.UTF_8), is(equalTo("{\"quantidade\":5}")));
+    }
+
+    @Test
+    void whenTheRequestWasAlreadyForwardedThenItIsHandledHere() throws Exception {
+        MockHttpServletRequest request = patch("/api/v1/cervejas/42/increment");
+        request.addHeader(ClusterClient.FORWARDED_HEADER, OWNER);
+        MockFilterChain chain = new MockFilterChain();
+
+        filter().doFilter(request, new MockHttpServletResponse(), chain);
+
+        assertThat(chain.getRequest(), is(equalTo(request)));
+        verify(membership, never()).owner(42L);
+    }
+
+    private ClusterForwardingFilter filter() {
+        return new ClusterForwardingFilter(membership, client);
+    }
+
+    private static MockHttpServletRequest patch(String uri) {
+        MockHttpServletRequest request = new MockHttpServletRequest("PATCH", uri);
+        request.setContentType("application/json");
+        request.setContent("{\"quantidade\":5}".getBytes(StandardCharsets.UTF_8));
+        return request;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static HttpResponse<byte[]> resposta(int status, String corpo) {
+        HttpResponse<byte[]> resposta = mock(HttpResponse.class);
+        when(resposta.statusCode()).thenReturn(status);
+        when(resposta.body()).thenReturn(corpo.getBytes(StandardCharsets.UTF_8));
+        when(resposta.headers()).thenReturn(HttpHeaders.of(Map.of("Content-Type", List.of("application/json"),
+                "Content-Length", List.of(String.valueOf(corpo.length()))), (nome, valor) -> true));
+        return resposta;
+    }
+}
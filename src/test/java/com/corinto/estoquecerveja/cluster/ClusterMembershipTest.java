@@ -0,0 +1,95 @@
+package com.corinto.estoquecerveja.cluster;
+
+import com.corinto.estoquecerveja.ledger.StockLedger;
+import com.corinto.estoquecerveja.stock.CervejaStockCounters;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Predicate;
+import java.util.stream.LongStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class ClusterMembershipTest {
+
+    private static final String NO = "http://localhost:8081";
+    private static final String PEER = "http://localhost:8082";
+    private static final String OUTRO_PEER = "http://localhost:8083";
+
+    @Mock
+    private ClusterClient client;
+
+    @Mock
+    private CervejaStockCounters stockCounters;
+
+    @Mock
+    private StockLedger stockLedger;
+
+    private ClusterMembership membership;
+
+    @BeforeEach
+    void setUp() {
+        membership = new ClusterMembership(client, stockCounters, stockLedger, NO + "/", List.of(NO, PEER, OUTRO_PEER, ""), 64, 2);
+    }
+
+    @Test
+    void whenOnlyThisNodeIsUpThenItOwnsEveryBeer() {
+        LongStream.rangeClosed(1, 1000).forEach(id -> assertThat(membership.owner(id), is(equalTo(NO))));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    void whenAPeerAnswersThenItJoinsAndTheBeersItTakesOverAreHandedOff() {
+        when(client.ping(PEER)).thenReturn(CompletableFuture.completedFuture(true));
+        when(client.ping(OUTRO_PEER)).thenReturn(CompletableFuture.completedFuture(false));
+
+        membership.heartbeat();
+
+        assertThat(membership.getRing().getNos(), containsInAnyOrder(NO, PEER));
+        ArgumentCaptor<Predicate<Long>> retidos = ArgumentCaptor.forClass(Predicate.class);
+        verify(stockCounters).handOff(retidos.capture());
+        LongStream.rangeClosed(1, 1000).forEach(id ->
+                assertThat(retidos.getValue().test(id), is(membership.owner(id).equals(NO))));
+    }
+
+    @Test
+    void whenAPeerMissesHeartbeatsThenItIsOnlyTakenOutAtTheThreshold() {
+        membership.up(PEER);
+        when(client.ping(PEER)).thenReturn(CompletableFuture.completedFuture(false));
+        when(client.ping(OUTRO_PEER)).thenReturn(CompletableFuture.completedFuture(false));
+
+        membership.heartbeat();
+        assertThat(membership.getRing().contains(PEER), is(true));
+
+        membership.heartbeat();
+        assertThat(membership.getRing().contains(PEER), is(false));
+        verify(stockCounters, times(2)).handOff(any());
+    }
+
+    @Test
+    void whenThisNodeLeavesThenItHandsEveryBeerOverBeforeSayingGoodbye() throws Exception {
+        membership.up(PEER);
+
+        membership.leave();
+
+        assertThat(membership.isSaiu(), is(true));
+        verify(stockCounters, times(2)).handOff(any());
+        verify(client).leave(PEER);
+        verify(client, never()).leave(OUTRO_PEER);
+    }
+}
@@ -0,0 +1,62 @@
+package com.corinto.estoquecerveja.cluster;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+
+public class HashRingTest {
+
+    private static final int IDS = 30_000;
+    private static final List<String> NOS = List.of("http://localhost:8081", "http://localhost:8082", "http://localhost:8083");
+
+    @Test
+    void whenRingsHaveTheSameMembersThenTheyAgreeOnEveryOwner() {
+        HashRing ring = new HashRing(NOS, 128);
+        HashRing outro = new HashRing(List.of(NOS.get(2), NOS.get(0), NOS.get(1)), 128);
+
+        for (long id = 1; id <= IDS; id++) {
+            assertThat(outro.owner(id), is(equalTo(ring.owner(id))));
+        }
+    }
+
+    @Test
+    void whenIdsAreSpreadThenEveryNodeOwnsAboutItsShare() {
+        HashRing ring = new HashRing(NOS, 128);
+        Map<String, Integer> porNo = new HashMap<>();
+
+        for (long id = 1; id <= IDS; id++) {
+            porNo.merge(ring.owner(id), 1, Integer::sum);
+        }
+
+        for (String no : NOS) {
+            assertThat(porNo.get(no), is(greaterThan(IDS / NOS.size() * 8 / 10)));
+            assertThat(porNo.get(no), is(lessThan(IDS / NOS.size() * 12 / 10)));
+        }
+    }
+
+    @Test
+    void whenANodeJoinsThenOnlyTheIdsItTakesOverChangeOwner() {
+        HashRing antes = new HashRing(NOS, 128);
+        String novo = "http://localhost:8084";
+        HashRing depois = new HashRing(List.of(NOS.get(0), NOS.get(1), NOS.get(2), novo), 128);
+        int movidos = 0;
+
+        for (long id = 1; id <= IDS; id++) {
+            if (!depois.owner(id).equals(antes.owner(id))) {
+                assertThat(depois.owner(id), is(equalTo(novo)));
+                movidos++;
+            }
+        }
+
+        assertThat(movidos, is(greaterThan(IDS / 4 * 8 / 10)));
+        assertThat(movidos, is(lessThan(IDS / 4 * 12 / 10)));
+    }
+}
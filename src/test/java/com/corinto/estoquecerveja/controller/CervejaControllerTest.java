@@ -2,31 +2,73 @@ package com.corinto.estoquecerveja.controller;
 
 import com.corinto.estoquecerveja.builder.CervejaDTOBuilder;
 import com.corinto.estoquecerveja.dto.CervejaDTO;
+import com.corinto.estoquecerveja.dto.CervejaPageDTO;
+import com.corinto.estoquecerveja.dto.EstoqueLocalDTO;
+import com.corinto.estoquecerveja.dto.EstoqueSnapshotDTO;
+import com.corinto.estoquecerveja.dto.ImportacaoErroDTO;
+import com.corinto.estoquecerveja.dto.ImportacaoResultadoDTO;
+import com.corinto.estoquecerveja.dto.MovimentacaoDTO;
+import com.corinto.estoquecerveja.dto.MovimentacaoResultadoDTO;
+import com.corinto.estoquecerveja.dto.MovimentoEstoqueDTO;
 import com.corinto.estoquecerveja.dto.QuantidadeDTO;
+import com.corinto.estoquecerveja.dto.ReservaDTO;
+import com.corinto.estoquecerveja.enums.FormatoExportacao;
+import com.corinto.estoquecerveja.enums.Tipo;
+import com.corinto.estoquecerveja.exception.CervejaConflictException;
 import com.corinto.estoquecerveja.exception.CervejaNotFoundException;
+import com.corinto.estoquecerveja.exception.CervejaStockExceededException;
+import com.corinto.estoquecerveja.exception.EstoqueLocalNotFoundException;
+import com.corinto.estoquecerveja.exception.ImportacaoInvalidaException;
+import com.corinto.estoquecerveja.exception.ReservaNotFoundException;
 import com.corinto.estoquecerveja.service.CervejaService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.web.PageableHandlerMethodArgumentResolver;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.validation.beanvalidation.MethodValidationPostProcessor;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import org.springframework.web.servlet.view.json.MappingJackson2JsonView;
 
+import java.io.BufferedReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.time.Instant;
 import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 import static com.corinto.estoquecerveja.utils.JsonConvertionUtils.asJsonString;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.startsWith;
 import static org.hamcrest.core.Is.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @ExtendWith(MockitoExtension.class)
@@ -37,18 +79,27 @@ public class CervejaControllerTest {
     private static final long INVALID_BEER_ID = 2l;
     private static final String BEER_API_SUBPATH_INCREMENT_URL = "/increment";
     private static final String BEER_API_SUBPATH_DECREMENT_URL = "/decrement";
+    private static final String BEER_API_SUBPATH_RESERVAS_URL = "/reservas";
+    private static final String BEER_API_SUBPATH_MOVEMENTS_URL = "/movements";
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
 
     private MockMvc mockMvc;
 
     @Mock
     private CervejaService cervejaService;
 
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
     @InjectMocks
     private CervejaController cervejaController;
 
     @BeforeEach
     void setUp() {
-        mockMvc = MockMvcBuilders.standaloneSetup(cervejaController)
+        MethodValidationPostProcessor methodValidation = new MethodValidationPostProcessor();
+        methodValidation.setProxyTargetClass(true);
+        methodValidation.afterPropertiesSet();
+        mockMvc = MockMvcBuilders.standaloneSetup(methodValidation.postProcessAfterInitialization(cervejaController, "cervejaController"))
                 .setCustomArgumentResolvers(new PageableHandlerMethodArgumentResolver())
                 .setViewResolvers((s, locale) -> new MappingJackson2JsonView())
                 .build();
@@ -147,6 +198,57 @@ public class CervejaControllerTest {
                 .andExpect(status().isOk());
     }
 
+    @Test
+    void whenGETListIsCalledThenTheCatalogueEtagIsReturned() throws Exception {
+        // given
+        CervejaDTO cervejaDTO = CervejaDTOBuilder.builder().build().toCervejaDTO();
+
+        //when
+        when(cervejaService.catalogueEtag()).thenReturn("1a2b-7");
+        when(cervejaService.listAll()).thenReturn(Collections.singletonList(cervejaDTO));
+
+        // then
+        mockMvc.perform(MockMvcRequestBuilders.get(BEER_API_URL_PATH)
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"1a2b-7\""));
+    }
+
+    @Test
+    void whenGETListIsCalledWithTheCurrentEtagThenNotModifiedIsReturnedWithoutReadingTheCatalogue() throws Exception {
+        //when
+        when(cervejaService.catalogueEtag()).thenReturn("1a2b-7");
+
+        // then
+        mockMvc.perform(MockMvcRequestBuilders.get(BEER_API_URL_PATH)
+                .header("If-None-Match", "\"1a2b-7\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", "\"1a2b-7\""))
+                .andExpect(content().string(""));
+        mockMvc.perform(MockMvcRequestBuilders.get(BEER_API_URL_PATH).param("size", "20")
+                .header("If-None-Match", "\"1a2b-7\""))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(MockMvcRequestBuilders.get(BEER_API_URL_PATH + "/Brahma")
+                .header("If-None-Match", "\"1a2b-7\""))
+                .andExpect(status().isNotModified());
+        verify(cervejaService, never()).listAll();
+        verify(cervejaService, never()).listPage(any(), anyInt());
+        verify(cervejaService, never()).findByNome(any());
+    }
+
+    @Test
+    void whenGETListIsCalledWithAStaleEtagThenTheCatalogueIsReturned() throws Exception {
+        //when
+        when(cervejaService.catalogueEtag()).thenReturn("1a2b-8");
+        when(cervejaService.listAll()).thenReturn(Collections.emptyList());
+
+        // then
+        mockMvc.perform(MockMvcRequestBuilders.get(BEER_API_URL_PATH)
+                .header("If-None-Match", "\"1a2b-7\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"1a2b-8\""));
+    }
+
     @Test
     void whenDELETEIsCalledWithValidIdThenNoContentStatusIsReturned() throws Exception {
         // given
@@ -161,6 +263,39 @@ public class CervejaControllerTest {
                 .andExpect(status().isNoContent());
     }
 
+    @Test
+    void whenPUTIsCalledThenTheEditedBeerIsReturned() throws Exception {
+        // given
+        CervejaDTO cervejaDTO = CervejaDTOBuilder.builder().nome("Brahma Extra").tipo(Tipo.IPA).build().toCervejaDTO();
+
+        // when
+        when(cervejaService.updateCerveja(VALID_BEER_ID, cervejaDTO)).thenReturn(cervejaDTO);
+
+        // then
+        mockMvc.perform(MockMvcRequestBuilders.put(BEER_API_URL_PATH + "/" + VALID_BEER_ID)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(asJsonString(cervejaDTO)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.nome", is("Brahma Extra")))
+                .andExpect(jsonPath("$.tipo", is(Tipo.IPA.toString())));
+    }
+
+    @Test
+    void whenPUTKeepsLosingToConcurrentChangesThenConflictStatusIsReturned() throws Exception {
+        // given
+        CervejaDTO cervejaDTO = CervejaDTOBuilder.builder().build().toCervejaDTO();
+
+        // when
+        when(cervejaService.updateCerveja(VALID_BEER_ID, cervejaDTO))
+                .thenThrow(new CervejaConflictException("updateCerveja", 5, null));
+
+        // then
+        mockMvc.perform(MockMvcRequestBuilders.put(BEER_API_URL_PATH + "/" + VALID_BEER_ID)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(asJsonString(cervejaDTO)))
+                .andExpect(status().isConflict());
+    }
+
     @Test
     void whenDELETEIsCalledWithInvalidIdThenNotFoundStatusIsReturned() throws Exception {
         //when
@@ -220,53 +355,388 @@ public class CervejaControllerTest {
 //                .content(asJsonString(quantityDTO)))
 //                .andExpect(status().isNotFound());
 //    }
-//
-//    @Test
-//    void whenPATCHIsCalledToDecrementDiscountThenOKstatusIsReturned() throws Exception {
-//        QuantityDTO quantityDTO = QuantityDTO.builder()
-//                .quantity(5)
-//                .build();
-//
-//        BeerDTO beerDTO = BeerDTOBuilder.builder().build().toBeerDTO();
-//        beerDTO.setQuantity(beerDTO.getQuantity() + quantityDTO.getQuantity());
-//
-//        when(beerService.decrement(VALID_BEER_ID, quantityDTO.getQuantity())).thenReturn(beerDTO);
-//
-//        mockMvc.perform(patch(BEER_API_URL_PATH + "/" + VALID_BEER_ID + BEER_API_SUBPATH_DECREMENT_URL)
-//                .contentType(MediaType.APPLICATION_JSON)
-//                .content(asJsonString(quantityDTO))).andExpect(status().isOk())
-//                .andExpect(jsonPath("$.name", is(beerDTO.getName())))
-//                .andExpect(jsonPath("$.brand", is(beerDTO.getBrand())))
-//                .andExpect(jsonPath("$.type", is(beerDTO.getType().toString())))
-//                .andExpect(jsonPath("$.quantity", is(beerDTO.getQuantity())));
-//    }
-//
-//    @Test
-//    void whenPATCHIsCalledToDEcrementLowerThanZeroThenBadRequestStatusIsReturned() throws Exception {
-//        QuantityDTO quantityDTO = QuantityDTO.builder()
-//                .quantity(60)
-//                .build();
-//
-//        BeerDTO beerDTO = BeerDTOBuilder.builder().build().toBeerDTO();
-//        beerDTO.setQuantity(beerDTO.getQuantity() + quantityDTO.getQuantity());
-//
-//        when(beerService.decrement(VALID_BEER_ID, quantityDTO.getQuantity())).thenThrow(BeerStockExceededException.class);
-//
-//        mockMvc.perform(patch(BEER_API_URL_PATH + "/" + VALID_BEER_ID + BEER_API_SUBPATH_DECREMENT_URL)
-//                .contentType(MediaType.APPLICATION_JSON)
-//                .content(asJsonString(quantityDTO))).andExpect(status().isBadRequest());
-//    }
-//
-//    @Test
-//    void whenPATCHIsCalledWithInvalidBeerIdToDecrementThenNotFoundStatusIsReturned() throws Exception {
-//        QuantityDTO quantityDTO = QuantityDTO.builder()
-//                .quantity(5)
-//                .build();
-//
-//        when(beerService.decrement(INVALID_BEER_ID, quantityDTO.getQuantity())).thenThrow(BeerNotFoundException.class);
-//        mockMvc.perform(patch(BEER_API_URL_PATH + "/" + INVALID_BEER_ID + BEER_API_SUBPATH_DECREMENT_URL)
-//                .contentType(MediaType.APPLICATION_JSON)
-//                .content(asJsonString(quantityDTO)))
-//                .andExpect(status().isNotFound());
-//    }
+
+    @Test
+    void whenPATCHIsCalledToDecrementDiscountThenOKstatusIsReturned() throws Exception {
+        QuantidadeDTO quantidadeDTO = QuantidadeDTO.builder()
+                .quantidade(5)
+                .build();
+
+        CervejaDTO cervejaDTO = CervejaDTOBuilder.builder().build().toCervejaDTO();
+        cervejaDTO.setQuantidade(cervejaDTO.getQuantidade() - quantidadeDTO.getQuantidade());
+
+        when(cervejaService.decrement(VALID_BEER_ID, quantidadeDTO.getQuantidade())).thenReturn(cervejaDTO);
+
+        mockMvc.perform(MockMvcRequestBuilders.patch(BEER_API_URL_PATH + "/" + VALID_BEER_ID + BEER_API_SUBPATH_DECREMENT_URL)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(asJsonString(quantidadeDTO))).andExpect(status().isOk())
+                .andExpect(jsonPath("$.nome", is(cervejaDTO.getNome())))
+                .andExpect(jsonPath("$.marca", is(cervejaDTO.getMarca())))
+                .andExpect(jsonPath("$.tipo", is(cervejaDTO.getTipo().toString())))
+                .andExpect(jsonPath("$.quantidade", is(cervejaDTO.getQuantidade())));
+    }
+
+    @Test
+    void whenPATCHIsCalledToDecrementLowerThanZeroThenBadRequestStatusIsReturned() throws Exception {
+        QuantidadeDTO quantidadeDTO = QuantidadeDTO.builder()
+                .quantidade(60)
+                .build();
+
+        when(cervejaService.decrement(VALID_BEER_ID, quantidadeDTO.getQuantidade())).thenThrow(CervejaStockExceededException.class);
+
+        mockMvc.perform(MockMvcRequestBuilders.patch(BEER_API_URL_PATH + "/" + VALID_BEER_ID + BEER_API_SUBPATH_DECREMENT_URL)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(asJsonString(quantidadeDTO))).andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void whenPATCHIsCalledToIncrementALocationThenTheLocationStockIsReturned() throws Exception {
+        QuantidadeDTO quantidadeDTO = QuantidadeDTO.builder()
+                .quantidade(5)
+                .build();
+
+        when(cervejaService.incrementAt(VALID_BEER_ID, "loja-centro", quantidadeDTO.getQuantidade()))
+                .thenReturn(new EstoqueLocalDTO(VALID_BEER_ID, "loja-centro", 20, 5));
+
+        mockMvc.perform(MockMvcRequestBuilders.patch(BEER_API_URL_PATH + "/" + VALID_BEER_ID + "/locais/loja-centro/increment")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(asJsonString(quantidadeDTO))).andExpect(status().isOk())
+                .andExpect(jsonPath("$.local", is("loja-centro")))
+                .andExpect(jsonPath("$.max", is(20)))
+                .andExpect(jsonPath("$.quantidade", is(5)));
+    }
+
+    @Test
+    void whenPATCHIsCalledToDecrementAnUnknownLocationThenNotFoundStatusIsReturned() throws Exception {
+        QuantidadeDTO quantidadeDTO = QuantidadeDTO.builder()
+                .quantidade(5)
+                .build();
+
+        when(cervejaService.decrementAt(VALID_BEER_ID, "loja-norte", quantidadeDTO.getQuantidade()))
+                .thenThrow(new EstoqueLocalNotFoundException(VALID_BEER_ID, "loja-norte"));
+
+        mockMvc.perform(MockMvcRequestBuilders.patch(BEER_API_URL_PATH + "/" + VALID_BEER_ID + "/locais/loja-norte/decrement")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(asJsonString(quantidadeDTO)))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void whenPUTIsCalledWithoutACapacityThenBadRequestStatusIsReturned() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.put(BEER_API_URL_PATH + "/" + VALID_BEER_ID + "/locais/loja-centro")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void whenGETIsCalledForTheLocationsOfABeerThenOkStatusIsReturned() throws Exception {
+        when(cervejaService.listLocations(VALID_BEER_ID)).thenReturn(List.of(
+                new EstoqueLocalDTO(VALID_BEER_ID, "deposito-sul", 100, 40),
+                new EstoqueLocalDTO(VALID_BEER_ID, "loja-centro", 20, 5)));
+
+        mockMvc.perform(MockMvcRequestBuilders.get(BEER_API_URL_PATH + "/" + VALID_BEER_ID + "/locais"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].local", is("deposito-sul")))
+                .andExpect(jsonPath("$[1].quantidade", is(5)));
+    }
+
+    @Test
+    void whenPATCHIsCalledWithInvalidBeerIdToDecrementThenNotFoundStatusIsReturned() throws Exception {
+        QuantidadeDTO quantidadeDTO = QuantidadeDTO.builder()
+                .quantidade(5)
+                .build();
+
+        when(cervejaService.decrement(INVALID_BEER_ID, quantidadeDTO.getQuantidade())).thenThrow(CervejaNotFoundException.class);
+
+        mockMvc.perform(MockMvcRequestBuilders.patch(BEER_API_URL_PATH + "/" + INVALID_BEER_ID + BEER_API_SUBPATH_DECREMENT_URL)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(asJsonString(quantidadeDTO)))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void whenPOSTIsCalledToReserveThenCreatedStatusIsReturned() throws Exception {
+        QuantidadeDTO quantidadeDTO = QuantidadeDTO.builder()
+                .quantidade(5)
+                .build();
+        ReservaDTO reservaDTO = new ReservaDTO("reserva-1", VALID_BEER_ID, quantidadeDTO.getQuantidade());
+
+        when(cervejaService.reserve(VALID_BEER_ID, quantidadeDTO.getQuantidade())).thenReturn(reservaDTO);
+
+        mockMvc.perform(post(BEER_API_URL_PATH + "/" + VALID_BEER_ID + BEER_API_SUBPATH_RESERVAS_URL)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(asJsonString(quantidadeDTO)))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.id", is(reservaDTO.getId())))
+                .andExpect(jsonPath("$.quantidade", is(reservaDTO.getQuantidade())));
+    }
+
+    @Test
+    void whenDELETEIsCalledWithUnknownReservaThenNotFoundStatusIsReturned() throws Exception {
+        doThrow(ReservaNotFoundException.class).when(cervejaService).releaseReserva("unknown");
+
+        mockMvc.perform(MockMvcRequestBuilders.delete(BEER_API_URL_PATH + BEER_API_SUBPATH_RESERVAS_URL + "/unknown"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void whenPOSTIsCalledWithMovementsThenPerEntryResultsAreReturned() throws Exception {
+        List<MovimentacaoDTO> movimentacoes = List.of(
+                new MovimentacaoDTO(VALID_BEER_ID, 10),
+                new MovimentacaoDTO(INVALID_BEER_ID, 10));
+        List<MovimentacaoResultadoDTO> resultados = List.of(
+                new MovimentacaoResultadoDTO(VALID_BEER_ID, 10, true, 20, null),
+                new MovimentacaoResultadoDTO(INVALID_BEER_ID, 10, false, null, "not found"));
+
+        when(cervejaService.applyMovements(movimentacoes)).thenReturn(resultados);
+
+        mockMvc.perform(post(BEER_API_URL_PATH + BEER_API_SUBPATH_MOVEMENTS_URL)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(asJsonString(movimentacoes)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].sucesso", is(true)))
+                .andExpect(jsonPath("$[0].quantidade", is(20)))
+                .andExpect(jsonPath("$[1].sucesso", is(false)));
+    }
+
+    @Test
+    void whenPOSTIsCalledWithAMovementWithoutADeltaThenBadRequestStatusIsReturned() throws Exception {
+        mockMvc.perform(post(BEER_API_URL_PATH + BEER_API_SUBPATH_MOVEMENTS_URL)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(asJsonString(List.of(new MovimentacaoDTO(VALID_BEER_ID, 10), new MovimentacaoDTO(VALID_BEER_ID, null)))))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(cervejaService);
+    }
+
+    @Test
+    void whenPOSTIsCalledWithTooManyMovementsThenBadRequestStatusIsReturned() throws Exception {
+        List<MovimentacaoDTO> movimentacoes = Collections.nCopies(1001, new MovimentacaoDTO(VALID_BEER_ID, 1));
+
+        mockMvc.perform(post(BEER_API_URL_PATH + BEER_API_SUBPATH_MOVEMENTS_URL)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(asJsonString(movimentacoes)))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(cervejaService);
+    }
+
+    @Test
+    void whenGETIsCalledWithPageSizeThenAPageWithNextCursorIsReturned() throws Exception {
+        CervejaDTO cervejaDTO = CervejaDTOBuilder.builder().build().toCervejaDTO();
+
+        when(cervejaService.listPage(null, 1)).thenReturn(new CervejaPageDTO(List.of(cervejaDTO), cervejaDTO.getId()));
+
+        mockMvc.perform(MockMvcRequestBuilders.get(BEER_API_URL_PATH).param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.cervejas[0].nome", is(cervejaDTO.getNome())))
+                .andExpect(jsonPath("$.nextCursor", is(cervejaDTO.getId().intValue())));
+    }
+
+    @Test
+    void whenGETIsCalledAcceptingNdjsonThenOneBeerPerLineIsStreamed() throws Exception {
+        CervejaDTO cervejaDTO = CervejaDTOBuilder.builder().build().toCervejaDTO();
+
+        doAnswer(invocation -> {
+            Consumer<CervejaDTO> consumer = invocation.getArgument(0);
+            consumer.accept(cervejaDTO);
+            consumer.accept(cervejaDTO);
+            return null;
+        }).when(cervejaService).streamAll(any());
+
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get(BEER_API_URL_PATH).accept(NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String expectedLine = asJsonString(cervejaDTO) + "\n";
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(NDJSON))
+                .andExpect(content().string(expectedLine + expectedLine));
+    }
+
+    @Test
+    void whenGETIsCalledToStreamChangesThenTheFiltersAreSubscribedAndEventsAreSent() throws Exception {
+        SseEmitter emitter = new SseEmitter();
+        when(cervejaService.subscribe(Set.of(Tipo.LAGER, Tipo.IPA), Set.of(7L))).thenReturn(emitter);
+
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get(BEER_API_URL_PATH + "/stream")
+                .param("tipo", "LAGER", "IPA")
+                .param("id", "7"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        emitter.send(SseEmitter.event().name("STOCK_CHANGED").data("{\"id\":7}"));
+
+        assertThat(result.getResponse().getContentType(), startsWith(MediaType.TEXT_EVENT_STREAM_VALUE));
+        assertThat(result.getResponse().getContentAsString(), is("event:STOCK_CHANGED\ndata:{\"id\":7}\n\n"));
+    }
+
+    @Test
+    void whenGETIsCalledToSearchThenMatchingBeersAreReturned() throws Exception {
+        CervejaDTO cervejaDTO = CervejaDTOBuilder.builder().build().toCervejaDTO();
+
+        when(cervejaService.search("brah", Tipo.LAGER, 20)).thenReturn(Collections.singletonList(cervejaDTO));
+
+        mockMvc.perform(MockMvcRequestBuilders.get(BEER_API_URL_PATH + "/search")
+                .param("q", "brah")
+                .param("tipo", "LAGER")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].nome", is(cervejaDTO.getNome())))
+                .andExpect(jsonPath("$[0].marca", is(cervejaDTO.getMarca())));
+    }
+
+    @Test
+    void whenGETIsCalledForLowStockThenLowestStockedBeersAreReturned() throws Exception {
+        CervejaDTO cervejaDTO = CervejaDTOBuilder.builder().build().toCervejaDTO();
+
+        when(cervejaService.lowestStock(5, 0.25)).thenReturn(Collections.singletonList(cervejaDTO));
+
+        mockMvc.perform(MockMvcRequestBuilders.get(BEER_API_URL_PATH + "/analytics/low-stock")
+                .param("limit", "5")
+                .param("below", "0.25")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].nome", is(cervejaDTO.getNome())));
+    }
+
+    @Test
+    void whenGETIsCalledForMovementsThenMovementsInTheWindowAreReturned() throws Exception {
+        Instant de = Instant.parse("2026-10-01T00:00:00Z");
+        Instant ate = Instant.parse("2026-10-02T00:00:00Z");
+        MovimentoEstoqueDTO movimento = new MovimentoEstoqueDTO(VALID_BEER_ID, -4, 6, Instant.parse("2026-10-01T12:00:00Z"));
+
+        when(cervejaService.movements(VALID_BEER_ID, de, ate, 50)).thenReturn(Collections.singletonList(movimento));
+
+        mockMvc.perform(MockMvcRequestBuilders.get(BEER_API_URL_PATH + "/" + VALID_BEER_ID + "/movements")
+                .param("from", de.toString())
+                .param("to", ate.toString())
+                .param("limit", "50"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].delta", is(-4)))
+                .andExpect(jsonPath("$[0].quantidade", is(6)));
+    }
+
+    @Test
+    void whenGETIsCalledForStockAtAnInstantThenTheStockAtThatInstantIsReturned() throws Exception {
+        Instant instante = Instant.parse("2026-10-01T12:00:00Z");
+
+        when(cervejaService.stockAt(VALID_BEER_ID, instante)).thenReturn(new EstoqueSnapshotDTO(VALID_BEER_ID, instante, 6));
+
+        mockMvc.perform(MockMvcRequestBuilders.get(BEER_API_URL_PATH + "/" + VALID_BEER_ID + "/stock")
+                .param("at", instante.toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.quantidade", is(6)));
+    }
+
+    @Test
+    void whenGETIsCalledForStockOfAnInvalidBeerThenNotFoundStatusIsReturned() throws Exception {
+        when(cervejaService.stockAt(eq(INVALID_BEER_ID), any(Instant.class)))
+                .thenThrow(CervejaNotFoundException.class);
+
+        mockMvc.perform(MockMvcRequestBuilders.get(BEER_API_URL_PATH + "/" + INVALID_BEER_ID + "/stock"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void whenPOSTIsCalledWithACsvFileThenTheImportReportIsReturned() throws Exception {
+        String csv = "nome,marca,max,quantidade,tipo\nBrahma,Ambev,50,10,LAGER\n";
+        ImportacaoResultadoDTO resultado = new ImportacaoResultadoDTO(1, 0, 1,
+                List.of(new ImportacaoErroDTO(2, "Brahma", "Cerveja com nome Brahma ja é registrada no sistema.")));
+
+        when(cervejaService.importCsv(any(Reader.class))).thenAnswer(invocation -> {
+            String received = new BufferedReader(invocation.<Reader>getArgument(0)).lines()
+                    .collect(Collectors.joining("\n", "", "\n"));
+            return csv.equals(received) ? resultado : null;
+        });
+
+        mockMvc.perform(post(BEER_API_URL_PATH + "/import")
+                .contentType("text/csv")
+                .content(csv))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.rejeitadas", is(1)))
+                .andExpect(jsonPath("$.erros[0].linha", is(2)))
+                .andExpect(jsonPath("$.erros[0].nome", is("Brahma")));
+    }
+
+    @Test
+    void whenPOSTIsCalledWithANdjsonFileThenTheNdjsonImportIsUsed() throws Exception {
+        when(cervejaService.importNdjson(any(Reader.class))).thenReturn(new ImportacaoResultadoDTO(2, 2, 0, List.of()));
+
+        mockMvc.perform(post(BEER_API_URL_PATH + "/import")
+                .contentType(NDJSON)
+                .content(asJsonString(CervejaDTOBuilder.builder().build().toCervejaDTO()) + "\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.importadas", is(2)));
+    }
+
+    @Test
+    void whenPOSTIsCalledWithACsvFileWithoutHeaderColumnsThenBadRequestStatusIsReturned() throws Exception {
+        when(cervejaService.importCsv(any(Reader.class))).thenThrow(new ImportacaoInvalidaException("colunas ausentes no cabeçalho CSV: tipo"));
+
+        mockMvc.perform(post(BEER_API_URL_PATH + "/import")
+                .contentType("text/csv")
+                .content("nome,marca,max,quantidade\n"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void whenGETIsCalledToExportWithGzipAcceptedThenTheGzippedExportIsStreamed() throws Exception {
+        doAnswer(invocation -> {
+            invocation.<OutputStream>getArgument(2).write("gzipped".getBytes());
+            return null;
+        }).when(cervejaService).export(eq(FormatoExportacao.NDJSON), eq(true), any(OutputStream.class));
+
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get(BEER_API_URL_PATH + "/export")
+                .param("format", "NDJSON")
+                .header("Accept-Encoding", "gzip, deflate"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(NDJSON))
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"cervejas.ndjson\""))
+                .andExpect(content().string("gzipped"));
+    }
+
+    @Test
+    void whenGETIsCalledToExportWithGzipRefusedThenThePlainExportIsStreamed() throws Exception {
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get(BEER_API_URL_PATH + "/export")
+                .param("format", "NDJSON")
+                .header("Accept-Encoding", "GZIP;q=0, *;q=0.5"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("Content-Encoding"));
+
+        verify(cervejaService).export(eq(FormatoExportacao.NDJSON), eq(false), any(OutputStream.class));
+    }
+
+    @Test
+    void whenGETIsCalledToExportWithUppercaseGzipAcceptedThenTheGzippedExportIsStreamed() throws Exception {
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get(BEER_API_URL_PATH + "/export")
+                .param("format", "NDJSON")
+                .header("Accept-Encoding", "deflate;q=1.0, GZip; Q=0.8"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Encoding", "gzip"));
+
+        verify(cervejaService).export(eq(FormatoExportacao.NDJSON), eq(true), any(OutputStream.class));
+    }
+
+    @Test
+    void whenGETIsCalledToExportWithAnUnknownFormatThenBadRequestStatusIsReturned() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get(BEER_API_URL_PATH + "/export").param("format", "XML"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(cervejaService);
+    }
 }
@@ -0,0 +1,195 @@
+package com.corinto.estoquecerveja.export;
+
+import com.corinto.estoquecerveja.dto.CervejaDTO;
+import com.corinto.estoquecerveja.entity.Cerveja;
+import com.corinto.estoquecerveja.enums.FormatoExportacao;
+import com.corinto.estoquecerveja.enums.Tipo;
+import com.corinto.estoquecerveja.event.CervejaChangeCounter;
+import com.corinto.estoquecerveja.repository.CervejaRepository;
+import com.corinto.estoquecerveja.stock.CervejaStockCounters;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.util.List;
+import java.util.OptionalInt;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.emptyArray;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class CervejaExporterTest {
+
+    @TempDir
+    Path directory;
+
+    @Mock
+    private CervejaRepository cervejaRepository;
+
+    @Mock
+    private CervejaStockCounters stockCounters;
+
+    @Mock
+    private CervejaChangeCounter changeCounter;
+
+    private CervejaExporter exporter;
+
+    private final List<Cerveja> cervejas = List.of(
+            new Cerveja(1L, "Brahma", "Ambev", 50, 10, Tipo.LAGER, null),
+            new Cerveja(2L, "Skol, \"Puro Malte\"", "Ambev", 60, 5, Tipo.IPA, null));
+
+    @BeforeEach
+    void setUp() throws Exception {
+        exporter = new CervejaExporter(cervejaRepository, stockCounters, changeCounter, new ObjectMapper(), directory);
+        exporter.start();
+        lenient().when(stockCounters.quantidade(anyLong())).thenReturn(OptionalInt.empty());
+        lenient().doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(0);
+            for (Cerveja cerveja : cervejas) {
+                handler.processRow(row(cerveja));
+            }
+            return null;
+        }).when(cervejaRepository).exportAll(any());
+    }
+
+    @Test
+    void whenCsvIsExportedThenEveryRowIsWrittenWithFieldsQuotedWhereNeeded() throws Exception {
+        when(stockCounters.quantidade(1L)).thenReturn(OptionalInt.of(7));
+
+        assertThat(export(FormatoExportacao.CSV, false), is(equalTo(CervejaExporter.CSV_HEADER +
+                "1,Brahma,Ambev,50,7,LAGER\n" +
+                "2,\"Skol, \"\"Puro Malte\"\"\",Ambev,60,5,IPA\n")));
+    }
+
+    @Test
+    void whenNdjsonIsExportedThenEachLineReadsBackAsABeer() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+
+        List<CervejaDTO> lidas = export(FormatoExportacao.NDJSON, false).lines()
+                .map(line -> {
+                    try {
+                        return objectMapper.readValue(line, CervejaDTO.class);
+                    } catch (IOException e) {
+                        throw new IllegalStateException(e);
+                    }
+                })
+                .collect(Collectors.toList());
+
+        assertThat(lidas, contains(
+                new CervejaDTO(1L, "Brahma", "Ambev", 50, 10, Tipo.LAGER),
+                new CervejaDTO(2L, "Skol, \"Puro Malte\"", "Ambev", 60, 5, Tipo.IPA)));
+    }
+
+    @Test
+    void whenBinaryIsExportedThenRecordsFollowTheHeaderUntilTheEndMarker() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exporter.export(FormatoExportacao.BINARY, false, out);
+
+        DataInputStream data = new DataInputStream(new ByteArrayInputStream(out.toByteArray()));
+        byte[] magic = new byte[4];
+        data.readFully(magic);
+        assertThat(magic, is(equalTo(CervejaExporter.BINARY_MAGIC)));
+        assertThat(data.readShort(), is(equalTo(CervejaExporter.BINARY_VERSION)));
+        for (Cerveja cerveja : cervejas) {
+            assertThat(data.readByte(), is(equalTo((byte) 1)));
+            assertThat(data.readLong(), is(equalTo(cerveja.getId())));
+            assertThat(data.readUTF(), is(equalTo(cerveja.getNome())));
+            assertThat(data.readUTF(), is(equalTo(cerveja.getMarca())));
+            assertThat(data.readInt(), is(equalTo(cerveja.getMax())));
+            assertThat(data.readInt(), is(equalTo(cerveja.getQuantidade())));
+            assertThat(Tipo.values()[data.readByte()], is(equalTo(cerveja.getTipo())));
+        }
+        assertThat(data.readByte(), is(equalTo((byte) 0)));
+        assertThat(data.available(), is(equalTo(0)));
+    }
+
+    @Test
+    void whenGzipIsRequestedThenTheOutputInflatesToTheSameCsv() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exporter.export(FormatoExportacao.CSV, true, out);
+
+        String inflated = new String(new GZIPInputStream(new ByteArrayInputStream(out.toByteArray())).readAllBytes(), StandardCharsets.UTF_8);
+
+        assertThat(inflated, is(equalTo(export(FormatoExportacao.CSV, false))));
+    }
+
+    @Test
+    void whenCatalogueIsUnchangedThenTheSnapshotIsServedWithoutReadingTheDatabase() throws Exception {
+        when(changeCounter.current()).thenReturn(3L, 3L, 4L);
+
+        String first = export(FormatoExportacao.CSV, false);
+        String second = export(FormatoExportacao.CSV, false);
+        verify(cervejaRepository, times(1)).exportAll(any());
+
+        export(FormatoExportacao.CSV, false);
+
+        assertThat(second, is(equalTo(first)));
+        verify(cervejaRepository, times(2)).exportAll(any());
+        try (Stream<Path> files = Files.list(directory)) {
+            assertThat(files.map(path -> path.getFileName().toString()).collect(Collectors.toList()), contains("cervejas-4.csv"));
+        }
+    }
+
+    @Test
+    void whenTheClientGoesAwayMidExportThenNoSnapshotIsKept() throws Exception {
+        OutputStream broken = mock(OutputStream.class);
+        doAnswer(invocation -> {
+            throw new IOException("Broken pipe");
+        }).when(broken).write(any(byte[].class), anyInt(), anyInt());
+
+        assertThrows(IOException.class, () -> exporter.export(FormatoExportacao.CSV, false, broken));
+
+        try (Stream<Path> files = Files.list(directory)) {
+            assertThat(files.toArray(), is(emptyArray()));
+        }
+        export(FormatoExportacao.CSV, false);
+        verify(cervejaRepository, times(2)).exportAll(any());
+    }
+
+    private String export(FormatoExportacao formato, boolean gzip) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exporter.export(formato, gzip, out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private static ResultSet row(Cerveja cerveja) throws Exception {
+        ResultSet rs = mock(ResultSet.class);
+        lenient().when(rs.getLong(1)).thenReturn(cerveja.getId());
+        lenient().when(rs.getString(2)).thenReturn(cerveja.getNome());
+        lenient().when(rs.getString(3)).thenReturn(cerveja.getMarca());
+        lenient().when(rs.getInt(4)).thenReturn(cerveja.getMax());
+        lenient().when(rs.getInt(5)).thenReturn(cerveja.getQuantidade());
+        lenient().when(rs.getString(6)).thenReturn(cerveja.getTipo().name());
+        return rs;
+    }
+}
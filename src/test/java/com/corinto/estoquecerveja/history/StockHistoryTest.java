@@ -0,0 +1,115 @@
+package com.corinto.estoquecerveja.history;
+
+import com.corinto.estoquecerveja.builder.CervejaDTOBuilder;
+import com.corinto.estoquecerveja.dto.CervejaDTO;
+import com.corinto.estoquecerveja.entity.EstoqueSnapshot;
+import com.corinto.estoquecerveja.entity.Movimento;
+import com.corinto.estoquecerveja.event.CervejaChangedEvent;
+import com.corinto.estoquecerveja.repository.EstoqueSnapshotRepository;
+import com.corinto.estoquecerveja.repository.MovimentoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class StockHistoryTest {
+
+    private static final Duration BUCKET = Duration.ofHours(1);
+    private static final Instant AGORA = Instant.parse("2026-10-18T10:30:00Z");
+
+    @Mock
+    private MovimentoRepository movimentoRepository;
+
+    @Mock
+    private EstoqueSnapshotRepository snapshotRepository;
+
+    private StockHistory stockHistory;
+
+    private CervejaDTO cervejaDTO;
+
+    @BeforeEach
+    void setUp() {
+        stockHistory = new StockHistory(movimentoRepository, snapshotRepository, BUCKET, Duration.ofDays(30),
+                Clock.fixed(AGORA, ZoneOffset.UTC));
+        cervejaDTO = CervejaDTOBuilder.builder().build().toCervejaDTO();
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    void whenStockChangesThenMovementsAreWrittenInOneBatchOnFlush() {
+        stockHistory.onCervejaChanged(new CervejaChangedEvent(CervejaChangedEvent.Operacao.STOCK_CHANGED, cervejaDTO, -4));
+        stockHistory.onCervejaChanged(new CervejaChangedEvent(CervejaChangedEvent.Operacao.STOCK_CHANGED, cervejaDTO, 7));
+        stockHistory.onCervejaChanged(new CervejaChangedEvent(CervejaChangedEvent.Operacao.DELETED, cervejaDTO));
+        stockHistory.onCervejaChanged(new CervejaChangedEvent(CervejaChangedEvent.Operacao.STOCK_CHANGED, cervejaDTO, 3, true));
+        verify(movimentoRepository, never()).batchInsert(anyList());
+
+        stockHistory.flush();
+        stockHistory.flush();
+
+        ArgumentCaptor<List<Movimento>> movimentos = ArgumentCaptor.forClass(List.class);
+        verify(movimentoRepository, times(1)).batchInsert(movimentos.capture());
+        assertThat(movimentos.getValue(), hasSize(2));
+        Movimento movimento = movimentos.getValue().get(0);
+        assertThat(movimento.getDelta(), is(equalTo(-4)));
+        assertThat(movimento.getInstante(), is(equalTo(AGORA)));
+        assertThat(movimento.getBucket(), is(equalTo(AGORA.toEpochMilli() / BUCKET.toMillis())));
+    }
+
+    @Test
+    void whenStockAtIsCalledThenLastSnapshotIsAddedToLaterMovements() {
+        Instant snapshotInstante = Instant.parse("2026-10-18T10:00:00Z");
+        Instant instante = Instant.parse("2026-10-18T10:15:00Z");
+
+        when(snapshotRepository.findFirstByCervejaIdAndInstanteLessThanEqualOrderByInstanteDesc(cervejaDTO.getId(), instante))
+                .thenReturn(Optional.of(new EstoqueSnapshot(1L, cervejaDTO.getId(), snapshotInstante, 20)));
+        when(movimentoRepository.sumDeltaBetween(cervejaDTO.getId(), snapshotInstante, instante)).thenReturn(-3L);
+
+        assertThat(stockHistory.stockAt(cervejaDTO.getId(), instante).getQuantidade(), is(equalTo(17)));
+    }
+
+    @Test
+    void whenCompactIsCalledThenClosedBucketsSinceLastSnapshotAreRolledUp() {
+        long bucketAtual = AGORA.toEpochMilli() / BUCKET.toMillis();
+        when(snapshotRepository.findLastInstante()).thenReturn(Optional.of(Instant.parse("2026-10-18T07:00:00Z")));
+
+        stockHistory.compact();
+
+        verify(movimentoRepository).compact(bucketAtual - 3, bucketAtual, BUCKET.toMillis(), bucketAtual - 30 * 24);
+    }
+
+    @Test
+    void whenOlderMovementsCouldNotBeWrittenThenCompactionWaits() {
+        Clock clock = mock(Clock.class);
+        when(clock.instant()).thenReturn(AGORA, AGORA.plus(BUCKET));
+        StockHistory history = new StockHistory(movimentoRepository, snapshotRepository, BUCKET, Duration.ofDays(30), clock);
+        history.onCervejaChanged(new CervejaChangedEvent(CervejaChangedEvent.Operacao.STOCK_CHANGED, cervejaDTO, 5));
+        doThrow(new IllegalStateException("indisponível")).when(movimentoRepository).batchInsert(anyList());
+
+        history.compact();
+
+        verify(movimentoRepository, never()).compact(anyLong(), anyLong(), anyLong(), anyLong());
+    }
+}
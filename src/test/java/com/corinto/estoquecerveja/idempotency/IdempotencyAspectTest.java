@@ -0,0 +1,111 @@
+package com.corinto.estoquecerveja.idempotency;
+
+import com.corinto.estoquecerveja.builder.CervejaDTOBuilder;
+import com.corinto.estoquecerveja.controller.CervejaController;
+import com.corinto.estoquecerveja.dto.CervejaDTO;
+import com.corinto.estoquecerveja.dto.QuantidadeDTO;
+import com.corinto.estoquecerveja.repository.RespostaIdempotenteRepository;
+import com.corinto.estoquecerveja.service.CervejaService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.Duration;
+
+import static com.corinto.estoquecerveja.utils.JsonConvertionUtils.asJsonString;
+import static org.hamcrest.core.Is.is;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ExtendWith(MockitoExtension.class)
+public class IdempotencyAspectTest {
+
+    private static final String BEER_API_URL_PATH = "/api/v1/cervejas";
+
+    @Mock
+    private CervejaService cervejaService;
+
+    @Mock
+    private RespostaIdempotenteRepository repository;
+
+    private MockMvc mockMvc;
+
+    private final CervejaDTO cervejaDTO = CervejaDTOBuilder.builder().build().toCervejaDTO();
+
+    @BeforeEach
+    void setUp() {
+        ObjectMapper objectMapper = new ObjectMapper();
+        IdempotencyStore store = new IdempotencyStore(repository, objectMapper, new SimpleMeterRegistry(), false, 100, Duration.ofHours(24));
+        AspectJProxyFactory controllerProxy = new AspectJProxyFactory(new CervejaController(cervejaService, objectMapper));
+        controllerProxy.setProxyTargetClass(true);
+        controllerProxy.addAspect(new IdempotencyAspect(store, objectMapper));
+        mockMvc = MockMvcBuilders.standaloneSetup((Object) controllerProxy.getProxy()).build();
+    }
+
+    @Test
+    void whenPOSTIsRetriedWithTheSameKeyThenTheBeerIsCreatedOnceAndTheResponseReplayed() throws Exception {
+        when(cervejaService.createCerveja(cervejaDTO)).thenReturn(cervejaDTO);
+
+        mockMvc.perform(create("chave-1"))
+                .andExpect(status().isCreated())
+                .andExpect(header().doesNotExist(IdempotencyAspect.REPLAYED_HEADER));
+        mockMvc.perform(create("chave-1"))
+                .andExpect(status().isCreated())
+                .andExpect(header().string(IdempotencyAspect.REPLAYED_HEADER, "true"))
+                .andExpect(jsonPath("$.nome", is(cervejaDTO.getNome())));
+
+        verify(cervejaService, times(1)).createCerveja(cervejaDTO);
+    }
+
+    @Test
+    void whenNoKeyIsSentThenEveryRequestRuns() throws Exception {
+        QuantidadeDTO quantidadeDTO = QuantidadeDTO.builder().quantidade(5).build();
+        when(cervejaService.increment(cervejaDTO.getId(), 5)).thenReturn(cervejaDTO);
+
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(patch(BEER_API_URL_PATH + "/" + cervejaDTO.getId() + "/increment")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(asJsonString(quantidadeDTO)))
+                    .andExpect(status().isOk());
+        }
+
+        verify(cervejaService, times(2)).increment(cervejaDTO.getId(), 5);
+    }
+
+    @Test
+    void whenAKeyIsReusedWithAnotherBodyThenUnprocessableEntityStatusIsReturned() throws Exception {
+        when(cervejaService.createCerveja(cervejaDTO)).thenReturn(cervejaDTO);
+        mockMvc.perform(create("chave-1")).andExpect(status().isCreated());
+
+        CervejaDTO otherCervejaDTO = CervejaDTOBuilder.builder().nome("Skol").build().toCervejaDTO();
+        mockMvc.perform(post(BEER_API_URL_PATH)
+                .header(IdempotencyAspect.IDEMPOTENCY_KEY_HEADER, "chave-1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(asJsonString(otherCervejaDTO)))
+                .andExpect(status().isUnprocessableEntity());
+
+        verify(cervejaService, times(1)).createCerveja(cervejaDTO);
+    }
+
+    private MockHttpServletRequestBuilder create(String chave) {
+        return post(BEER_API_URL_PATH)
+                .header(IdempotencyAspect.IDEMPOTENCY_KEY_HEADER, chave)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(asJsonString(cervejaDTO));
+    }
+}
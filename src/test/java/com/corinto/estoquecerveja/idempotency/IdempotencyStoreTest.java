@@ -0,0 +1,164 @@
+package com.corinto.estoquecerveja.idempotency;
+
+import com.corinto.estoquecerveja.builder.CervejaDTOBuilder;
+import com.corinto.estoquecerveja.dto.CervejaDTO;
+import com.corinto.estoquecerveja.entity.RespostaIdempotente;
+import com.corinto.estoquecerveja.exception.ChaveIdempotenciaInvalidaException;
+import com.corinto.estoquecerveja.exception.CervejaNotFoundException;
+import com.corinto.estoquecerveja.repository.RespostaIdempotenteRepository;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class IdempotencyStoreTest {
+
+    private static final Instant NOW = Instant.parse("2026-01-01T12:00:00Z");
+    private static final Duration TTL = Duration.ofHours(24);
+
+    @Mock
+    private RespostaIdempotenteRepository repository;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final JavaType tipo = objectMapper.constructType(CervejaDTO.class);
+
+    private final CervejaDTO cervejaDTO = CervejaDTOBuilder.builder().build().toCervejaDTO();
+
+    private final AtomicInteger execucoes = new AtomicInteger();
+
+    @Test
+    void whenAKeyIsRepeatedThenTheFirstResponseIsReplayedWithoutRunningAgain() throws Throwable {
+        IdempotencyStore store = store(false);
+
+        IdempotencyStore.Resposta first = store.execute("chave", "createCerveja:a", tipo, this::create);
+        IdempotencyStore.Resposta second = store.execute("chave", "createCerveja:a", tipo, this::create);
+
+        assertThat(execucoes.get(), is(equalTo(1)));
+        assertThat(first.isReplay(), is(false));
+        assertThat(second.isReplay(), is(true));
+        assertThat(second.getCorpo(), is(equalTo(cervejaDTO)));
+        verifyNoInteractions(repository);
+    }
+
+    @Test
+    void whenAKeyIsReusedForAnotherRequestThenAnExceptionShouldBeThrown() throws Throwable {
+        IdempotencyStore store = store(false);
+        store.execute("chave", "createCerveja:a", tipo, this::create);
+
+        assertThrows(ChaveIdempotenciaInvalidaException.class, () -> store.execute("chave", "increment:b", tipo, this::create));
+        assertThat(execucoes.get(), is(equalTo(1)));
+    }
+
+    @Test
+    void whenTheFirstAttemptFailsThenTheRetryRunsAgain() throws Throwable {
+        IdempotencyStore store = store(false);
+
+        assertThrows(CervejaNotFoundException.class, () -> store.execute("chave", "increment:a", tipo, () -> {
+            throw new CervejaNotFoundException(1L);
+        }));
+        IdempotencyStore.Resposta retry = store.execute("chave", "increment:a", tipo, this::create);
+
+        assertThat(retry.isReplay(), is(false));
+        assertThat(execucoes.get(), is(equalTo(1)));
+    }
+
+    @Test
+    void whenARetryArrivesWhileTheFirstRequestRunsThenItWaitsForItsResponse() throws Throwable {
+        IdempotencyStore store = store(false);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<IdempotencyStore.Resposta> first = CompletableFuture.supplyAsync(() -> {
+            try {
+                return store.execute("chave", "createCerveja:a", tipo, () -> {
+                    started.countDown();
+                    release.await();
+                    return create();
+                });
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        started.await(5, TimeUnit.SECONDS);
+        CompletableFuture<IdempotencyStore.Resposta> retry = CompletableFuture.supplyAsync(() -> {
+            try {
+                return store.execute("chave", "createCerveja:a", tipo, this::create);
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        release.countDown();
+
+        assertThat(first.get(5, TimeUnit.SECONDS).isReplay(), is(false));
+        assertThat(retry.get(5, TimeUnit.SECONDS).isReplay(), is(true));
+        assertThat(execucoes.get(), is(equalTo(1)));
+    }
+
+    @Test
+    void whenPersistentThenResponsesAreFlushedAndReplayedFromTheTableAfterARestart() throws Throwable {
+        IdempotencyStore flushing = store(true);
+        flushing.execute("outra", "createCerveja:b", tipo, this::create);
+        flushing.flush();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<RespostaIdempotente>> saved = ArgumentCaptor.forClass(List.class);
+        verify(repository).saveAll(saved.capture());
+        assertThat(saved.getValue(), hasSize(1));
+        RespostaIdempotente row = saved.getValue().get(0);
+        assertThat(objectMapper.readValue(row.getCorpo(), CervejaDTO.class), is(equalTo(cervejaDTO)));
+
+        when(repository.findById("outra")).thenReturn(Optional.of(row));
+        IdempotencyStore.Resposta replay = store(true).execute("outra", "createCerveja:b", tipo, this::create);
+
+        assertThat(replay.isReplay(), is(true));
+        assertThat(replay.getCorpo(), is(equalTo(cervejaDTO)));
+        assertThat(execucoes.get(), is(equalTo(1)));
+    }
+
+    @Test
+    void whenTheStoredResponseIsOlderThanTheTtlThenTheRequestRunsAgain() throws Throwable {
+        when(repository.findById("chave")).thenReturn(Optional.of(new RespostaIdempotente("chave", "createCerveja:a",
+                objectMapper.writeValueAsString(cervejaDTO), NOW.minus(TTL).minusSeconds(1))));
+
+        IdempotencyStore.Resposta resposta = store(true).execute("chave", "createCerveja:a", tipo, this::create);
+
+        assertThat(resposta.isReplay(), is(false));
+        assertThat(execucoes.get(), is(equalTo(1)));
+    }
+
+    private CervejaDTO create() {
+        execucoes.incrementAndGet();
+        return cervejaDTO;
+    }
+
+    private IdempotencyStore store(boolean persistent) {
+        return new IdempotencyStore(repository, objectMapper, new SimpleMeterRegistry(), persistent, 100, TTL,
+                Clock.fixed(NOW, ZoneOffset.UTC));
+    }
+}
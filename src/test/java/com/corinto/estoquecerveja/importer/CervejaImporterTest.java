@@ -0,0 +1,168 @@
+package com.corinto.estoquecerveja.importer;
+
+import com.corinto.estoquecerveja.dto.ImportacaoErroDTO;
+import com.corinto.estoquecerveja.dto.ImportacaoResultadoDTO;
+import com.corinto.estoquecerveja.entity.Cerveja;
+import com.corinto.estoquecerveja.enums.Tipo;
+import com.corinto.estoquecerveja.event.CervejaChangedEvent;
+import com.corinto.estoquecerveja.exception.ImportacaoInvalidaException;
+import com.corinto.estoquecerveja.repository.CervejaRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DuplicateKeyException;
+
+import javax.validation.Validation;
+import javax.validation.ValidatorFactory;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class CervejaImporterTest {
+
+    private static final String HEADER = "nome,marca,max,quantidade,tipo\n";
+
+    private static ValidatorFactory validatorFactory;
+
+    @Mock
+    private CervejaRepository cervejaRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private final List<List<String>> insertedBatches = new ArrayList<>();
+
+    @BeforeAll
+    static void setUpValidator() {
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+    }
+
+    @AfterAll
+    static void tearDownValidator() {
+        validatorFactory.close();
+    }
+
+    @Test
+    void whenCsvIsImportedThenValidRowsAreInsertedAndRejectedRowsAreReported() throws Exception {
+        when(cervejaRepository.findAllNomes()).thenReturn(List.of("Brahma"));
+        recordInsertedBatches();
+
+        ImportacaoResultadoDTO resultado = importer(100).importCsv(new StringReader(HEADER +
+                "Colorado Appia,Colorado,50,10,LAGER\n" +
+                "Brahma,Ambev,50,10,LAGER\n" +
+                "\"Skol, Puro Malte\",Ambev,60,5,ipa\n" +
+                "Sem Tipo,Ambev,60,5,\n" +
+                "Bohemia,Ambev,muitas,5,LAGER\n" +
+                "Colorado Appia,Colorado,50,10,LAGER\n"));
+
+        assertThat(insertedBatches, contains(List.of("Colorado Appia", "Skol, Puro Malte")));
+        assertThat(resultado.getLinhas(), is(equalTo(7L)));
+        assertThat(resultado.getImportadas(), is(equalTo(2L)));
+        assertThat(resultado.getRejeitadas(), is(equalTo(4L)));
+        assertThat(resultado.getErros().stream().map(ImportacaoErroDTO::getLinha).collect(Collectors.toList()),
+                contains(3L, 5L, 6L, 7L));
+        assertThat(resultado.getErros().get(0).getErro(), containsString("ja é registrada"));
+        assertThat(resultado.getErros().get(1).getErro(), startsWith("tipo: "));
+        assertThat(resultado.getErros().get(2).getErro(), is(equalTo("max: valor inválido 'muitas'")));
+        assertThat(resultado.getErros().get(3).getErro(), containsString("ja é registrada"));
+
+        ArgumentCaptor<CervejaChangedEvent> event = ArgumentCaptor.forClass(CervejaChangedEvent.class);
+        verify(eventPublisher, times(2)).publishEvent(event.capture());
+        assertThat(event.getAllValues().get(1).getOperacao(), is(equalTo(CervejaChangedEvent.Operacao.CREATED)));
+        assertThat(event.getAllValues().get(1).getCerveja().getTipo(), is(equalTo(Tipo.IPA)));
+        assertThat(event.getAllValues().get(1).getDelta(), is(equalTo(5)));
+    }
+
+    @Test
+    void whenABatchHitsANameFromAnEarlierBatchThenOnlyThatRowIsRejected() throws Exception {
+        doAnswer(invocation -> {
+            List<Cerveja> lote = invocation.getArgument(0);
+            if (lote.stream().anyMatch(cerveja -> cerveja.getNome().equals("Brahma")) && !insertedBatches.isEmpty()) {
+                throw new DuplicateKeyException("cerveja.nome");
+            }
+            insertedBatches.add(lote.stream().map(Cerveja::getNome).collect(Collectors.toList()));
+            return null;
+        }).when(cervejaRepository).batchInsert(anyList());
+
+        ImportacaoResultadoDTO resultado = importer(2).importNdjson(new StringReader(
+                "{\"nome\":\"Brahma\",\"marca\":\"Ambev\",\"max\":50,\"quantidade\":10,\"tipo\":\"LAGER\"}\n" +
+                "{\"nome\":\"Skol\",\"marca\":\"Ambev\",\"max\":50,\"quantidade\":10,\"tipo\":\"LAGER\"}\n" +
+                "{\"nome\":\"Bohemia\",\"marca\":\"Ambev\",\"max\":50,\"quantidade\":10,\"tipo\":\"LAGER\"}\n" +
+                "{\"nome\":\"Brahma\",\"marca\":\"Ambev\",\"max\":50,\"quantidade\":10,\"tipo\":\"LAGER\"}\n" +
+                "{\"nome\":\n"));
+
+        assertThat(insertedBatches, contains(List.of("Brahma", "Skol"), List.of("Bohemia")));
+        assertThat(resultado.getImportadas(), is(equalTo(3L)));
+        assertThat(resultado.getRejeitadas(), is(equalTo(2L)));
+        assertThat(resultado.getErros().get(0).getLinha(), is(equalTo(4L)));
+        assertThat(resultado.getErros().get(0).getErro(), containsString("ja é registrada"));
+        assertThat(resultado.getErros().get(1).getLinha(), is(equalTo(5L)));
+        assertThat(resultado.getErros().get(1).getErro(), containsString("JSON inválido"));
+    }
+
+    @Test
+    void whenMoreRowsAreRejectedThanReportedThenCountsStillCoverTheWholeFile() throws Exception {
+        StringBuilder csv = new StringBuilder(HEADER);
+        int rows = CervejaImporter.MAX_REPORTED_ERRORS + 10;
+        for (int i = 0; i < rows; i++) {
+            csv.append("Cerveja ").append(i).append(",Ambev,50,101,LAGER\n");
+        }
+
+        ImportacaoResultadoDTO resultado = importer(100).importCsv(new StringReader(csv.toString()));
+
+        assertThat(resultado.getRejeitadas(), is(equalTo((long) rows)));
+        assertThat(resultado.getErros(), hasSize(CervejaImporter.MAX_REPORTED_ERRORS));
+        verify(cervejaRepository, never()).batchInsert(anyList());
+    }
+
+    @Test
+    void whenCsvHeaderIsMissingAColumnThenAnExceptionShouldBeThrown() {
+        ImportacaoInvalidaException exception = assertThrows(ImportacaoInvalidaException.class,
+                () -> importer(100).importCsv(new StringReader("nome,marca,max,quantidade\nBrahma,Ambev,50,10\n")));
+
+        assertThat(exception.getMessage(), containsString("tipo"));
+        verifyNoInteractions(cervejaRepository);
+    }
+
+    @Test
+    void whenCsvLineHasQuotedFieldsThenQuotesAndEscapedQuotesAreUnwrapped() {
+        assertThat(CervejaImporter.splitCsv(" Brahma ,\"Ambev, \"\"SA\"\"\",,50"),
+                contains("Brahma", "Ambev, \"SA\"", null, "50"));
+    }
+
+    private void recordInsertedBatches() {
+        doAnswer(invocation -> {
+            List<Cerveja> lote = invocation.getArgument(0);
+            insertedBatches.add(lote.stream().map(Cerveja::getNome).collect(Collectors.toList()));
+            return null;
+        }).when(cervejaRepository).batchInsert(anyList());
+    }
+
+    private CervejaImporter importer(int batchSize) {
+        return new CervejaImporter(cervejaRepository, new ObjectMapper(), validatorFactory.getValidator(), eventPublisher, batchSize);
+    }
+}
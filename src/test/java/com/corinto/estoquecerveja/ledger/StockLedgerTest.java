@@ -0,0 +1,158 @@
+package com.corinto.estoquecerveja.ledger;
+
+import com.corinto.estoquecerveja.builder.CervejaDTOBuilder;
+import com.corinto.estoquecerveja.dto.CervejaDTO;
+import com.corinto.estoquecerveja.mapper.CervejaMapper;
+import com.corinto.estoquecerveja.stock.CervejaStockCounter;
+import com.corinto.estoquecerveja.stock.CervejaStockCounters;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class StockLedgerTest {
+
+    @TempDir
+    Path directory;
+
+    @Mock
+    private LedgerCheckpointRepository checkpoints;
+
+    @Mock
+    private CervejaStockCounters stockCounters;
+
+    private final List<StockLedger> ledgers = new ArrayList<>();
+
+    private CervejaDTO cervejaDTO;
+
+    private CervejaStockCounter counter;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        cervejaDTO = CervejaDTOBuilder.builder().build().toCervejaDTO();
+        counter = new CervejaStockCounter(CervejaMapper.INSTANCE.toModel(cervejaDTO));
+        lenient().when(stockCounters.increment(anyLong(), anyInt())).thenAnswer(invocation -> {
+            counter.tryIncrement(invocation.getArgument(1));
+            return counter;
+        });
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        for (StockLedger ledger : ledgers) {
+            ledger.stop();
+        }
+    }
+
+    @Test
+    void whenIncrementsAreAcknowledgedThenTheyAreFoldedAsOneDeltaPerBeer() throws Exception {
+        StockLedger ledger = startedLedger();
+
+        ledger.increment(cervejaDTO.getId(), 3);
+        ledger.increment(cervejaDTO.getId(), 2);
+        verify(checkpoints, never()).fold(anyMap(), anyLong());
+
+        ledger.fold();
+
+        verify(checkpoints).fold(Map.of(cervejaDTO.getId(), 5), 2L);
+    }
+
+    @Test
+    void whenAnIncrementIsAcknowledgedThenItsUnitsBecomeAvailable() throws Exception {
+        StockLedger ledger = startedLedger();
+
+        ledger.increment(cervejaDTO.getId(), 3);
+
+        assertThat(counter.getQuantidade(), is(equalTo(cervejaDTO.getQuantidade() + 3)));
+        assertThat(counter.getDisponivel(), is(equalTo(cervejaDTO.getQuantidade() + 3)));
+    }
+
+    @Test
+    void whenTheLedgerIsStoppedThenAnIncrementIsRefusedAndItsRoomGivenBack() throws Exception {
+        StockLedger ledger = startedLedger();
+        ledger.stop();
+
+        assertThrows(IllegalStateException.class, () -> ledger.increment(cervejaDTO.getId(), 3));
+
+        assertThat(counter.getQuantidade(), is(equalTo(cervejaDTO.getQuantidade())));
+        assertThat(counter.getDisponivel(), is(equalTo(cervejaDTO.getQuantidade())));
+    }
+
+    @Test
+    void whenLedgerRestartsWithoutFoldingThenAcknowledgedMovementsAreReplayed() throws Exception {
+        StockLedger crashed = startedLedger();
+        crashed.increment(cervejaDTO.getId(), 3);
+        crashed.increment(cervejaDTO.getId(), 4);
+
+        startedLedger();
+
+        verify(checkpoints).fold(Map.of(cervejaDTO.getId(), 7), 2L);
+        assertThat(Files.size(logFile()), is(equalTo(0L)));
+    }
+
+    @Test
+    void whenCheckpointIsAheadOfTheLogThenOnlyNewerMovementsAreReplayed() throws Exception {
+        StockLedger crashed = startedLedger();
+        crashed.increment(cervejaDTO.getId(), 3);
+        crashed.increment(cervejaDTO.getId(), 4);
+        when(checkpoints.findSequencia()).thenReturn(1L);
+
+        startedLedger();
+
+        verify(checkpoints).fold(Map.of(cervejaDTO.getId(), 4), 2L);
+    }
+
+    @Test
+    void whenTheLastRecordIsTornThenReplayStopsBeforeIt() throws Exception {
+        StockLedger crashed = startedLedger();
+        crashed.increment(cervejaDTO.getId(), 3);
+        ByteBuffer torn = ByteBuffer.allocate(StockLedger.RECORD_BYTES)
+                .putLong(2L)
+                .putLong(cervejaDTO.getId())
+                .putInt(40)
+                .putInt(0);
+        Files.write(logFile(), torn.array(), StandardOpenOption.APPEND);
+        Files.write(logFile(), new byte[]{1, 2, 3}, StandardOpenOption.APPEND);
+
+        startedLedger();
+
+        verify(checkpoints).fold(Map.of(cervejaDTO.getId(), 3), 1L);
+    }
+
+    private StockLedger startedLedger() throws Exception {
+        StockLedger ledger = new StockLedger(checkpoints, stockCounters, true, logFile(), 64,
+                Duration.ofMillis(1), Duration.ofHours(1));
+        ledger.start();
+        ledgers.add(ledger);
+        return ledger;
+    }
+
+    private Path logFile() {
+        return directory.resolve("stock-ledger.log");
+    }
+}
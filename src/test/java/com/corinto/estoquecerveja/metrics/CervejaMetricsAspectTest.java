@@ -0,0 +1,148 @@
+package com.corinto.estoquecerveja.metrics;
+
+import com.corinto.estoquecerveja.analytics.CervejaStockAnalytics;
+import com.corinto.estoquecerveja.cache.CervejaCache;
+import com.corinto.estoquecerveja.catalogue.CatalogueSnapshot;
+import com.corinto.estoquecerveja.event.CervejaChangeCounter;
+import com.corinto.estoquecerveja.exception.CervejaNotFoundException;
+import com.corinto.estoquecerveja.export.CervejaExporter;
+import com.corinto.estoquecerveja.history.StockHistory;
+import com.corinto.estoquecerveja.importer.CervejaImporter;
+import com.corinto.estoquecerveja.ledger.StockLedger;
+import com.corinto.estoquecerveja.repository.CervejaRepository;
+import com.corinto.estoquecerveja.search.CervejaSearchIndex;
+import com.corinto.estoquecerveja.service.CervejaService;
+import com.corinto.estoquecerveja.stock.CervejaStockCounters;
+import com.corinto.estoquecerveja.stock.CervejaStockShards;
+import com.corinto.estoquecerveja.stream.StockChangeBroadcaster;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Optional;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class CervejaMetricsAspectTest {
+
+    private static final long INVALID_BEER_ID = 1L;
+
+    @Mock
+    private CervejaRepository cervejaRepository;
+
+    @Mock
+    private CervejaStockCounters stockCounters;
+
+    @Mock
+    private CervejaStockShards stockShards;
+
+    @Mock
+    private CatalogueSnapshot catalogueSnapshot;
+
+    @Mock
+    private CervejaSearchIndex searchIndex;
+
+    @Mock
+    private CervejaStockAnalytics stockAnalytics;
+
+    @Mock
+    private StockLedger stockLedger;
+
+    @Mock
+    private StockHistory stockHistory;
+
+    @Mock
+    private CervejaImporter cervejaImporter;
+
+    @Mock
+    private CervejaExporter cervejaExporter;
+
+    @Mock
+    private StockChangeBroadcaster stockChangeBroadcaster;
+
+    @Mock
+    private CervejaChangeCounter changeCounter;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private CervejaService cervejaService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        CervejaMetricsAspect metricsAspect = new CervejaMetricsAspect(meterRegistry);
+
+        AspectJProxyFactory repositoryProxy = new AspectJProxyFactory(cervejaRepository);
+        repositoryProxy.addInterface(CervejaRepository.class);
+        repositoryProxy.addAspect(metricsAspect);
+
+        CervejaService target = new CervejaService(repositoryProxy.getProxy(),
+                stockCounters,
+                stockShards,
+                new CervejaCache(meterRegistry, 100, Duration.ofMinutes(1)),
+                catalogueSnapshot,
+                searchIndex,
+                stockAnalytics,
+                stockLedger,
+                stockHistory,
+                cervejaImporter,
+                cervejaExporter,
+                stockChangeBroadcaster,
+                changeCounter,
+                eventPublisher);
+        AspectJProxyFactory serviceProxy = new AspectJProxyFactory(target);
+        serviceProxy.setProxyTargetClass(true);
+        serviceProxy.addAspect(metricsAspect);
+        cervejaService = serviceProxy.getProxy();
+    }
+
+    @Test
+    void whenServiceMethodSucceedsThenServiceAndRepositoryCallsAreTimed() {
+        when(cervejaRepository.findAllDTOs()).thenReturn(Collections.emptyList());
+
+        cervejaService.listAll();
+
+        assertThat(timerCount(CervejaMetricsAspect.SERVICE_TIMER, "listAll", "none"), is(equalTo(1L)));
+        assertThat(timerCount(CervejaMetricsAspect.REPOSITORY_TIMER, "findAllDTOs", "none"), is(equalTo(1L)));
+    }
+
+    @Test
+    void whenServiceThrowsDomainExceptionThenItIsCountedAndTaggedOnTheTimer() {
+        when(cervejaRepository.findById(INVALID_BEER_ID)).thenReturn(Optional.empty());
+
+        assertThrows(CervejaNotFoundException.class, () -> cervejaService.deleteById(INVALID_BEER_ID));
+
+        assertThat(timerCount(CervejaMetricsAspect.SERVICE_TIMER, "deleteById", "CervejaNotFoundException"), is(equalTo(1L)));
+        assertThat(meterRegistry.get(CervejaMetricsAspect.EXCEPTION_COUNTER)
+                .tag("exception", "CervejaNotFoundException")
+                .counter()
+                .count(), is(equalTo(1.0)));
+        assertThat(meterRegistry.get(CervejaMetricsAspect.EXCEPTION_COUNTER)
+                .tag("exception", "CervejaStockExceededException")
+                .counter()
+                .count(), is(equalTo(0.0)));
+    }
+
+    private long timerCount(String name, String method, String exception) {
+        return meterRegistry.get(name)
+                .tag("method", method)
+                .tag("exception", exception)
+                .timer()
+                .count();
+    }
+}
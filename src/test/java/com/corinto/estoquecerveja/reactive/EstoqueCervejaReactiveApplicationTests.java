@@ -0,0 +1,81 @@
+package com.corinto.estoquecerveja.reactive;
+
+import com.corinto.estoquecerveja.builder.CervejaDTOBuilder;
+import com.corinto.estoquecerveja.dto.CervejaDTO;
+import com.corinto.estoquecerveja.dto.QuantidadeDTO;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+@SpringBootTest(classes = EstoqueCervejaReactiveApplication.class,
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "spring.main.web-application-type=reactive")
+@ActiveProfiles(EstoqueCervejaReactiveApplication.PROFILE)
+class EstoqueCervejaReactiveApplicationTests {
+
+    private static final String BEER_API_URL_PATH = "/api/v1/cervejas";
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Test
+    void whenBeerIsCreatedAndIncrementedThenSameRulesAsTheServletApiApply() {
+        CervejaDTO cervejaDTO = CervejaDTOBuilder.builder().id(null).nome("Reactive Brahma").build().toCervejaDTO();
+
+        CervejaDTO created = webTestClient.post().uri(BEER_API_URL_PATH)
+                .bodyValue(cervejaDTO)
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody(CervejaDTO.class)
+                .returnResult()
+                .getResponseBody();
+
+        webTestClient.post().uri(BEER_API_URL_PATH)
+                .bodyValue(cervejaDTO)
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        webTestClient.patch().uri(BEER_API_URL_PATH + "/" + created.getId() + "/increment")
+                .bodyValue(new QuantidadeDTO(30))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.quantidade").isEqualTo(40);
+
+        webTestClient.patch().uri(BEER_API_URL_PATH + "/" + created.getId() + "/increment")
+                .bodyValue(new QuantidadeDTO(11))
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        webTestClient.patch().uri(BEER_API_URL_PATH + "/" + created.getId() + "/increment")
+                .bodyValue(new QuantidadeDTO(101))
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        webTestClient.patch().uri(BEER_API_URL_PATH + "/999999/increment")
+                .bodyValue(new QuantidadeDTO(1))
+                .exchange()
+                .expectStatus().isNotFound();
+
+        webTestClient.get().uri(BEER_API_URL_PATH + "/Reactive Brahma")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.marca").isEqualTo(cervejaDTO.getMarca());
+
+        webTestClient.get().uri(BEER_API_URL_PATH)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(CervejaDTO.class).hasSize(1);
+
+        webTestClient.delete().uri(BEER_API_URL_PATH + "/" + created.getId())
+                .exchange()
+                .expectStatus().isNoContent();
+
+        webTestClient.get().uri(BEER_API_URL_PATH + "/Reactive Brahma")
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+}
@@ -0,0 +1,115 @@
+package com.corinto.estoquecerveja.reactive;
+
+import com.corinto.estoquecerveja.builder.CervejaDTOBuilder;
+import com.corinto.estoquecerveja.dto.CervejaDTO;
+import com.corinto.estoquecerveja.exception.CervejaAlreadyRegisteredException;
+import com.corinto.estoquecerveja.exception.CervejaNotFoundException;
+import com.corinto.estoquecerveja.exception.CervejaStockExceededException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class ReactiveCervejaServiceTest {
+
+    private static final long INVALID_BEER_ID = 1L;
+
+    @Mock
+    private ReactiveCervejaRepository cervejaRepository;
+
+    @InjectMocks
+    private ReactiveCervejaService cervejaService;
+
+    @Test
+    void whenCervejaInformedThenItShouldBeCreated() {
+        CervejaDTO expectedCervejaDTO = CervejaDTOBuilder.builder().build().toCervejaDTO();
+
+        when(cervejaRepository.findDTOByNome(expectedCervejaDTO.getNome())).thenReturn(Mono.empty());
+        when(cervejaRepository.save(expectedCervejaDTO)).thenReturn(Mono.just(expectedCervejaDTO));
+
+        StepVerifier.create(cervejaService.createCerveja(expectedCervejaDTO))
+                .expectNext(expectedCervejaDTO)
+                .verifyComplete();
+    }
+
+    @Test
+    void whenAlreadyRegisteredCervejaInformedThenAnExceptionShouldBeThrown() {
+        CervejaDTO expectedCervejaDTO = CervejaDTOBuilder.builder().build().toCervejaDTO();
+
+        when(cervejaRepository.findDTOByNome(expectedCervejaDTO.getNome())).thenReturn(Mono.just(expectedCervejaDTO));
+
+        StepVerifier.create(cervejaService.createCerveja(expectedCervejaDTO))
+                .verifyError(CervejaAlreadyRegisteredException.class);
+        verify(cervejaRepository, never()).save(any());
+    }
+
+    @Test
+    void whenNotRegisteredCervejaNameIsGivenThenAnExceptionShouldBeThrown() {
+        when(cervejaRepository.findDTOByNome("Brahma")).thenReturn(Mono.empty());
+
+        StepVerifier.create(cervejaService.findByNome("Brahma"))
+                .verifyError(CervejaNotFoundException.class);
+    }
+
+    @Test
+    void whenListCervejaIsCalledThenBeersAreStreamed() {
+        CervejaDTO expectedFoundCervejaDTO = CervejaDTOBuilder.builder().build().toCervejaDTO();
+
+        when(cervejaRepository.findAllDTOs()).thenReturn(Flux.just(expectedFoundCervejaDTO));
+
+        StepVerifier.create(cervejaService.listAll(), 0)
+                .thenRequest(1)
+                .expectNext(expectedFoundCervejaDTO)
+                .verifyComplete();
+    }
+
+    @Test
+    void whenIncrementIsCalledThenIncrementBeerStock() {
+        CervejaDTO incrementedCervejaDTO = CervejaDTOBuilder.builder().quantidade(20).build().toCervejaDTO();
+
+        when(cervejaRepository.incrementQuantidade(incrementedCervejaDTO.getId(), 10)).thenReturn(Mono.just(1));
+        when(cervejaRepository.findDTOById(incrementedCervejaDTO.getId())).thenReturn(Mono.just(incrementedCervejaDTO));
+
+        StepVerifier.create(cervejaService.increment(incrementedCervejaDTO.getId(), 10))
+                .expectNext(incrementedCervejaDTO)
+                .verifyComplete();
+    }
+
+    @Test
+    void whenIncrementIsGreaterThanMaxThenThrowException() {
+        CervejaDTO expectedCervejaDTO = CervejaDTOBuilder.builder().build().toCervejaDTO();
+
+        when(cervejaRepository.incrementQuantidade(expectedCervejaDTO.getId(), 45)).thenReturn(Mono.just(0));
+        when(cervejaRepository.findDTOById(expectedCervejaDTO.getId())).thenReturn(Mono.just(expectedCervejaDTO));
+
+        StepVerifier.create(cervejaService.increment(expectedCervejaDTO.getId(), 45))
+                .verifyError(CervejaStockExceededException.class);
+    }
+
+    @Test
+    void whenIncrementIsCalledWithInvalidIdThenAnExceptionShouldBeThrown() {
+        when(cervejaRepository.incrementQuantidade(INVALID_BEER_ID, 10)).thenReturn(Mono.just(0));
+        when(cervejaRepository.findDTOById(INVALID_BEER_ID)).thenReturn(Mono.empty());
+
+        StepVerifier.create(cervejaService.increment(INVALID_BEER_ID, 10))
+                .verifyError(CervejaNotFoundException.class);
+    }
+
+    @Test
+    void whenExclusionIsCalledWithInvalidIdThenAnExceptionShouldBeThrown() {
+        when(cervejaRepository.deleteById(INVALID_BEER_ID)).thenReturn(Mono.just(0));
+
+        StepVerifier.create(cervejaService.deleteById(INVALID_BEER_ID))
+                .verifyError(CervejaNotFoundException.class);
+    }
+}
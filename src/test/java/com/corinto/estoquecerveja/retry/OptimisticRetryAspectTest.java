@@ -0,0 +1,172 @@
+package com.corinto.estoquecerveja.retry;
+
+import com.corinto.estoquecerveja.analytics.CervejaStockAnalytics;
+import com.corinto.estoquecerveja.builder.CervejaDTOBuilder;
+import com.corinto.estoquecerveja.cache.CervejaCache;
+import com.corinto.estoquecerveja.catalogue.CatalogueSnapshot;
+import com.corinto.estoquecerveja.dto.CervejaDTO;
+import com.corinto.estoquecerveja.entity.Cerveja;
+import com.corinto.estoquecerveja.event.CervejaChangeCounter;
+import com.corinto.estoquecerveja.exception.CervejaConflictException;
+import com.corinto.estoquecerveja.exception.CervejaNotFoundException;
+import com.corinto.estoquecerveja.export.CervejaExporter;
+import com.corinto.estoquecerveja.history.StockHistory;
+import com.corinto.estoquecerveja.importer.CervejaImporter;
+import com.corinto.estoquecerveja.ledger.StockLedger;
+import com.corinto.estoquecerveja.mapper.CervejaMapper;
+import com.corinto.estoquecerveja.repository.CervejaRepository;
+import com.corinto.estoquecerveja.search.CervejaSearchIndex;
+import com.corinto.estoquecerveja.service.CervejaService;
+import com.corinto.estoquecerveja.stock.CervejaStockCounters;
+import com.corinto.estoquecerveja.stock.CervejaStockShards;
+import com.corinto.estoquecerveja.stream.StockChangeBroadcaster;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.OptionalInt;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class OptimisticRetryAspectTest {
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    @Mock
+    private CervejaRepository cervejaRepository;
+
+    @Mock
+    private CervejaStockCounters stockCounters;
+
+    @Mock
+    private CervejaStockShards stockShards;
+
+    @Mock
+    private CatalogueSnapshot catalogueSnapshot;
+
+    @Mock
+    private CervejaSearchIndex searchIndex;
+
+    @Mock
+    private CervejaStockAnalytics stockAnalytics;
+
+    @Mock
+    private StockLedger stockLedger;
+
+    @Mock
+    private StockHistory stockHistory;
+
+    @Mock
+    private CervejaImporter cervejaImporter;
+
+    @Mock
+    private CervejaExporter cervejaExporter;
+
+    @Mock
+    private StockChangeBroadcaster stockChangeBroadcaster;
+
+    @Mock
+    private CervejaChangeCounter changeCounter;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private CervejaService cervejaService;
+
+    private final CervejaDTO cervejaDTO = CervejaDTOBuilder.builder().build().toCervejaDTO();
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        CervejaService target = new CervejaService(cervejaRepository,
+                stockCounters,
+                stockShards,
+                new CervejaCache(meterRegistry, 100, Duration.ofMinutes(1)),
+                catalogueSnapshot,
+                searchIndex,
+                stockAnalytics,
+                stockLedger,
+                stockHistory,
+                cervejaImporter,
+                cervejaExporter,
+                stockChangeBroadcaster,
+                changeCounter,
+                eventPublisher);
+        AspectJProxyFactory serviceProxy = new AspectJProxyFactory(target);
+        serviceProxy.setProxyTargetClass(true);
+        serviceProxy.addAspect(new OptimisticRetryAspect(meterRegistry, MAX_ATTEMPTS, Duration.ZERO, Duration.ZERO));
+        cervejaService = serviceProxy.getProxy();
+    }
+
+    @Test
+    void whenAnEditLosesARaceThenItIsRunAgainFromAFreshRead() throws Exception {
+        when(cervejaRepository.findById(cervejaDTO.getId())).thenAnswer(invocation -> Optional.of(CervejaMapper.INSTANCE.toModel(cervejaDTO)));
+        when(stockCounters.quantidade(anyLong())).thenReturn(OptionalInt.empty());
+        when(cervejaRepository.save(any(Cerveja.class)))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Cerveja.class, cervejaDTO.getId()))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
+        CervejaDTO editedDTO = cervejaService.updateCerveja(cervejaDTO.getId(), cervejaDTO);
+
+        assertThat(editedDTO, is(equalTo(cervejaDTO)));
+        verify(cervejaRepository, times(2)).findById(cervejaDTO.getId());
+        assertThat(count(OptimisticRetryAspect.CONFLICT_COUNTER, "updateCerveja"), is(equalTo(1.0)));
+        assertThat(count(OptimisticRetryAspect.RETRY_COUNTER, "updateCerveja"), is(equalTo(1.0)));
+        assertThat(count(OptimisticRetryAspect.EXHAUSTED_COUNTER, "updateCerveja"), is(equalTo(0.0)));
+    }
+
+    @Test
+    void whenEveryAttemptConflictsThenAConflictExceptionIsThrownAfterTheLastOne() {
+        ObjectOptimisticLockingFailureException conflict = new ObjectOptimisticLockingFailureException(Cerveja.class, cervejaDTO.getId());
+        when(cervejaRepository.findById(cervejaDTO.getId())).thenAnswer(invocation -> Optional.of(CervejaMapper.INSTANCE.toModel(cervejaDTO)));
+        doThrow(conflict).when(cervejaRepository).deleteById(cervejaDTO.getId());
+
+        CervejaConflictException exception = assertThrows(CervejaConflictException.class,
+                () -> cervejaService.deleteById(cervejaDTO.getId()));
+
+        assertThat(exception.getCause(), is(instanceOf(ObjectOptimisticLockingFailureException.class)));
+        verify(cervejaRepository, times(MAX_ATTEMPTS)).findById(cervejaDTO.getId());
+        assertThat(count(OptimisticRetryAspect.CONFLICT_COUNTER, "deleteById"), is(equalTo((double) MAX_ATTEMPTS)));
+        assertThat(count(OptimisticRetryAspect.RETRY_COUNTER, "deleteById"), is(equalTo((double) MAX_ATTEMPTS - 1)));
+        assertThat(count(OptimisticRetryAspect.EXHAUSTED_COUNTER, "deleteById"), is(equalTo(1.0)));
+    }
+
+    @Test
+    void whenTheMethodFailsForAnotherReasonThenItIsNotRetried() {
+        when(cervejaRepository.findById(cervejaDTO.getId())).thenReturn(Optional.empty());
+
+        assertThrows(CervejaNotFoundException.class, () -> cervejaService.updateCerveja(cervejaDTO.getId(), cervejaDTO));
+
+        verify(cervejaRepository, times(1)).findById(cervejaDTO.getId());
+        verify(cervejaRepository, never()).save(any(Cerveja.class));
+    }
+
+    private double count(String name, String method) {
+        return meterRegistry.get(name)
+                .tag("method", method)
+                .counter()
+                .count();
+    }
+}
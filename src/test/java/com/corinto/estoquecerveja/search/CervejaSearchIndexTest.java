@@ -0,0 +1,137 @@
+package com.corinto.estoquecerveja.search;
+
+import com.corinto.estoquecerveja.builder.CervejaDTOBuilder;
+import com.corinto.estoquecerveja.dto.CervejaDTO;
+import com.corinto.estoquecerveja.enums.Tipo;
+import com.corinto.estoquecerveja.event.CervejaChangedEvent;
+import com.corinto.estoquecerveja.repository.CervejaRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class CervejaSearchIndexTest {
+
+    @Mock
+    private CervejaRepository cervejaRepository;
+
+    @InjectMocks
+    private CervejaSearchIndex searchIndex;
+
+    private final CervejaDTO brahma = CervejaDTOBuilder.builder().id(1L).nome("Brahma").marca("Ambev").tipo(Tipo.LAGER).build().toCervejaDTO();
+    private final CervejaDTO colorado = CervejaDTOBuilder.builder().id(2L).nome("Colorado Appia").marca("Cervejaria Colorado").tipo(Tipo.WEISS).build().toCervejaDTO();
+    private final CervejaDTO guinness = CervejaDTOBuilder.builder().id(3L).nome("Guinness Draught").marca("Diageo").tipo(Tipo.STOUT).build().toCervejaDTO();
+    private final CervejaDTO brooklyn = CervejaDTOBuilder.builder().id(4L).nome("Brooklyn Lager").marca("Brooklyn Brewery").tipo(Tipo.LAGER).build().toCervejaDTO();
+
+    @BeforeEach
+    void setUp() {
+        when(cervejaRepository.streamAllDTOs()).thenReturn(Stream.of(brahma, colorado, guinness, brooklyn));
+        searchIndex.rebuild();
+    }
+
+    @Test
+    void whenTextIsInsideNomeOrMarcaThenBeerIsFound() {
+        assertThat(ids(searchIndex.search("ahm", null, 10)), contains(1L));
+        assertThat(ids(searchIndex.search("DIAGEO", null, 10)), contains(3L));
+        assertThat(ids(searchIndex.search("color", null, 10)), contains(2L));
+    }
+
+    @Test
+    void whenShortPrefixIsGivenThenWordPrefixesMatch() {
+        assertThat(ids(searchIndex.search("br", null, 10)), containsInAnyOrder(1L, 4L));
+        assertThat(ids(searchIndex.search("a", null, 10)), containsInAnyOrder(1L, 2L));
+    }
+
+    @Test
+    void whenAccentsOrCaseDifferThenBeerIsStillFound() {
+        assertThat(ids(searchIndex.search("Guínness", null, 10)), contains(3L));
+    }
+
+    @Test
+    void whenTipoIsGivenThenOnlyBeersOfThatTipoAreReturned() {
+        assertThat(ids(searchIndex.search("br", Tipo.LAGER, 10)), containsInAnyOrder(1L, 4L));
+        assertThat(ids(searchIndex.search("br", Tipo.STOUT, 10)), is(empty()));
+        assertThat(ids(searchIndex.search("", Tipo.STOUT, 10)), contains(3L));
+    }
+
+    @Test
+    void whenLimitIsReachedThenSearchStops() {
+        assertThat(searchIndex.search("", null, 2), hasSize(2));
+    }
+
+    @Test
+    void whenBeersAreCreatedOrDeletedThenIndexIsUpdated() {
+        CervejaDTO heineken = CervejaDTOBuilder.builder().id(5L).nome("Heineken").marca("Heineken").build().toCervejaDTO();
+
+        searchIndex.onCervejaChanged(new CervejaChangedEvent(CervejaChangedEvent.Operacao.CREATED, heineken));
+        searchIndex.onCervejaChanged(new CervejaChangedEvent(CervejaChangedEvent.Operacao.DELETED, brahma));
+
+        assertThat(ids(searchIndex.search("hein", null, 10)), contains(5L));
+        assertThat(ids(searchIndex.search("brahma", null, 10)), is(empty()));
+        assertThat(searchIndex.size(), is(equalTo(4)));
+    }
+
+    @Test
+    void whenStockChangesThenIndexIsLeftAsIs() {
+        CervejaDTO changed = brahma.toBuilder().quantidade(42).build();
+
+        searchIndex.onCervejaChanged(new CervejaChangedEvent(CervejaChangedEvent.Operacao.STOCK_CHANGED, changed));
+
+        assertThat(searchIndex.search("brahma", null, 1).get(0).getQuantidade(), is(equalTo(brahma.getQuantidade())));
+    }
+
+    @Test
+    void whenTheIndexIsRebuiltThenSearchesAreServedMeanwhileAndChangesMadeMeanwhileAreKept() {
+        CervejaDTO heineken = CervejaDTOBuilder.builder().id(5L).nome("Heineken").marca("Heineken").build().toCervejaDTO();
+        List<List<Long>> durante = new ArrayList<>();
+
+        searchIndex.rebuild(Stream.of(brahma, colorado, guinness).peek(cervejaDTO -> {
+            if (cervejaDTO == colorado) {
+                durante.add(ids(CompletableFuture.supplyAsync(() -> searchIndex.search("br", null, 10))
+                        .orTimeout(5, TimeUnit.SECONDS)
+                        .join()));
+                searchIndex.onCervejaChanged(new CervejaChangedEvent(CervejaChangedEvent.Operacao.CREATED, heineken));
+                searchIndex.onCervejaChanged(new CervejaChangedEvent(CervejaChangedEvent.Operacao.DELETED, brahma));
+            }
+        }));
+
+        assertThat(durante.get(0), containsInAnyOrder(1L, 4L));
+        assertThat(ids(searchIndex.search("", null, 10)), containsInAnyOrder(2L, 3L, 5L));
+    }
+
+    @Test
+    void whenManyBeersAreDeletedThenIndexIsCompacted() {
+        for (long id = 100; id < 3100; id++) {
+            CervejaDTO cervejaDTO = CervejaDTOBuilder.builder().id(id).nome("Temporaria " + id).build().toCervejaDTO();
+            searchIndex.onCervejaChanged(new CervejaChangedEvent(CervejaChangedEvent.Operacao.CREATED, cervejaDTO));
+            searchIndex.onCervejaChanged(new CervejaChangedEvent(CervejaChangedEvent.Operacao.DELETED, cervejaDTO));
+        }
+
+        assertThat(searchIndex.size(), is(equalTo(4)));
+        assertThat(ids(searchIndex.search("br", Tipo.LAGER, 10)), containsInAnyOrder(1L, 4L));
+        assertThat(searchIndex.search("temporaria", null, 10), is(empty()));
+    }
+
+    private static List<Long> ids(List<CervejaDTO> cervejas) {
+        return cervejas.stream().map(CervejaDTO::getId).collect(Collectors.toList());
+    }
+}
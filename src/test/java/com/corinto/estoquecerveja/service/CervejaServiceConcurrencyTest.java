@@ -0,0 +1,130 @@
+package com.corinto.estoquecerveja.service;
+
+import com.corinto.estoquecerveja.entity.Cerveja;
+import com.corinto.estoquecerveja.enums.Tipo;
+import com.corinto.estoquecerveja.exception.CervejaStockExceededException;
+import com.corinto.estoquecerveja.repository.CervejaRepository;
+import com.corinto.estoquecerveja.stock.CervejaStockCounters;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+public class CervejaServiceConcurrencyTest {
+
+    private static final int THREADS = 16;
+    private static final int INCREMENTS = 4000;
+
+    @Autowired
+    private CervejaService cervejaService;
+
+    @Autowired
+    private CervejaRepository cervejaRepository;
+
+    @Autowired
+    private CervejaStockCounters stockCounters;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private Cerveja hotBeer;
+
+    @BeforeEach
+    void setUp() {
+        hotBeer = cervejaRepository.save(new Cerveja(null, "Hot SKU", "Ambev", INCREMENTS, 0, Tipo.LAGER, null));
+    }
+
+    @AfterEach
+    void tearDown() {
+        cervejaRepository.deleteById(hotBeer.getId());
+    }
+
+    @Test
+    void whenThousandsOfParallelIncrementsAreCalledThenFinalStockIsExact() throws Exception {
+        runInParallel(INCREMENTS, () -> cervejaRepository.incrementQuantidade(hotBeer.getId(), 1));
+        int atomicQuantity = cervejaRepository.findById(hotBeer.getId()).orElseThrow().getQuantidade();
+
+        assertThat(atomicQuantity, is(equalTo(INCREMENTS)));
+        assertThat(cervejaRepository.incrementQuantidade(hotBeer.getId(), 1), is(equalTo(0)));
+
+        resetStock();
+        runInParallel(INCREMENTS, () -> cervejaService.increment(hotBeer.getId(), 1));
+        stockCounters.flush(hotBeer.getId());
+        int receivedQuantity = cervejaRepository.findById(hotBeer.getId()).orElseThrow().getQuantidade();
+
+        assertThat(receivedQuantity, is(equalTo(INCREMENTS)));
+        assertThrows(CervejaStockExceededException.class, () -> cervejaService.increment(hotBeer.getId(), 1));
+
+        resetStock();
+        AtomicInteger conflicts = new AtomicInteger();
+        runInParallel(INCREMENTS, () -> readModifyWriteIncrement(hotBeer.getId(), conflicts));
+        int readModifyWriteQuantity = cervejaRepository.findById(hotBeer.getId()).orElseThrow().getQuantidade();
+
+        assertThat(readModifyWriteQuantity, is(equalTo(INCREMENTS - conflicts.get())));
+    }
+
+    /**
+     * A stale read can no longer overwrite a newer row: the versioned save fails instead, so every unit is either
+     * applied or counted as a conflict.
+     */
+    private Object readModifyWriteIncrement(Long id, AtomicInteger conflicts) {
+        try {
+            return transactionTemplate.execute(status -> {
+                Cerveja cerveja = cervejaRepository.findById(id).orElseThrow();
+                cerveja.setQuantidade(cerveja.getQuantidade() + 1);
+                return cervejaRepository.save(cerveja);
+            });
+        } catch (OptimisticLockingFailureException e) {
+            conflicts.incrementAndGet();
+            return null;
+        }
+    }
+
+    /**
+     * Writes the row directly, so the beer's counter is written back first and dropped after, to load the reset.
+     */
+    private void resetStock() {
+        stockCounters.flush(hotBeer.getId());
+        Cerveja cerveja = cervejaRepository.findById(hotBeer.getId()).orElseThrow();
+        cerveja.setQuantidade(0);
+        cervejaRepository.save(cerveja);
+        stockCounters.evict(hotBeer.getId());
+    }
+
+    private void runInParallel(int increments, Callable<?> increment) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        AtomicInteger remaining = new AtomicInteger(increments);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            futures.add(executor.submit(() -> {
+                while (remaining.getAndDecrement() > 0) {
+                    increment.call();
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+}
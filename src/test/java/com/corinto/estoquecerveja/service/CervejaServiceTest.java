@@ -1,22 +1,52 @@
 package com.corinto.estoquecerveja.service;
 
+import com.corinto.estoquecerveja.analytics.CervejaStockAnalytics;
 import com.corinto.estoquecerveja.builder.CervejaDTOBuilder;
+import com.corinto.estoquecerveja.cache.CervejaCache;
+import com.corinto.estoquecerveja.catalogue.CatalogueSnapshot;
 import com.corinto.estoquecerveja.dto.CervejaDTO;
+import com.corinto.estoquecerveja.dto.CervejaPageDTO;
+import com.corinto.estoquecerveja.dto.EstoqueLocalDTO;
+import com.corinto.estoquecerveja.dto.MovimentacaoDTO;
+import com.corinto.estoquecerveja.dto.MovimentacaoResultadoDTO;
 import com.corinto.estoquecerveja.entity.Cerveja;
+import com.corinto.estoquecerveja.enums.Tipo;
+import com.corinto.estoquecerveja.event.CervejaChangedEvent;
 import com.corinto.estoquecerveja.exception.CervejaAlreadyRegisteredException;
 import com.corinto.estoquecerveja.exception.CervejaNotFoundException;
 import com.corinto.estoquecerveja.exception.CervejaStockExceededException;
+import com.corinto.estoquecerveja.export.CervejaExporter;
+import com.corinto.estoquecerveja.history.StockHistory;
+import com.corinto.estoquecerveja.importer.CervejaImporter;
+import com.corinto.estoquecerveja.ledger.StockLedger;
 import com.corinto.estoquecerveja.mapper.CervejaMapper;
 import com.corinto.estoquecerveja.repository.CervejaRepository;
+import com.corinto.estoquecerveja.search.CervejaSearchIndex;
+import com.corinto.estoquecerveja.stock.CervejaStockCounter;
+import com.corinto.estoquecerveja.stock.CervejaStockCounters;
+import com.corinto.estoquecerveja.stock.CervejaStockShards;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.Set;
+import java.util.stream.Stream;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.*;
@@ -27,6 +57,7 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.times;
@@ -41,6 +72,39 @@ public class CervejaServiceTest {
     @Mock
     private CervejaRepository cervejaRepository;
 
+    @Mock
+    private CervejaStockCounters stockCounters;
+
+    @Mock
+    private CervejaStockShards stockShards;
+
+    @Spy
+    private CervejaCache cervejaCache = new CervejaCache(new SimpleMeterRegistry(), 100, Duration.ofMinutes(1));
+
+    @Mock
+    private CatalogueSnapshot catalogueSnapshot;
+
+    @Mock
+    private CervejaSearchIndex searchIndex;
+
+    @Mock
+    private CervejaStockAnalytics stockAnalytics;
+
+    @Mock
+    private StockLedger stockLedger;
+
+    @Mock
+    private StockHistory stockHistory;
+
+    @Mock
+    private CervejaImporter cervejaImporter;
+
+    @Mock
+    private CervejaExporter cervejaExporter;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     private CervejaMapper cervejaMapper = CervejaMapper.INSTANCE;
 
     @InjectMocks
@@ -81,10 +145,9 @@ public class CervejaServiceTest {
     void whenValidCervejaNameIsGivenThenReturnABeer() throws CervejaNotFoundException {
         // given
         CervejaDTO expectedFoundCervejaDTO = CervejaDTOBuilder.builder().build().toCervejaDTO();
-        Cerveja expectedFoundCerveja = cervejaMapper.toModel(expectedFoundCervejaDTO);
 
         // when
-        when(cervejaRepository.findByNome(expectedFoundCerveja.getNome())).thenReturn(Optional.of(expectedFoundCerveja));
+        when(cervejaRepository.findDTOByNome(expectedFoundCervejaDTO.getNome())).thenReturn(Optional.of(expectedFoundCervejaDTO));
 
         // then
         CervejaDTO foundCervejaDTO = cervejaService.findByNome(expectedFoundCervejaDTO.getNome());
@@ -92,13 +155,59 @@ public class CervejaServiceTest {
         assertThat(foundCervejaDTO, is(equalTo(expectedFoundCervejaDTO)));
     }
 
+    @Test
+    void whenCervejaNameIsSearchedTwiceThenTheSecondLookupIsServedFromCache() throws CervejaNotFoundException {
+        CervejaDTO expectedFoundCervejaDTO = CervejaDTOBuilder.builder().build().toCervejaDTO();
+
+        when(cervejaRepository.findDTOByNome(expectedFoundCervejaDTO.getNome())).thenReturn(Optional.of(expectedFoundCervejaDTO.toBuilder().build()));
+
+        cervejaService.findByNome(expectedFoundCervejaDTO.getNome());
+        CervejaDTO foundCervejaDTO = cervejaService.findByNome(expectedFoundCervejaDTO.getNome());
+
+        assertThat(foundCervejaDTO, is(equalTo(expectedFoundCervejaDTO)));
+        verify(cervejaRepository, times(1)).findDTOByNome(expectedFoundCervejaDTO.getNome());
+    }
+
+    @Test
+    void whenTheCatalogueSnapshotIsReadyThenReadsAreServedFromItWithLiveStock() throws CervejaNotFoundException {
+        CervejaDTO expectedFoundCervejaDTO = CervejaDTOBuilder.builder().build().toCervejaDTO();
+
+        when(catalogueSnapshot.isReady()).thenReturn(true);
+        when(catalogueSnapshot.findByNome(expectedFoundCervejaDTO.getNome())).thenReturn(Optional.of(expectedFoundCervejaDTO.toBuilder().build()));
+        when(catalogueSnapshot.listAfter(5L, 1)).thenReturn(List.of(expectedFoundCervejaDTO.toBuilder().build()));
+        when(stockCounters.quantidade(expectedFoundCervejaDTO.getId())).thenReturn(OptionalInt.of(3));
+
+        CervejaDTO foundCervejaDTO = cervejaService.findByNome(expectedFoundCervejaDTO.getNome());
+        CervejaPageDTO page = cervejaService.listPage(5L, 1);
+
+        assertThat(foundCervejaDTO.getQuantidade(), is(equalTo(3)));
+        assertThat(page.getCervejas().get(0).getQuantidade(), is(equalTo(3)));
+        verifyNoInteractions(cervejaRepository);
+    }
+
+    @Test
+    void whenIncrementIsCalledThenAStockChangedEventIsPublished() throws CervejaNotFoundException, CervejaStockExceededException {
+        CervejaDTO expectedBeerDTO = CervejaDTOBuilder.builder().build().toCervejaDTO();
+        CervejaStockCounter counter = new CervejaStockCounter(cervejaMapper.toModel(expectedBeerDTO));
+        counter.tryIncrement(10);
+
+        when(stockCounters.receive(expectedBeerDTO.getId(), 10)).thenReturn(counter);
+
+        CervejaDTO incrementedBeerDTO = cervejaService.increment(expectedBeerDTO.getId(), 10);
+
+        ArgumentCaptor<CervejaChangedEvent> event = ArgumentCaptor.forClass(CervejaChangedEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertThat(event.getValue().getOperacao(), is(equalTo(CervejaChangedEvent.Operacao.STOCK_CHANGED)));
+        assertThat(event.getValue().getCerveja(), is(equalTo(incrementedBeerDTO)));
+    }
+
     @Test
     void whenNotRegisteredCervejaNameIsGivenThenThrowAnException() {
         // given
         CervejaDTO expectedFoundCervejaDTO = CervejaDTOBuilder.builder().build().toCervejaDTO();
 
         // when
-        when(cervejaRepository.findByNome(expectedFoundCervejaDTO.getNome())).thenReturn(Optional.empty());
+        when(cervejaRepository.findDTOByNome(expectedFoundCervejaDTO.getNome())).thenReturn(Optional.empty());
 
         // then
         assertThrows(CervejaNotFoundException.class, () -> cervejaService.findByNome(expectedFoundCervejaDTO.getNome()));
@@ -108,10 +217,9 @@ public class CervejaServiceTest {
     void whenListCervejaIsCalledThenReturnAListOfBeers() {
         // given
         CervejaDTO expectedFoundCervejaDTO = CervejaDTOBuilder.builder().build().toCervejaDTO();
-        Cerveja expectedFoundCerveja = cervejaMapper.toModel(expectedFoundCervejaDTO);
 
         //when
-        when(cervejaRepository.findAll()).thenReturn(Collections.singletonList(expectedFoundCerveja));
+        when(cervejaRepository.findAllDTOs()).thenReturn(Collections.singletonList(expectedFoundCervejaDTO));
 
         //then
         List<CervejaDTO> foundListBeersDTO = cervejaService.listAll();
@@ -123,7 +231,7 @@ public class CervejaServiceTest {
     @Test
     void whenListBeerIsCalledThenReturnAnEmptyListOfBeers() {
         //when
-        when(cervejaRepository.findAll()).thenReturn(Collections.EMPTY_LIST);
+        when(cervejaRepository.findAllDTOs()).thenReturn(Collections.EMPTY_LIST);
 
         //then
         List<CervejaDTO> foundListBeersDTO = cervejaService.listAll();
@@ -148,18 +256,77 @@ public class CervejaServiceTest {
         verify(cervejaRepository, times(1)).deleteById(expectedDeletedBeerDTO.getId());
     }
 
+    @Test
+    void whenCervejaIsEditedThenDescriptiveFieldsAreSavedAndStockIsKept() throws Exception {
+        // given
+        Cerveja storedCerveja = cervejaMapper.toModel(CervejaDTOBuilder.builder().build().toCervejaDTO());
+        CervejaDTO editedCervejaDTO = CervejaDTOBuilder.builder().nome("Brahma Extra").max(60).quantidade(99).tipo(Tipo.IPA).build().toCervejaDTO();
+
+        // when
+        when(cervejaRepository.findById(storedCerveja.getId())).thenReturn(Optional.of(storedCerveja));
+        when(cervejaRepository.findByNome("Brahma Extra")).thenReturn(Optional.empty());
+        when(stockCounters.quantidade(storedCerveja.getId())).thenReturn(OptionalInt.empty());
+        when(cervejaRepository.save(any(Cerveja.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // then
+        CervejaDTO editedDTO = cervejaService.updateCerveja(storedCerveja.getId(), editedCervejaDTO);
+
+        assertThat(editedDTO, is(equalTo(new CervejaDTO(1L, "Brahma Extra", "Ambev", 60, 10, Tipo.IPA))));
+        InOrder inOrder = inOrder(stockCounters, cervejaRepository);
+        inOrder.verify(stockCounters).flush(storedCerveja.getId());
+        inOrder.verify(cervejaRepository).findById(storedCerveja.getId());
+        inOrder.verify(cervejaRepository).save(storedCerveja);
+        inOrder.verify(stockCounters).describe(storedCerveja);
+        ArgumentCaptor<CervejaChangedEvent> event = ArgumentCaptor.forClass(CervejaChangedEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertThat(event.getValue().getOperacao(), is(equalTo(CervejaChangedEvent.Operacao.UPDATED)));
+        assertThat(event.getValue().getDelta(), is(equalTo(0)));
+    }
+
+    @Test
+    void whenEditRenamesToANomeTakenByAnotherBeerThenAnExceptionShouldBeThrown() {
+        // given
+        Cerveja storedCerveja = cervejaMapper.toModel(CervejaDTOBuilder.builder().build().toCervejaDTO());
+        Cerveja otherCerveja = cervejaMapper.toModel(CervejaDTOBuilder.builder().id(2L).nome("Skol").build().toCervejaDTO());
+        CervejaDTO editedCervejaDTO = CervejaDTOBuilder.builder().nome("Skol").build().toCervejaDTO();
+
+        // when
+        when(cervejaRepository.findById(storedCerveja.getId())).thenReturn(Optional.of(storedCerveja));
+        when(cervejaRepository.findByNome("Skol")).thenReturn(Optional.of(otherCerveja));
+
+        // then
+        assertThrows(CervejaAlreadyRegisteredException.class, () -> cervejaService.updateCerveja(storedCerveja.getId(), editedCervejaDTO));
+        verify(cervejaRepository, never()).save(any(Cerveja.class));
+    }
+
+    @Test
+    void whenEditLowersMaxBelowTheLiveStockThenAnExceptionShouldBeThrown() {
+        // given
+        Cerveja storedCerveja = cervejaMapper.toModel(CervejaDTOBuilder.builder().build().toCervejaDTO());
+        CervejaDTO editedCervejaDTO = CervejaDTOBuilder.builder().max(20).build().toCervejaDTO();
+
+        // when
+        when(cervejaRepository.findById(storedCerveja.getId())).thenReturn(Optional.of(storedCerveja));
+        when(stockCounters.quantidade(storedCerveja.getId())).thenReturn(OptionalInt.of(30));
+
+        // then
+        assertThrows(CervejaStockExceededException.class, () -> cervejaService.updateCerveja(storedCerveja.getId(), editedCervejaDTO));
+        verify(cervejaRepository, never()).save(any(Cerveja.class));
+        verifyNoInteractions(eventPublisher);
+    }
+
     @Test
     void whenIncrementIsCalledThenIncrementBeerStock() throws CervejaNotFoundException, CervejaStockExceededException {
         //given
         CervejaDTO expectedBeerDTO = CervejaDTOBuilder.builder().build().toCervejaDTO();
-        Cerveja expectedBeer = cervejaMapper.toModel(expectedBeerDTO);
-
-        //when
-        when(cervejaRepository.findById(expectedBeerDTO.getId())).thenReturn(Optional.of(expectedBeer));
-        when(cervejaRepository.save(expectedBeer)).thenReturn(expectedBeer);
+        CervejaStockCounter counter = new CervejaStockCounter(cervejaMapper.toModel(expectedBeerDTO));
 
         int quantityToIncrement = 10;
         int expectedQuantityAfterIncrement = expectedBeerDTO.getQuantidade() + quantityToIncrement;
+        counter.tryIncrement(quantityToIncrement);
+
+        //when
+        when(stockCounters.receive(expectedBeerDTO.getId(), quantityToIncrement)).thenReturn(counter);
 
         // then
         CervejaDTO incrementedBeerDTO = cervejaService.increment(expectedBeerDTO.getId(), quantityToIncrement);
@@ -169,85 +336,286 @@ public class CervejaServiceTest {
     }
 
     @Test
-    void whenIncrementIsGreatherThanMaxThenThrowException() {
+    void whenIncrementIsGreatherThanMaxThenThrowException() throws CervejaNotFoundException, CervejaStockExceededException {
         CervejaDTO expectedBeerDTO = CervejaDTOBuilder.builder().build().toCervejaDTO();
-        Cerveja expectedBeer = cervejaMapper.toModel(expectedBeerDTO);
-
-        when(cervejaRepository.findById(expectedBeerDTO.getId())).thenReturn(Optional.of(expectedBeer));
 
         int quantityToIncrement = 80;
+        when(stockCounters.receive(expectedBeerDTO.getId(), quantityToIncrement))
+                .thenThrow(new CervejaStockExceededException(expectedBeerDTO.getId(), quantityToIncrement));
+
         assertThrows(CervejaStockExceededException.class, () -> cervejaService.increment(expectedBeerDTO.getId(), quantityToIncrement));
+        verifyNoInteractions(eventPublisher);
     }
 
     @Test
-    void whenIncrementAfterSumIsGreatherThanMaxThenThrowException() {
+    void whenIncrementAfterSumIsGreatherThanMaxThenThrowException() throws CervejaNotFoundException, CervejaStockExceededException {
         CervejaDTO expectedCervejaDTO = CervejaDTOBuilder.builder().build().toCervejaDTO();
-        Cerveja expectedCerveja = cervejaMapper.toModel(expectedCervejaDTO);
-
-        when(cervejaRepository.findById(expectedCervejaDTO.getId())).thenReturn(Optional.of(expectedCerveja));
 
         int quantityToIncrement = 45;
+        when(stockCounters.receive(expectedCervejaDTO.getId(), quantityToIncrement))
+                .thenThrow(new CervejaStockExceededException(expectedCervejaDTO.getId(), quantityToIncrement));
+
         assertThrows(CervejaStockExceededException.class, () -> cervejaService.increment(expectedCervejaDTO.getId(), quantityToIncrement));
     }
 
     @Test
-    void whenIncrementIsCalledWithInvalidIdThenThrowException() {
+    void whenIncrementIsCalledWithInvalidIdThenThrowException() throws CervejaNotFoundException, CervejaStockExceededException {
         int quantityToIncrement = 10;
 
-        when(cervejaRepository.findById(INVALID_BEER_ID)).thenReturn(Optional.empty());
+        when(stockCounters.receive(INVALID_BEER_ID, quantityToIncrement)).thenThrow(new CervejaNotFoundException(INVALID_BEER_ID));
 
         assertThrows(CervejaNotFoundException.class, () -> cervejaService.increment(INVALID_BEER_ID, quantityToIncrement));
     }
-//
-//    @Test
-//    void whenDecrementIsCalledThenDecrementBeerStock() throws BeerNotFoundException, BeerStockExceededException {
-//        BeerDTO expectedBeerDTO = BeerDTOBuilder.builder().build().toBeerDTO();
-//        Beer expectedBeer = beerMapper.toModel(expectedBeerDTO);
-//
-//        when(beerRepository.findById(expectedBeerDTO.getId())).thenReturn(Optional.of(expectedBeer));
-//        when(beerRepository.save(expectedBeer)).thenReturn(expectedBeer);
-//
-//        int quantityToDecrement = 5;
-//        int expectedQuantityAfterDecrement = expectedBeerDTO.getQuantity() - quantityToDecrement;
-//        BeerDTO incrementedBeerDTO = beerService.decrement(expectedBeerDTO.getId(), quantityToDecrement);
-//
-//        assertThat(expectedQuantityAfterDecrement, equalTo(incrementedBeerDTO.getQuantity()));
-//        assertThat(expectedQuantityAfterDecrement, greaterThan(0));
-//    }
-//
-//    @Test
-//    void whenDecrementIsCalledToEmptyStockThenEmptyBeerStock() throws BeerNotFoundException, BeerStockExceededException {
-//        BeerDTO expectedBeerDTO = BeerDTOBuilder.builder().build().toBeerDTO();
-//        Beer expectedBeer = beerMapper.toModel(expectedBeerDTO);
-//
-//        when(beerRepository.findById(expectedBeerDTO.getId())).thenReturn(Optional.of(expectedBeer));
-//        when(beerRepository.save(expectedBeer)).thenReturn(expectedBeer);
-//
-//        int quantityToDecrement = 10;
-//        int expectedQuantityAfterDecrement = expectedBeerDTO.getQuantity() - quantityToDecrement;
-//        BeerDTO incrementedBeerDTO = beerService.decrement(expectedBeerDTO.getId(), quantityToDecrement);
-//
-//        assertThat(expectedQuantityAfterDecrement, equalTo(0));
-//        assertThat(expectedQuantityAfterDecrement, equalTo(incrementedBeerDTO.getQuantity()));
-//    }
-//
-//    @Test
-//    void whenDecrementIsLowerThanZeroThenThrowException() {
-//        BeerDTO expectedBeerDTO = BeerDTOBuilder.builder().build().toBeerDTO();
-//        Beer expectedBeer = beerMapper.toModel(expectedBeerDTO);
-//
-//        when(beerRepository.findById(expectedBeerDTO.getId())).thenReturn(Optional.of(expectedBeer));
-//
-//        int quantityToDecrement = 80;
-//        assertThrows(BeerStockExceededException.class, () -> beerService.decrement(expectedBeerDTO.getId(), quantityToDecrement));
-//    }
-//
-//    @Test
-//    void whenDecrementIsCalledWithInvalidIdThenThrowException() {
-//        int quantityToDecrement = 10;
-//
-//        when(beerRepository.findById(INVALID_BEER_ID)).thenReturn(Optional.empty());
-//
-//        assertThrows(BeerNotFoundException.class, () -> beerService.decrement(INVALID_BEER_ID, quantityToDecrement));
-//    }
+
+    @Test
+    void whenDecrementIsCalledThenDecrementBeerStock() throws CervejaNotFoundException, CervejaStockExceededException {
+        CervejaDTO expectedBeerDTO = CervejaDTOBuilder.builder().build().toCervejaDTO();
+        CervejaStockCounter counter = new CervejaStockCounter(cervejaMapper.toModel(expectedBeerDTO));
+
+        int quantityToDecrement = 5;
+        int expectedQuantityAfterDecrement = expectedBeerDTO.getQuantidade() - quantityToDecrement;
+        counter.tryDecrement(quantityToDecrement);
+        when(stockCounters.decrement(expectedBeerDTO.getId(), quantityToDecrement)).thenReturn(counter);
+
+        CervejaDTO decrementedBeerDTO = cervejaService.decrement(expectedBeerDTO.getId(), quantityToDecrement);
+
+        assertThat(expectedQuantityAfterDecrement, equalTo(decrementedBeerDTO.getQuantidade()));
+        assertThat(expectedQuantityAfterDecrement, greaterThan(0));
+        ArgumentCaptor<CervejaChangedEvent> event = ArgumentCaptor.forClass(CervejaChangedEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertThat(event.getValue().getDelta(), is(equalTo(-quantityToDecrement)));
+    }
+
+    @Test
+    void whenDecrementIsLowerThanZeroThenThrowException() throws CervejaNotFoundException, CervejaStockExceededException {
+        CervejaDTO expectedBeerDTO = CervejaDTOBuilder.builder().build().toCervejaDTO();
+
+        int quantityToDecrement = 80;
+        when(stockCounters.decrement(expectedBeerDTO.getId(), quantityToDecrement)).thenThrow(CervejaStockExceededException.class);
+
+        assertThrows(CervejaStockExceededException.class, () -> cervejaService.decrement(expectedBeerDTO.getId(), quantityToDecrement));
+    }
+
+    @Test
+    void whenDecrementIsCalledWithInvalidIdThenThrowException() throws CervejaNotFoundException, CervejaStockExceededException {
+        int quantityToDecrement = 10;
+
+        when(stockCounters.decrement(INVALID_BEER_ID, quantityToDecrement)).thenThrow(CervejaNotFoundException.class);
+
+        assertThrows(CervejaNotFoundException.class, () -> cervejaService.decrement(INVALID_BEER_ID, quantityToDecrement));
+    }
+
+    @Test
+    void whenIncrementAtIsCalledThenOnlyTheLocationMovesAndTheBeerStockIsPublished() throws Exception {
+        CervejaDTO expectedBeerDTO = CervejaDTOBuilder.builder().build().toCervejaDTO();
+        CervejaStockCounter counter = new CervejaStockCounter(cervejaMapper.toModel(expectedBeerDTO));
+        counter.applyLocal(5);
+        EstoqueLocalDTO expectedLocal = new EstoqueLocalDTO(expectedBeerDTO.getId(), "loja-centro", 20, 5);
+        when(stockShards.increment(expectedBeerDTO.getId(), "loja-centro", 5)).thenReturn(counter);
+        when(stockShards.find(expectedBeerDTO.getId(), "loja-centro")).thenReturn(expectedLocal);
+
+        EstoqueLocalDTO estoqueLocal = cervejaService.incrementAt(expectedBeerDTO.getId(), "loja-centro", 5);
+
+        assertThat(estoqueLocal, is(equalTo(expectedLocal)));
+        ArgumentCaptor<CervejaChangedEvent> event = ArgumentCaptor.forClass(CervejaChangedEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertThat(event.getValue().getCerveja().getQuantidade(), is(equalTo(expectedBeerDTO.getQuantidade() + 5)));
+        assertThat(event.getValue().getDelta(), is(equalTo(5)));
+        verify(stockCounters, never()).receive(anyLong(), anyInt());
+    }
+
+    @Test
+    void whenDecrementAtExceedsTheLocationStockThenNothingIsPublished() throws Exception {
+        when(stockShards.decrement(1L, "loja-centro", 5)).thenThrow(CervejaStockExceededException.class);
+
+        assertThrows(CervejaStockExceededException.class, () -> cervejaService.decrementAt(1L, "loja-centro", 5));
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    void whenLocationsAreListedForAnInvalidIdThenThrowException() {
+        when(cervejaRepository.findById(INVALID_BEER_ID)).thenReturn(Optional.empty());
+
+        assertThrows(CervejaNotFoundException.class, () -> cervejaService.listLocations(INVALID_BEER_ID));
+        verify(stockShards, never()).findAll(anyLong());
+    }
+
+    @Test
+    void whenIncrementIsCalledThenItIsCheckedOnTheCounterWithoutTouchingTheDatabase() throws CervejaNotFoundException, CervejaStockExceededException {
+        CervejaDTO expectedBeerDTO = CervejaDTOBuilder.builder().build().toCervejaDTO();
+        CervejaStockCounter counter = new CervejaStockCounter(cervejaMapper.toModel(expectedBeerDTO));
+        counter.tryIncrement(10);
+
+        when(stockCounters.receive(expectedBeerDTO.getId(), 10)).thenReturn(counter);
+
+        cervejaService.increment(expectedBeerDTO.getId(), 10);
+
+        verify(stockLedger, never()).increment(anyLong(), anyInt());
+        verifyNoInteractions(cervejaRepository);
+    }
+
+    @Test
+    void whenLedgerIsEnabledThenIncrementIsAcknowledgedByTheLedgerWithoutTouchingTheDatabase() throws CervejaNotFoundException, CervejaStockExceededException {
+        CervejaDTO expectedBeerDTO = CervejaDTOBuilder.builder().build().toCervejaDTO();
+        CervejaStockCounter counter = new CervejaStockCounter(cervejaMapper.toModel(expectedBeerDTO));
+        counter.tryIncrement(10);
+
+        when(stockLedger.isEnabled()).thenReturn(true);
+        when(stockLedger.increment(expectedBeerDTO.getId(), 10)).thenReturn(counter);
+
+        CervejaDTO incrementedBeerDTO = cervejaService.increment(expectedBeerDTO.getId(), 10);
+
+        assertThat(incrementedBeerDTO.getQuantidade(), is(equalTo(expectedBeerDTO.getQuantidade() + 10)));
+        ArgumentCaptor<CervejaChangedEvent> event = ArgumentCaptor.forClass(CervejaChangedEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertThat(event.getValue().getCerveja(), is(equalTo(incrementedBeerDTO)));
+        verifyNoInteractions(cervejaRepository);
+    }
+
+    @Test
+    void whenMovementsAreAppliedThenEachEntryIsValidatedAndPersistedInOneBatch() throws Exception {
+        CervejaDTO expectedBeerDTO = CervejaDTOBuilder.builder().build().toCervejaDTO();
+        Cerveja expectedBeer = cervejaMapper.toModel(expectedBeerDTO);
+        List<MovimentacaoDTO> movimentacoes = List.of(
+                new MovimentacaoDTO(expectedBeerDTO.getId(), 30),
+                new MovimentacaoDTO(expectedBeerDTO.getId(), 20),
+                new MovimentacaoDTO(expectedBeerDTO.getId(), 5),
+                new MovimentacaoDTO(INVALID_BEER_ID + 1, 5));
+
+        when(cervejaRepository.findAllById(Set.of(expectedBeerDTO.getId(), INVALID_BEER_ID + 1)))
+                .thenReturn(Collections.singletonList(expectedBeer));
+        when(cervejaRepository.batchIncrementQuantidade(Map.of(expectedBeerDTO.getId(), 35))).thenReturn(Collections.emptySet());
+        CervejaStockCounter counter = givenCounterTakesIncrements(expectedBeer);
+
+        List<MovimentacaoResultadoDTO> resultados = cervejaService.applyMovements(movimentacoes);
+
+        assertTrue(resultados.get(0).isSucesso());
+        assertThat(resultados.get(0).getQuantidade(), is(equalTo(40)));
+        assertFalse(resultados.get(1).isSucesso());
+        assertTrue(resultados.get(2).isSucesso());
+        assertThat(resultados.get(2).getQuantidade(), is(equalTo(45)));
+        assertFalse(resultados.get(3).isSucesso());
+        verify(cervejaRepository, times(1)).batchIncrementQuantidade(Map.of(expectedBeerDTO.getId(), 35));
+        assertThat(counter.getDisponivel(), is(equalTo(45)));
+    }
+
+    @Test
+    void whenBatchedIncrementLosesARaceThenItsMovementsAreReportedAsFailures() throws Exception {
+        CervejaDTO expectedBeerDTO = CervejaDTOBuilder.builder().build().toCervejaDTO();
+        Cerveja expectedBeer = cervejaMapper.toModel(expectedBeerDTO);
+
+        when(cervejaRepository.findAllById(Set.of(expectedBeerDTO.getId()))).thenReturn(Collections.singletonList(expectedBeer));
+        when(cervejaRepository.batchIncrementQuantidade(Map.of(expectedBeerDTO.getId(), 10))).thenReturn(Set.of(expectedBeerDTO.getId()));
+        CervejaStockCounter counter = givenCounterTakesIncrements(expectedBeer);
+
+        List<MovimentacaoResultadoDTO> resultados = cervejaService.applyMovements(
+                List.of(new MovimentacaoDTO(expectedBeerDTO.getId(), 10)));
+
+        assertFalse(resultados.get(0).isSucesso());
+        assertThat(counter.getQuantidade(), is(equalTo(expectedBeerDTO.getQuantidade())));
+        assertThat(counter.getDisponivel(), is(equalTo(expectedBeerDTO.getQuantidade())));
+    }
+
+    @Test
+    void whenABeersCounterHasNoRoomThenItsMovementsAreNotBatched() throws Exception {
+        CervejaDTO expectedBeerDTO = CervejaDTOBuilder.builder().build().toCervejaDTO();
+        Cerveja expectedBeer = cervejaMapper.toModel(expectedBeerDTO);
+
+        when(cervejaRepository.findAllById(Set.of(expectedBeerDTO.getId()))).thenReturn(Collections.singletonList(expectedBeer));
+        when(stockCounters.increment(expectedBeerDTO.getId(), 10))
+                .thenThrow(new CervejaStockExceededException(expectedBeerDTO.getId(), 10));
+
+        List<MovimentacaoResultadoDTO> resultados = cervejaService.applyMovements(
+                List.of(new MovimentacaoDTO(expectedBeerDTO.getId(), 10)));
+
+        assertFalse(resultados.get(0).isSucesso());
+        verify(cervejaRepository, never()).batchIncrementQuantidade(anyMap());
+    }
+
+    private CervejaStockCounter givenCounterTakesIncrements(Cerveja cerveja) throws Exception {
+        CervejaStockCounter counter = new CervejaStockCounter(cerveja);
+        when(stockCounters.increment(eq(cerveja.getId()), anyInt())).thenAnswer(invocation -> {
+            counter.tryIncrement(invocation.getArgument(1));
+            return counter;
+        });
+        return counter;
+    }
+
+    @Test
+    void whenListPageIsCalledThenBeersAfterTheCursorAndTheNextCursorAreReturned() {
+        CervejaDTO expectedFoundCervejaDTO = CervejaDTOBuilder.builder().id(7L).build().toCervejaDTO();
+
+        when(cervejaRepository.findDTOsAfter(5L, PageRequest.of(0, 1)))
+                .thenReturn(Collections.singletonList(expectedFoundCervejaDTO));
+
+        CervejaPageDTO page = cervejaService.listPage(5L, 1);
+
+        assertThat(page.getCervejas(), contains(expectedFoundCervejaDTO));
+        assertThat(page.getNextCursor(), is(equalTo(7L)));
+    }
+
+    @Test
+    void whenLastPageIsReachedThenNoNextCursorIsReturned() {
+        when(cervejaRepository.findDTOsAfter(0L, PageRequest.of(0, 50))).thenReturn(Collections.emptyList());
+
+        CervejaPageDTO page = cervejaService.listPage(null, 50);
+
+        assertThat(page.getCervejas(), is(empty()));
+        assertThat(page.getNextCursor(), is(nullValue()));
+    }
+
+    @Test
+    void whenStreamAllIsCalledThenEachBeerIsHandedOver() {
+        CervejaDTO expectedFoundCervejaDTO = CervejaDTOBuilder.builder().build().toCervejaDTO();
+        List<CervejaDTO> streamed = new ArrayList<>();
+
+        when(cervejaRepository.streamAllDTOs()).thenReturn(Stream.of(expectedFoundCervejaDTO));
+
+        cervejaService.streamAll(streamed::add);
+
+        assertThat(streamed, contains(expectedFoundCervejaDTO));
+    }
+
+    @Test
+    void whenSearchIsCalledThenLimitIsCappedAndLiveStockIsApplied() {
+        CervejaDTO expectedFoundCervejaDTO = CervejaDTOBuilder.builder().build().toCervejaDTO();
+
+        when(searchIndex.search("brah", Tipo.LAGER, 100)).thenReturn(Collections.singletonList(expectedFoundCervejaDTO));
+        when(stockCounters.quantidade(expectedFoundCervejaDTO.getId())).thenReturn(OptionalInt.of(3));
+
+        List<CervejaDTO> found = cervejaService.search("brah", Tipo.LAGER, 5000);
+
+        assertThat(found, contains(expectedFoundCervejaDTO));
+        assertThat(found.get(0).getQuantidade(), is(equalTo(3)));
+    }
+
+    @Test
+    void whenLowestStockIsCalledThenLimitIsCappedBeforeReadingAnalytics() {
+        CervejaDTO expectedFoundCervejaDTO = CervejaDTOBuilder.builder().build().toCervejaDTO();
+
+        when(stockAnalytics.lowestStock(1000, 0.2)).thenReturn(Collections.singletonList(expectedFoundCervejaDTO));
+
+        assertThat(cervejaService.lowestStock(50_000, 0.2), contains(expectedFoundCervejaDTO));
+    }
+
+    @Test
+    void whenMovementsAreListedThenLimitIsCappedBeforeReadingHistory() throws CervejaNotFoundException {
+        CervejaDTO expectedBeerDTO = CervejaDTOBuilder.builder().build().toCervejaDTO();
+        Instant de = Instant.parse("2026-10-01T00:00:00Z");
+        Instant ate = Instant.parse("2026-10-02T00:00:00Z");
+
+        when(cervejaRepository.findById(expectedBeerDTO.getId())).thenReturn(Optional.of(cervejaMapper.toModel(expectedBeerDTO)));
+
+        cervejaService.movements(expectedBeerDTO.getId(), de, ate, 50_000);
+
+        verify(stockHistory).movements(expectedBeerDTO.getId(), de, ate, 1000);
+    }
+
+    @Test
+    void whenStockAtIsCalledWithInvalidIdThenAnExceptionShouldBeThrown() {
+        when(cervejaRepository.findById(INVALID_BEER_ID)).thenReturn(Optional.empty());
+
+        assertThrows(CervejaNotFoundException.class, () -> cervejaService.stockAt(INVALID_BEER_ID, Instant.now()));
+        verifyNoInteractions(stockHistory);
+    }
 }
@@ -0,0 +1,264 @@
+package com.corinto.estoquecerveja.stock;
+
+import com.corinto.estoquecerveja.builder.CervejaDTOBuilder;
+import com.corinto.estoquecerveja.dto.CervejaDTO;
+import com.corinto.estoquecerveja.dto.ReservaDTO;
+import com.corinto.estoquecerveja.entity.Cerveja;
+import com.corinto.estoquecerveja.exception.CervejaNotFoundException;
+import com.corinto.estoquecerveja.exception.CervejaStockExceededException;
+import com.corinto.estoquecerveja.exception.ReservaNotFoundException;
+import com.corinto.estoquecerveja.mapper.CervejaMapper;
+import com.corinto.estoquecerveja.repository.CervejaRepository;
+import com.corinto.estoquecerveja.repository.EstoqueLocalRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class CervejaStockCountersTest {
+
+    private static final long INVALID_BEER_ID = 2L;
+    private static final Duration RESERVA_EXPIRE_AFTER = Duration.ofMinutes(15);
+
+    @Mock
+    private CervejaRepository cervejaRepository;
+
+    @Mock
+    private EstoqueLocalRepository estoqueLocalRepository;
+
+    private final AtomicLong tempo = new AtomicLong();
+
+    private CervejaStockCounters stockCounters;
+
+    private CervejaDTO cervejaDTO;
+
+    @BeforeEach
+    void setUp() {
+        cervejaDTO = CervejaDTOBuilder.builder().build().toCervejaDTO();
+        stockCounters = new CervejaStockCounters(cervejaRepository, estoqueLocalRepository, RESERVA_EXPIRE_AFTER, tempo::get);
+    }
+
+    @Test
+    void whenDecrementIsCalledThenStockIsFlushedAsynchronously() throws Exception {
+        givenBeerIsStored();
+
+        CervejaStockCounter counter = stockCounters.decrement(cervejaDTO.getId(), 4);
+
+        assertThat(counter.getQuantidade(), is(equalTo(6)));
+        verify(cervejaRepository, never()).adjustQuantidade(anyLong(), anyInt());
+
+        stockCounters.flushAll();
+        stockCounters.flushAll();
+
+        verify(cervejaRepository, times(1)).adjustQuantidade(cervejaDTO.getId(), -4);
+    }
+
+    @Test
+    void whenIncrementIsCalledThenReservedUnitsCountTowardsMax() throws Exception {
+        givenBeerIsStored();
+        stockCounters.reserve(cervejaDTO.getId(), 5);
+
+        CervejaStockCounter counter = stockCounters.increment(cervejaDTO.getId(), 35);
+
+        assertThat(counter.getQuantidade(), is(equalTo(45)));
+        assertThrows(CervejaStockExceededException.class, () -> stockCounters.increment(cervejaDTO.getId(), 6));
+        verify(cervejaRepository, never()).adjustQuantidade(anyLong(), anyInt());
+    }
+
+    @Test
+    void whenStockIsReceivedThenTheSalesAreWrittenFirstAndTheRowIsGuardedByMax() throws Exception {
+        givenBeerIsStored();
+        stockCounters.decrement(cervejaDTO.getId(), 5);
+        when(cervejaRepository.incrementQuantidade(cervejaDTO.getId(), 30)).thenReturn(1);
+        when(cervejaRepository.incrementQuantidade(cervejaDTO.getId(), 10)).thenReturn(0);
+
+        CervejaStockCounter counter = stockCounters.receive(cervejaDTO.getId(), 30);
+
+        InOrder ordem = inOrder(cervejaRepository);
+        ordem.verify(cervejaRepository).adjustQuantidade(cervejaDTO.getId(), -5);
+        ordem.verify(cervejaRepository).incrementQuantidade(cervejaDTO.getId(), 30);
+        assertThrows(CervejaStockExceededException.class, () -> stockCounters.receive(cervejaDTO.getId(), 10));
+        assertThrows(CervejaStockExceededException.class, () -> stockCounters.receive(cervejaDTO.getId(), 16));
+        verify(cervejaRepository, never()).incrementQuantidade(cervejaDTO.getId(), 16);
+        assertThat(counter.getQuantidade(), is(equalTo(35)));
+        assertThat(counter.getDisponivel(), is(equalTo(35)));
+        stockCounters.flushAll();
+        verify(cervejaRepository, times(1)).adjustQuantidade(anyLong(), anyInt());
+    }
+
+    @Test
+    void whenABeerIsDeletedWhileItsCounterLoadsThenTheCounterIsNotKept() {
+        Cerveja cerveja = CervejaMapper.INSTANCE.toModel(cervejaDTO);
+        when(cervejaRepository.findById(cervejaDTO.getId())).thenAnswer(invocation -> {
+            stockCounters.evict(cervejaDTO.getId());
+            return Optional.of(cerveja);
+        }).thenReturn(Optional.empty());
+
+        assertThrows(CervejaNotFoundException.class, () -> stockCounters.counter(cervejaDTO.getId()));
+        assertThat(stockCounters.quantidade(cervejaDTO.getId()).isPresent(), is(false));
+    }
+
+    @Test
+    void whenDecrementIsGreaterThanStockThenAnExceptionIsThrown() {
+        givenBeerIsStored();
+
+        assertThrows(CervejaStockExceededException.class, () -> stockCounters.decrement(cervejaDTO.getId(), 11));
+    }
+
+    @Test
+    void whenDecrementIsCalledWithInvalidIdThenAnExceptionIsThrown() {
+        when(cervejaRepository.findById(INVALID_BEER_ID)).thenReturn(Optional.empty());
+
+        assertThrows(CervejaNotFoundException.class, () -> stockCounters.decrement(INVALID_BEER_ID, 1));
+    }
+
+    @Test
+    void whenReservaIsReleasedThenStockIsAvailableAgain() throws Exception {
+        givenBeerIsStored();
+
+        ReservaDTO reserva = stockCounters.reserve(cervejaDTO.getId(), 10);
+        assertThrows(CervejaStockExceededException.class, () -> stockCounters.decrement(cervejaDTO.getId(), 1));
+
+        stockCounters.release(reserva.getId());
+
+        assertThat(stockCounters.decrement(cervejaDTO.getId(), 10).getQuantidade(), is(equalTo(0)));
+    }
+
+    @Test
+    void whenAReservaIsNeitherCommittedNorReleasedThenItExpiresAndItsStockIsAvailableAgain() throws Exception {
+        givenBeerIsStored();
+        ReservaDTO abandonada = stockCounters.reserve(cervejaDTO.getId(), 6);
+        tempo.addAndGet(RESERVA_EXPIRE_AFTER.toNanos() / 2);
+        ReservaDTO aberta = stockCounters.reserve(cervejaDTO.getId(), 4);
+
+        tempo.addAndGet(RESERVA_EXPIRE_AFTER.toNanos() / 2 + 1);
+        stockCounters.flushAll();
+
+        assertThrows(ReservaNotFoundException.class, () -> stockCounters.commit(abandonada.getId()));
+        assertThat(stockCounters.counter(cervejaDTO.getId()).getReservado(), is(equalTo(4)));
+        assertThat(stockCounters.commit(aberta.getId()).getQuantidade(), is(equalTo(6)));
+        assertThat(stockCounters.decrement(cervejaDTO.getId(), 6).getQuantidade(), is(equalTo(0)));
+    }
+
+    @Test
+    void whenReservaIsCommittedThenReservedStockIsSold() throws Exception {
+        givenBeerIsStored();
+
+        ReservaDTO reserva = stockCounters.reserve(cervejaDTO.getId(), 3);
+        CervejaStockCounter counter = stockCounters.commit(reserva.getId());
+        stockCounters.flushAll();
+
+        assertThat(counter.getQuantidade(), is(equalTo(7)));
+        verify(cervejaRepository, times(1)).adjustQuantidade(cervejaDTO.getId(), -3);
+        assertThrows(ReservaNotFoundException.class, () -> stockCounters.commit(reserva.getId()));
+    }
+
+    @Test
+    void whenStockIsHeldAtLocationsThenItCannotBeSoldWithoutALocation() throws Exception {
+        givenBeerIsStored();
+        when(estoqueLocalRepository.sumQuantidade(cervejaDTO.getId())).thenReturn(4L);
+
+        stockCounters.counter(cervejaDTO.getId()).applyLocal(2);
+
+        assertThrows(CervejaStockExceededException.class, () -> stockCounters.decrement(cervejaDTO.getId(), 7));
+        assertThat(stockCounters.decrement(cervejaDTO.getId(), 6).getQuantidade(), is(equalTo(6)));
+        stockCounters.flushAll();
+        verify(cervejaRepository, times(1)).adjustQuantidade(cervejaDTO.getId(), -4);
+    }
+
+    @Test
+    void whenBeersAreHandedOffThenTheirStockIsWrittenBackAndTheyAreLoadedAgainOnNextUse() throws Exception {
+        givenBeerIsStored();
+        ReservaDTO reserva = stockCounters.reserve(cervejaDTO.getId(), 2);
+        stockCounters.decrement(cervejaDTO.getId(), 3);
+
+        stockCounters.handOff(id -> !id.equals(cervejaDTO.getId()));
+
+        assertThat(reserva.getId().startsWith(cervejaDTO.getId() + CervejaStockCounters.RESERVA_ID_SEPARATOR), is(true));
+        verify(cervejaRepository, times(1)).adjustQuantidade(cervejaDTO.getId(), -3);
+        assertThat(stockCounters.quantidade(cervejaDTO.getId()).isPresent(), is(false));
+        assertThrows(ReservaNotFoundException.class, () -> stockCounters.commit(reserva.getId()));
+        stockCounters.counter(cervejaDTO.getId());
+        verify(cervejaRepository, times(2)).findById(cervejaDTO.getId());
+    }
+
+    @Test
+    void whenManyThreadsDecrementThenStockNeverGoesBelowZero() throws Exception {
+        givenBeerIsStored();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        AtomicInteger sold = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            futures.add(executor.submit(() -> {
+                try {
+                    stockCounters.decrement(cervejaDTO.getId(), 1);
+                    sold.incrementAndGet();
+                } catch (CervejaStockExceededException ignored) {
+                    // sold out
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        assertThat(sold.get(), is(equalTo(cervejaDTO.getQuantidade())));
+        assertThat(stockCounters.quantidade(cervejaDTO.getId()).getAsInt(), is(equalTo(0)));
+    }
+
+    @Test
+    void whenReservationsComeAndGoThenTheStockReadMeanwhileNeverChanges() throws Exception {
+        givenBeerIsStored();
+        CervejaStockCounter counter = stockCounters.counter(cervejaDTO.getId());
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<?> reservas = executor.submit(() -> {
+            for (int i = 0; i < 200_000; i++) {
+                stockCounters.release(stockCounters.reserve(cervejaDTO.getId(), 1).getId());
+            }
+            return null;
+        });
+
+        int leiturasErradas = 0;
+        while (!reservas.isDone()) {
+            if (counter.getQuantidade() != cervejaDTO.getQuantidade()) {
+                leiturasErradas++;
+            }
+        }
+        reservas.get();
+        executor.shutdown();
+
+        assertThat(leiturasErradas, is(equalTo(0)));
+    }
+
+    private void givenBeerIsStored() {
+        Cerveja cerveja = CervejaMapper.INSTANCE.toModel(cervejaDTO);
+        when(cervejaRepository.findById(cervejaDTO.getId())).thenReturn(Optional.of(cerveja));
+    }
+}
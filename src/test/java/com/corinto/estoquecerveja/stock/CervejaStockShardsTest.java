@@ -0,0 +1,137 @@
+package com.corinto.estoquecerveja.stock;
+
+import com.corinto.estoquecerveja.dto.EstoqueLocalDTO;
+import com.corinto.estoquecerveja.entity.Cerveja;
+import com.corinto.estoquecerveja.entity.EstoqueLocal;
+import com.corinto.estoquecerveja.enums.ModoCapacidade;
+import com.corinto.estoquecerveja.enums.Tipo;
+import com.corinto.estoquecerveja.exception.CervejaStockExceededException;
+import com.corinto.estoquecerveja.exception.EstoqueLocalNotFoundException;
+import com.corinto.estoquecerveja.repository.EstoqueLocalRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Optional;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class CervejaStockShardsTest {
+
+    private static final long CERVEJA_ID = 1L;
+    private static final String LOCAL = "deposito-sul";
+
+    @Mock
+    private EstoqueLocalRepository repository;
+
+    @Mock
+    private CervejaStockCounters stockCounters;
+
+    private CervejaStockCounter counter;
+
+    @BeforeEach
+    void setUp() {
+        counter = new CervejaStockCounter(new Cerveja(CERVEJA_ID, "Brahma", "Ambev", 50, 10, Tipo.LAGER, null), 10);
+    }
+
+    @Test
+    void whenIncrementingWithLocalCapacityThenOnlyTheLocationRowIsCheckedAndTheRollupIsQueued() throws Exception {
+        when(stockCounters.counter(CERVEJA_ID)).thenReturn(counter);
+        when(repository.incrementWithinMax(CERVEJA_ID, LOCAL, 5)).thenReturn(1);
+
+        CervejaStockCounter incremented = shards(ModoCapacidade.LOCAL).increment(CERVEJA_ID, LOCAL, 5);
+
+        assertThat(incremented.getQuantidade(), is(equalTo(15)));
+        assertThat(incremented.getAlocado(), is(equalTo(15)));
+        assertThat(incremented.drainPendente(), is(equalTo(5)));
+        verify(repository, never()).increment(anyLong(), anyString(), anyInt());
+    }
+
+    @Test
+    void whenTheLocationIsFullThenIncrementIsRejectedWithoutTouchingTheRollup() throws Exception {
+        when(stockCounters.counter(CERVEJA_ID)).thenReturn(counter);
+        when(repository.incrementWithinMax(CERVEJA_ID, LOCAL, 5)).thenReturn(0);
+        when(repository.findByCervejaIdAndLocal(CERVEJA_ID, LOCAL)).thenReturn(Optional.of(new EstoqueLocal(1L, CERVEJA_ID, LOCAL, 12, 10)));
+
+        assertThrows(CervejaStockExceededException.class, () -> shards(ModoCapacidade.LOCAL).increment(CERVEJA_ID, LOCAL, 5));
+        assertThat(counter.getQuantidade(), is(equalTo(10)));
+        assertThat(counter.hasPendente(), is(false));
+    }
+
+    @Test
+    void whenTheLocationDoesNotExistThenAnExceptionIsThrown() throws Exception {
+        when(stockCounters.counter(CERVEJA_ID)).thenReturn(counter);
+        when(repository.decrement(CERVEJA_ID, LOCAL, 1)).thenReturn(0);
+        when(repository.findByCervejaIdAndLocal(CERVEJA_ID, LOCAL)).thenReturn(Optional.empty());
+
+        assertThrows(EstoqueLocalNotFoundException.class, () -> shards(ModoCapacidade.LOCAL).decrement(CERVEJA_ID, LOCAL, 1));
+    }
+
+    @Test
+    void whenIncrementingWithGlobalCapacityThenTheBeerMaxIsCheckedInsteadOfTheLocationMax() throws Exception {
+        when(stockCounters.counter(CERVEJA_ID)).thenReturn(counter);
+        when(repository.increment(CERVEJA_ID, LOCAL, 40)).thenReturn(1);
+        CervejaStockShards shards = shards(ModoCapacidade.GLOBAL);
+
+        assertThat(shards.increment(CERVEJA_ID, LOCAL, 40).getQuantidade(), is(equalTo(50)));
+        assertThrows(CervejaStockExceededException.class, () -> shards.increment(CERVEJA_ID, LOCAL, 1));
+        verify(repository, never()).incrementWithinMax(anyLong(), anyString(), anyInt());
+    }
+
+    @Test
+    void whenTheLocationDoesNotExistWithGlobalCapacityThenTheCounterIsRestored() throws Exception {
+        when(stockCounters.counter(CERVEJA_ID)).thenReturn(counter);
+        when(repository.increment(CERVEJA_ID, LOCAL, 5)).thenReturn(0);
+
+        assertThrows(EstoqueLocalNotFoundException.class, () -> shards(ModoCapacidade.GLOBAL).increment(CERVEJA_ID, LOCAL, 5));
+        assertThat(counter.getQuantidade(), is(equalTo(10)));
+        assertThat(counter.getAlocado(), is(equalTo(10)));
+        assertThat(counter.hasPendente(), is(false));
+    }
+
+    @Test
+    void whenDecrementingThenTheRollupIsQueued() throws Exception {
+        when(stockCounters.counter(CERVEJA_ID)).thenReturn(counter);
+        when(repository.decrement(CERVEJA_ID, LOCAL, 3)).thenReturn(1);
+
+        CervejaStockCounter decremented = shards(ModoCapacidade.LOCAL).decrement(CERVEJA_ID, LOCAL, 3);
+
+        assertThat(decremented.getQuantidade(), is(equalTo(7)));
+        assertThat(decremented.drainPendente(), is(equalTo(-3)));
+    }
+
+    @Test
+    void whenCapacityIsSetForANewLocationThenItIsOpenedEmpty() throws Exception {
+        EstoqueLocalDTO expected = new EstoqueLocalDTO(CERVEJA_ID, LOCAL, 20, 0);
+        when(repository.findByCervejaIdAndLocal(CERVEJA_ID, LOCAL)).thenReturn(Optional.empty());
+        when(repository.findDTO(CERVEJA_ID, LOCAL)).thenReturn(Optional.of(expected));
+
+        assertThat(shards(ModoCapacidade.LOCAL).setCapacity(CERVEJA_ID, LOCAL, 20), is(equalTo(expected)));
+        verify(repository).save(any(EstoqueLocal.class));
+    }
+
+    @Test
+    void whenLocalCapacityIsSetBelowTheLocationStockThenAnExceptionIsThrown() {
+        when(repository.findByCervejaIdAndLocal(CERVEJA_ID, LOCAL)).thenReturn(Optional.of(new EstoqueLocal(1L, CERVEJA_ID, LOCAL, 20, 10)));
+        when(repository.updateMax(CERVEJA_ID, LOCAL, 5)).thenReturn(0);
+
+        assertThrows(CervejaStockExceededException.class, () -> shards(ModoCapacidade.LOCAL).setCapacity(CERVEJA_ID, LOCAL, 5));
+    }
+
+    private CervejaStockShards shards(ModoCapacidade modoCapacidade) {
+        return new CervejaStockShards(repository, stockCounters, modoCapacidade);
+    }
+}
@@ -0,0 +1,117 @@
+package com.corinto.estoquecerveja.stock;
+
+import com.corinto.estoquecerveja.builder.CervejaDTOBuilder;
+import com.corinto.estoquecerveja.mapper.CervejaMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class CervejaStockTableTest {
+
+    private static final int BEERS = 10_000;
+
+    private final CervejaStockTable table = new CervejaStockTable();
+
+    @Test
+    void whenCountersAreAddedAndRemovedThenEveryRemainingOneIsFoundByItsId() {
+        List<CervejaStockCounter> counters = new ArrayList<>();
+        for (long id = 1; id <= BEERS; id++) {
+            counters.add(table.putIfAbsent(counter(id), table.remocoes()));
+        }
+        for (long id = 3; id <= BEERS; id += 3) {
+            assertThat(table.remove(id).getId(), is(equalTo(id)));
+        }
+
+        for (CervejaStockCounter counter : counters) {
+            CervejaStockCounter found = table.get(counter.getId());
+            if (counter.getId() % 3 == 0) {
+                assertThat(found, is(nullValue()));
+            } else {
+                assertThat(found, is(sameInstance(counter)));
+            }
+        }
+        assertThat(table.remove(3L), is(nullValue()));
+    }
+
+    @Test
+    void whenACounterIsAlreadyThereOrARemovalRanMeanwhileThenTheLoadedOneIsNotAdded() {
+        CervejaStockCounter first = counter(1L);
+        long remocoes = table.remocoes();
+        table.putIfAbsent(first, remocoes);
+
+        assertThat(table.putIfAbsent(counter(1L), remocoes), is(sameInstance(first)));
+
+        table.remove(2L);
+        assertThat(table.putIfAbsent(counter(3L), remocoes), is(nullValue()));
+        assertThat(table.get(3L), is(nullValue()));
+    }
+
+    @Test
+    void whenCountersAreRemovedByAFilterThenTheRestStay() {
+        for (long id = 1; id <= 100; id++) {
+            table.putIfAbsent(counter(id), table.remocoes());
+        }
+        List<CervejaStockCounter> removidos = new ArrayList<>();
+        List<CervejaStockCounter> restantes = new ArrayList<>();
+
+        table.removeIf(counter -> counter.getId() > 10, removidos);
+        table.collect(counter -> true, restantes);
+
+        assertThat(removidos.size(), is(equalTo(90)));
+        assertThat(restantes.stream().map(CervejaStockCounter::getId).collect(Collectors.toList()),
+                containsInAnyOrder(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L));
+    }
+
+    @Test
+    void whenTheTableChangesUnderConcurrentLookupsThenAStableCounterIsAlwaysFound() throws Exception {
+        CervejaStockCounter estavel = counter(0L);
+        table.putIfAbsent(estavel, table.remocoes());
+        AtomicBoolean parar = new AtomicBoolean();
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        List<Future<Integer>> leitores = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            leitores.add(executor.submit(() -> {
+                int erros = 0;
+                while (!parar.get()) {
+                    if (table.get(0L) != estavel) {
+                        erros++;
+                    }
+                }
+                return erros;
+            }));
+        }
+        executor.submit(() -> {
+            for (int round = 0; round < 20; round++) {
+                for (long id = 1; id <= 1_000; id++) {
+                    table.putIfAbsent(counter(id), table.remocoes());
+                }
+                for (long id = 1; id <= 1_000; id++) {
+                    table.remove(id);
+                }
+            }
+            parar.set(true);
+        }).get();
+
+        for (Future<Integer> leitor : leitores) {
+            assertThat(leitor.get(), is(equalTo(0)));
+        }
+        executor.shutdown();
+    }
+
+    private static CervejaStockCounter counter(long id) {
+        return new CervejaStockCounter(CervejaMapper.INSTANCE.toModel(CervejaDTOBuilder.builder().id(id).build().toCervejaDTO()));
+    }
+}
@@ -0,0 +1,178 @@
+package com.corinto.estoquecerveja.stream;
+
+import com.corinto.estoquecerveja.dto.CervejaDTO;
+import com.corinto.estoquecerveja.enums.Tipo;
+import com.corinto.estoquecerveja.event.CervejaChangedEvent;
+import com.corinto.estoquecerveja.stock.CervejaStockCounters;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalInt;
+import java.util.Queue;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class StockChangeBroadcasterTest {
+
+    private static final int BUFFER_SIZE = 2;
+
+    private final Queue<Runnable> dispatches = new ArrayDeque<>();
+    private final List<RecordingEmitter> emitters = new ArrayList<>();
+    private final CervejaStockCounters stockCounters = mock(CervejaStockCounters.class);
+    private MeterRegistry meterRegistry;
+    private StockChangeBroadcaster broadcaster;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        broadcaster = new StockChangeBroadcaster(new ObjectMapper(), stockCounters, meterRegistry, BUFFER_SIZE, () -> {
+            RecordingEmitter emitter = new RecordingEmitter();
+            emitters.add(emitter);
+            return emitter;
+        }, Runnable::run, dispatches::add);
+    }
+
+    @Test
+    void whenBeersChangeThenEachSubscriberOnlyReceivesTheChangesItsFilterMatches() {
+        broadcaster.subscribe(null, null);
+        broadcaster.subscribe(Set.of(Tipo.LAGER), null);
+        broadcaster.subscribe(null, Set.of(2L));
+
+        broadcaster.onCervejaChanged(changed(CervejaChangedEvent.Operacao.CREATED, 1L, Tipo.LAGER, 10));
+        broadcaster.onCervejaChanged(changed(CervejaChangedEvent.Operacao.STOCK_CHANGED, 2L, Tipo.IPA, 5));
+        dispatchAll();
+
+        assertThat(emitters.get(0).ids(), contains(1L, 2L));
+        assertThat(emitters.get(1).ids(), contains(1L));
+        assertThat(emitters.get(2).ids(), contains(2L));
+        assertThat(emitters.get(0).enviados.get(0), containsString("event:CREATED\n"));
+        assertThat(emitters.get(0).enviados.get(1), containsString("event:STOCK_CHANGED\n"));
+    }
+
+    @Test
+    void whenABeerChangesAgainBeforeItIsSentThenOnlyItsLatestStateIsSent() {
+        broadcaster.subscribe(null, null);
+
+        broadcaster.onCervejaChanged(changed(CervejaChangedEvent.Operacao.STOCK_CHANGED, 1L, Tipo.LAGER, 10));
+        broadcaster.onCervejaChanged(changed(CervejaChangedEvent.Operacao.STOCK_CHANGED, 1L, Tipo.LAGER, 11));
+        broadcaster.onCervejaChanged(changed(CervejaChangedEvent.Operacao.STOCK_CHANGED, 1L, Tipo.LAGER, 12));
+        dispatchAll();
+
+        assertThat(emitters.get(0).enviados, hasSize(1));
+        assertThat(emitters.get(0).enviados.get(0), containsString("\"quantidade\":12"));
+        assertThat(meterRegistry.counter(StockChangeBroadcaster.COALESCED_COUNTER).count(), is(equalTo(2.0)));
+    }
+
+    @Test
+    void whenABeerChangesAfterItsDeletionIsPendingThenTheDeletionIsSent() {
+        broadcaster.subscribe(null, null);
+
+        broadcaster.onCervejaChanged(changed(CervejaChangedEvent.Operacao.DELETED, 1L, Tipo.LAGER, 10));
+        broadcaster.onCervejaChanged(changed(CervejaChangedEvent.Operacao.UPDATED, 1L, Tipo.LAGER, 10));
+        dispatchAll();
+
+        assertThat(emitters.get(0).enviados, hasSize(1));
+        assertThat(emitters.get(0).enviados.get(0), containsString("event:DELETED\n"));
+        assertThat(meterRegistry.counter(StockChangeBroadcaster.COALESCED_COUNTER).count(), is(equalTo(1.0)));
+    }
+
+    @Test
+    void whenChangesToABeerArriveOutOfOrderThenItsLiveStockIsSent() {
+        broadcaster.subscribe(null, null);
+        when(stockCounters.quantidade(1L)).thenReturn(OptionalInt.of(12));
+
+        broadcaster.onCervejaChanged(changed(CervejaChangedEvent.Operacao.STOCK_CHANGED, 1L, Tipo.LAGER, 12));
+        broadcaster.onCervejaChanged(changed(CervejaChangedEvent.Operacao.STOCK_CHANGED, 1L, Tipo.LAGER, 10));
+        dispatchAll();
+
+        assertThat(emitters.get(0).enviados, hasSize(1));
+        assertThat(emitters.get(0).enviados.get(0), containsString("\"quantidade\":12"));
+    }
+
+    @Test
+    void whenASubscriberFallsBehindItsBufferThenItIsDisconnectedWithoutHoldingBackTheOthers() {
+        broadcaster.subscribe(null, null);
+        broadcaster.subscribe(Set.of(Tipo.IPA), null);
+
+        for (long id = 1; id <= BUFFER_SIZE + 1; id++) {
+            broadcaster.onCervejaChanged(changed(CervejaChangedEvent.Operacao.STOCK_CHANGED, id, Tipo.LAGER, 10));
+        }
+        broadcaster.onCervejaChanged(changed(CervejaChangedEvent.Operacao.STOCK_CHANGED, 9L, Tipo.IPA, 10));
+        dispatchAll();
+
+        assertThat(emitters.get(0).completed, is(true));
+        assertThat(emitters.get(0).enviados, is(empty()));
+        assertThat(emitters.get(1).ids(), contains(9L));
+        assertThat(meterRegistry.counter(StockChangeBroadcaster.DROPPED_COUNTER).count(), is(equalTo(1.0)));
+        assertThat(meterRegistry.get(StockChangeBroadcaster.SUBSCRIBERS_GAUGE).gauge().value(), is(equalTo(1.0)));
+    }
+
+    @Test
+    void whenAClientWentAwayThenItIsUnsubscribedOnTheNextSend() {
+        broadcaster.subscribe(null, null);
+        emitters.get(0).broken = true;
+
+        broadcaster.onCervejaChanged(changed(CervejaChangedEvent.Operacao.DELETED, 1L, Tipo.LAGER, 0));
+        dispatchAll();
+        broadcaster.heartbeat();
+
+        assertThat(dispatches, is(empty()));
+        assertThat(meterRegistry.get(StockChangeBroadcaster.SUBSCRIBERS_GAUGE).gauge().value(), is(equalTo(0.0)));
+    }
+
+    private void dispatchAll() {
+        for (Runnable dispatch = dispatches.poll(); dispatch != null; dispatch = dispatches.poll()) {
+            dispatch.run();
+        }
+    }
+
+    private static CervejaChangedEvent changed(CervejaChangedEvent.Operacao operacao, Long id, Tipo tipo, int quantidade) {
+        return new CervejaChangedEvent(operacao, new CervejaDTO(id, "Cerveja " + id, "Ambev", 50, quantidade, tipo));
+    }
+
+    private static final class RecordingEmitter extends SseEmitter {
+
+        private final List<String> enviados = new ArrayList<>();
+        private boolean broken;
+        private boolean completed;
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            if (broken) {
+                throw new IOException("Broken pipe");
+            }
+            enviados.add(builder.build().stream()
+                    .map(data -> data.getData().toString())
+                    .collect(Collectors.joining()));
+        }
+
+        @Override
+        public synchronized void complete() {
+            completed = true;
+        }
+
+        private List<Long> ids() {
+            return enviados.stream()
+                    .map(enviado -> Long.valueOf(enviado.replaceAll("(?s).*\"id\":(\\d+).*", "$1")))
+                    .collect(Collectors.toList());
+        }
+    }
+}
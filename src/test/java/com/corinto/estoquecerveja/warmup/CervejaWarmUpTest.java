@@ -0,0 +1,109 @@
+package com.corinto.estoquecerveja.warmup;
+
+import com.corinto.estoquecerveja.analytics.CervejaStockAnalytics;
+import com.corinto.estoquecerveja.builder.CervejaDTOBuilder;
+import com.corinto.estoquecerveja.cache.CervejaCache;
+import com.corinto.estoquecerveja.dto.CervejaDTO;
+import com.corinto.estoquecerveja.dto.TipoEstoqueDTO;
+import com.corinto.estoquecerveja.enums.Tipo;
+import com.corinto.estoquecerveja.repository.CervejaRepository;
+import com.corinto.estoquecerveja.search.CervejaSearchIndex;
+import com.corinto.estoquecerveja.stock.CervejaStockCounters;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class CervejaWarmUpTest {
+
+    private static final int SLICE_SIZE = 2;
+
+    @Mock
+    private CervejaRepository cervejaRepository;
+
+    @Mock
+    private CervejaStockCounters stockCounters;
+
+    @TempDir
+    Path dataDir;
+
+    private CervejaSearchIndex searchIndex;
+    private CervejaStockAnalytics stockAnalytics;
+    private CervejaCache cervejaCache;
+
+    @BeforeEach
+    void setUp() {
+        searchIndex = new CervejaSearchIndex(cervejaRepository);
+        stockAnalytics = new CervejaStockAnalytics(cervejaRepository, stockCounters);
+        cervejaCache = new CervejaCache(new SimpleMeterRegistry(), 10, Duration.ofMinutes(1));
+        when(cervejaRepository.findMaxId()).thenReturn(Optional.of(5L));
+        lenient().when(cervejaRepository.findDTOsBetween(0L, 2L)).thenReturn(List.of(cerveja(1), cerveja(2)));
+        lenient().when(cervejaRepository.findDTOsBetween(4L, 6L)).thenReturn(List.of(cerveja(5)));
+    }
+
+    @Test
+    void whenTheCatalogueSpansSeveralSlicesThenEveryReadPathHoldsEveryBeerInIdOrder() {
+        when(cervejaRepository.findDTOsBetween(2L, 4L)).thenReturn(List.of(cerveja(3), cerveja(4)));
+
+        warmUp(1, "").warmUp();
+
+        assertThat(searchIndex.search("", null, 10).stream().map(CervejaDTO::getId).collect(Collectors.toList()),
+                contains(1L, 2L, 3L, 4L, 5L));
+        assertThat(stockAnalytics.byTipo().stream().mapToInt(TipoEstoqueDTO::getSkus).sum(), is(equalTo(5)));
+    }
+
+    @Test
+    void whenTheLastRunSavedItsCachedNomesThenOnlyThoseAreCachedOnStart() throws Exception {
+        when(cervejaRepository.findDTOsBetween(2L, 4L)).thenReturn(List.of(cerveja(3), cerveja(4)));
+        Path cacheKeys = dataDir.resolve("cache-keys.txt");
+        Files.write(cacheKeys, List.of("Cerveja 4"), StandardCharsets.UTF_8);
+        CervejaWarmUp warmUp = warmUp(2, cacheKeys.toString());
+
+        warmUp.warmUp();
+
+        assertThat(cervejaCache.hottest(), contains("Cerveja 4"));
+        cervejaCache.get("Cerveja 2", nome -> Optional.of(cerveja(2)));
+        warmUp.saveCacheKeys();
+        assertThat(Files.readAllLines(cacheKeys, StandardCharsets.UTF_8).stream().sorted().collect(Collectors.toList()),
+                contains("Cerveja 2", "Cerveja 4"));
+    }
+
+    @Test
+    void whenASliceCannotBeReadThenTheWarmUpFailsInsteadOfWaiting() {
+        when(cervejaRepository.findDTOsBetween(2L, 4L)).thenThrow(new IllegalStateException("Disco indisponível"));
+
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () ->
+                assertThrows(CompletionException.class, () -> warmUp(1, "").warmUp()));
+    }
+
+    private CervejaWarmUp warmUp(int threads, String cacheKeys) {
+        return new CervejaWarmUp(cervejaRepository, searchIndex, stockAnalytics, cervejaCache, threads, SLICE_SIZE, cacheKeys);
+    }
+
+    private static CervejaDTO cerveja(long id) {
+        return CervejaDTOBuilder.builder().id(id).nome("Cerveja " + id).tipo(Tipo.values()[(int) id % Tipo.values().length])
+                .build().toCervejaDTO();
+    }
+}